@@ -1,6 +1,8 @@
 package com.scott;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Advanced Math is a library of methods to help with vector and matrix operations along with some other useful
@@ -112,13 +114,85 @@ public class AdvancedMath {
         if (A.length != B.length) {
             throw new IllegalArgumentException("Inputs A and B must be the same size to compute dot product.");
         }
-        double sum = 0;
-        for (int i = 0; i < A.length; i++) {
-            sum += A[i] * B[i];
+        return dotProduct(A, B, Summation.SEQUENTIAL);
+    }
+
+    /**
+     * Calculates the dot product of 2 arrays, adding up the products the way mode says.
+     * @param A Vector 1
+     * @param B Vector 2
+     * @param mode how to add up the products
+     * @return A dot B
+     */
+    public static double dotProduct(double[] A, double[] B, Summation mode) {
+        if (A.length != B.length) {
+            throw new IllegalArgumentException("Inputs A and B must be the same size to compute dot product.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double sum = mode.dot(A, B, 0, A.length);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.DOT_PRODUCT, A.length, 1, start, 0);
         }
         return sum;
     }
 
+    /**
+     * Convolves 2 arrays, directly for short kernels and through an FFT for long ones, see Convolver.
+     * @param signal array with at least 1 element
+     * @param kernel array with at least 1 element
+     * @return the full convolution, signal.length + kernel.length - 1 elements
+     */
+    public static double[] convolve(double[] signal, double[] kernel) {
+        if (signal.length == 0 || kernel.length == 0) {
+            throw new IllegalArgumentException("The signal and the kernel need at least 1 element.");
+        }
+        if (kernel.length > signal.length) {
+            double[] swap = signal;
+            signal = kernel;
+            kernel = swap;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int n = signal.length, m = kernel.length;
+        double[] result = new double[n + m - 1];
+        Convolver convolver = new Convolver(kernel, Math.min(n, Convolver.defaultBlockSize(m)));
+        convolver.process(signal, result);
+        double[] end = convolver.flush();
+        System.arraycopy(end, 0, result, n, end.length);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.CONVOLUTION, n, m, start, 8L * result.length);
+        }
+        return result;
+    }
+
+    /**
+     * Slides a kernel along a signal and takes the dot product with every window of the signal it fits over, the
+     * same as dotProduct on each window but through an FFT for long kernels, see Convolver.
+     * @param signal array at least as long as the kernel
+     * @param kernel array with at least 1 element
+     * @return signal.length - kernel.length + 1 dot products, the first with the window starting at signal[0]
+     */
+    public static double[] correlate(double[] signal, double[] kernel) {
+        if (kernel.length == 0) {
+            throw new IllegalArgumentException("The signal and the kernel need at least 1 element.");
+        }
+        if (kernel.length > signal.length) {
+            throw new IllegalArgumentException("The kernel can't be longer than the signal.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int n = signal.length, m = kernel.length;
+        double[] reversed = new double[m];
+        for (int i = 0; i < m; i++) {
+            reversed[i] = kernel[m - 1 - i];
+        }
+        // Output t of the convolution with the reversed kernel is the window that ends at t.
+        double[] convolution = new Convolver(reversed, Math.min(n, Convolver.defaultBlockSize(m))).process(signal);
+        double[] result = Arrays.copyOfRange(convolution, m - 1, n);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.CONVOLUTION, n, m, start, 8L * result.length);
+        }
+        return result;
+    }
+
     /**
      * Takes the magnitude of an arraylist.
      * calculated as sqrt(dot(input,input))
@@ -131,12 +205,121 @@ public class AdvancedMath {
 
     /**
      * Takes the magnitude of an array.
-     * calculated as sqrt(dot(input,input))
+     * calculated as the square root of the squares added up with Summation.UNROLLED, and again with scaling if that
+     * sum overflowed or underflowed, so it works for any finite elements.
      * @param input vector
      * @return magnitude of the vector
      */
     public static double magnitude(double[] input) {
-        return Math.sqrt(dotProduct(input,input));
+        return norm(input, 0, input.length);
+    }
+
+    /**
+     * Takes the magnitude of an array, adding up the squares the way mode says.
+     * calculated as sqrt(dot(input,input)), so unlike magnitude(input) it overflows for elements above about 1e154.
+     * @param input vector
+     * @param mode how to add up the squares
+     * @return magnitude of the vector
+     */
+    public static double magnitude(double[] input, Summation mode) {
+        return Math.sqrt(dotProduct(input, input, mode));
+    }
+
+    /**
+     * Takes the magnitude of an array, splitting it into pieces that are added up in parallel.
+     * @param input vector
+     * @return magnitude of the vector
+     */
+    public static double parallelMagnitude(double[] input) {
+        double sum = ParallelArrays.reduce(input.length, new ParallelArrays.Reduction() {
+            public double leaf(int from, int to) {
+                return sumOfSquares(input, from, to);
+            }
+
+            public double combine(double left, double right) {
+                return left + right;
+            }
+        });
+        if (sum > SAFE_MIN_SUM && sum < Double.POSITIVE_INFINITY) {
+            return Math.sqrt(sum);
+        }
+        return ParallelArrays.reduce(input.length, new ParallelArrays.Reduction() {
+            public double leaf(int from, int to) {
+                return scaledNorm(input, from, to);
+            }
+
+            public double combine(double left, double right) {
+                return Math.hypot(left, right);
+            }
+        });
+    }
+
+    /**
+     * A sum of squares above this can't have lost anything important to underflow.
+     */
+    private static final double SAFE_MIN_SUM = 0x1p-968;
+
+    /**
+     * Blue's thresholds and scale factors, as used by LAPACK's dnrm2. Values above BIG_THRESHOLD are scaled down
+     * before squaring so they can't overflow, values below SMALL_THRESHOLD are scaled up so they can't underflow.
+     */
+    private static final double SMALL_THRESHOLD = 0x1p-511, BIG_THRESHOLD = 0x1p486;
+    private static final double SMALL_SCALE = 0x1p537, BIG_SCALE = 0x1p-538;
+
+    private static double sumOfSquares(double[] a, int from, int to) {
+        return Summation.UNROLLED.dot(a, a, from, to);
+    }
+
+    /**
+     * Magnitude of a[from, to). The squares are added up directly first, and only if that overflowed or underflowed
+     * is the magnitude calculated again with scaling.
+     */
+    static double norm(double[] a, int from, int to) {
+        double sum = sumOfSquares(a, from, to);
+        if (sum > SAFE_MIN_SUM && sum < Double.POSITIVE_INFINITY) {
+            return Math.sqrt(sum);
+        }
+        return scaledNorm(a, from, to);
+    }
+
+    /**
+     * Blue's algorithm: one pass that adds up the squares of large, medium and small values separately, each scaled
+     * so it stays in range, and then combines the three sums.
+     */
+    private static double scaledNorm(double[] a, int from, int to) {
+        double big = 0, medium = 0, small = 0;
+        boolean noBig = true;
+        for (int i = from; i < to; i++) {
+            double x = Math.abs(a[i]);
+            if (x > BIG_THRESHOLD) {
+                x *= BIG_SCALE;
+                big += x * x;
+                noBig = false;
+            } else if (x < SMALL_THRESHOLD) {
+                if (noBig) {
+                    x *= SMALL_SCALE;
+                    small += x * x;
+                }
+            } else {
+                medium += x * x;
+            }
+        }
+        if (big > 0) {
+            if (medium > 0 || Double.isNaN(medium)) {
+                big += medium * BIG_SCALE * BIG_SCALE;
+            }
+            return Math.sqrt(big) / BIG_SCALE;
+        }
+        if (small > 0) {
+            if (medium > 0 || Double.isNaN(medium)) {
+                double mediumNorm = Math.sqrt(medium);
+                double smallNorm = Math.sqrt(small) / SMALL_SCALE;
+                double max = Math.max(mediumNorm, smallNorm), min = Math.min(mediumNorm, smallNorm);
+                return max * Math.sqrt(1 + (min / max) * (min / max));
+            }
+            return Math.sqrt(small) / SMALL_SCALE;
+        }
+        return Math.sqrt(medium);
     }
 
     /**
@@ -160,9 +343,7 @@ public class AdvancedMath {
      */
     public static double[] scalarMultiply(double scale, double[] inputs) {
         double[] scaled = new double[inputs.length];
-        for (int i = 0; i < inputs.length; i++) {
-            scaled[i] = scale * inputs[i];
-        }
+        ParallelArrays.scale(scale, inputs, scaled);
         return scaled;
     }
 
@@ -173,10 +354,15 @@ public class AdvancedMath {
      * @return scaled matrix
      */
     public static Matrix scalarMultiply(double scale, Matrix mat) {
-        double[] matArr = mat.getMatrixArray();
+        if (mat instanceof StructuredMatrix) {
+            return ((StructuredMatrix) mat).scaled(scale);
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] matArr = mat.data();
         double[] scaled = new double[matArr.length];
-        for (int i = 0; i < matArr.length; i++) {
-            scaled[i] = scale * matArr[i];
+        ParallelArrays.scale(scale, matArr, scaled);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.SCALAR_MULTIPLY, mat.getRows(), mat.getColumns(), start, 8L * scaled.length);
         }
         return new Matrix(mat.getRows(), mat.getColumns(), scaled);
     }
@@ -234,14 +420,66 @@ public class AdvancedMath {
      * @return normalized vector
      */
     public static double[] normalize(double[] inputs) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         double[] normalized = new double[inputs.length];
-        double mag = magnitude(inputs);
-        for (int i = 0; i < inputs.length; i++) {
-            normalized[i] = inputs[i] / mag;
+        scale(inputs, magnitude(inputs), normalized, 0, inputs.length);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.NORMALIZE, inputs.length, 1, start, 8L * normalized.length);
         }
         return normalized;
     }
 
+    /**
+     * Divides each element of the array by it's magnitude and writes the result into output.
+     * @param inputs vector
+     * @param output array the same size as inputs, it may be inputs itself to normalize in place
+     */
+    public static void normalize(double[] inputs, double[] output) {
+        if (inputs.length != output.length) {
+            throw new IllegalArgumentException("The output must be the same size as the input.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        scale(inputs, magnitude(inputs), output, 0, inputs.length);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.NORMALIZE, inputs.length, 1, start, 0);
+        }
+    }
+
+    /**
+     * Divides each element of the array by it's magnitude and writes the result into output. Both the magnitude and
+     * the division are split into pieces that run in parallel, which pays off for vectors with millions of elements.
+     * @param inputs vector
+     * @param output array the same size as inputs, it may be inputs itself to normalize in place
+     */
+    public static void parallelNormalize(double[] inputs, double[] output) {
+        if (inputs.length != output.length) {
+            throw new IllegalArgumentException("The output must be the same size as the input.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double mag = parallelMagnitude(inputs);
+        ParallelArrays.forEach(inputs.length, (from, to) -> scale(inputs, mag, output, from, to));
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.NORMALIZE, inputs.length, 1, start, 0);
+        }
+    }
+
+    /**
+     * Writes in[from, to) divided by mag to out. Multiplying by the reciprocal is much faster than dividing, the
+     * division is only kept for magnitudes so small their reciprocal overflows.
+     */
+    static void scale(double[] in, double mag, double[] out, int from, int to) {
+        double reciprocal = 1 / mag;
+        if (Double.isInfinite(reciprocal)) {
+            for (int i = from; i < to; i++) {
+                out[i] = in[i] / mag;
+            }
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            out[i] = in[i] * reciprocal;
+        }
+    }
+
     /**
      * Multiplies 2 matrices together.
      * @param A Matrix 1
@@ -253,14 +491,418 @@ public class AdvancedMath {
             throw new IllegalArgumentException("The number of columns in matrix A must match the number of " +
                     "rows in matrix B.");
         }
-        Matrix result = new Matrix(A.getRows(), B.getColumns());
-        for (int i = 0; i < result.getMatrixArray().length; i++) {
-            int row = i / result.getColumns();
-            int col = i % result.getColumns();
-            result.setCell(row, col, AdvancedMath.dotProduct(A.getRow(row), B.getColumn(col)));
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int rows = A.getRows(), inner = A.getColumns(), cols = B.getColumns();
+        if (A instanceof StructuredMatrix || B instanceof StructuredMatrix) {
+            double[] result = A instanceof StructuredMatrix
+                    ? ((StructuredMatrix) A).multiplyRight(B.data(), cols)
+                    : ((StructuredMatrix) B).multiplyLeft(A.data(), rows);
+            if (Metrics.ENABLED) {
+                Metrics.record(Metrics.Operation.MATRIX_MULTIPLY, rows, inner, start, 8L * result.length);
+            }
+            return new Matrix(rows, cols, result);
+        }
+        double[] result = new double[rows * cols];
+        multiply(A.data(), B.data(), result, rows, inner, cols);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_MULTIPLY, rows, inner, start, 8L * result.length);
+        }
+        return new Matrix(rows, cols, result);
+    }
+
+    /**
+     * Adds the rows x inner array a times the inner x cols array b to result, which must not be a or b.
+     */
+    private static void multiply(double[] a, double[] b, double[] result, int rows, int inner, int cols) {
+        multiply(a, 0, b, 0, result, 0, rows, inner, cols);
+    }
+
+    /**
+     * Adds the rows x inner matrix starting at a[aOffset] times the inner x cols matrix starting at b[bOffset] to the
+     * matrix starting at result[resultOffset], all row major. The result must not overlap a or b.
+     */
+    static void multiply(double[] a, int aOffset, double[] b, int bOffset, double[] result, int resultOffset,
+                         int rows, int inner, int cols) {
+        // Work on one block of B at a time so it stays in cache while every row of A passes over it.
+        int block = Math.max(1, multiplyBlockSize);
+        for (int kk = 0; kk < inner; kk += block) {
+            int kEnd = Math.min(inner, kk + block);
+            for (int jj = 0; jj < cols; jj += block) {
+                int jEnd = Math.min(cols, jj + block);
+                for (int i = 0; i < rows; i++) {
+                    int rowStart = resultOffset + i * cols;
+                    for (int k = kk; k < kEnd; k++) {
+                        double aik = a[aOffset + i * inner + k];
+                        int bRow = bOffset + k * cols;
+                        for (int j = jj; j < jEnd; j++) {
+                            result[rowStart + j] += aik * b[bRow + j];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Plans the cheapest order to multiply a chain of matrices without multiplying them.
+     * @param matrices matrices in the order they are multiplied, each with as many columns as the next one has rows
+     * @return the plan multiplyChain would follow
+     */
+    public static ChainPlan planChain(Matrix... matrices) {
+        return new ChainPlan(chainDimensions(matrices, false));
+    }
+
+    /**
+     * Multiplies a chain of matrices in the order that takes the fewest flops, see ChainPlan. Each product in
+     * between is written into an array that an earlier product in between is done with when there is one, so a
+     * long chain needs about as much scratch space as its 2 largest products.
+     * Structured matrices in the chain are multiplied as dense ones.
+     * @param matrices matrices in the order they are multiplied, each with as many columns as the next one has rows
+     * @return the product of the matrices
+     */
+    public static Matrix multiplyChain(Matrix... matrices) {
+        ChainPlan plan = planChain(matrices);
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = multiplyChain(plan, matrices, null);
+        int rows = plan.dimension(0), cols = plan.dimension(matrices.length);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_CHAIN, rows, cols, start, 8L * result.length);
+        }
+        return new Matrix(rows, cols, result);
+    }
+
+    /**
+     * Multiplies a chain of matrices and a vector in the order that takes the fewest flops. The vector is planned
+     * as a matrix with 1 column, so a chain of square matrices is multiplied from the right and never forms a
+     * matrix product.
+     * @param matrices matrices in the order they are multiplied, each with as many columns as the next one has rows
+     * @param vector vector with as many elements as the last matrix has columns
+     * @return the product of the matrices and the vector
+     */
+    public static double[] multiplyChain(Matrix[] matrices, double[] vector) {
+        ChainPlan plan = new ChainPlan(chainDimensions(matrices, true));
+        if (matrices[matrices.length - 1].getColumns() != vector.length) {
+            throw new IllegalArgumentException("The number of columns in the last matrix must match the number of " +
+                    "elements in the vector.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = multiplyChain(plan, matrices, vector);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_CHAIN, result.length, 1, start, 8L * result.length);
+        }
+        return result;
+    }
+
+    /**
+     * Rows of the first matrix followed by the columns of every matrix, and a 1 for the columns of the vector.
+     */
+    private static int[] chainDimensions(Matrix[] matrices, boolean vector) {
+        if (matrices.length == 0) {
+            throw new IllegalArgumentException("A chain needs at least 1 matrix.");
+        }
+        int[] dimensions = new int[matrices.length + (vector ? 2 : 1)];
+        dimensions[0] = matrices[0].getRows();
+        for (int i = 0; i < matrices.length; i++) {
+            if (matrices[i].getRows() != dimensions[i]) {
+                throw new IllegalArgumentException("The number of columns in each matrix must match the number of " +
+                        "rows in the next one.");
+            }
+            dimensions[i + 1] = matrices[i].getColumns();
+        }
+        if (vector) {
+            dimensions[matrices.length + 1] = 1;
+        }
+        return dimensions;
+    }
+
+    private static double[] multiplyChain(ChainPlan plan, Matrix[] matrices, double[] vector) {
+        int count = plan.getMatrixCount();
+        double[][] operands = new double[count][];
+        for (int i = 0; i < matrices.length; i++) {
+            operands[i] = matrices[i].data();
+        }
+        if (vector != null) {
+            operands[count - 1] = vector;
+        }
+        double[] result = new double[plan.dimension(0) * plan.dimension(count)];
+        if (count == 1) {
+            System.arraycopy(operands[0], 0, result, 0, result.length);
+            return result;
+        }
+        try (Workspace ws = Workspace.open()) {
+            multiplyChain(plan, operands, 0, count - 1, result, ws, new ArrayList<>());
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies matrices first to last of the chain into result, or into a spare array when result is null, and
+     * returns the array it used. Products in between go back to spare once they have been multiplied.
+     */
+    private static double[] multiplyChain(ChainPlan plan, double[][] operands, int first, int last, double[] result,
+                                          Workspace ws, ArrayList<double[]> spare) {
+        if (first == last) {
+            return operands[first];
+        }
+        int split = plan.split(first, last);
+        double[] left = multiplyChain(plan, operands, first, split, null, ws, spare);
+        double[] right = multiplyChain(plan, operands, split + 1, last, null, ws, spare);
+        int rows = plan.dimension(first), inner = plan.dimension(split + 1), cols = plan.dimension(last + 1);
+        if (result == null) {
+            result = takeSpare(spare, ws, rows * cols);
+        }
+        if (cols == 1) {
+            for (int i = 0; i < rows; i++) {
+                double sum = 0;
+                for (int k = 0; k < inner; k++) {
+                    sum += left[i * inner + k] * right[k];
+                }
+                result[i] = sum;
+            }
+        } else {
+            Arrays.fill(result, 0, rows * cols, 0);
+            multiply(left, right, result, rows, inner, cols);
+        }
+        if (split > first) {
+            spare.add(left);
+        }
+        if (last > split + 1) {
+            spare.add(right);
         }
         return result;
     }
+
+    /**
+     * Takes the shortest spare array with at least size elements, or borrows one when none is long enough.
+     */
+    private static double[] takeSpare(ArrayList<double[]> spare, Workspace ws, int size) {
+        int best = -1;
+        for (int i = 0; i < spare.size(); i++) {
+            int length = spare.get(i).length;
+            if (length >= size && (best < 0 || length < spare.get(best).length)) {
+                best = i;
+            }
+        }
+        return best < 0 ? ws.borrow(size) : spare.remove(best);
+    }
+
+    /**
+     * Raises a square matrix to a power by repeated squaring, so A^k takes about 2*log2(k) multiplies instead of k.
+     * The squares and partial products are kept in two pairs of arrays that are swapped after each multiply, so
+     * nothing is allocated while it runs.
+     * @param m square matrix
+     * @param k exponent, 0 or more
+     * @return m^k, the identity matrix if k is 0
+     */
+    public static Matrix matrixPower(Matrix m, long k) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate a power.");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("The exponent must not be negative.");
+        }
+        int n = m.getRows();
+        if (k == 0) {
+            return identityMatrix(n);
+        }
+        if (m instanceof DiagonalMatrix) {
+            double[] diagonal = ((DiagonalMatrix) m).getDiagonal().clone();
+            for (int i = 0; i < n; i++) {
+                diagonal[i] = Math.pow(diagonal[i], k);
+            }
+            return new DiagonalMatrix(diagonal);
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int size = n * n;
+        double[] result = new double[size];
+        try (Workspace ws = Workspace.open()) {
+            // power holds m^(2^i), product the part of the result built so far.
+            double[] power = ws.borrow(size), powerSpare = ws.borrow(size);
+            double[] product = result, productSpare = ws.borrow(size);
+            System.arraycopy(m.data(), 0, power, 0, size);
+            boolean started = false;
+            while (true) {
+                if ((k & 1) != 0) {
+                    if (started) {
+                        Arrays.fill(productSpare, 0, size, 0);
+                        multiply(product, power, productSpare, n, n, n);
+                        double[] swap = product;
+                        product = productSpare;
+                        productSpare = swap;
+                    } else {
+                        System.arraycopy(power, 0, product, 0, size);
+                        started = true;
+                    }
+                }
+                k >>>= 1;
+                if (k == 0) {
+                    break;
+                }
+                Arrays.fill(powerSpare, 0, size, 0);
+                multiply(power, power, powerSpare, n, n, n);
+                double[] swap = power;
+                power = powerSpare;
+                powerSpare = swap;
+            }
+            if (product != result) {
+                System.arraycopy(product, 0, result, 0, size);
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_POWER, n, n, start, 8L * size);
+        }
+        return new Matrix(n, n, result);
+    }
+
+    /**
+     * Theta values of Higham's scaling and squaring method: the largest 1-norm for which the Pade approximant of
+     * each degree in PADE_DEGREES is accurate to double precision.
+     */
+    private static final double[] PADE_THETA = {1.495585217958292e-2, 2.539398330063230e-1, 9.504178996162932e-1,
+            2.097847961257068e0, 5.371920351148152e0};
+    private static final int[] PADE_DEGREES = {3, 5, 7, 9, 13};
+    private static final double[][] PADE_COEFFICIENTS = {
+            {120, 60, 12, 1},
+            {30240, 15120, 3360, 420, 30, 1},
+            {17297280, 8648640, 1995840, 277200, 25200, 1512, 56, 1},
+            {17643225600.0, 8821612800.0, 2075673600, 302702400, 30270240, 2162160, 110880, 3960, 90, 1},
+            {64764752532480000.0, 32382376266240000.0, 7771770303897600.0, 1187353796428800.0, 129060195264000.0,
+                    10559470521600.0, 670442572800.0, 33522128640.0, 1323241920, 40840800, 960960, 16380, 182, 1}};
+
+    /**
+     * Calculates the matrix exponential e^m = I + m + m^2/2! + ..., which moves the linear system x' = m*x forward
+     * by one unit of time in a single step. Uses Higham's scaling and squaring: m is divided by 2^s until its
+     * 1-norm is small enough for a Pade approximant of degree 3 to 13 to be exact to double precision, the
+     * approximant is found by solving one linear system with an LU decomposition, and the result is squared s times.
+     * @param m square matrix
+     * @return e^m
+     */
+    public static Matrix matrixExp(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate an exponential.");
+        }
+        int n = m.getRows();
+        if (m instanceof DiagonalMatrix) {
+            double[] diagonal = ((DiagonalMatrix) m).getDiagonal().clone();
+            for (int i = 0; i < n; i++) {
+                diagonal[i] = Math.exp(diagonal[i]);
+            }
+            return new DiagonalMatrix(diagonal);
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] a = m.copyData();
+        double norm = norm1(a, n);
+        int degree = 0;
+        while (degree < PADE_DEGREES.length - 1 && norm > PADE_THETA[degree]) {
+            degree++;
+        }
+        int squarings = 0;
+        if (norm > PADE_THETA[degree]) {
+            squarings = Math.max(0, Math.getExponent(norm / PADE_THETA[degree]) + 1);
+            double scale = Math.scalb(1.0, -squarings);
+            for (int i = 0; i < a.length; i++) {
+                a[i] *= scale;
+            }
+        }
+        double[] c = PADE_COEFFICIENTS[degree];
+        int size = n * n;
+        double[] a2 = new double[size];
+        multiply(a, a, a2, n, n, n);
+        // u = the odd terms without the last factor of a, v = the even terms.
+        double[] u = new double[size];
+        double[] v = new double[size];
+        if (PADE_DEGREES[degree] < 13) {
+            double[] power = identity(n);
+            for (int j = 0; j < c.length; j += 2) {
+                for (int i = 0; i < size; i++) {
+                    u[i] += c[j + 1] * power[i];
+                    v[i] += c[j] * power[i];
+                }
+                if (j + 2 < c.length) {
+                    double[] next = new double[size];
+                    multiply(power, a2, next, n, n, n);
+                    power = next;
+                }
+            }
+        } else {
+            double[] a4 = new double[size];
+            multiply(a2, a2, a4, n, n, n);
+            double[] a6 = new double[size];
+            multiply(a4, a2, a6, n, n, n);
+            double[] uHigh = new double[size];
+            double[] vHigh = new double[size];
+            for (int i = 0; i < size; i++) {
+                uHigh[i] = c[13] * a6[i] + c[11] * a4[i] + c[9] * a2[i];
+                vHigh[i] = c[12] * a6[i] + c[10] * a4[i] + c[8] * a2[i];
+            }
+            multiply(a6, uHigh, u, n, n, n);
+            multiply(a6, vHigh, v, n, n, n);
+            for (int i = 0; i < size; i++) {
+                u[i] += c[7] * a6[i] + c[5] * a4[i] + c[3] * a2[i];
+                v[i] += c[6] * a6[i] + c[4] * a4[i] + c[2] * a2[i];
+            }
+            for (int i = 0; i < n; i++) {
+                u[i * n + i] += c[1];
+                v[i * n + i] += c[0];
+            }
+        }
+        double[] odd = new double[size];
+        multiply(a, u, odd, n, n, n);
+        double[] q = new double[size];
+        double[] p = new double[size];
+        for (int i = 0; i < size; i++) {
+            q[i] = v[i] - odd[i];
+            p[i] = v[i] + odd[i];
+        }
+        double[] result = new LUDecomposition(new Matrix(n, n, q)).solve(new Matrix(n, n, p)).data();
+        double[] spare = new double[size];
+        for (int s = 0; s < squarings; s++) {
+            Arrays.fill(spare, 0);
+            multiply(result, result, spare, n, n, n);
+            double[] swap = result;
+            result = spare;
+            spare = swap;
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_EXP, n, n, start, 8L * size);
+        }
+        return new Matrix(n, n, result);
+    }
+
+    /**
+     * Largest column sum of absolute values of the n x n array a.
+     */
+    private static double norm1(double[] a, int n) {
+        double max = 0;
+        for (int j = 0; j < n; j++) {
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += Math.abs(a[i * n + j]);
+            }
+            max = Math.max(max, sum);
+        }
+        return max;
+    }
+
+    private static double[] identity(int n) {
+        double[] identity = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            identity[i * n + i] = 1;
+        }
+        return identity;
+    }
+
+    /**
+     * Number of rows and columns of B that matrixMultiply works on at once.
+     */
+    static int multiplyBlockSize = Tuning.Parameter.MULTIPLY_BLOCK_SIZE.initialValue();
+
+    /**
+     * Number of rows and columns transform copies at once.
+     */
+    static int transposeBlockSize = Tuning.Parameter.TRANSPOSE_BLOCK_SIZE.initialValue();
     /**
      * Multiplies a matrix and an array like a matrix and a vector.
      * @param A Matrix 1
@@ -272,9 +914,24 @@ public class AdvancedMath {
             throw new IllegalArgumentException("The number of columns in matrix A must match the number of " +
                     "elements in vector B.");
         }
-        double[] result = new double[B.length];
-        for (int i = 0; i < A.getRows(); i++) {
-            result[i] = AdvancedMath.dotProduct(A.getRow(i), B);
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int cols = A.getColumns();
+        double[] result;
+        if (A instanceof StructuredMatrix) {
+            result = ((StructuredMatrix) A).multiplyVector(B);
+        } else {
+            double[] a = A.data();
+            result = new double[A.getRows()];
+            for (int i = 0; i < result.length; i++) {
+                double sum = 0;
+                for (int j = 0; j < cols; j++) {
+                    sum += a[i * cols + j] * B[j];
+                }
+                result[i] = sum;
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.MATRIX_MULTIPLY, A.getRows(), cols, start, 8L * result.length);
         }
         return result;
     }
@@ -310,9 +967,13 @@ public class AdvancedMath {
         if (A.getRows() != B.getRows() || A.getColumns() != B.getColumns()) {
             throw new IllegalArgumentException("Matrices A and B must have the same dimensions to add.");
         }
-        double[] result = new double[A.getMatrixArray().length];
-        for (int i = 0; i < A.getMatrixArray().length; i++) {
-            result[i] = A.getMatrixArray()[i] + B.getMatrixArray()[i];
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] a = A.data();
+        double[] b = B.data();
+        double[] result = new double[a.length];
+        ParallelArrays.add(a, b, result);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.ADD, A.getRows(), A.getColumns(), start, 8L * result.length);
         }
         return new Matrix(A.getRows(), A.getColumns(), result);
     }
@@ -328,9 +989,7 @@ public class AdvancedMath {
             throw new IllegalArgumentException("Vectors A and B must be the same size to add.");
         }
         double[] result = new double[A.length];
-        for (int i = 0; i < A.length; i++) {
-            result[i] = A[i] + B[i];
-        }
+        ParallelArrays.add(A, B, result);
         return result;
     }
     /**
@@ -357,7 +1016,18 @@ public class AdvancedMath {
      * @return A-B
      */
     public static Matrix subtract(Matrix A, Matrix B) {
-        return add(A, scalarMultiply(-1, B));
+        if (A.getRows() != B.getRows() || A.getColumns() != B.getColumns()) {
+            throw new IllegalArgumentException("Matrices A and B must have the same dimensions to add.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] a = A.data();
+        double[] b = B.data();
+        double[] result = new double[a.length];
+        ParallelArrays.subtract(a, b, result);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.SUBTRACT, A.getRows(), A.getColumns(), start, 8L * result.length);
+        }
+        return new Matrix(A.getRows(), A.getColumns(), result);
     }
 
     /**
@@ -367,7 +1037,12 @@ public class AdvancedMath {
      * @return A-B
      */
     public static double[] subtract(double[] A, double[] B) {
-        return add(A, scalarMultiply(-1, B));
+        if (A.length != B.length) {
+            throw new IllegalArgumentException("Vectors A and B must be the same size to add.");
+        }
+        double[] result = new double[A.length];
+        ParallelArrays.subtract(A, B, result);
+        return result;
     }
     /**
      * Subtracts 2 arraylists like vectors
@@ -406,6 +1081,56 @@ public class AdvancedMath {
         return scalarMultiply( dotProduct(A,B)/dotProduct(A,A),A);
     }
 
+    /**
+     * Orthonormalizes the columns of a matrix in place with block Gram-Schmidt, so they become unit vectors at right
+     * angles to each other that span the same space, each one only using the columns before it. Unlike repeated
+     * proj and subtract calls nothing is allocated per projection, and every block of columns is projected twice,
+     * which keeps the result orthogonal to rounding error even for nearly dependent columns. A column that depends
+     * on the ones before it is set to 0.
+     * @param m dense matrix whose columns are the vectors
+     * @return number of independent columns, the ones that weren't set to 0
+     */
+    public static int orthonormalize(Matrix m) {
+        double[] a = checkInPlace(m);
+        int rows = m.getRows(), cols = m.getColumns();
+        double[] columns = transform(m).data();
+        int rank = Orthogonalization.gramSchmidt(columns, rows, cols);
+        System.arraycopy(transform(new Matrix(cols, rows, columns)).data(), 0, a, 0, a.length);
+        return rank;
+    }
+
+    /**
+     * Orthonormalizes the columns of a matrix in place with Householder reflections, which stay orthogonal to
+     * rounding error however close to dependent the columns are. The result is the Q of a QR decomposition with a
+     * non-negative diagonal in R, so for independent columns it matches orthonormalize. Dependent columns are
+     * replaced by unit vectors that complete the basis.
+     * @param m dense matrix with at least as many rows as columns, whose columns are the vectors
+     */
+    public static void householderOrthonormalize(Matrix m) {
+        if (m.getRows() < m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have at least as many rows as columns to " +
+                    "orthonormalize its columns.");
+        }
+        double[] a = checkInPlace(m);
+        int rows = m.getRows(), cols = m.getColumns();
+        double[] columns = transform(m).data();
+        Orthogonalization.householder(columns, rows, cols);
+        System.arraycopy(transform(new Matrix(cols, rows, columns)).data(), 0, a, 0, a.length);
+    }
+
+    /**
+     * Backing array of a matrix that is about to be changed in place.
+     */
+    private static double[] checkInPlace(Matrix m) {
+        if (m instanceof ImmutableMatrix) {
+            throw new UnsupportedOperationException("An immutable matrix can't be modified.");
+        }
+        if (m instanceof StructuredMatrix) {
+            throw new IllegalArgumentException("Only a dense matrix can be changed in place.");
+        }
+        return m.getMatrixArray();
+    }
+
     /**
      * Gets the minor of a matrix at excluded row and column.
      * @param m Matrix
@@ -416,18 +1141,31 @@ public class AdvancedMath {
 
     public static Matrix getSubMatrix(Matrix m, int rowExclude, int colExclude) {
         m.getCell(rowExclude, colExclude);
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         double[] result = new double[(m.getRows() - 1) * (m.getColumns() - 1)];
-        int resIndx = 0;
-        for (int i = 0; i < m.getMatrixArray().length; i++) {
-            int row = i / m.getColumns();
-            int col = i % m.getColumns();
+        copyMinor(m.data(), m.getRows(), m.getColumns(), rowExclude, colExclude, result);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.SUB_MATRIX, m.getRows(), m.getColumns(), start, 8L * result.length);
+        }
+        return new Matrix((m.getRows() - 1), (m.getColumns() - 1), result);
+    }
 
-            if (row != rowExclude && col != colExclude) {
-                result[resIndx] = m.getCell(row, col);
-                resIndx++;
+    /**
+     * Copies every element of the rows x cols array a except the excluded row and column into result.
+     */
+    private static void copyMinor(double[] a, int rows, int cols, int rowExclude, int colExclude, double[] result) {
+        int resIndx = 0;
+        for (int row = 0; row < rows; row++) {
+            if (row == rowExclude) {
+                continue;
+            }
+            int rowStart = row * cols;
+            for (int col = 0; col < cols; col++) {
+                if (col != colExclude) {
+                    result[resIndx++] = a[rowStart + col];
+                }
             }
         }
-        return new Matrix((m.getRows() - 1), (m.getColumns() - 1), result);
     }
 
     /**
@@ -440,34 +1178,177 @@ public class AdvancedMath {
             throw new IllegalArgumentException("Matrix must have same number of " +
                     "rows and columns to calculate determinant.");
         }
-        if (m.getRows() == 1) {
-            return m.getMatrixArray()[0];
+        if (m instanceof StructuredMatrix) {
+            Double fast = ((StructuredMatrix) m).fastDet();
+            if (fast != null) {
+                return fast;
+            }
         }
-        if (m.getRows() == 2) {
-            return ((m.getCell(0, 0) * m.getCell(1, 1))
-                    - (m.getCell(0, 1) * m.getCell(1, 0)));
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double result;
+        if (m.getRows() <= 4) {
+            result = det(m.data(), m.getRows(), null);
+        } else {
+            try (Workspace ws = Workspace.open()) {
+                result = det(m.data(), m.getRows(), borrowMinors(ws, m.getRows()));
+            }
         }
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.DET, m.getRows(), m.getColumns(), start, 0);
+        }
+        return result;
+    }
+
+    /**
+     * Borrows one scratch array for each minor size the cofactor expansion of an n x n matrix needs.
+     * @return array where element k holds at least k*k elements for 0 &lt; k &lt; n.
+     */
+    private static double[][] borrowMinors(Workspace ws, int n) {
+        double[][] minors = new double[n][];
+        for (int k = 1; k < n; k++) {
+            minors[k] = ws.borrow(k * k);
+        }
+        return minors;
+    }
+
+    /**
+     * Cofactor expansion along the first row of the n x n array a. minors holds a scratch array for every minor
+     * size smaller than n, as returned by borrowMinors, and may be null when n is 4 or less.
+     */
+    private static double det(double[] a, int n, double[][] minors) {
+        switch (n) {
+            case 1:
+                return a[0];
+            case 2:
+                return BatchKernels.det2(a, 0);
+            case 3:
+                return BatchKernels.det3(a, 0);
+            case 4:
+                return BatchKernels.det4(a, 0);
+        }
+        double[] minor = minors[n - 1];
         double sum = 0;
         double flip = -1;
-        for (int i = 0; i < m.getColumns(); i++) {
+        for (int i = 0; i < n; i++) {
             flip *= -1;
-            double a = m.getCell(0, i);
-            sum += flip * a * det(getSubMatrix(m, 0, i));
+            if (a[i] != 0) {
+                copyMinor(a, n, n, 0, i, minor);
+                sum += flip * a[i] * det(minor, n - 1, minors);
+            }
         }
         return sum;
     }
 
+    /**
+     * Smallest number of multiply-adds in a block of a Gram update worth splitting over threads.
+     */
+    private static final long GRAM_PARALLEL_WORK = 1 << 18;
+
+    /**
+     * Calculates the Gram matrix X^T X, the dot products of every pair of columns of X, without building the
+     * transpose. Only the upper triangle is calculated, a tile at a time in parallel, and then mirrored. GramAccumulator
+     * does the same over a matrix given a few rows at a time.
+     * @param X Matrix
+     * @return symmetric matrix with X's number of columns for its rows and columns
+     */
+    public static Matrix gram(Matrix X) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int n = X.getColumns();
+        double[] g = new double[n * n];
+        gramUpdate(X.data(), X.getRows(), n, g);
+        mirrorUpper(g, n);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.GRAM, X.getRows(), n, start, 8L * g.length);
+        }
+        return new Matrix(n, n, g);
+    }
+
+    /**
+     * Adds the upper triangle of X^T X for the rows x n row major array x to the n x n array g. The rows of x are
+     * taken a block at a time, small enough to stay in cache, and each block is added to every upper triangular tile
+     * of g, so x is read from memory once and each tile is updated with a long run of rows. Tiles are independent
+     * and run in parallel.
+     */
+    static void gramUpdate(double[] x, int rows, int n, double[] g) {
+        int tile = Math.max(1, multiplyBlockSize);
+        int tiles = (n + tile - 1) / tile;
+        int[] tileRows = new int[tiles * (tiles + 1) / 2];
+        int[] tileCols = new int[tileRows.length];
+        for (int ti = 0, t = 0; ti < tiles; ti++) {
+            for (int tj = ti; tj < tiles; tj++, t++) {
+                tileRows[t] = ti * tile;
+                tileCols[t] = tj * tile;
+            }
+        }
+        // About 256KB of rows at a time.
+        int block = Math.max(1, (1 << 15) / n);
+        for (int r0 = 0; r0 < rows; r0 += block) {
+            int r1 = Math.min(rows, r0 + block);
+            int from = r0;
+            IntStream updates = IntStream.range(0, tileRows.length);
+            if ((long) (r1 - r0) * n * n >= GRAM_PARALLEL_WORK && tileRows.length > 1) {
+                updates = updates.parallel();
+            }
+            updates.forEach(t -> {
+                int i0 = tileRows[t], i1 = Math.min(n, i0 + tile);
+                int j0 = tileCols[t], j1 = Math.min(n, j0 + tile);
+                for (int r = from; r < r1; r++) {
+                    int row = r * n;
+                    for (int i = i0; i < i1; i++) {
+                        double xi = x[row + i];
+                        if (xi == 0) {
+                            continue;
+                        }
+                        int gRow = i * n;
+                        for (int j = Math.max(i, j0); j < j1; j++) {
+                            g[gRow + j] += xi * x[row + j];
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies the upper triangle of the n x n array g onto its lower triangle.
+     */
+    static void mirrorUpper(double[] g, int n) {
+        for (int i = 1; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                g[i * n + j] = g[j * n + i];
+            }
+        }
+    }
+
     /**
      * Swaps the rows and columns of a matrix.
      * @param m Matrix
      * @return Matrix with swapped rows and columns.
      */
     public static Matrix transform(Matrix m) {
-        Matrix result = new Matrix(m.getColumns(), m.getRows());
-        for (int i = 0; i < m.getMatrixArray().length; i++) {
-            int row = i / m.getColumns();
-            int col = i % m.getColumns();
-            result.setCell(col, row, m.getCell(row, col));
+        if (m instanceof StructuredMatrix) {
+            return ((StructuredMatrix) m).transpose();
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int rows = m.getRows(), cols = m.getColumns();
+        double[] a = m.data();
+        double[] transposed = new double[a.length];
+        // Copy square blocks so both the rows read and the columns written stay in cache.
+        int block = Math.max(1, transposeBlockSize);
+        for (int ii = 0; ii < rows; ii += block) {
+            int iEnd = Math.min(rows, ii + block);
+            for (int jj = 0; jj < cols; jj += block) {
+                int jEnd = Math.min(cols, jj + block);
+                for (int i = ii; i < iEnd; i++) {
+                    for (int j = jj; j < jEnd; j++) {
+                        transposed[j * rows + i] = a[i * cols + j];
+                    }
+                }
+            }
+        }
+        Matrix result = new Matrix(cols, rows, transposed);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.TRANSFORM, m.getRows(), m.getColumns(), start, 8L * transposed.length);
         }
         return result;
     }
@@ -482,15 +1363,36 @@ public class AdvancedMath {
             throw new IllegalArgumentException("Matrix must have same number of " +
                     "rows and columns to calculate adjoint.");
         }
-        Matrix result = new Matrix(m.getRows(), m.getColumns());
-
-        for (int i = 0; i < m.getMatrixArray().length; i++) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = adj(m.data(), m.getRows(), 1);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.ADJ, m.getRows(), m.getColumns(), start, 8L * result.length);
+        }
+        return new Matrix(m.getRows(), m.getColumns(), result);
+    }
 
-            int row = i / m.getColumns();
-            int col = i % m.getColumns();
-            result.setCell(row, col, Math.pow(-1, row + col) * det(getSubMatrix(m, row, col)));
+    /**
+     * Calculates the adjoint of the n x n array a, multiplied by scale.
+     * The cofactors are written straight into their transposed position.
+     */
+    private static double[] adj(double[] a, int n, double scale) {
+        double[] result = new double[n * n];
+        if (n == 1) {
+            result[0] = scale;
+            return result;
+        }
+        try (Workspace ws = Workspace.open()) {
+            double[][] minors = borrowMinors(ws, n);
+            double[] minor = minors[n - 1];
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++) {
+                    copyMinor(a, n, n, row, col, minor);
+                    double cofactor = det(minor, n - 1, minors);
+                    result[col * n + row] = ((row + col) & 1) == 0 ? scale * cofactor : -scale * cofactor;
+                }
+            }
         }
-        return transform(result);
+        return result;
     }
 
     /**
@@ -503,11 +1405,355 @@ public class AdvancedMath {
             throw new IllegalArgumentException("Matrix must have same number of " +
                     "rows and columns to calculate inverse.");
         }
+        if (m instanceof StructuredMatrix) {
+            Matrix fast = ((StructuredMatrix) m).fastInverse();
+            if (fast != null) {
+                return fast;
+            }
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         double det = det(m);
         if (det == 0) {
             throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
         }
-        return scalarMultiply(1.0 / det, adj(m));
+        double[] result = adj(m.data(), m.getRows(), 1.0 / det);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.INV, m.getRows(), m.getColumns(), start, 8L * result.length);
+        }
+        return new Matrix(m.getRows(), m.getColumns(), result);
+    }
+
+    /**
+     * Uses the Sherman-Morrison formula to calculate the inverse of A + u*v^T from the inverse of A in O(n^2).
+     * To change row i of A by delta use u = the i-th unit vector and v = delta, to change column j use u = delta and
+     * v = the j-th unit vector.
+     * @param inverse inverse of A
+     * @param u column vector
+     * @param v row vector
+     * @return inverse of A + u*v^T
+     */
+    public static Matrix shermanMorrison(Matrix inverse, double[] u, double[] v) {
+        if (inverse.getRows() != inverse.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate inverse.");
+        }
+        int n = inverse.getRows();
+        if (u.length != n || v.length != n) {
+            throw new IllegalArgumentException("Vectors u and v must have one element per row of the matrix.");
+        }
+        double[] a = inverse.data();
+        // x = A^-1u, y = v^TA^-1
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            double vi = v[i];
+            for (int j = 0; j < n; j++) {
+                sum += a[i * n + j] * u[j];
+                y[j] += vi * a[i * n + j];
+            }
+            x[i] = sum;
+        }
+        double denom = 1 + dotProduct(v, x);
+        if (denom == 0) {
+            throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
+        }
+        double[] result = a.clone();
+        for (int i = 0; i < n; i++) {
+            double xi = x[i] / denom;
+            for (int j = 0; j < n; j++) {
+                result[i * n + j] -= xi * y[j];
+            }
+        }
+        return new Matrix(n, n, result);
+    }
+
+    /**
+     * Uses the Woodbury identity to calculate the inverse of A + U*V^T from the inverse of A, where U and V are n x k.
+     * It costs O(n^2k + k^3) instead of the O(n^3) needed to invert the updated matrix directly.
+     * @param inverse inverse of A
+     * @param U n x k matrix
+     * @param V n x k matrix
+     * @return inverse of A + U*V^T
+     */
+    public static Matrix woodbury(Matrix inverse, Matrix U, Matrix V) {
+        if (inverse.getRows() != inverse.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate inverse.");
+        }
+        int n = inverse.getRows();
+        int k = U.getColumns();
+        if (U.getRows() != n || V.getRows() != n || V.getColumns() != k) {
+            throw new IllegalArgumentException("Matrices U and V must both have one row per row of the matrix and " +
+                    "the same number of columns.");
+        }
+        Matrix vt = transform(V);
+        Matrix inverseU = matrixMultiply(inverse, U);
+        Matrix vtInverse = matrixMultiply(vt, inverse);
+        // Capacitance matrix I + V^TA^-1U
+        Matrix capacitance = matrixMultiply(vt, inverseU);
+        double[] c = capacitance.data();
+        for (int i = 0; i < k; i++) {
+            c[i * k + i] += 1;
+        }
+        Matrix correction = matrixMultiply(inverseU, new LUDecomposition(capacitance).solve(vtInverse));
+        return subtract(inverse, correction);
+    }
+
+    /**
+     * Calculates the determinant of every matrix in a batch.
+     * Large batches are split into chunks that run in parallel.
+     * @param batch batch of matrices
+     * @return array where element i is the determinant of matrix i
+     */
+    public static double[] det(MatrixBatch batch) {
+        int dim = batch.getDimension();
+        int size = dim * dim;
+        double[] a = batch.getBatchArray();
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = new double[batch.getCount()];
+        BatchKernels.forEachChunk(batch.getCount(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = BatchKernels.det(dim, a, i * size);
+            }
+        });
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.BATCH_DET, batch.getCount(), size, start, 8L * result.length);
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the inverse of every matrix in a batch.
+     * Large batches are split into chunks that run in parallel.
+     * @param batch batch of matrices
+     * @return batch where matrix i is the inverse of matrix i in the input
+     */
+    public static MatrixBatch inv(MatrixBatch batch) {
+        int dim = batch.getDimension();
+        int size = dim * dim;
+        double[] a = batch.getBatchArray();
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = new double[a.length];
+        BatchKernels.forEachChunk(batch.getCount(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (BatchKernels.inv(dim, a, i * size, result, i * size) == 0) {
+                    throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
+                }
+            }
+        });
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.BATCH_INV, batch.getCount(), size, start, 8L * result.length);
+        }
+        return new MatrixBatch(batch.getCount(), dim, result);
+    }
+
+    /**
+     * Multiplies 2 batches of matrices pairwise.
+     * Large batches are split into chunks that run in parallel.
+     * @param A Batch 1
+     * @param B Batch 2
+     * @return batch where matrix i is A[i]*B[i]
+     */
+    public static MatrixBatch matrixMultiply(MatrixBatch A, MatrixBatch B) {
+        if (A.getCount() != B.getCount() || A.getDimension() != B.getDimension()) {
+            throw new IllegalArgumentException("Batches A and B must have the same count and dimension to multiply.");
+        }
+        int dim = A.getDimension();
+        int size = dim * dim;
+        double[] a = A.getBatchArray();
+        double[] b = B.getBatchArray();
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        double[] result = new double[a.length];
+        BatchKernels.forEachChunk(A.getCount(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                BatchKernels.mul(dim, a, i * size, b, i * size, result, i * size);
+            }
+        });
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.BATCH_MULTIPLY, A.getCount(), size, start, 8L * result.length);
+        }
+        return new MatrixBatch(A.getCount(), dim, result);
+    }
+
+    /**
+     * Adds 2 tensors element by element. Tensors of different shapes are broadcast to the same shape by the NumPy
+     * rules, see Tensor.broadcastTo, so for example a vector can be added to every row of every matrix in a batch.
+     * @param A Tensor 1
+     * @param B Tensor 2
+     * @return A+B
+     */
+    public static Tensor add(Tensor A, Tensor B) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Tensor result = elementWise(TensorKernels.Op.ADD, A, B);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.ADD, result.getSize(), 1, start, 8L * result.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * Subtracts 2 tensors element by element, broadcasting them like add.
+     * @param A Tensor 1
+     * @param B Tensor 2
+     * @return A-B
+     */
+    public static Tensor subtract(Tensor A, Tensor B) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Tensor result = elementWise(TensorKernels.Op.SUBTRACT, A, B);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.SUBTRACT, result.getSize(), 1, start, 8L * result.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies 2 tensors element by element, broadcasting them like add. See matrixMultiply for the matrix product.
+     * @param A Tensor 1
+     * @param B Tensor 2
+     * @return tensor of the products of the elements of A and B
+     */
+    public static Tensor multiply(Tensor A, Tensor B) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Tensor result = elementWise(TensorKernels.Op.MULTIPLY, A, B);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.ELEMENT_MULTIPLY, result.getSize(), 1, start, 8L * result.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * Divides 2 tensors element by element, broadcasting them like add.
+     * @param A Tensor 1
+     * @param B Tensor 2
+     * @return tensor of the elements of A divided by the elements of B
+     */
+    public static Tensor divide(Tensor A, Tensor B) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Tensor result = elementWise(TensorKernels.Op.DIVIDE, A, B);
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.DIVIDE, result.getSize(), 1, start, 8L * result.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies scale by each element of the tensor
+     * @param scale scalar number
+     * @param tensor tensor
+     * @return scaled tensor
+     */
+    public static Tensor scalarMultiply(double scale, Tensor tensor) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Tensor result = elementWise(TensorKernels.Op.MULTIPLY, tensor, new Tensor(new double[]{scale}, 1));
+        if (Metrics.ENABLED) {
+            Metrics.record(Metrics.Operation.SCALAR_MULTIPLY, result.getSize(), 1, start, 8L * result.getSize());
+        }
+        return result;
+    }
+
+    private static Tensor elementWise(TensorKernels.Op op, Tensor A, Tensor B) {
+        int[] shape = TensorKernels.broadcastShape(A.getShape(), B.getShape());
+        if (shape == null) {
+            throw new IllegalArgumentException("Tensors A and B can't be broadcast to the same shape.");
+        }
+        Tensor result = new Tensor(shape);
+        TensorKernels.zip(op, A.broadcastTo(shape), B.broadcastTo(shape), result);
+        return result;
+    }
+
+    /**
+     * Multiplies the matrices in the last 2 dimensions of 2 tensors, like matrixMultiply for a Matrix, for every
+     * position of the dimensions before them. Those batch dimensions are broadcast like add, so a batch of matrices
+     * can be multiplied by a single matrix without copying it.
+     * @param A Tensor of shape [..., m, k]
+     * @param B Tensor of shape [..., k, n]
+     * @return tensor of shape [..., m, n] holding the products
+     */
+    public static Tensor matrixMultiply(Tensor A, Tensor B) {
+        int rankA = A.getRank(), rankB = B.getRank();
+        if (rankA < 2 || rankB < 2) {
+            throw new IllegalArgumentException("Tensors A and B need at least 2 dimensions to multiply as matrices.");
+        }
+        if (A.shape(rankA - 1) != B.shape(rankB - 2)) {
+            throw new IllegalArgumentException("The number of columns in tensor A must match the number of " +
+                    "rows in tensor B.");
+        }
+        int[] batch = TensorKernels.broadcastShape(Arrays.copyOf(A.getShape(), rankA - 2),
+                Arrays.copyOf(B.getShape(), rankB - 2));
+        if (batch == null) {
+            throw new IllegalArgumentException("The batch dimensions of tensors A and B can't be broadcast to the " +
+                    "same shape.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Tensor result = TensorKernels.matrixMultiply(A, B, batch);
+        if (Metrics.ENABLED) {
+            int size = A.shape(rankA - 2) * B.shape(rankB - 1);
+            Metrics.record(Metrics.Operation.TENSOR_MULTIPLY, result.getSize() / size, size, start,
+                    8L * result.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * Adds up a tensor along one dimension.
+     * @param tensor tensor to sum
+     * @param axis dimension to sum along
+     * @return tensor with the shape of tensor without the axis, or a single element for a 1 dimensional tensor
+     */
+    public static Tensor sum(Tensor tensor, int axis) {
+        return reduce(TensorKernels.Op.ADD, tensor, axis);
+    }
+
+    /**
+     * Averages a tensor along one dimension.
+     * @param tensor tensor to average
+     * @param axis dimension to average along
+     * @return tensor with the shape of tensor without the axis, or a single element for a 1 dimensional tensor
+     */
+    public static Tensor mean(Tensor tensor, int axis) {
+        Tensor result = reduce(TensorKernels.Op.ADD, tensor, axis);
+        double[] sums = result.data();
+        double scale = 1.0 / tensor.shape(axis);
+        ParallelArrays.scale(scale, sums, sums);
+        return result;
+    }
+
+    /**
+     * Finds the smallest values of a tensor along one dimension.
+     * @param tensor tensor to search
+     * @param axis dimension to search along
+     * @return tensor with the shape of tensor without the axis, or a single element for a 1 dimensional tensor
+     */
+    public static Tensor min(Tensor tensor, int axis) {
+        return reduce(TensorKernels.Op.MIN, tensor, axis);
+    }
+
+    /**
+     * Finds the largest values of a tensor along one dimension.
+     * @param tensor tensor to search
+     * @param axis dimension to search along
+     * @return tensor with the shape of tensor without the axis, or a single element for a 1 dimensional tensor
+     */
+    public static Tensor max(Tensor tensor, int axis) {
+        return reduce(TensorKernels.Op.MAX, tensor, axis);
+    }
+
+    private static Tensor reduce(TensorKernels.Op op, Tensor tensor, int axis) {
+        int rank = tensor.getRank();
+        if (axis < 0 || axis >= rank) {
+            throw new IllegalArgumentException("The axis is out of bounds.");
+        }
+        int[] shape = new int[Math.max(1, rank - 1)];
+        shape[0] = 1;
+        for (int d = 0, e = 0; d < rank; d++) {
+            if (d != axis) {
+                shape[e++] = tensor.shape(d);
+            }
+        }
+        Tensor result = new Tensor(shape);
+        TensorKernels.reduce(op, tensor, axis, result);
+        return result;
     }
 
     /**
@@ -528,4 +1774,9 @@ public class AdvancedMath {
     public static ArrayList<Double> reflect( ArrayList<Double>A,  ArrayList<Double>B){
         return add(A,scalarMultiply(-2*dotProduct(B,A),B));
     }
+
+    static {
+        // Runs after every field above has its starting value, so they can't overwrite what tuning picks.
+        Tuning.autoTune();
+    }
 }
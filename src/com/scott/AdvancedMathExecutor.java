@@ -0,0 +1,363 @@
+package com.scott;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdvancedMathExecutor runs AdvancedMath operations asynchronously and hands back CompletableFutures.
+ * Determinants, inverses and products of 2x2, 3x3 and 4x4 matrices are micro batched: requests of the same shape are
+ * held for up to maxBatchDelay, or until maxBatchSize of them have arrived, and then run together through the closed
+ * form batch kernels. Everything else runs as its own task.
+ * Tasks run on virtual threads when the JVM supports them and on a cached pool of daemon threads otherwise.
+ * At most queueCapacity operations can be in flight at once; callers submitting more block until one finishes.
+ */
+public class AdvancedMathExecutor implements AutoCloseable {
+    private enum Kind {
+        DET, INV, MULTIPLY
+    }
+
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final Semaphore permits;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final Batcher[][] batchers = new Batcher[Kind.values().length][5];
+    private volatile boolean closed;
+
+    /**
+     * Constructor with a max batch size of 256, a max batch delay of 200 microseconds and room for 10000 operations.
+     */
+    public AdvancedMathExecutor() {
+        this(256, 200, TimeUnit.MICROSECONDS, 10000);
+    }
+
+    /**
+     * Constructor for an executor.
+     * @param maxBatchSize largest number of requests run in one batch
+     * @param maxBatchDelay longest time a request waits for its batch to fill up
+     * @param unit unit of maxBatchDelay
+     * @param queueCapacity largest number of operations that can be in flight before submitting blocks
+     */
+    public AdvancedMathExecutor(int maxBatchSize, long maxBatchDelay, TimeUnit unit, int queueCapacity) {
+        if (maxBatchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The max batch size and queue capacity must be at least 1.");
+        }
+        if (maxBatchDelay < 0) {
+            throw new IllegalArgumentException("The max batch delay must not be negative.");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = unit.toNanos(maxBatchDelay);
+        this.permits = new Semaphore(queueCapacity);
+        this.workers = newWorkerPool();
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "advanced-math-batch-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        for (Kind kind : Kind.values()) {
+            for (int dim = 2; dim <= 4; dim++) {
+                batchers[kind.ordinal()][dim] = new Batcher(kind, dim);
+            }
+        }
+    }
+
+    /**
+     * Uses a virtual thread per task executor when running on a JVM that has one.
+     */
+    private static ExecutorService newWorkerPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "advanced-math-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Runs any task on the executor.
+     * @param task task to run
+     * @param <T> result type
+     * @return future completed with the task's result or exception.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = newFuture();
+        try {
+            workers.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Calculates the determinant of a matrix, batching 2x2 to 4x4 matrices.
+     * @param m square matrix
+     * @return future det m
+     */
+    public CompletableFuture<Double> det(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate determinant.");
+        }
+        if (m.getRows() < 2 || m.getRows() > 4) {
+            Matrix copy = snapshot(m);
+            return submit(() -> AdvancedMath.det(copy));
+        }
+        return enqueue(Kind.DET, m.getRows(), m.copyData(), null);
+    }
+
+    /**
+     * Calculates the inverse of a matrix, batching 2x2 to 4x4 matrices.
+     * @param m square matrix
+     * @return future inverse of m
+     */
+    public CompletableFuture<Matrix> inv(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate inverse.");
+        }
+        if (m.getRows() < 2 || m.getRows() > 4) {
+            Matrix copy = snapshot(m);
+            return submit(() -> new LUDecomposition(copy).inverse());
+        }
+        return enqueue(Kind.INV, m.getRows(), m.copyData(), null);
+    }
+
+    /**
+     * Multiplies 2 matrices, batching products of 2x2 to 4x4 matrices.
+     * @param A Matrix 1
+     * @param B Matrix 2
+     * @return future A*B
+     */
+    public CompletableFuture<Matrix> matrixMultiply(Matrix A, Matrix B) {
+        if (A.getColumns() != B.getRows()) {
+            throw new IllegalArgumentException("The number of columns in matrix A must match the number of " +
+                    "rows in matrix B.");
+        }
+        int dim = A.getRows();
+        if (dim < 2 || dim > 4 || A.getColumns() != dim || B.getColumns() != dim) {
+            Matrix a = snapshot(A), b = snapshot(B);
+            return submit(() -> AdvancedMath.matrixMultiply(a, b));
+        }
+        return enqueue(Kind.MULTIPLY, dim, A.copyData(), B.copyData());
+    }
+
+    /**
+     * Normalizes a vector.
+     * @param inputs vector
+     * @return future normalized vector
+     */
+    public CompletableFuture<double[]> normalize(double[] inputs) {
+        double[] copy = inputs.clone();
+        return submit(() -> AdvancedMath.normalize(copy));
+    }
+
+    /**
+     * Solves A*x = b using an LU decomposition.
+     * @param A square matrix
+     * @param b vector with one element per row of A
+     * @return future x
+     */
+    public CompletableFuture<double[]> solve(Matrix A, double[] b) {
+        Matrix a = snapshot(A);
+        double[] copy = b.clone();
+        return submit(() -> new LUDecomposition(a).solve(copy));
+    }
+
+    /**
+     * Copy of a matrix taken when an operation is submitted, so the caller can change the matrix afterwards without
+     * racing with the worker. Immutable matrices are used as they are and structured ones keep their structure.
+     */
+    private static Matrix snapshot(Matrix m) {
+        if (m instanceof ImmutableMatrix) {
+            return m;
+        }
+        if (m instanceof StructuredMatrix) {
+            return ((StructuredMatrix) m).scaled(1);
+        }
+        return new Matrix(m.getRows(), m.getColumns(), m.copyData());
+    }
+
+    /**
+     * Runs every pending batch and stops accepting new work. Already submitted operations still complete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Batcher[] byKind : batchers) {
+            for (Batcher batcher : byKind) {
+                if (batcher != null) {
+                    batcher.flush(null);
+                }
+            }
+        }
+        timer.shutdown();
+        workers.shutdown();
+    }
+
+    /**
+     * Waits for a free slot, then creates a future that gives the slot back when it completes.
+     */
+    private <T> CompletableFuture<T> newFuture() {
+        if (closed) {
+            throw new RejectedExecutionException("The executor has been closed.");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, error) -> permits.release());
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> enqueue(Kind kind, int dim, double[] a, double[] b) {
+        CompletableFuture<Object> future = newFuture();
+        if (!future.isDone()) {
+            batchers[kind.ordinal()][dim].add(new Request(a, b, future));
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) future;
+    }
+
+    private static final class Request {
+        private final double[] a, b;
+        private final CompletableFuture<Object> future;
+
+        private Request(double[] a, double[] b, CompletableFuture<Object> future) {
+            this.a = a;
+            this.b = b;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Collects requests of one kind and dimension until the batch is full or its delay runs out.
+     */
+    private final class Batcher {
+        private final Kind kind;
+        private final int dim;
+        private List<Request> pending = new ArrayList<>();
+
+        private Batcher(Kind kind, int dim) {
+            this.kind = kind;
+            this.dim = dim;
+        }
+
+        private void add(Request request) {
+            List<Request> full = null;
+            synchronized (this) {
+                pending.add(request);
+                if (pending.size() >= maxBatchSize) {
+                    full = pending;
+                    pending = new ArrayList<>();
+                } else if (pending.size() == 1) {
+                    List<Request> batch = pending;
+                    try {
+                        timer.schedule(() -> flush(batch), maxBatchDelayNanos, TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        full = pending;
+                        pending = new ArrayList<>();
+                    }
+                }
+            }
+            if (full != null) {
+                dispatch(full);
+            }
+        }
+
+        /**
+         * Dispatches the pending batch if it is still the one expected, or whatever is pending when expected is null.
+         */
+        private void flush(List<Request> expected) {
+            List<Request> batch;
+            synchronized (this) {
+                if (pending.isEmpty() || (expected != null && pending != expected)) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            dispatch(batch);
+        }
+
+        private void dispatch(List<Request> batch) {
+            try {
+                workers.execute(() -> run(batch));
+            } catch (RejectedExecutionException e) {
+                run(batch);
+            }
+        }
+
+        private void run(List<Request> batch) {
+            try {
+                runKernels(batch);
+            } catch (RuntimeException | Error e) {
+                for (Request request : batch) {
+                    request.future.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void runKernels(List<Request> batch) {
+            int size = dim * dim;
+            int count = batch.size();
+            double[] a = new double[count * size];
+            double[] b = kind == Kind.MULTIPLY ? new double[count * size] : null;
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(batch.get(i).a, 0, a, i * size, size);
+                if (b != null) {
+                    System.arraycopy(batch.get(i).b, 0, b, i * size, size);
+                }
+            }
+            double[] result = kind == Kind.DET ? null : new double[count * size];
+            for (int i = 0; i < count; i++) {
+                CompletableFuture<Object> future = batch.get(i).future;
+                int off = i * size;
+                switch (kind) {
+                    case DET:
+                        future.complete(BatchKernels.det(dim, a, off));
+                        break;
+                    case INV:
+                        if (BatchKernels.inv(dim, a, off, result, off) == 0) {
+                            future.completeExceptionally(
+                                    new IllegalArgumentException("A matrix with a zero determinant has no inverse."));
+                        } else {
+                            future.complete(copyOut(result, off, dim));
+                        }
+                        break;
+                    default:
+                        BatchKernels.mul(dim, a, off, b, off, result, off);
+                        future.complete(copyOut(result, off, dim));
+                }
+            }
+        }
+    }
+
+    private static Matrix copyOut(double[] batch, int off, int dim) {
+        double[] values = new double[dim * dim];
+        System.arraycopy(batch, off, values, 0, values.length);
+        return new Matrix(dim, dim, values);
+    }
+}
@@ -0,0 +1,138 @@
+package com.scott;
+
+/**
+ * BandedMatrix is a matrix that can only be non-zero within a band around its diagonal: up to lower cells below it and
+ * up to upper cells above it in each column. Each row stores lower + upper + 1 values, so a tridiagonal n x n matrix
+ * takes 3n doubles instead of n^2 and multiplying a dense matrix by it is O(n^2).
+ */
+public class BandedMatrix extends StructuredMatrix {
+    private final int lower, upper, width;
+    private final double[] band;
+
+    /**
+     * Constructor for an empty banded matrix.
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param lower number of diagonals below the main one that can be non-zero
+     * @param upper number of diagonals above the main one that can be non-zero
+     */
+    public BandedMatrix(int rows, int columns, int lower, int upper) {
+        super(rows, columns);
+        if (lower < 0 || upper < 0) {
+            throw new IllegalArgumentException("The bandwidths must not be negative.");
+        }
+        this.lower = Math.min(lower, rows - 1);
+        this.upper = Math.min(upper, columns - 1);
+        this.width = this.lower + this.upper + 1;
+        this.band = new double[rows * width];
+    }
+
+    /**
+     * Constructor for a copy of the band of a matrix. The cells outside the band are ignored.
+     * @param m matrix to copy
+     * @param lower number of diagonals below the main one to copy
+     * @param upper number of diagonals above the main one to copy
+     */
+    public BandedMatrix(Matrix m, int lower, int upper) {
+        this(m.getRows(), m.getColumns(), lower, upper);
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                band[index(i, j)] = m.getCell(i, j);
+            }
+        }
+    }
+
+    /**
+     *
+     * @return Number of diagonals below the main one that can be non-zero.
+     */
+    public int getLowerBandwidth() {
+        return lower;
+    }
+
+    /**
+     *
+     * @return Number of diagonals above the main one that can be non-zero.
+     */
+    public int getUpperBandwidth() {
+        return upper;
+    }
+
+    private int index(int row, int col) {
+        return row * width + (col - row + lower);
+    }
+
+    @Override
+    double get(int row, int col) {
+        int offset = col - row;
+        return offset >= -lower && offset <= upper ? band[index(row, col)] : 0;
+    }
+
+    @Override
+    void set(int row, int col, double value) {
+        int offset = col - row;
+        if (offset >= -lower && offset <= upper) {
+            band[index(row, col)] = value;
+        } else {
+            checkZero(value);
+        }
+    }
+
+    @Override
+    int rowStart(int row) {
+        return Math.max(0, row - lower);
+    }
+
+    @Override
+    int rowEnd(int row) {
+        return Math.min(getColumns(), row + upper + 1);
+    }
+
+    /**
+     * The array the stored values are kept in.
+     */
+    double[] storage() {
+        return band;
+    }
+
+    @Override
+    public int getStorageSize() {
+        return band.length;
+    }
+
+    /**
+     *
+     * @return Matrix with swapped rows and columns, with the lower and upper bandwidths swapped too.
+     */
+    @Override
+    public BandedMatrix transpose() {
+        BandedMatrix result = new BandedMatrix(getColumns(), getRows(), upper, lower);
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                result.band[result.index(j, i)] = band[index(i, j)];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    BandedMatrix scaled(double scale) {
+        BandedMatrix result = new BandedMatrix(getRows(), getColumns(), lower, upper);
+        for (int i = 0; i < band.length; i++) {
+            result.band[i] = scale * band[i];
+        }
+        return result;
+    }
+
+    @Override
+    Double fastDet() {
+        if (lower == 0 || upper == 0) {
+            double product = 1;
+            for (int i = 0; i < getRows(); i++) {
+                product *= band[index(i, i)];
+            }
+            return product;
+        }
+        return null;
+    }
+}
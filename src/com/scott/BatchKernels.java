@@ -0,0 +1,230 @@
+package com.scott;
+
+import java.util.stream.IntStream;
+
+/**
+ * Closed form determinant, inverse and multiply kernels for 2x2, 3x3 and 4x4 matrices stored at an offset inside a
+ * larger array. The kernels are fully unrolled so they don't allocate and don't need any loops.
+ */
+final class BatchKernels {
+    /**
+     * Number of matrices handed to a single task when a batch is split up to run in parallel.
+     * Batches no larger than this run on the calling thread.
+     */
+    static int chunkSize = Tuning.Parameter.BATCH_CHUNK_SIZE.initialValue();
+
+    private BatchKernels() {
+    }
+
+    interface Range {
+        void run(int start, int end);
+    }
+
+    /**
+     * Runs body over [0, count) in chunks, in parallel when there is more than one chunk.
+     */
+    static void forEachChunk(int count, Range body) {
+        int chunk = Math.max(1, chunkSize);
+        if (count <= chunk) {
+            body.run(0, count);
+            return;
+        }
+        int chunks = (count + chunk - 1) / chunk;
+        IntStream.range(0, chunks).parallel().forEach(c -> body.run(c * chunk, Math.min(count, (c + 1) * chunk)));
+    }
+
+    static double det(int dim, double[] a, int o) {
+        switch (dim) {
+            case 2:
+                return det2(a, o);
+            case 3:
+                return det3(a, o);
+            default:
+                return det4(a, o);
+        }
+    }
+
+    static double inv(int dim, double[] a, int o, double[] r, int ro) {
+        switch (dim) {
+            case 2:
+                return inv2(a, o, r, ro);
+            case 3:
+                return inv3(a, o, r, ro);
+            default:
+                return inv4(a, o, r, ro);
+        }
+    }
+
+    static void mul(int dim, double[] a, int ao, double[] b, int bo, double[] r, int ro) {
+        switch (dim) {
+            case 2:
+                mul2(a, ao, b, bo, r, ro);
+                break;
+            case 3:
+                mul3(a, ao, b, bo, r, ro);
+                break;
+            default:
+                mul4(a, ao, b, bo, r, ro);
+        }
+    }
+
+    static double det2(double[] a, int o) {
+        return a[o] * a[o + 3] - a[o + 1] * a[o + 2];
+    }
+
+    static double det3(double[] a, int o) {
+        double a00 = a[o], a01 = a[o + 1], a02 = a[o + 2];
+        double a10 = a[o + 3], a11 = a[o + 4], a12 = a[o + 5];
+        double a20 = a[o + 6], a21 = a[o + 7], a22 = a[o + 8];
+        return a00 * (a11 * a22 - a12 * a21)
+                - a01 * (a10 * a22 - a12 * a20)
+                + a02 * (a10 * a21 - a11 * a20);
+    }
+
+    static double det4(double[] a, int o) {
+        double a00 = a[o], a01 = a[o + 1], a02 = a[o + 2], a03 = a[o + 3];
+        double a10 = a[o + 4], a11 = a[o + 5], a12 = a[o + 6], a13 = a[o + 7];
+        double a20 = a[o + 8], a21 = a[o + 9], a22 = a[o + 10], a23 = a[o + 11];
+        double a30 = a[o + 12], a31 = a[o + 13], a32 = a[o + 14], a33 = a[o + 15];
+        double s0 = a00 * a11 - a10 * a01;
+        double s1 = a00 * a12 - a10 * a02;
+        double s2 = a00 * a13 - a10 * a03;
+        double s3 = a01 * a12 - a11 * a02;
+        double s4 = a01 * a13 - a11 * a03;
+        double s5 = a02 * a13 - a12 * a03;
+        double c5 = a22 * a33 - a32 * a23;
+        double c4 = a21 * a33 - a31 * a23;
+        double c3 = a21 * a32 - a31 * a22;
+        double c2 = a20 * a33 - a30 * a23;
+        double c1 = a20 * a32 - a30 * a22;
+        double c0 = a20 * a31 - a30 * a21;
+        return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+    }
+
+    /**
+     * Writes the inverse of the 2x2 matrix at a[o] into r[ro].
+     * @return the determinant. When it is 0 nothing is written.
+     */
+    static double inv2(double[] a, int o, double[] r, int ro) {
+        double a00 = a[o], a01 = a[o + 1], a10 = a[o + 2], a11 = a[o + 3];
+        double det = a00 * a11 - a01 * a10;
+        if (det == 0) {
+            return det;
+        }
+        double s = 1.0 / det;
+        r[ro] = a11 * s;
+        r[ro + 1] = -a01 * s;
+        r[ro + 2] = -a10 * s;
+        r[ro + 3] = a00 * s;
+        return det;
+    }
+
+    /**
+     * Writes the inverse of the 3x3 matrix at a[o] into r[ro].
+     * @return the determinant. When it is 0 nothing is written.
+     */
+    static double inv3(double[] a, int o, double[] r, int ro) {
+        double a00 = a[o], a01 = a[o + 1], a02 = a[o + 2];
+        double a10 = a[o + 3], a11 = a[o + 4], a12 = a[o + 5];
+        double a20 = a[o + 6], a21 = a[o + 7], a22 = a[o + 8];
+        double c00 = a11 * a22 - a12 * a21;
+        double c01 = a12 * a20 - a10 * a22;
+        double c02 = a10 * a21 - a11 * a20;
+        double det = a00 * c00 + a01 * c01 + a02 * c02;
+        if (det == 0) {
+            return det;
+        }
+        double s = 1.0 / det;
+        r[ro] = c00 * s;
+        r[ro + 1] = (a02 * a21 - a01 * a22) * s;
+        r[ro + 2] = (a01 * a12 - a02 * a11) * s;
+        r[ro + 3] = c01 * s;
+        r[ro + 4] = (a00 * a22 - a02 * a20) * s;
+        r[ro + 5] = (a02 * a10 - a00 * a12) * s;
+        r[ro + 6] = c02 * s;
+        r[ro + 7] = (a01 * a20 - a00 * a21) * s;
+        r[ro + 8] = (a00 * a11 - a01 * a10) * s;
+        return det;
+    }
+
+    /**
+     * Writes the inverse of the 4x4 matrix at a[o] into r[ro] using the 2x2 sub determinants of the top and bottom
+     * row pairs.
+     * @return the determinant. When it is 0 nothing is written.
+     */
+    static double inv4(double[] a, int o, double[] r, int ro) {
+        double a00 = a[o], a01 = a[o + 1], a02 = a[o + 2], a03 = a[o + 3];
+        double a10 = a[o + 4], a11 = a[o + 5], a12 = a[o + 6], a13 = a[o + 7];
+        double a20 = a[o + 8], a21 = a[o + 9], a22 = a[o + 10], a23 = a[o + 11];
+        double a30 = a[o + 12], a31 = a[o + 13], a32 = a[o + 14], a33 = a[o + 15];
+        double s0 = a00 * a11 - a10 * a01;
+        double s1 = a00 * a12 - a10 * a02;
+        double s2 = a00 * a13 - a10 * a03;
+        double s3 = a01 * a12 - a11 * a02;
+        double s4 = a01 * a13 - a11 * a03;
+        double s5 = a02 * a13 - a12 * a03;
+        double c5 = a22 * a33 - a32 * a23;
+        double c4 = a21 * a33 - a31 * a23;
+        double c3 = a21 * a32 - a31 * a22;
+        double c2 = a20 * a33 - a30 * a23;
+        double c1 = a20 * a32 - a30 * a22;
+        double c0 = a20 * a31 - a30 * a21;
+        double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0) {
+            return det;
+        }
+        double s = 1.0 / det;
+        r[ro] = (a11 * c5 - a12 * c4 + a13 * c3) * s;
+        r[ro + 1] = (-a01 * c5 + a02 * c4 - a03 * c3) * s;
+        r[ro + 2] = (a31 * s5 - a32 * s4 + a33 * s3) * s;
+        r[ro + 3] = (-a21 * s5 + a22 * s4 - a23 * s3) * s;
+        r[ro + 4] = (-a10 * c5 + a12 * c2 - a13 * c1) * s;
+        r[ro + 5] = (a00 * c5 - a02 * c2 + a03 * c1) * s;
+        r[ro + 6] = (-a30 * s5 + a32 * s2 - a33 * s1) * s;
+        r[ro + 7] = (a20 * s5 - a22 * s2 + a23 * s1) * s;
+        r[ro + 8] = (a10 * c4 - a11 * c2 + a13 * c0) * s;
+        r[ro + 9] = (-a00 * c4 + a01 * c2 - a03 * c0) * s;
+        r[ro + 10] = (a30 * s4 - a31 * s2 + a33 * s0) * s;
+        r[ro + 11] = (-a20 * s4 + a21 * s2 - a23 * s0) * s;
+        r[ro + 12] = (-a10 * c3 + a11 * c1 - a12 * c0) * s;
+        r[ro + 13] = (a00 * c3 - a01 * c1 + a02 * c0) * s;
+        r[ro + 14] = (-a30 * s3 + a31 * s1 - a32 * s0) * s;
+        r[ro + 15] = (a20 * s3 - a21 * s1 + a22 * s0) * s;
+        return det;
+    }
+
+    static void mul2(double[] a, int ao, double[] b, int bo, double[] r, int ro) {
+        double a00 = a[ao], a01 = a[ao + 1], a10 = a[ao + 2], a11 = a[ao + 3];
+        double b00 = b[bo], b01 = b[bo + 1], b10 = b[bo + 2], b11 = b[bo + 3];
+        r[ro] = a00 * b00 + a01 * b10;
+        r[ro + 1] = a00 * b01 + a01 * b11;
+        r[ro + 2] = a10 * b00 + a11 * b10;
+        r[ro + 3] = a10 * b01 + a11 * b11;
+    }
+
+    static void mul3(double[] a, int ao, double[] b, int bo, double[] r, int ro) {
+        double b00 = b[bo], b01 = b[bo + 1], b02 = b[bo + 2];
+        double b10 = b[bo + 3], b11 = b[bo + 4], b12 = b[bo + 5];
+        double b20 = b[bo + 6], b21 = b[bo + 7], b22 = b[bo + 8];
+        for (int i = 0; i < 9; i += 3) {
+            double x = a[ao + i], y = a[ao + i + 1], z = a[ao + i + 2];
+            r[ro + i] = x * b00 + y * b10 + z * b20;
+            r[ro + i + 1] = x * b01 + y * b11 + z * b21;
+            r[ro + i + 2] = x * b02 + y * b12 + z * b22;
+        }
+    }
+
+    static void mul4(double[] a, int ao, double[] b, int bo, double[] r, int ro) {
+        double b00 = b[bo], b01 = b[bo + 1], b02 = b[bo + 2], b03 = b[bo + 3];
+        double b10 = b[bo + 4], b11 = b[bo + 5], b12 = b[bo + 6], b13 = b[bo + 7];
+        double b20 = b[bo + 8], b21 = b[bo + 9], b22 = b[bo + 10], b23 = b[bo + 11];
+        double b30 = b[bo + 12], b31 = b[bo + 13], b32 = b[bo + 14], b33 = b[bo + 15];
+        for (int i = 0; i < 16; i += 4) {
+            double x = a[ao + i], y = a[ao + i + 1], z = a[ao + i + 2], w = a[ao + i + 3];
+            r[ro + i] = x * b00 + y * b10 + z * b20 + w * b30;
+            r[ro + i + 1] = x * b01 + y * b11 + z * b21 + w * b31;
+            r[ro + i + 2] = x * b02 + y * b12 + z * b22 + w * b32;
+            r[ro + i + 3] = x * b03 + y * b13 + z * b23 + w * b33;
+        }
+    }
+}
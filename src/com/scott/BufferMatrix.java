@@ -0,0 +1,87 @@
+package com.scott;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * BufferMatrix is a dense matrix whose values are kept in a DoubleBuffer, row by row, instead of a double[]. It is
+ * what MatrixCodec.wrap returns, a view of an encoded matrix in a ByteBuffer, which can be a memory mapped file or
+ * a network buffer, without copying a single value. Changes to the matrix write through to the buffer and the other
+ * way around. Like the structured matrices, operations that need a double[] work on a dense copy.
+ */
+public class BufferMatrix extends StructuredMatrix {
+    private final DoubleBuffer buffer;
+
+    /**
+     * Constructor for a matrix backed by a buffer.
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param buffer the values row by row, from its position; it must have rows*columns remaining
+     */
+    public BufferMatrix(int rows, int columns, DoubleBuffer buffer) {
+        super(rows, columns);
+        if (buffer.remaining() != rows * columns) {
+            throw new IllegalArgumentException("The number of elements in the buffer must be rows * columns.");
+        }
+        this.buffer = buffer.slice();
+    }
+
+    /**
+     *
+     * @return The buffer backing the matrix, from its first value.
+     */
+    public DoubleBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+    @Override
+    double get(int row, int col) {
+        return buffer.get(row * getColumns() + col);
+    }
+
+    @Override
+    void set(int row, int col, double value) {
+        buffer.put(row * getColumns() + col, value);
+    }
+
+    @Override
+    int rowStart(int row) {
+        return 0;
+    }
+
+    @Override
+    int rowEnd(int row) {
+        return getColumns();
+    }
+
+    @Override
+    public int getStorageSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Bulk copy of the buffer, much faster than going cell by cell.
+     */
+    @Override
+    double[] data() {
+        double[] dense = new double[buffer.capacity()];
+        buffer.duplicate().get(dense);
+        return dense;
+    }
+
+    /**
+     *
+     * @return Transposed copy of the matrix, backed by a new heap buffer.
+     */
+    @Override
+    public BufferMatrix transpose() {
+        return new BufferMatrix(getColumns(), getRows(), DoubleBuffer.wrap(AdvancedMath.transform(
+                new Matrix(getRows(), getColumns(), data())).getMatrixArray()));
+    }
+
+    @Override
+    BufferMatrix scaled(double scale) {
+        double[] values = data();
+        ParallelArrays.scale(scale, values, values);
+        return new BufferMatrix(getRows(), getColumns(), DoubleBuffer.wrap(values));
+    }
+}
@@ -0,0 +1,115 @@
+package com.scott;
+
+/**
+ * ChainPlan is the cheapest order to multiply a chain of matrices, found with the classic dynamic program over every
+ * sub-chain. Matrix i of the chain has dimensions[i] rows and dimensions[i + 1] columns, and multiplying an a x b
+ * matrix by a b x c matrix is counted as 2abc flops. The order can change the cost by orders of magnitude: for
+ * 10x1000, 1000x10 and 10x1000 matrices, (A B) C takes 0.4 MFLOPs and A (B C) takes 40.
+ * AdvancedMath.multiplyChain makes a plan and follows it; AdvancedMath.planChain returns the plan on its own, to
+ * look at the order it picked and its cost.
+ */
+public final class ChainPlan {
+    private final int[] dimensions;
+    /**
+     * split[i][j] is the last matrix of the left part when matrices i to j are multiplied.
+     */
+    private final int[][] split;
+    private final double flops;
+
+    /**
+     * Constructor that plans a chain of matrices with the given dimensions.
+     * @param dimensions rows of every matrix followed by the columns of the last one, at least 2 numbers
+     */
+    public ChainPlan(int... dimensions) {
+        if (dimensions.length < 2) {
+            throw new IllegalArgumentException("A chain needs at least 1 matrix.");
+        }
+        for (int dim : dimensions) {
+            if (dim < 1) {
+                throw new IllegalArgumentException("The minimum dimension for rows and columns is 1.");
+            }
+        }
+        this.dimensions = dimensions.clone();
+        int n = dimensions.length - 1;
+        double[][] cost = new double[n][n];
+        split = new int[n][n];
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length <= n; i++) {
+                int j = i + length - 1;
+                cost[i][j] = Double.MAX_VALUE;
+                for (int k = i; k < j; k++) {
+                    double c = cost[i][k] + cost[k + 1][j] + productFlops(i, k + 1, j + 1);
+                    if (c < cost[i][j]) {
+                        cost[i][j] = c;
+                        split[i][j] = k;
+                    }
+                }
+            }
+        }
+        flops = cost[0][n - 1];
+    }
+
+    private double productFlops(int rows, int inner, int cols) {
+        return 2.0 * dimensions[rows] * dimensions[inner] * dimensions[cols];
+    }
+
+    /**
+     *
+     * @return Number of matrices in the chain.
+     */
+    public int getMatrixCount() {
+        return dimensions.length - 1;
+    }
+
+    /**
+     *
+     * @return Flops of the multiplies in the planned order.
+     */
+    public double getFlops() {
+        return flops;
+    }
+
+    /**
+     *
+     * @return Flops of the multiplies from left to right, for comparison.
+     */
+    public double getLeftToRightFlops() {
+        double total = 0;
+        for (int k = 1; k < dimensions.length - 1; k++) {
+            total += productFlops(0, k, k + 1);
+        }
+        return total;
+    }
+
+    int dimension(int index) {
+        return dimensions[index];
+    }
+
+    int split(int first, int last) {
+        return split[first][last];
+    }
+
+    /**
+     * Writes the order as nested parentheses with the matrices numbered from 0, like ((M0 M1) M2).
+     * @return the planned order
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        append(result, 0, dimensions.length - 2);
+        return result.toString();
+    }
+
+    private void append(StringBuilder result, int first, int last) {
+        if (first == last) {
+            result.append('M').append(first);
+            return;
+        }
+        int k = split[first][last];
+        result.append('(');
+        append(result, first, k);
+        result.append(' ');
+        append(result, k + 1, last);
+        result.append(')');
+    }
+}
@@ -0,0 +1,156 @@
+package com.scott;
+
+/**
+ * CholeskyDecomposition factors a symmetric positive definite matrix into A = L*L^T where L is lower triangular.
+ * The factorization can be updated in place for A + x*x^T or downdated for A - x*x^T in O(n^2), which is much cheaper
+ * than factoring the changed matrix again. Because of this it is not safe to share between threads while it is
+ * being updated.
+ */
+public class CholeskyDecomposition {
+    private final int n;
+    private final double[] l;
+
+    /**
+     * Factors the matrix m. Only the lower triangle of m is read.
+     * @param m symmetric positive definite matrix
+     */
+    public CholeskyDecomposition(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate Cholesky decomposition.");
+        }
+        n = m.getRows();
+        double[] a = m.data();
+        l = new double[n * n];
+        for (int j = 0; j < n; j++) {
+            double diag = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diag -= l[j * n + k] * l[j * n + k];
+            }
+            if (!(diag > 0)) {
+                throw new IllegalArgumentException("Matrix must be symmetric positive definite to calculate " +
+                        "Cholesky decomposition.");
+            }
+            double ljj = Math.sqrt(diag);
+            l[j * n + j] = ljj;
+            for (int i = j + 1; i < n; i++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i * n + k] * l[j * n + k];
+                }
+                l[i * n + j] = sum / ljj;
+            }
+        }
+    }
+
+    /**
+     * Updates the factorization in place so it factors A + x*x^T.
+     * @param x vector with one element per row
+     */
+    public void update(double[] x) {
+        checkLength(x);
+        double[] w = x.clone();
+        for (int k = 0; k < n; k++) {
+            double lkk = l[k * n + k];
+            double r = Math.hypot(lkk, w[k]);
+            double c = r / lkk;
+            double s = w[k] / lkk;
+            l[k * n + k] = r;
+            for (int i = k + 1; i < n; i++) {
+                double lik = (l[i * n + k] + s * w[i]) / c;
+                l[i * n + k] = lik;
+                w[i] = c * w[i] - s * lik;
+            }
+        }
+    }
+
+    /**
+     * Downdates the factorization in place so it factors A - x*x^T.
+     * Nothing is changed if the result would not be positive definite.
+     * @param x vector with one element per row
+     */
+    public void downdate(double[] x) {
+        checkLength(x);
+        double[] p = forwardSubstitute(x);
+        double norm = 0;
+        for (double v : p) {
+            norm += v * v;
+        }
+        if (!(norm < 1)) {
+            throw new IllegalArgumentException("The downdated matrix would not be positive definite.");
+        }
+        double[] w = x.clone();
+        for (int k = 0; k < n; k++) {
+            double lkk = l[k * n + k];
+            double r = Math.sqrt((lkk - w[k]) * (lkk + w[k]));
+            double c = r / lkk;
+            double s = w[k] / lkk;
+            l[k * n + k] = r;
+            for (int i = k + 1; i < n; i++) {
+                double lik = (l[i * n + k] - s * w[i]) / c;
+                l[i * n + k] = lik;
+                w[i] = c * w[i] - s * lik;
+            }
+        }
+    }
+
+    /**
+     * Solves A*x = b.
+     * @param b vector with one element per row of A
+     * @return x
+     */
+    public double[] solve(double[] b) {
+        checkLength(b);
+        double[] x = forwardSubstitute(b);
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = x[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= l[k * n + i] * x[k];
+            }
+            x[i] = sum / l[i * n + i];
+        }
+        return x;
+    }
+
+    /**
+     * Calculates the determinant as the square of the product of the diagonal of L.
+     * @return det of the factored matrix.
+     */
+    public double det() {
+        double product = 1;
+        for (int i = 0; i < n; i++) {
+            product *= l[i * n + i];
+        }
+        return product * product;
+    }
+
+    /**
+     *
+     * @return Lower triangular factor L.
+     */
+    public Matrix getL() {
+        return new Matrix(n, n, l.clone());
+    }
+
+    /**
+     * Solves L*y = b.
+     */
+    private double[] forwardSubstitute(double[] b) {
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[i * n + k] * y[k];
+            }
+            y[i] = sum / l[i * n + i];
+        }
+        return y;
+    }
+
+    private void checkLength(double[] x) {
+        if (x.length != n) {
+            throw new IllegalArgumentException("The number of elements in the vector must match the number of " +
+                    "rows in the matrix.");
+        }
+    }
+}
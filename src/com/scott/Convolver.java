@@ -0,0 +1,186 @@
+package com.scott;
+
+import java.util.Arrays;
+
+/**
+ * Convolver convolves a signal of any length with a fixed kernel, a block of samples at a time, with overlap-add:
+ * each block is convolved on its own and the last kernel.length - 1 samples of its result are carried over and added
+ * to the start of the next one. Output sample t is the sum of kernel[j] * signal[t - j], so it is ready as soon as
+ * sample t has been given and the output of every call has as many samples as its input.
+ * Kernels longer than DIRECT_KERNEL_LENGTH are convolved through an FFT of their spectrum, which is computed once;
+ * shorter ones directly, which is faster for them. All buffers are allocated by the constructor, so processing
+ * doesn't allocate, and one Convolver must not be used by 2 threads at once.
+ * To correlate with a kernel, convolve with the kernel reversed: output t is then the dot product of the kernel and
+ * the kernel.length samples that end at t.
+ */
+public final class Convolver {
+    /**
+     * Longest kernel that is convolved directly, measured as the point where the FFT becomes faster.
+     */
+    static final int DIRECT_KERNEL_LENGTH = 16;
+
+    private final double[] kernel;
+    private final int blockSize;
+    private final FFT fft;
+    private final double[] kernelReal;
+    private final double[] kernelImaginary;
+    private final double[] real;
+    private final double[] imaginary;
+    /**
+     * Convolution of the current block, block length + kernel.length - 1 samples, padded to the FFT size if there
+     * is one.
+     */
+    private final double[] block;
+    /**
+     * The part of the convolutions so far that belongs to samples not seen yet.
+     */
+    private final double[] tail;
+
+    /**
+     * Constructor that picks the block size for the kernel.
+     * @param kernel kernel with at least 1 element, copied
+     */
+    public Convolver(double[] kernel) {
+        this(kernel, defaultBlockSize(kernel.length));
+    }
+
+    /**
+     * Constructor with the number of samples convolved at once. Larger blocks spread the cost of each FFT over more
+     * samples, but inputs shorter than a block don't benefit.
+     * @param kernel kernel with at least 1 element, copied
+     * @param blockSize most input samples convolved at once, at least 1
+     */
+    public Convolver(double[] kernel, int blockSize) {
+        if (kernel.length == 0) {
+            throw new IllegalArgumentException("The kernel needs at least 1 element.");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("The block size must be at least 1.");
+        }
+        this.kernel = kernel.clone();
+        this.blockSize = blockSize;
+        int length = blockSize + kernel.length - 1;
+        tail = new double[kernel.length - 1];
+        if (kernel.length > DIRECT_KERNEL_LENGTH) {
+            int size = Math.max(2, Integer.highestOneBit(length - 1) << 1);
+            fft = new FFT(size);
+            block = new double[size];
+            kernelReal = new double[size / 2 + 1];
+            kernelImaginary = new double[size / 2 + 1];
+            real = new double[size / 2 + 1];
+            imaginary = new double[size / 2 + 1];
+            double[] padded = Arrays.copyOf(kernel, size);
+            fft.forward(padded, kernelReal, kernelImaginary);
+        } else {
+            fft = null;
+            block = new double[length];
+            kernelReal = kernelImaginary = real = imaginary = null;
+        }
+    }
+
+    /**
+     * Blocks for an FFT between 4 and 8 kernels long, so most of each FFT is new samples.
+     */
+    static int defaultBlockSize(int kernelLength) {
+        if (kernelLength <= DIRECT_KERNEL_LENGTH) {
+            return 4096;
+        }
+        int size = Integer.highestOneBit(kernelLength - 1) << 3;
+        return size - kernelLength + 1;
+    }
+
+    /**
+     *
+     * @return Number of elements of the kernel.
+     */
+    public int getKernelLength() {
+        return kernel.length;
+    }
+
+    /**
+     *
+     * @return Most input samples convolved at once.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Convolves the next samples of the signal.
+     * @param input next samples
+     * @return one output sample for every input sample
+     */
+    public double[] process(double[] input) {
+        double[] output = new double[input.length];
+        process(input, output);
+        return output;
+    }
+
+    /**
+     * Convolves the next samples of the signal into an array, which may be the input.
+     * @param input next samples
+     * @param output array for one output sample for every input sample, at least as long as the input
+     */
+    public void process(double[] input, double[] output) {
+        if (output.length < input.length) {
+            throw new IllegalArgumentException("The output must be at least as long as the input.");
+        }
+        for (int start = 0; start < input.length; start += blockSize) {
+            int length = Math.min(blockSize, input.length - start);
+            convolveBlock(input, start, length);
+            int carried = tail.length;
+            for (int i = 0; i < carried; i++) {
+                block[i] += tail[i];
+            }
+            System.arraycopy(block, 0, output, start, length);
+            // The samples past the block become the tail, including what was carried beyond it.
+            for (int i = 0; i < carried; i++) {
+                tail[i] = block[length + i];
+            }
+        }
+    }
+
+    /**
+     * Writes the convolution of input[start] to input[start + length - 1] with the kernel into block.
+     */
+    private void convolveBlock(double[] input, int start, int length) {
+        int m = kernel.length;
+        if (fft == null) {
+            Arrays.fill(block, 0, length + m - 1, 0);
+            for (int i = 0; i < length; i++) {
+                double x = input[start + i];
+                for (int j = 0; j < m; j++) {
+                    block[i + j] += x * kernel[j];
+                }
+            }
+            return;
+        }
+        System.arraycopy(input, start, block, 0, length);
+        Arrays.fill(block, length, block.length, 0);
+        fft.forward(block, real, imaginary);
+        for (int k = 0; k < real.length; k++) {
+            double r = real[k] * kernelReal[k] - imaginary[k] * kernelImaginary[k];
+            imaginary[k] = real[k] * kernelImaginary[k] + imaginary[k] * kernelReal[k];
+            real[k] = r;
+        }
+        fft.inverse(real, imaginary, block);
+    }
+
+    /**
+     * Returns the kernel.length - 1 samples of the convolution past the end of the signal and starts over with a
+     * new signal.
+     * @return the end of the convolution
+     */
+    public double[] flush() {
+        double[] end = tail.clone();
+        reset();
+        return end;
+    }
+
+    /**
+     * Starts over with a new signal.
+     */
+    public void reset() {
+        Arrays.fill(tail, 0);
+    }
+}
@@ -0,0 +1,378 @@
+package com.scott;
+
+import java.util.Arrays;
+
+/**
+ * Curve is a piecewise cubic curve through a set of keyframes, evaluated for any number of channels at once. Where
+ * herp and lerp blend between two values, a curve passes through values at every knot and finds the segment for each
+ * time itself. Every segment is turned into the coefficients of a cubic in the time since its first knot when the
+ * curve is built, so evaluating a channel is one Horner step per coefficient.
+ * Finding the segment is O(1) when the knots are evenly spaced and a binary search otherwise. A Cursor remembers the
+ * last segment it found, so times that only move forward, like the frames of an animation, usually find it straight
+ * away. Times before the first knot or after the last are clamped to the ends.
+ * Values are given knot by knot, with all the channels of a knot next to each other:
+ * <pre>
+ * // Two channels, x and y, keyed at t = 0, 1 and 2.
+ * Curve c = Curve.catmullRom(new double[]{0, 1, 2}, new double[]{0, 0, 1, 2, 3, 0}, 2);
+ * double[] xy = new double[2];
+ * c.evaluate(0.5, xy);
+ * </pre>
+ */
+public class Curve {
+    private static final int COEFFICIENTS = 4;
+
+    private final double[] knots;
+    private final int channels;
+    /**
+     * Four coefficients, constant term first, for each channel of each segment.
+     */
+    private final double[] coefficients;
+    private final boolean uniform;
+    private final double inverseStep;
+
+    private Curve(double[] knots, int channels, double[] coefficients) {
+        this.knots = knots;
+        this.channels = channels;
+        this.coefficients = coefficients;
+        int segments = knots.length - 1;
+        double step = (knots[segments] - knots[0]) / segments;
+        boolean even = true;
+        for (int i = 1; i < segments && even; i++) {
+            even = Math.abs(knots[i] - (knots[0] + i * step)) <= 1e-9 * step;
+        }
+        this.uniform = even;
+        this.inverseStep = 1 / step;
+    }
+
+    /**
+     * Makes a curve that joins the values at the knots with straight lines.
+     * @param knots times of the keyframes, strictly increasing
+     * @param values channels values for every knot
+     * @param channels number of channels
+     * @return the curve
+     */
+    public static Curve linear(double[] knots, double[] values, int channels) {
+        check(knots, values, channels);
+        double[] c = new double[(knots.length - 1) * channels * COEFFICIENTS];
+        for (int s = 0; s < knots.length - 1; s++) {
+            double h = knots[s + 1] - knots[s];
+            for (int ch = 0; ch < channels; ch++) {
+                double p0 = values[s * channels + ch], p1 = values[(s + 1) * channels + ch];
+                int at = (s * channels + ch) * COEFFICIENTS;
+                c[at] = p0;
+                c[at + 1] = (p1 - p0) / h;
+            }
+        }
+        return new Curve(knots.clone(), channels, c);
+    }
+
+    /**
+     * Makes a cubic Hermite curve, which passes through each value with the given slope.
+     * @param knots times of the keyframes, strictly increasing
+     * @param values channels values for every knot
+     * @param tangents channels slopes for every knot, in change per unit of time
+     * @param channels number of channels
+     * @return the curve
+     */
+    public static Curve hermite(double[] knots, double[] values, double[] tangents, int channels) {
+        check(knots, values, channels);
+        if (tangents.length != values.length) {
+            throw new IllegalArgumentException("There must be one tangent for every value.");
+        }
+        return new Curve(knots.clone(), channels, hermiteCoefficients(knots, values, tangents, channels));
+    }
+
+    /**
+     * Makes a Catmull-Rom spline, a Hermite curve whose slope at each knot is the slope between its two neighbours.
+     * The first and last knots use the slope of their only segment.
+     * @param knots times of the keyframes, strictly increasing
+     * @param values channels values for every knot
+     * @param channels number of channels
+     * @return the curve
+     */
+    public static Curve catmullRom(double[] knots, double[] values, int channels) {
+        check(knots, values, channels);
+        int last = knots.length - 1;
+        double[] tangents = new double[values.length];
+        for (int k = 0; k <= last; k++) {
+            int before = Math.max(0, k - 1), after = Math.min(last, k + 1);
+            double h = knots[after] - knots[before];
+            for (int ch = 0; ch < channels; ch++) {
+                tangents[k * channels + ch] = (values[after * channels + ch] - values[before * channels + ch]) / h;
+            }
+        }
+        return new Curve(knots.clone(), channels, hermiteCoefficients(knots, values, tangents, channels));
+    }
+
+    /**
+     * Makes a natural cubic spline, the curve through the values whose first and second derivatives are continuous
+     * everywhere and whose second derivative is 0 at both ends. Its second derivatives come from one tridiagonal
+     * system per channel, solved in O(n).
+     * @param knots times of the keyframes, strictly increasing
+     * @param values channels values for every knot
+     * @param channels number of channels
+     * @return the curve
+     */
+    public static Curve naturalCubic(double[] knots, double[] values, int channels) {
+        check(knots, values, channels);
+        int n = knots.length;
+        double[] h = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            h[i] = knots[i + 1] - knots[i];
+        }
+        double[] c = new double[(n - 1) * channels * COEFFICIENTS];
+        double[] second = new double[n];
+        double[] diagonal = new double[n];
+        double[] rhs = new double[n];
+        for (int ch = 0; ch < channels; ch++) {
+            // Thomas algorithm on rows 1..n-2, the ends are fixed at 0.
+            for (int i = 1; i < n - 1; i++) {
+                diagonal[i] = 2 * (h[i - 1] + h[i]);
+                rhs[i] = 6 * ((values[(i + 1) * channels + ch] - values[i * channels + ch]) / h[i]
+                        - (values[i * channels + ch] - values[(i - 1) * channels + ch]) / h[i - 1]);
+                if (i > 1) {
+                    double factor = h[i - 1] / diagonal[i - 1];
+                    diagonal[i] -= factor * h[i - 1];
+                    rhs[i] -= factor * rhs[i - 1];
+                }
+            }
+            second[0] = second[n - 1] = 0;
+            for (int i = n - 2; i >= 1; i--) {
+                second[i] = (rhs[i] - h[i] * second[i + 1]) / diagonal[i];
+            }
+            for (int s = 0; s < n - 1; s++) {
+                double p0 = values[s * channels + ch], p1 = values[(s + 1) * channels + ch];
+                int at = (s * channels + ch) * COEFFICIENTS;
+                c[at] = p0;
+                c[at + 1] = (p1 - p0) / h[s] - h[s] * (2 * second[s] + second[s + 1]) / 6;
+                c[at + 2] = second[s] / 2;
+                c[at + 3] = (second[s + 1] - second[s]) / (6 * h[s]);
+            }
+        }
+        return new Curve(knots.clone(), channels, c);
+    }
+
+    private static double[] hermiteCoefficients(double[] knots, double[] values, double[] tangents, int channels) {
+        double[] c = new double[(knots.length - 1) * channels * COEFFICIENTS];
+        for (int s = 0; s < knots.length - 1; s++) {
+            double h = knots[s + 1] - knots[s];
+            for (int ch = 0; ch < channels; ch++) {
+                int i0 = s * channels + ch, i1 = i0 + channels;
+                double p0 = values[i0], p1 = values[i1], m0 = tangents[i0], m1 = tangents[i1];
+                double slope = (p1 - p0) / h;
+                int at = i0 * COEFFICIENTS;
+                c[at] = p0;
+                c[at + 1] = m0;
+                c[at + 2] = (3 * slope - 2 * m0 - m1) / h;
+                c[at + 3] = (m0 + m1 - 2 * slope) / (h * h);
+            }
+        }
+        return c;
+    }
+
+    private static void check(double[] knots, double[] values, int channels) {
+        if (knots.length < 2) {
+            throw new IllegalArgumentException("A curve needs at least 2 knots.");
+        }
+        for (int i = 1; i < knots.length; i++) {
+            if (!(knots[i] > knots[i - 1])) {
+                throw new IllegalArgumentException("The knots must be strictly increasing.");
+            }
+        }
+        if (channels < 1 || values.length != (long) knots.length * channels) {
+            throw new IllegalArgumentException("There must be one value for every channel of every knot.");
+        }
+    }
+
+    /**
+     *
+     * @return Number of channels.
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     *
+     * @return Time of the first knot.
+     */
+    public double getStart() {
+        return knots[0];
+    }
+
+    /**
+     *
+     * @return Time of the last knot.
+     */
+    public double getEnd() {
+        return knots[knots.length - 1];
+    }
+
+    /**
+     *
+     * @return Number of knots.
+     */
+    public int getKnotCount() {
+        return knots.length;
+    }
+
+    /**
+     *
+     * @return true if the knots are evenly spaced, so segments are found in O(1).
+     */
+    public boolean isUniform() {
+        return uniform;
+    }
+
+    /**
+     * Segment holding t, which is already clamped to [start, end].
+     */
+    private int findSegment(double t) {
+        int last = knots.length - 2;
+        if (uniform) {
+            int s = Math.min(last, (int) ((t - knots[0]) * inverseStep));
+            // The knots are only even to within rounding, so step over if t is just the other side of one.
+            if (s > 0 && t < knots[s]) {
+                s--;
+            } else if (s < last && t >= knots[s + 1]) {
+                s++;
+            }
+            return s;
+        }
+        int found = Arrays.binarySearch(knots, t);
+        int s = found >= 0 ? found : -found - 2;
+        return Math.min(last, s);
+    }
+
+    private double clamp(double t) {
+        return t <= knots[0] ? knots[0] : Math.min(t, knots[knots.length - 1]);
+    }
+
+    private double evaluate(int segment, double u, int channel) {
+        int at = (segment * channels + channel) * COEFFICIENTS;
+        return coefficients[at] + u * (coefficients[at + 1] + u * (coefficients[at + 2] + u * coefficients[at + 3]));
+    }
+
+    private void evaluate(int segment, double u, double[] out, int outOffset) {
+        int at = segment * channels * COEFFICIENTS;
+        for (int ch = 0; ch < channels; ch++, at += COEFFICIENTS) {
+            out[outOffset + ch] = coefficients[at]
+                    + u * (coefficients[at + 1] + u * (coefficients[at + 2] + u * coefficients[at + 3]));
+        }
+    }
+
+    /**
+     * Evaluates one channel.
+     * @param t time
+     * @param channel index of the channel
+     * @return value of the channel at t
+     */
+    public double evaluate(double t, int channel) {
+        checkChannel(channel);
+        t = clamp(t);
+        int s = findSegment(t);
+        return evaluate(s, t - knots[s], channel);
+    }
+
+    /**
+     * Evaluates every channel.
+     * @param t time
+     * @param out array with one element per channel, for the values at t
+     */
+    public void evaluate(double t, double[] out) {
+        checkOut(out.length, channels);
+        t = clamp(t);
+        int s = findSegment(t);
+        evaluate(s, t - knots[s], out, 0);
+    }
+
+    /**
+     * Evaluates every channel at many times, in parallel for large arrays. Sorted times are fastest, each task walks
+     * its share of them with a Cursor.
+     * @param times times to evaluate at
+     * @param out array with times.length * channels elements, for the values at each time one after another
+     */
+    public void evaluate(double[] times, double[] out) {
+        checkOut(out.length, (long) times.length * channels);
+        ParallelArrays.forEach(times.length, (from, to) -> {
+            Cursor cursor = cursor();
+            for (int i = from; i < to; i++) {
+                cursor.evaluate(times[i], out, i * channels);
+            }
+        });
+    }
+
+    private void checkChannel(int channel) {
+        if (channel < 0 || channel >= channels) {
+            throw new IllegalArgumentException("The channel is out of bounds.");
+        }
+    }
+
+    private static void checkOut(int length, long expected) {
+        if (length != expected) {
+            throw new IllegalArgumentException("The output must have one element per channel for every time.");
+        }
+    }
+
+    /**
+     * Makes a cursor for evaluating this curve at times that mostly move forward. A cursor is not thread safe, use
+     * one per thread.
+     * @return a new cursor at the first segment
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Cursor evaluates a curve starting its search from the segment it found last time. When the time is in that
+     * segment or the next one, no search is needed.
+     */
+    public final class Cursor {
+        private int segment;
+
+        private Cursor() {
+        }
+
+        private int seek(double t) {
+            int s = segment;
+            if (t >= knots[s] && (t < knots[s + 1] || s == knots.length - 2)) {
+                return s;
+            }
+            if (s + 2 < knots.length && t >= knots[s + 1] && (t < knots[s + 2] || s + 2 == knots.length - 1)) {
+                segment = s + 1;
+                return segment;
+            }
+            segment = findSegment(t);
+            return segment;
+        }
+
+        /**
+         * Evaluates one channel.
+         * @param t time
+         * @param channel index of the channel
+         * @return value of the channel at t
+         */
+        public double evaluate(double t, int channel) {
+            checkChannel(channel);
+            t = clamp(t);
+            int s = seek(t);
+            return Curve.this.evaluate(s, t - knots[s], channel);
+        }
+
+        /**
+         * Evaluates every channel.
+         * @param t time
+         * @param out array with one element per channel, for the values at t
+         */
+        public void evaluate(double t, double[] out) {
+            checkOut(out.length, channels);
+            evaluate(t, out, 0);
+        }
+
+        private void evaluate(double t, double[] out, int outOffset) {
+            t = clamp(t);
+            int s = seek(t);
+            Curve.this.evaluate(s, t - knots[s], out, outOffset);
+        }
+    }
+}
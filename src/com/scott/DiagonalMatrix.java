@@ -0,0 +1,156 @@
+package com.scott;
+
+import java.util.Arrays;
+
+/**
+ * DiagonalMatrix is a square matrix that can only be non-zero on its diagonal, stored as just the n diagonal values.
+ * Multiplying a dense matrix by it is O(n^2) and its determinant, inverse and solve are O(n).
+ */
+public class DiagonalMatrix extends StructuredMatrix {
+    private final double[] diagonal;
+
+    /**
+     * Constructor for a diagonal matrix. Like Matrix, the array is used as is, not copied.
+     * @param diagonal values down the diagonal
+     */
+    public DiagonalMatrix(double[] diagonal) {
+        super(diagonal.length, diagonal.length);
+        this.diagonal = diagonal;
+    }
+
+    /**
+     * Returns the identity matrix of size dim.
+     * @param dim The size of the matrix.
+     * @return DiagonalMatrix with 1's down it's diagonal.
+     */
+    public static DiagonalMatrix identity(int dim) {
+        if (dim < 1) {
+            throw new IllegalArgumentException("The minimum dimension for rows and columns is 1.");
+        }
+        double[] ones = new double[dim];
+        Arrays.fill(ones, 1);
+        return new DiagonalMatrix(ones);
+    }
+
+    /**
+     *
+     * @return The values down the diagonal, the array backing the matrix.
+     */
+    public double[] getDiagonal() {
+        return diagonal;
+    }
+
+    @Override
+    double get(int row, int col) {
+        return row == col ? diagonal[row] : 0;
+    }
+
+    @Override
+    void set(int row, int col, double value) {
+        if (row == col) {
+            diagonal[row] = value;
+        } else {
+            checkZero(value);
+        }
+    }
+
+    @Override
+    int rowStart(int row) {
+        return row;
+    }
+
+    @Override
+    int rowEnd(int row) {
+        return row + 1;
+    }
+
+    @Override
+    public int getStorageSize() {
+        return diagonal.length;
+    }
+
+    /**
+     *
+     * @return A copy of this matrix, a diagonal matrix is its own transpose.
+     */
+    @Override
+    public DiagonalMatrix transpose() {
+        return new DiagonalMatrix(diagonal.clone());
+    }
+
+    @Override
+    DiagonalMatrix scaled(double scale) {
+        double[] result = new double[diagonal.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = scale * diagonal[i];
+        }
+        return new DiagonalMatrix(result);
+    }
+
+    @Override
+    Double fastDet() {
+        double product = 1;
+        for (double d : diagonal) {
+            product *= d;
+        }
+        return product;
+    }
+
+    @Override
+    DiagonalMatrix fastInverse() {
+        double[] result = new double[diagonal.length];
+        for (int i = 0; i < result.length; i++) {
+            if (diagonal[i] == 0) {
+                throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
+            }
+            result[i] = 1 / diagonal[i];
+        }
+        return new DiagonalMatrix(result);
+    }
+
+    /**
+     * Solves D*x = b.
+     * @param b vector with one element per row
+     * @return x
+     */
+    public double[] solve(double[] b) {
+        if (b.length != diagonal.length) {
+            throw new IllegalArgumentException("The number of elements in vector b must match the number of " +
+                    "rows in the matrix.");
+        }
+        double[] x = new double[b.length];
+        for (int i = 0; i < x.length; i++) {
+            if (diagonal[i] == 0) {
+                throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
+            }
+            x[i] = b[i] / diagonal[i];
+        }
+        return x;
+    }
+
+    @Override
+    double[] multiplyRight(double[] b, int bColumns) {
+        double[] result = new double[b.length];
+        for (int i = 0; i < diagonal.length; i++) {
+            double d = diagonal[i];
+            int rowStart = i * bColumns;
+            for (int j = 0; j < bColumns; j++) {
+                result[rowStart + j] = d * b[rowStart + j];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    double[] multiplyLeft(double[] a, int aRows) {
+        int n = diagonal.length;
+        double[] result = new double[a.length];
+        for (int r = 0; r < aRows; r++) {
+            int rowStart = r * n;
+            for (int j = 0; j < n; j++) {
+                result[rowStart + j] = a[rowStart + j] * diagonal[j];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,268 @@
+package com.scott;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * DistributedMultiply multiplies matrices too large for one machine by splitting them into square tiles and spreading
+ * the work over several workers. A is cut into a grid of tiles A(i,k) and B into tiles B(k,j), and every output tile
+ * C(i,j) = sum over k of A(i,k)*B(k,j) is sent to a worker with row i of A's tiles and column j of B's tiles, the
+ * panels SUMMA broadcasts along a process grid.
+ * Each worker has its own thread that takes the next unfinished output tile, so faster workers take on more tiles.
+ * When a worker fails, the tile is put back for another worker to try, up to maxAttempts times in total, and only
+ * then does the whole multiply fail. A worker that keeps failing backs off before taking more tiles. Statistics for
+ * each worker are kept in a WorkerStats.
+ * <pre>
+ * DistributedMultiply d = new DistributedMultiply(List.of(new SocketTransport("node1", 7171),
+ *         new SocketTransport("node2", 7171)), 512, 3);
+ * Matrix c = d.multiply(a, b);
+ * </pre>
+ */
+public class DistributedMultiply implements AutoCloseable {
+    private final List<TileTransport> workers;
+    private final List<WorkerStats> stats;
+    private final int tileSize;
+    private final int maxAttempts;
+
+    /**
+     * Constructor for a distributed multiply.
+     * @param workers transports to the workers, closed when this is closed
+     * @param tileSize number of rows and columns in each tile, at most 4096 so a tile fits in one request
+     * @param maxAttempts number of times a tile is tried before the multiply fails
+     */
+    public DistributedMultiply(List<? extends TileTransport> workers, int tileSize, int maxAttempts) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least 1 worker is needed.");
+        }
+        if (tileSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("The tile size and max attempts must be at least 1.");
+        }
+        if ((long) tileSize * tileSize > TileServer.MAX_TILE_ELEMENTS) {
+            throw new IllegalArgumentException("Tiles can have at most " + TileServer.MAX_TILE_ELEMENTS + " values.");
+        }
+        this.workers = new ArrayList<>(workers);
+        this.stats = new ArrayList<>();
+        for (TileTransport worker : workers) {
+            stats.add(new WorkerStats(worker.getName()));
+        }
+        this.tileSize = tileSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    private static final class Job {
+        private final int row, col;
+        private int attempts;
+        /**
+         * Indices of the workers this tile has already failed on.
+         */
+        private final BitSet failedOn = new BitSet();
+
+        private Job(int row, int col) {
+            this.row = row;
+            this.col = col;
+        }
+    }
+
+    /**
+     * Multiplies 2 matrices on the workers.
+     * @param A Matrix 1
+     * @param B Matrix 2
+     * @return A*B
+     * @throws UncheckedIOException if a tile failed on every attempt
+     */
+    public Matrix multiply(Matrix A, Matrix B) {
+        if (A.getColumns() != B.getRows()) {
+            throw new IllegalArgumentException("The number of columns in matrix A must match the number of " +
+                    "rows in matrix B.");
+        }
+        int rows = A.getRows(), inner = A.getColumns(), cols = B.getColumns();
+        int tileRows = tiles(rows), tileInner = tiles(inner), tileCols = tiles(cols);
+        Matrix[][] aTiles = new Matrix[tileRows][tileInner];
+        Matrix[][] bTiles = new Matrix[tileCols][tileInner];
+        // Structured matrices build their dense array on every call, so it is fetched once for all the tiles.
+        double[] a = A.data(), b = B.data();
+        for (int k = 0; k < tileInner; k++) {
+            for (int i = 0; i < tileRows; i++) {
+                aTiles[i][k] = tile(a, rows, inner, i, k);
+            }
+            for (int j = 0; j < tileCols; j++) {
+                bTiles[j][k] = tile(b, inner, cols, k, j);
+            }
+        }
+        double[] result = new double[rows * cols];
+        LinkedBlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+        for (int i = 0; i < tileRows; i++) {
+            for (int j = 0; j < tileCols; j++) {
+                queue.add(new Job(i, j));
+            }
+        }
+        CountDownLatch remaining = new CountDownLatch(queue.size());
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < workers.size(); w++) {
+            int index = w;
+            TileTransport worker = workers.get(w);
+            WorkerStats workerStats = stats.get(w);
+            Thread thread = new Thread(() -> {
+                int consecutiveFailures = 0;
+                try {
+                    while (remaining.getCount() > 0 && failure.get() == null) {
+                        Job job = queue.poll(10, TimeUnit.MILLISECONDS);
+                        if (job == null) {
+                            continue;
+                        }
+                        // Leave tiles this worker already failed to the others, unless they all failed it too.
+                        if (job.failedOn.get(index) && job.failedOn.cardinality() < workers.size()) {
+                            queue.add(job);
+                            Thread.sleep(1);
+                            continue;
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            Matrix c = worker.multiplyTiles(aTiles[job.row], bTiles[job.col]);
+                            if (c.getRows() != aTiles[job.row][0].getRows()
+                                    || c.getColumns() != bTiles[job.col][0].getColumns()) {
+                                throw new IOException("Worker " + worker.getName() + " returned a tile of the "
+                                        + "wrong size.");
+                            }
+                            copyIn(c, job.row, job.col, result, cols);
+                            long flops = 2L * c.getRows() * c.getColumns() * inner;
+                            workerStats.recordTile(flops, System.nanoTime() - start);
+                            remaining.countDown();
+                            consecutiveFailures = 0;
+                        } catch (Throwable e) {
+                            // Errors too, like running out of memory for a reply: the tile must go back on the
+                            // queue or fail the multiply, or the other workers would wait for it forever.
+                            workerStats.recordFailure(System.nanoTime() - start);
+                            job.failedOn.set(index);
+                            if (++job.attempts >= maxAttempts) {
+                                failure.compareAndSet(null, new IOException("Tile (" + job.row + ", " + job.col +
+                                        ") failed after " + maxAttempts + " attempts.", e));
+                                return;
+                            }
+                            queue.add(job);
+                            // Back off so a worker that is down doesn't keep grabbing tiles.
+                            consecutiveFailures++;
+                            Thread.sleep(Math.min(1000, 10L << Math.min(consecutiveFailures, 7)));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, new IOException("Worker " + worker.getName() + " stopped.", e));
+                }
+            }, "distributed-multiply-" + worker.getName());
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted while waiting for the workers.", e));
+        }
+        if (failure.get() != null) {
+            throw new UncheckedIOException(failure.get());
+        }
+        return new Matrix(rows, cols, result);
+    }
+
+    private int tiles(int size) {
+        return (size + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Copies tile (tileRow, tileCol) out of the dataRows x dataColumns values in data. Tiles on the bottom and right edges may be smaller than tileSize.
+     */
+    private Matrix tile(double[] data, int dataRows, int dataColumns, int tileRow, int tileCol) {
+        int rowStart = tileRow * tileSize, colStart = tileCol * tileSize;
+        int rows = Math.min(tileSize, dataRows - rowStart), cols = Math.min(tileSize, dataColumns - colStart);
+        double[] values = new double[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(data, (rowStart + r) * dataColumns + colStart, values, r * cols, cols);
+        }
+        return new Matrix(rows, cols, values);
+    }
+
+    private void copyIn(Matrix tile, int tileRow, int tileCol, double[] result, int resultColumns) {
+        int rowStart = tileRow * tileSize, colStart = tileCol * tileSize;
+        double[] values = tile.data();
+        for (int r = 0; r < tile.getRows(); r++) {
+            System.arraycopy(values, r * tile.getColumns(), result, (rowStart + r) * resultColumns + colStart,
+                    tile.getColumns());
+        }
+    }
+
+    /**
+     * Calculates aRow[0]*bColumn[0] + aRow[1]*bColumn[1] + ..., the work a worker does for one output tile.
+     */
+    static Matrix multiplyTiles(Matrix[] aRow, Matrix[] bColumn) {
+        if (aRow.length != bColumn.length || aRow.length == 0) {
+            throw new IllegalArgumentException("There must be the same number of tiles from A and B.");
+        }
+        int rows = aRow[0].getRows(), cols = bColumn[0].getColumns();
+        double[] result = new double[rows * cols];
+        for (int t = 0; t < aRow.length; t++) {
+            Matrix A = aRow[t], B = bColumn[t];
+            if (A.getRows() != rows || B.getColumns() != cols || A.getColumns() != B.getRows()) {
+                throw new IllegalArgumentException("The tiles from A and B don't fit together.");
+            }
+            int inner = A.getColumns();
+            double[] a = A.data();
+            double[] b = B.data();
+            for (int i = 0; i < rows; i++) {
+                int rowStart = i * cols;
+                for (int k = 0; k < inner; k++) {
+                    double aik = a[i * inner + k];
+                    int bRow = k * cols;
+                    for (int j = 0; j < cols; j++) {
+                        result[rowStart + j] += aik * b[bRow + j];
+                    }
+                }
+            }
+        }
+        return new Matrix(rows, cols, result);
+    }
+
+    /**
+     *
+     * @return Statistics for each worker, in the order the workers were given.
+     */
+    public List<WorkerStats> getWorkerStats() {
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * Closes every worker's transport.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException first = null;
+        for (TileTransport worker : workers) {
+            try {
+                worker.close();
+            } catch (IOException e) {
+                if (first == null) {
+                    first = e;
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.scott;
+
+/**
+ * FFT is a fast Fourier transform of real signals with a fixed power of 2 size. A signal of size n is transformed
+ * as a complex signal of size n/2, with the even samples as the real parts and the odd ones as the imaginary parts,
+ * which is then split into the spectrum of the real signal. That takes about half the work of a complex transform.
+ * The twiddle factors and the bit reversal order are computed once when the FFT is made.
+ * An FFT keeps its scratch arrays between calls, so one FFT must not be used by 2 threads at once.
+ */
+public final class FFT {
+    private final int size;
+    private final int half;
+    /**
+     * cos and sin of 2 pi k / size for k up to size / 2.
+     */
+    private final double[] cos;
+    private final double[] sin;
+    /**
+     * Bit reversal order of the complex transform of size half.
+     */
+    private final int[] reversed;
+    private final double[] re;
+    private final double[] im;
+
+    /**
+     * Constructor that plans the transforms of one size.
+     * @param size number of samples, a power of 2 and at least 2
+     */
+    public FFT(int size) {
+        if (size < 2 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("The size must be a power of 2 and at least 2.");
+        }
+        this.size = size;
+        half = size / 2;
+        cos = new double[half];
+        sin = new double[half];
+        for (int k = 0; k < half; k++) {
+            double angle = 2 * Math.PI * k / size;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+        reversed = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) {
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+        re = new double[half];
+        im = new double[half];
+    }
+
+    /**
+     *
+     * @return Number of samples of the signals this FFT transforms.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Transforms a real signal into the first size/2 + 1 bins of its spectrum; the rest are the complex conjugates
+     * of these.
+     * @param signal size samples
+     * @param real array for the real parts of the bins, at least size/2 + 1 elements
+     * @param imaginary array for the imaginary parts of the bins, at least size/2 + 1 elements
+     */
+    public void forward(double[] signal, double[] real, double[] imaginary) {
+        if (signal.length != size) {
+            throw new IllegalArgumentException("The signal must have the FFT's number of samples.");
+        }
+        checkSpectrum(real, imaginary);
+        for (int i = 0; i < half; i++) {
+            int j = reversed[i];
+            re[j] = signal[2 * i];
+            im[j] = signal[2 * i + 1];
+        }
+        transform(1);
+        // Split Z into the spectra E and O of the even and odd samples, then X[k] = E[k] + W^k O[k].
+        real[0] = re[0] + im[0];
+        imaginary[0] = 0;
+        real[half] = re[0] - im[0];
+        imaginary[half] = 0;
+        for (int k = 1; k < half; k++) {
+            int m = half - k;
+            double er = 0.5 * (re[k] + re[m]), ei = 0.5 * (im[k] - im[m]);
+            double or = 0.5 * (im[k] + im[m]), oi = -0.5 * (re[k] - re[m]);
+            real[k] = er + cos[k] * or + sin[k] * oi;
+            imaginary[k] = ei + cos[k] * oi - sin[k] * or;
+        }
+    }
+
+    /**
+     * Transforms the first size/2 + 1 bins of the spectrum of a real signal back into the signal.
+     * @param real real parts of the bins, at least size/2 + 1 elements
+     * @param imaginary imaginary parts of the bins, at least size/2 + 1 elements
+     * @param signal array for the size samples, which may be real or imaginary
+     */
+    public void inverse(double[] real, double[] imaginary, double[] signal) {
+        if (signal.length < size) {
+            throw new IllegalArgumentException("The signal must have the FFT's number of samples.");
+        }
+        checkSpectrum(real, imaginary);
+        // Undo the split: Z[k] = E[k] + i O[k], with the 1/half of the inverse transform folded in.
+        double scale = 0.5 / half;
+        for (int k = 0; k < half; k++) {
+            int m = half - k;
+            double er = real[k] + real[m], ei = imaginary[k] - imaginary[m];
+            double dr = real[k] - real[m], di = imaginary[k] + imaginary[m];
+            double or = dr * cos[k] - di * sin[k], oi = di * cos[k] + dr * sin[k];
+            int j = reversed[k];
+            re[j] = (er - oi) * scale;
+            im[j] = (ei + or) * scale;
+        }
+        transform(-1);
+        for (int i = 0; i < half; i++) {
+            signal[2 * i] = re[i];
+            signal[2 * i + 1] = im[i];
+        }
+    }
+
+    private void checkSpectrum(double[] real, double[] imaginary) {
+        if (real.length <= half || imaginary.length <= half) {
+            throw new IllegalArgumentException("The spectrum must have size/2 + 1 bins.");
+        }
+    }
+
+    /**
+     * Radix 2 decimation in time on re and im, which are in bit reversed order. The twiddles of a stage of length
+     * len are every size/len-th entry of the tables; sign is 1 for the forward transform and -1 for the inverse.
+     */
+    private void transform(int sign) {
+        for (int len = 2; len <= half; len <<= 1) {
+            int step = size / len;
+            int mid = len >> 1;
+            for (int start = 0; start < half; start += len) {
+                for (int j = 0; j < mid; j++) {
+                    double wr = cos[j * step], wi = -sign * sin[j * step];
+                    int a = start + j, b = a + mid;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
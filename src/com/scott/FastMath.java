@@ -0,0 +1,88 @@
+package com.scott;
+
+/**
+ * FastMath has fast and approximate math functions for code, like graphics, that needs speed more
+ * than the last few digits. Every function documents the largest error it can make, and the tests check those
+ * bounds. Use AdvancedMath wherever exact results matter.
+ * <ul>
+ * <li>rsqrt: 1/sqrt(x) from the bit pattern of x and one Newton step, relative error at most 1.76e-3.</li>
+ * <li>rsqrtRefined: the same with a second Newton step, relative error at most 4.6e-6.</li>
+ * <li>smoothstep and smootherstep: the clamped cubic 3t^2 - 2t^3 and quintic 6t^5 - 15t^4 + 10t^3, exact to
+ * within 1e-14.</li>
+ * </ul>
+ * The smoothsteps are evaluated directly rather than read from a table: a 1024 entry table with linear interpolation
+ * was measured at about half the speed of Horner's rule, and less accurate. There is no approximate normalize because
+ * AdvancedMath.normalize already takes one pass and a square root, and scaling by rsqrt was no faster. Run
+ * FastMathBenchmark in the tests to compare each function with the exact version.
+ */
+public final class FastMath {
+    /**
+     * Magic constant for the first guess of 1/sqrt(x), the double precision version of the one from Quake III.
+     */
+    private static final long RSQRT_MAGIC = 0x5FE6EB50C7B537A9L;
+
+    private FastMath() {
+    }
+
+    /**
+     * Approximates 1/sqrt(x) with a guess from the bit pattern of x improved by one Newton step. The relative
+     * error is at most 1.76e-3. Zero, subnormal, infinite and NaN inputs are passed to 1/Math.sqrt.
+     * @param x positive number
+     * @return about 1/sqrt(x)
+     */
+    public static double rsqrt(double x) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return 1 / Math.sqrt(x);
+        }
+        double y = Double.longBitsToDouble(RSQRT_MAGIC - (Double.doubleToRawLongBits(x) >>> 1));
+        return y * (1.5 - 0.5 * x * y * y);
+    }
+
+    /**
+     * Approximates 1/sqrt(x) like rsqrt with a second Newton step. The relative error is at most 4.6e-6.
+     * @param x positive number
+     * @return about 1/sqrt(x)
+     */
+    public static double rsqrtRefined(double x) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return 1 / Math.sqrt(x);
+        }
+        double half = 0.5 * x;
+        double y = Double.longBitsToDouble(RSQRT_MAGIC - (Double.doubleToRawLongBits(x) >>> 1));
+        y *= 1.5 - half * y * y;
+        return y * (1.5 - half * y * y);
+    }
+
+    /**
+     * Smoothstep of x between two edges: 0 below edge0, 1 above edge1 and 3t^2 - 2t^3 for t = (x - edge0) /
+     * (edge1 - edge0) in between. Within 1e-14 of the exact value.
+     * @param edge0 value where the curve starts rising from 0
+     * @param edge1 value where the curve reaches 1
+     * @param x input
+     * @return smoothstep of x
+     */
+    public static double smoothstep(double edge0, double edge1, double x) {
+        double t = unit((x - edge0) / (edge1 - edge0));
+        return t * t * (3 - 2 * t);
+    }
+
+    /**
+     * Ken Perlin's smootherstep of x between two edges, 6t^5 - 15t^4 + 10t^3, which also has zero second derivative
+     * at both edges. Within 1e-14 of the exact value.
+     * @param edge0 value where the curve starts rising from 0
+     * @param edge1 value where the curve reaches 1
+     * @param x input
+     * @return smootherstep of x
+     */
+    public static double smootherstep(double edge0, double edge1, double x) {
+        double t = unit((x - edge0) / (edge1 - edge0));
+        return t * t * t * (t * (6 * t - 15) + 10);
+    }
+
+    /**
+     * Clamps t to [0, 1] with plain comparisons, which are cheaper than Math.min and Math.max. NaN stays NaN.
+     */
+    private static double unit(double t) {
+        return t < 0 ? 0 : t > 1 ? 1 : t;
+    }
+}
@@ -0,0 +1,85 @@
+package com.scott;
+
+import java.util.Arrays;
+
+/**
+ * GramAccumulator builds the Gram matrix X^T X of a matrix X that is given a few rows at a time, like the frames of
+ * a MatrixReader, for datasets too large to hold in memory. Since X^T X is the sum of the Gram matrices of any split
+ * of X into row chunks, each chunk is added with the same kernel as AdvancedMath.gram and only the upper triangle
+ * is kept until getGram mirrors it.
+ */
+public class GramAccumulator {
+    private final int columns;
+    private final double[] upper;
+    private long rowCount;
+
+    /**
+     * Constructor for an accumulator that hasn't seen any rows.
+     * @param columns number of columns of X
+     */
+    public GramAccumulator(int columns) {
+        if (columns < 1) {
+            throw new IllegalArgumentException("The minimum dimension for rows and columns is 1.");
+        }
+        this.columns = columns;
+        upper = new double[columns * columns];
+    }
+
+    /**
+     * Adds the rows of a matrix to X.
+     * @param rows matrix with the accumulator's number of columns
+     */
+    public void add(Matrix rows) {
+        if (rows.getColumns() != columns) {
+            throw new IllegalArgumentException("The matrix must have the accumulator's number of columns.");
+        }
+        AdvancedMath.gramUpdate(rows.data(), rows.getRows(), columns, upper);
+        rowCount += rows.getRows();
+    }
+
+    /**
+     * Adds one row to X.
+     * @param row vector with one element per column
+     */
+    public void addRow(double[] row) {
+        if (row.length != columns) {
+            throw new IllegalArgumentException("The row must have one element per column.");
+        }
+        AdvancedMath.gramUpdate(row, 1, columns, upper);
+        rowCount++;
+    }
+
+    /**
+     *
+     * @return Number of columns of X.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     *
+     * @return Number of rows added so far.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     *
+     * @return X^T X of the rows added so far, a new matrix on every call.
+     */
+    public Matrix getGram() {
+        double[] g = upper.clone();
+        AdvancedMath.mirrorUpper(g, columns);
+        return new Matrix(columns, columns, g);
+    }
+
+    /**
+     * Forgets every row added so far.
+     */
+    public void reset() {
+        Arrays.fill(upper, 0);
+        rowCount = 0;
+    }
+}
@@ -0,0 +1,136 @@
+package com.scott;
+
+/**
+ * ImmutableMatrix is a Matrix whose values can never change after construction. The values are copied in when it is
+ * created and copied out by getMatrixArray, and setCell is not supported. Because all of its state is final it can be
+ * handed to other threads without any extra synchronization.
+ * Derived values like the transpose, determinant, norm, LU decomposition and inverse are calculated the first time
+ * they are asked for and then reused. Two threads asking at the same time may both calculate a value, but they get
+ * equal results and no locks are taken.
+ */
+public final class ImmutableMatrix extends Matrix {
+    private final long contentHash;
+    private volatile ImmutableMatrix transpose;
+    private volatile Double det;
+    private volatile Double norm;
+    private volatile LUDecomposition lu;
+    private volatile ImmutableMatrix inverse;
+
+    /**
+     * Constructor for an immutable matrix initialized with a copy of an array.
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param matrixArray array of doubles to copy into the matrix. Note that the array must be of size rows*columns.
+     */
+    public ImmutableMatrix(int rows, int columns, double[] matrixArray) {
+        super(rows, columns, matrixArray.clone());
+        contentHash = finishHash(hashSum(data()), rows, columns);
+    }
+
+    /**
+     * Constructor for an immutable copy of another matrix.
+     * @param m matrix to copy
+     */
+    public ImmutableMatrix(Matrix m) {
+        super(m.getRows(), m.getColumns(), m.copyData());
+        contentHash = finishHash(hashSum(data()), m.getRows(), m.getColumns());
+    }
+
+    /**
+     * Always throws, immutable matrices can't be changed.
+     */
+    @Override
+    public void setCell(int row, int col, double value) {
+        throw new UnsupportedOperationException("An immutable matrix can't be modified.");
+    }
+
+    /**
+     *
+     * @return Returns a copy of the matrix as a 1D array of doubles.
+     */
+    @Override
+    public double[] getMatrixArray() {
+        return data().clone();
+    }
+
+    @Override
+    long contentHash() {
+        return contentHash;
+    }
+
+    /**
+     *
+     * @return this matrix, it is already immutable.
+     */
+    @Override
+    public ImmutableMatrix freeze() {
+        return this;
+    }
+
+    /**
+     *
+     * @return Matrix with swapped rows and columns.
+     */
+    public ImmutableMatrix transpose() {
+        ImmutableMatrix result = transpose;
+        if (result == null) {
+            result = new ImmutableMatrix(AdvancedMath.transform(this));
+            result.transpose = this;
+            transpose = result;
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return Determinant of the matrix, calculated from its LU decomposition.
+     */
+    public double det() {
+        Double result = det;
+        if (result == null) {
+            result = lu().det();
+            det = result;
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return Frobenius norm, the square root of the sum of every element squared.
+     */
+    public double norm() {
+        Double result = norm;
+        if (result == null) {
+            result = AdvancedMath.magnitude(data());
+            norm = result;
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return LU decomposition of the matrix.
+     */
+    public LUDecomposition lu() {
+        LUDecomposition result = lu;
+        if (result == null) {
+            result = new LUDecomposition(this);
+            lu = result;
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @return Inverse of the matrix, calculated from its LU decomposition.
+     */
+    public ImmutableMatrix inverse() {
+        ImmutableMatrix result = inverse;
+        if (result == null) {
+            result = new ImmutableMatrix(lu().inverse());
+            result.inverse = this;
+            inverse = result;
+        }
+        return result;
+    }
+}
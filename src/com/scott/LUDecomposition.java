@@ -0,0 +1,200 @@
+package com.scott;
+
+/**
+ * LUDecomposition factors a square matrix into P*A = L*U using Gaussian elimination with partial pivoting.
+ * L is unit lower triangular and U is upper triangular, both packed into one array. Once built the decomposition is
+ * never modified, so it can be shared between threads and reused to solve many systems with the same matrix.
+ */
+public class LUDecomposition {
+    private final int n;
+    private final double[] lu;
+    private final int[] pivot;
+    private final int pivotSign;
+    private final boolean singular;
+
+    /**
+     * Factors the matrix m. The matrix itself is not modified.
+     * @param m square matrix
+     */
+    public LUDecomposition(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to calculate LU decomposition.");
+        }
+        n = m.getRows();
+        lu = m.copyData();
+        pivot = new int[n];
+        for (int i = 0; i < n; i++) {
+            pivot[i] = i;
+        }
+        int sign = 1;
+        boolean isSingular = false;
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double max = Math.abs(lu[k * n + k]);
+            for (int i = k + 1; i < n; i++) {
+                double v = Math.abs(lu[i * n + k]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            if (p != k) {
+                for (int j = 0; j < n; j++) {
+                    double tmp = lu[p * n + j];
+                    lu[p * n + j] = lu[k * n + j];
+                    lu[k * n + j] = tmp;
+                }
+                int tmp = pivot[p];
+                pivot[p] = pivot[k];
+                pivot[k] = tmp;
+                sign = -sign;
+            }
+            double diag = lu[k * n + k];
+            if (diag == 0) {
+                isSingular = true;
+                continue;
+            }
+            for (int i = k + 1; i < n; i++) {
+                double factor = lu[i * n + k] / diag;
+                lu[i * n + k] = factor;
+                if (factor != 0) {
+                    for (int j = k + 1; j < n; j++) {
+                        lu[i * n + j] -= factor * lu[k * n + j];
+                    }
+                }
+            }
+        }
+        pivotSign = sign;
+        singular = isSingular;
+    }
+
+    /**
+     *
+     * @return true if the matrix has a zero pivot and therefore no inverse.
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * Calculates the determinant as the signed product of the diagonal of U.
+     * @return det of the factored matrix.
+     */
+    public double det() {
+        double result = pivotSign;
+        for (int i = 0; i < n; i++) {
+            result *= lu[i * n + i];
+        }
+        return result;
+    }
+
+    /**
+     * Solves A*x = b.
+     * @param b vector with one element per row of A
+     * @return x
+     */
+    public double[] solve(double[] b) {
+        if (b.length != n) {
+            throw new IllegalArgumentException("The number of elements in vector b must match the number of " +
+                    "rows in the matrix.");
+        }
+        checkSingular();
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = b[pivot[i]];
+        }
+        substitute(x, 0, 1);
+        return x;
+    }
+
+    /**
+     * Solves A*X = B one column at a time.
+     * @param B matrix with the same number of rows as A
+     * @return X
+     */
+    public Matrix solve(Matrix B) {
+        if (B.getRows() != n) {
+            throw new IllegalArgumentException("The number of rows in matrix B must match the number of " +
+                    "rows in the matrix.");
+        }
+        checkSingular();
+        int cols = B.getColumns();
+        double[] b = B.data();
+        double[] x = new double[n * cols];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(b, pivot[i] * cols, x, i * cols, cols);
+        }
+        for (int j = 0; j < cols; j++) {
+            substitute(x, j, cols);
+        }
+        return new Matrix(n, cols, x);
+    }
+
+    /**
+     * Calculates the inverse by solving against the identity matrix.
+     * @return inverse of the factored matrix.
+     */
+    public Matrix inverse() {
+        return solve(AdvancedMath.identityMatrix(n));
+    }
+
+    /**
+     *
+     * @return Unit lower triangular factor L.
+     */
+    public Matrix getL() {
+        double[] result = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n, result, i * n, i);
+            result[i * n + i] = 1;
+        }
+        return new Matrix(n, n, result);
+    }
+
+    /**
+     *
+     * @return Upper triangular factor U.
+     */
+    public Matrix getU() {
+        double[] result = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n + i, result, i * n + i, n - i);
+        }
+        return new Matrix(n, n, result);
+    }
+
+    /**
+     *
+     * @return Row i of L*U is row getPivot()[i] of the original matrix.
+     */
+    public int[] getPivot() {
+        return pivot.clone();
+    }
+
+    private void checkSingular() {
+        if (singular) {
+            throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
+        }
+    }
+
+    /**
+     * Forward then back substitution on the column of x starting at offset with the given stride.
+     */
+    private void substitute(double[] x, int offset, int stride) {
+        for (int i = 1; i < n; i++) {
+            double sum = x[offset + i * stride];
+            for (int k = 0; k < i; k++) {
+                sum -= lu[i * n + k] * x[offset + k * stride];
+            }
+            x[offset + i * stride] = sum;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = x[offset + i * stride];
+            for (int k = i + 1; k < n; k++) {
+                sum -= lu[i * n + k] * x[offset + k * stride];
+            }
+            x[offset + i * stride] = sum / lu[i * n + i];
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.scott;
+
+/**
+ * LoopbackTransport multiplies tiles in the calling JVM. It lets a DistributedMultiply use local threads as workers,
+ * and is handy for testing.
+ */
+public class LoopbackTransport implements TileTransport {
+    private final String name;
+
+    /**
+     * Constructor for a local worker.
+     * @param name name of the worker
+     */
+    public LoopbackTransport(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Matrix multiplyTiles(Matrix[] aRow, Matrix[] bColumn) {
+        return DistributedMultiply.multiplyTiles(aRow, bColumn);
+    }
+
+    /**
+     *
+     * @return Name of the worker.
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,181 @@
+package com.scott;
+
+/**
+ * Lz4 compresses blocks of bytes in the LZ4 block format: a run of sequences, each one some literal bytes copied as
+ * is followed by a match, a copy of at least 4 earlier bytes found through a hash table of the last position each
+ * 4 byte group was seen at. It trades compression ratio for speed, so it only pays off on data with repeated bytes,
+ * like shuffled doubles with similar exponents.
+ */
+final class Lz4 {
+    private static final int MIN_MATCH = 4;
+    /**
+     * The last 5 bytes are always literals and no match starts in the last 12.
+     */
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 14;
+    /**
+     * Steps between positions grow after this many misses in a row, so data that doesn't compress goes through fast.
+     */
+    private static final int SKIP_TRIGGER = 6;
+
+    private Lz4() {
+    }
+
+    /**
+     * Largest size length bytes can compress to.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses src[srcOff, srcOff + length) into dst from dstOff, which must have maxCompressedLength(length) bytes.
+     * @return number of bytes written
+     */
+    static int compress(byte[] src, int srcOff, int length, byte[] dst, int dstOff) {
+        int end = srcOff + length;
+        int out = dstOff;
+        int anchor = srcOff;
+        if (length >= MATCH_FIND_LIMIT + 1) {
+            int[] table = new int[1 << HASH_BITS];
+            int matchLimit = end - MATCH_FIND_LIMIT;
+            int extendLimit = end - LAST_LITERALS;
+            int ip = srcOff;
+            int misses = 1 << SKIP_TRIGGER;
+            while (ip < matchLimit) {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                // Positions are stored plus 1 so 0 means empty.
+                int ref = table[h] - 1;
+                table[h] = ip + 1;
+                if (ref < srcOff || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    ip += misses++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                misses = 1 << SKIP_TRIGGER;
+                // Extend backwards over literals that match too.
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < extendLimit && src[ip + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+                out = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dst, out);
+                ip += matchLength;
+                anchor = ip;
+            }
+        }
+        int literals = end - anchor;
+        out = writeLiterals(src, anchor, literals, dst, out, 0);
+        return out - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int literals, int offset, int matchLength, byte[] dst,
+                                     int out) {
+        int extra = matchLength - MIN_MATCH;
+        out = writeLiterals(src, anchor, literals, dst, out, Math.min(extra, 15));
+        dst[out++] = (byte) offset;
+        dst[out++] = (byte) (offset >>> 8);
+        if (extra >= 15) {
+            out = writeLength(extra - 15, dst, out);
+        }
+        return out;
+    }
+
+    /**
+     * Writes a token with the literal count and the low match nibble, then the literals.
+     */
+    private static int writeLiterals(byte[] src, int anchor, int literals, byte[] dst, int out, int matchNibble) {
+        dst[out++] = (byte) ((Math.min(literals, 15) << 4) | matchNibble);
+        if (literals >= 15) {
+            out = writeLength(literals - 15, dst, out);
+        }
+        System.arraycopy(src, anchor, dst, out, literals);
+        return out + literals;
+    }
+
+    private static int writeLength(int length, byte[] dst, int out) {
+        while (length >= 255) {
+            dst[out++] = (byte) 255;
+            length -= 255;
+        }
+        dst[out++] = (byte) length;
+        return out;
+    }
+
+    /**
+     * Decompresses src[srcOff, srcOff + length) into exactly dstLength bytes of dst starting at dstOff.
+     * @throws IllegalArgumentException if the data is not a valid block of that size
+     */
+    static void decompress(byte[] src, int srcOff, int length, byte[] dst, int dstOff, int dstLength) {
+        int ip = srcOff, end = srcOff + length;
+        int op = dstOff, dstEnd = dstOff + dstLength;
+        try {
+            while (true) {
+                int token = src[ip++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (literals > end - ip || literals > dstEnd - op) {
+                    throw corrupt();
+                }
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip == end) {
+                    break;
+                }
+                int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < dstOff || matchLength > dstEnd - op) {
+                    throw corrupt();
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(dst, ref, dst, op, matchLength);
+                    op += matchLength;
+                } else {
+                    // The match overlaps the bytes being written, repeating the last offset bytes.
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op++] = dst[ref + i];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw corrupt();
+        }
+        if (op != dstEnd) {
+            throw corrupt();
+        }
+    }
+
+    private static IllegalArgumentException corrupt() {
+        return new IllegalArgumentException("The compressed data is corrupt.");
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | b[i + 3] << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_BITS);
+    }
+}
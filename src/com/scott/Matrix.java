@@ -7,8 +7,13 @@ package com.scott;
  * write anything nested. Note that matrices start their indices at 0,0.
  */
 public class Matrix {
-    private int rows, columns;
-    private double[] matrixArray;
+    private final int rows, columns;
+    private final double[] matrixArray;
+    /**
+     * Sum of elementHash over every cell, kept up to date by setCell while hashValid is true.
+     */
+    private long elementHashSum;
+    private boolean hashValid;
 
     /**
      * Constructor for an empty matrix.
@@ -16,12 +21,23 @@ public class Matrix {
      * @param columns number of columns
      */
     public Matrix(int rows, int columns) {
+        this(rows, columns, true);
+    }
+
+    /**
+     * Constructor for an empty matrix, or for a subclass that keeps its values somewhere else. Such a subclass must
+     * override every method that uses the backing array.
+     * @param rows number of rows
+     * @param columns number of columns
+     * @param withArray false to skip allocating the backing array
+     */
+    Matrix(int rows, int columns, boolean withArray) {
         if (rows < 1 || columns < 1) {
             throw new IllegalArgumentException("The minimum dimension for rows and columns is 1.");
         }
         this.rows = rows;
         this.columns = columns;
-        matrixArray = new double[rows * columns];
+        matrixArray = withArray ? new double[rows * columns] : null;
     }
 
     /**
@@ -70,7 +86,11 @@ public class Matrix {
         if (row < 0 || row > rows - 1 || col < 0 || col > columns - 1) {
             throw new IllegalArgumentException("Indices are out of bounds.");
         }
-        matrixArray[row * columns + col] = value;
+        int index = row * columns + col;
+        if (hashValid) {
+            elementHashSum += elementHash(index, value) - elementHash(index, matrixArray[index]);
+        }
+        matrixArray[index] = value;
     }
 
     /**
@@ -122,10 +142,81 @@ public class Matrix {
     }
 
     /**
-     *
+     * Returns the backing array itself, so changes to it change the matrix.
      * @return Returns the matrix as a 1D array of doubles.
      */
     public double[] getMatrixArray() {
+        // The caller may write to the array behind our back, so the content hash has to be recalculated.
+        hashValid = false;
         return matrixArray;
     }
+
+    /**
+     * Hash of the dimensions and every value in the matrix. It is updated in O(1) by setCell and only recalculated
+     * in full after the backing array has been handed out by getMatrixArray.
+     * @return hash of the matrix contents.
+     */
+    long contentHash() {
+        if (!hashValid) {
+            elementHashSum = hashSum(matrixArray);
+            hashValid = true;
+        }
+        return finishHash(elementHashSum, rows, columns);
+    }
+
+    static long hashSum(double[] values) {
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += elementHash(i, values[i]);
+        }
+        return sum;
+    }
+
+    static long finishHash(long sum, int rows, int columns) {
+        return mix(sum ^ ((long) rows << 32 | columns));
+    }
+
+    /**
+     * Hash of one cell. Summing these lets setCell swap one cell's contribution for another.
+     */
+    private static long elementHash(int index, double value) {
+        return mix(Double.doubleToLongBits(value) + index * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * The SplitMix64 finalizer, which spreads every input bit over the whole output.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the backing array without copying it, even for subclasses that hide it from callers.
+     * Only AdvancedMath and friends should use this, and only to read.
+     * A StructuredMatrix has no dense backing array and builds a new one on every call, which costs
+     * O(rows * columns) time and memory, so fetch it once per operation rather than in a loop.
+     * @return the backing array.
+     */
+    double[] data() {
+        return matrixArray;
+    }
+
+    /**
+     * Returns a dense copy of the values that the caller may change, without copying twice for matrices whose
+     * data() is already a new array.
+     */
+    double[] copyData() {
+        return data().clone();
+    }
+
+    /**
+     * Creates an immutable copy of this matrix that can be shared between threads.
+     * Later changes to this matrix are not seen by the copy.
+     * @return immutable copy of the matrix.
+     */
+    public ImmutableMatrix freeze() {
+        return new ImmutableMatrix(this);
+    }
 }
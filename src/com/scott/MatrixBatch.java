@@ -0,0 +1,143 @@
+package com.scott;
+
+/**
+ * MatrixBatch stores many small square matrices of the same dimension back to back in one contiguous array.
+ * Each matrix is laid out row major exactly like a Matrix, so matrix i starts at index i * dimension * dimension.
+ * Keeping them in a single array avoids having an object per matrix and lets the batched AdvancedMath methods walk
+ * the data sequentially. Batches support dimensions 2, 3 and 4, which have closed form kernels.
+ */
+public class MatrixBatch {
+    private final int count, dimension;
+    private final double[] batchArray;
+
+    /**
+     * Constructor for a batch of zero matrices.
+     * @param count number of matrices in the batch
+     * @param dimension number of rows and columns of each matrix
+     */
+    public MatrixBatch(int count, int dimension) {
+        int size = checkSize(count, dimension);
+        this.count = count;
+        this.dimension = dimension;
+        batchArray = new double[size];
+    }
+
+    /**
+     * Constructor for a batch backed by an existing array. The array is used directly, not copied.
+     * @param count number of matrices in the batch
+     * @param dimension number of rows and columns of each matrix
+     * @param batchArray array holding the matrices one after another. Must be of size count*dimension*dimension.
+     */
+    public MatrixBatch(int count, int dimension, double[] batchArray) {
+        if (batchArray.length != checkSize(count, dimension)) {
+            throw new IllegalArgumentException("Dimensions do not match provided batch size.");
+        }
+        this.count = count;
+        this.dimension = dimension;
+        this.batchArray = batchArray;
+    }
+
+    /**
+     * Checks the count and dimension and returns the number of elements the batch holds.
+     */
+    private static int checkSize(int count, int dimension) {
+        if (count < 1) {
+            throw new IllegalArgumentException("A batch must contain at least 1 matrix.");
+        }
+        if (dimension < 2 || dimension > 4) {
+            throw new IllegalArgumentException("Batched matrices must have a dimension of 2, 3 or 4.");
+        }
+        long size = (long) count * dimension * dimension;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A batch can hold at most " + Integer.MAX_VALUE + " elements.");
+        }
+        return (int) size;
+    }
+
+    /**
+     * Returns a copy of the matrix at the specified index.
+     * @param index position in the batch
+     * @return the matrix at index
+     */
+    public Matrix getMatrix(int index) {
+        int size = dimension * dimension;
+        double[] result = new double[size];
+        System.arraycopy(batchArray, offset(index), result, 0, size);
+        return new Matrix(dimension, dimension, result);
+    }
+
+    /**
+     * Copies a matrix into the batch at the specified index.
+     * @param index position in the batch
+     * @param m matrix with the same dimension as the batch
+     */
+    public void setMatrix(int index, Matrix m) {
+        if (m.getRows() != dimension || m.getColumns() != dimension) {
+            throw new IllegalArgumentException("Matrix dimensions do not match the batch.");
+        }
+        int size = dimension * dimension;
+        int off = offset(index);
+        for (int i = 0; i < size; i++) {
+            batchArray[off + i] = m.getCell(i / dimension, i % dimension);
+        }
+    }
+
+    /**
+     * Returns the value at the specified row and column of a matrix in the batch.
+     * @param index position in the batch
+     * @param row row number
+     * @param col column number
+     * @return value at the row and column.
+     */
+    public double getCell(int index, int row, int col) {
+        if (row < 0 || row > dimension - 1 || col < 0 || col > dimension - 1) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+        return batchArray[offset(index) + row * dimension + col];
+    }
+
+    /**
+     * Sets the value at the specified row and column of a matrix in the batch.
+     * @param index position in the batch
+     * @param row row number
+     * @param col column number
+     * @param value value to set at the row and column.
+     */
+    public void setCell(int index, int row, int col, double value) {
+        if (row < 0 || row > dimension - 1 || col < 0 || col > dimension - 1) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+        batchArray[offset(index) + row * dimension + col] = value;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index > count - 1) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+        return index * dimension * dimension;
+    }
+
+    /**
+     *
+     * @return Number of matrices in the batch.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     *
+     * @return Number of rows and columns of each matrix.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     *
+     * @return Returns the batch as a 1D array of doubles.
+     */
+    public double[] getBatchArray() {
+        return batchArray;
+    }
+}
@@ -0,0 +1,183 @@
+package com.scott;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * MatrixCache remembers the results of det, inv and adj for matrices that are used over and over, like calibration
+ * transforms. Entries are found by the matrix's content hash, which Matrix keeps up to date cheaply as cells are set,
+ * and a hit is only returned after checking the cached input still equals the matrix. Changing a matrix, through
+ * setCell or its backing array, therefore can never return a result for its old contents. ImmutableMatrix inputs
+ * skip the check when the same instance is looked up again, since they can't change.
+ * The cache holds at most maxEntries results and evicts the least recently used one when full. Cached matrices are
+ * returned as ImmutableMatrix so callers can't change them. All methods are thread safe.
+ */
+public class MatrixCache {
+    private enum Kind {
+        DET, INV, ADJ
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits, misses, evictions;
+
+    /**
+     * Constructor for an empty cache.
+     * @param maxEntries largest number of results to keep
+     */
+    public MatrixCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache must be able to hold at least 1 entry.");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > MatrixCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Calculates the determinant of a Matrix, or returns the cached one.
+     * @param m Matrix
+     * @return det m
+     */
+    public double det(Matrix m) {
+        return (Double) get(Kind.DET, m, AdvancedMath::det);
+    }
+
+    /**
+     * Calculates the inverse of a Matrix, or returns the cached one.
+     * @param m Matrix
+     * @return inverse of m
+     */
+    public ImmutableMatrix inv(Matrix m) {
+        return (ImmutableMatrix) get(Kind.INV, m, matrix -> new ImmutableMatrix(AdvancedMath.inv(matrix)));
+    }
+
+    /**
+     * Calculates the adjoint of a Matrix, or returns the cached one.
+     * @param m Matrix
+     * @return adjoint of m
+     */
+    public ImmutableMatrix adj(Matrix m) {
+        return (ImmutableMatrix) get(Kind.ADJ, m, matrix -> new ImmutableMatrix(AdvancedMath.adj(matrix)));
+    }
+
+    private Object get(Kind kind, Matrix m, Function<Matrix, Object> compute) {
+        Key key = new Key(kind, m.contentHash());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.matches(m)) {
+                hits++;
+                return entry.value;
+            }
+            misses++;
+        }
+        // Calculate outside the lock so a slow inverse doesn't block other lookups.
+        Object value = compute.apply(m);
+        Entry entry = new Entry(m, value);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        return value;
+    }
+
+    /**
+     * Removes every entry. The statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     *
+     * @return Number of results currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     *
+     * @return Number of lookups answered from the cache.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     *
+     * @return Number of lookups that had to calculate their result.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     *
+     * @return Number of entries removed to make room for newer ones.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final long hash;
+
+        private Key(Kind kind, long hash) {
+            this.kind = kind;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return kind.hashCode() * 31 + Long.hashCode(hash);
+        }
+    }
+
+    private static final class Entry {
+        private final int rows, columns;
+        private final double[] snapshot;
+        private final WeakReference<ImmutableMatrix> immutableSource;
+        private final Object value;
+
+        private Entry(Matrix m, Object value) {
+            this.rows = m.getRows();
+            this.columns = m.getColumns();
+            this.value = value;
+            if (m instanceof ImmutableMatrix) {
+                snapshot = m.data();
+                immutableSource = new WeakReference<>((ImmutableMatrix) m);
+            } else {
+                snapshot = m.copyData();
+                immutableSource = null;
+            }
+        }
+
+        private boolean matches(Matrix m) {
+            if (immutableSource != null && immutableSource.get() == m) {
+                return true;
+            }
+            return m.getRows() == rows && m.getColumns() == columns && Arrays.equals(snapshot, m.data());
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.scott;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * MatrixCodec turns matrices and batches of vectors into a compact binary form and back, for sending them between
+ * services or saving them to disk much faster than as text. Each matrix becomes one frame: a 32 byte header with the
+ * kind of matrix and its size, followed by the values as little endian doubles. Structured matrices only write the
+ * values they store, so a diagonal or banded matrix stays small.
+ * <pre>
+ * offset  size  field
+ *  0      4     magic number, the bytes "AMX1"
+ *  4      1     kind: 0 dense, 1 diagonal, 2 triangular, 3 banded, 4 symmetric
+ *  5      1     flags: SHUFFLE, COMPRESS and COLUMNAR
+ *  6      2     reserved, 0
+ *  8      4     rows
+ * 12      4     columns
+ * 16      4     first parameter: 1 for a lower triangular matrix, the lower bandwidth of a banded one
+ * 20      4     second parameter: the upper bandwidth of a banded matrix
+ * 24      4     number of values
+ * 28      4     number of bytes in the payload
+ * 32            payload
+ * </pre>
+ * With no flags the payload is the raw values, so wrap can view a dense frame as a BufferMatrix without copying.
+ * COLUMNAR writes a dense matrix column by column, which keeps similar values together when each column is a
+ * feature of a batch of vectors. SHUFFLE groups the first byte of every value, then the second byte and so on, so
+ * sign and exponent bytes, which rarely change between neighbouring values, end up in long runs. COMPRESS
+ * compresses the payload with an LZ4 style compressor, and is dropped from a frame it doesn't make smaller.
+ * MatrixWriter and MatrixReader stream frames through a Output/InputStream.
+ */
+public final class MatrixCodec {
+    /**
+     * Flag that groups the bytes of the values by their position in a double.
+     */
+    public static final int SHUFFLE = 1;
+
+    /**
+     * Flag that compresses the payload.
+     */
+    public static final int COMPRESS = 2;
+
+    /**
+     * Flag that writes a dense matrix column by column instead of row by row.
+     */
+    public static final int COLUMNAR = 4;
+
+    /**
+     * Number of bytes in the header of every frame.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    static final int MAGIC = 'A' | 'M' << 8 | 'X' << 16 | '1' << 24;
+    private static final int ALL_FLAGS = SHUFFLE | COMPRESS | COLUMNAR;
+    private static final int SHUFFLE_BLOCK = 1024;
+
+    private static final int DENSE = 0;
+    private static final int DIAGONAL = 1;
+    private static final int TRIANGULAR = 2;
+    private static final int BANDED = 3;
+    private static final int SYMMETRIC = 4;
+
+    private MatrixCodec() {
+    }
+
+    /**
+     * Encodes a matrix with no flags.
+     * @param m matrix to encode
+     * @return the frame
+     */
+    public static byte[] encode(Matrix m) {
+        return encode(m, 0);
+    }
+
+    /**
+     * Encodes a matrix.
+     * @param m matrix to encode
+     * @param flags any of SHUFFLE, COMPRESS and COLUMNAR combined with |
+     * @return the frame
+     */
+    public static byte[] encode(Matrix m, int flags) {
+        if ((flags & ~ALL_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unknown flags: " + flags + ".");
+        }
+        int kind = DENSE, first = 0, second = 0;
+        double[] values;
+        if (m instanceof DiagonalMatrix) {
+            kind = DIAGONAL;
+            values = ((DiagonalMatrix) m).getDiagonal();
+        } else if (m instanceof TriangularMatrix) {
+            kind = TRIANGULAR;
+            first = ((TriangularMatrix) m).isLower() ? 1 : 0;
+            values = ((TriangularMatrix) m).storage();
+        } else if (m instanceof BandedMatrix) {
+            kind = BANDED;
+            first = ((BandedMatrix) m).getLowerBandwidth();
+            second = ((BandedMatrix) m).getUpperBandwidth();
+            values = ((BandedMatrix) m).storage();
+        } else if (m instanceof SymmetricMatrix) {
+            kind = SYMMETRIC;
+            values = ((SymmetricMatrix) m).storage();
+        } else {
+            values = m.data();
+        }
+        if (kind != DENSE || m.getColumns() == 1 || m.getRows() == 1) {
+            // Only a dense matrix has columns worth laying out separately.
+            flags &= ~COLUMNAR;
+        }
+        if ((flags & COLUMNAR) != 0) {
+            values = AdvancedMath.transform(new Matrix(m.getRows(), m.getColumns(), values)).data();
+        }
+        return frame(kind, flags, m.getRows(), m.getColumns(), first, second, values);
+    }
+
+    /**
+     * Encodes a batch of vectors of the same size, stored one after another, as a matrix with a row per vector.
+     * COLUMNAR is usually worth it here, it puts each component of the vectors together.
+     * @param vectors the vectors one after another
+     * @param dimension number of elements in each vector
+     * @param flags any of SHUFFLE, COMPRESS and COLUMNAR combined with |
+     * @return the frame
+     */
+    public static byte[] encodeVectors(double[] vectors, int dimension, int flags) {
+        if (dimension < 1 || vectors.length == 0 || vectors.length % dimension != 0) {
+            throw new IllegalArgumentException("The vectors must be a whole number of vectors of the dimension.");
+        }
+        return encode(new Matrix(vectors.length / dimension, dimension, vectors), flags);
+    }
+
+    private static byte[] frame(int kind, int flags, int rows, int columns, int first, int second, double[] values) {
+        int rawLength = values.length * Double.BYTES;
+        byte[] raw = new byte[HEADER_SIZE + rawLength];
+        ByteBuffer.wrap(raw, HEADER_SIZE, rawLength).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values);
+        byte[] frame = raw;
+        if ((flags & SHUFFLE) != 0) {
+            byte[] shuffled = new byte[raw.length];
+            shuffle(raw, HEADER_SIZE, values.length, shuffled, HEADER_SIZE);
+            frame = raw = shuffled;
+        }
+        int payloadLength = rawLength;
+        if ((flags & COMPRESS) != 0) {
+            byte[] compressed = new byte[HEADER_SIZE + Lz4.maxCompressedLength(rawLength)];
+            int length = Lz4.compress(raw, HEADER_SIZE, rawLength, compressed, HEADER_SIZE);
+            if (length < rawLength) {
+                frame = compressed;
+                payloadLength = length;
+            } else {
+                flags &= ~COMPRESS;
+            }
+        }
+        ByteBuffer header = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).put((byte) kind).put((byte) flags).putShort((short) 0)
+                .putInt(rows).putInt(columns).putInt(first).putInt(second)
+                .putInt(values.length).putInt(payloadLength);
+        if (frame.length != HEADER_SIZE + payloadLength) {
+            byte[] trimmed = new byte[HEADER_SIZE + payloadLength];
+            System.arraycopy(frame, 0, trimmed, 0, trimmed.length);
+            frame = trimmed;
+        }
+        return frame;
+    }
+
+    /**
+     * Decodes a frame into a new matrix of the kind that was encoded.
+     * @param frame the frame
+     * @return the matrix
+     */
+    public static Matrix decode(byte[] frame) {
+        return decode(ByteBuffer.wrap(frame));
+    }
+
+    /**
+     * Decodes the frame at the buffer's position into a new matrix of the kind that was encoded, and moves the
+     * position past the frame.
+     * @param buffer buffer holding the frame
+     * @return the matrix
+     */
+    public static Matrix decode(ByteBuffer buffer) {
+        Header h = readHeader(buffer);
+        double[] values = new double[h.count];
+        ByteBuffer payload = payload(buffer, h);
+        if ((h.flags & (SHUFFLE | COMPRESS)) == 0) {
+            payload.asDoubleBuffer().get(values);
+        } else {
+            byte[] stored = new byte[h.payloadLength];
+            payload.get(stored);
+            byte[] raw = stored;
+            int rawLength = h.count * Double.BYTES;
+            if ((h.flags & COMPRESS) != 0) {
+                raw = new byte[rawLength];
+                Lz4.decompress(stored, 0, stored.length, raw, 0, rawLength);
+            } else if (stored.length != rawLength) {
+                throw new IllegalArgumentException("The frame's payload is the wrong size.");
+            }
+            if ((h.flags & SHUFFLE) != 0) {
+                byte[] unshuffled = new byte[rawLength];
+                unshuffle(raw, 0, h.count, unshuffled, 0);
+                raw = unshuffled;
+            }
+            ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+        }
+        return build(h, values);
+    }
+
+    /**
+     * Views the frame at the buffer's position as a matrix without copying it, if it is a dense frame with no flags,
+     * and moves the position past the frame. Any other frame is decoded into a new matrix like decode does.
+     * @param buffer buffer holding the frame
+     * @return a BufferMatrix sharing the buffer's memory, or a decoded matrix
+     */
+    public static Matrix wrap(ByteBuffer buffer) {
+        int start = buffer.position();
+        Header h = readHeader(buffer);
+        if (h.kind != DENSE || h.flags != 0) {
+            buffer.position(start);
+            return decode(buffer);
+        }
+        DoubleBuffer values = payload(buffer, h).asDoubleBuffer();
+        if (values.remaining() != h.count) {
+            throw new IllegalArgumentException("The frame's payload is the wrong size.");
+        }
+        return new BufferMatrix(h.rows, h.columns, values);
+    }
+
+    private static final class Header {
+        private int kind, flags, rows, columns, first, second, count, payloadLength;
+    }
+
+    private static Header readHeader(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("The buffer is too short to hold a frame.");
+        }
+        Header h = parseHeader(buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+        if (buffer.remaining() - HEADER_SIZE < h.payloadLength) {
+            throw new IllegalArgumentException("The buffer is too short to hold a frame.");
+        }
+        return h;
+    }
+
+    /**
+     * Reads and checks the header at the start of a buffer that holds at least HEADER_SIZE bytes, and returns the
+     * length of the payload that follows it. This lets a stream reader check a header before reading the payload.
+     */
+    static int payloadLength(byte[] header) {
+        return parseHeader(ByteBuffer.wrap(header, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)).payloadLength;
+    }
+
+    /**
+     * Reads a header and checks it against itself: the number of values against the kind and size, and the payload
+     * length against the number of values. Nothing is allocated from a header until it has passed, so a small
+     * corrupt or hostile frame can't ask for a huge array.
+     */
+    private static Header parseHeader(ByteBuffer in) {
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not hold a matrix frame.");
+        }
+        Header h = new Header();
+        h.kind = in.get();
+        h.flags = in.get();
+        in.getShort();
+        h.rows = in.getInt();
+        h.columns = in.getInt();
+        h.first = in.getInt();
+        h.second = in.getInt();
+        h.count = in.getInt();
+        h.payloadLength = in.getInt();
+        if (h.kind < DENSE || h.kind > SYMMETRIC || (h.flags & ~ALL_FLAGS) != 0 || h.rows < 1 || h.columns < 1
+                || h.count != expectedCount(h) || h.payloadLength < 0
+                || (long) h.count * Double.BYTES > Integer.MAX_VALUE - HEADER_SIZE
+                || h.payloadLength > Integer.MAX_VALUE - HEADER_SIZE) {
+            throw new IllegalArgumentException("The frame's header is invalid.");
+        }
+        long rawLength = (long) h.count * Double.BYTES;
+        // Each compressed byte stands for at most 255 bytes, through a run of 255 length bytes.
+        if ((h.flags & COMPRESS) == 0 ? h.payloadLength != rawLength : rawLength > 255L * h.payloadLength) {
+            throw new IllegalArgumentException("The frame's payload is the wrong size.");
+        }
+        return h;
+    }
+
+    /**
+     * Number of values a matrix of the header's kind and size stores, or -1 if there is no such matrix.
+     */
+    private static long expectedCount(Header h) {
+        long n = h.rows;
+        switch (h.kind) {
+            case DENSE:
+                return n * h.columns;
+            case DIAGONAL:
+                return h.rows == h.columns ? n : -1;
+            case TRIANGULAR:
+            case SYMMETRIC:
+                return h.rows == h.columns ? n * (n + 1) / 2 : -1;
+            case BANDED:
+                if (h.first < 0 || h.second < 0) {
+                    return -1;
+                }
+                return n * (Math.min(h.first, h.rows - 1) + Math.min(h.second, h.columns - 1) + 1);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Slice of the payload in little endian order, moving the buffer past the frame.
+     */
+    private static ByteBuffer payload(ByteBuffer buffer, Header h) {
+        int start = buffer.position() + HEADER_SIZE;
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start);
+        payload.limit(start + h.payloadLength);
+        buffer.position(start + h.payloadLength);
+        return payload.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static Matrix build(Header h, double[] values) {
+        if (h.kind != DENSE && h.kind != BANDED && h.rows != h.columns) {
+            throw new IllegalArgumentException("The frame's header is invalid.");
+        }
+        switch (h.kind) {
+            case DIAGONAL:
+                checkCount(h, h.rows);
+                return new DiagonalMatrix(values);
+            case TRIANGULAR: {
+                TriangularMatrix m = new TriangularMatrix(h.rows, h.first == 1);
+                return fill(h, values, m.storage(), m);
+            }
+            case BANDED: {
+                BandedMatrix m = new BandedMatrix(h.rows, h.columns, h.first, h.second);
+                return fill(h, values, m.storage(), m);
+            }
+            case SYMMETRIC: {
+                SymmetricMatrix m = new SymmetricMatrix(h.rows);
+                return fill(h, values, m.storage(), m);
+            }
+            default:
+                checkCount(h, h.rows * h.columns);
+                if ((h.flags & COLUMNAR) != 0) {
+                    return AdvancedMath.transform(new Matrix(h.columns, h.rows, values));
+                }
+                return new Matrix(h.rows, h.columns, values);
+        }
+    }
+
+    private static Matrix fill(Header h, double[] values, double[] storage, Matrix m) {
+        checkCount(h, storage.length);
+        System.arraycopy(values, 0, storage, 0, storage.length);
+        return m;
+    }
+
+    private static void checkCount(Header h, long expected) {
+        if (h.count != expected) {
+            throw new IllegalArgumentException("The frame's header is invalid.");
+        }
+    }
+
+    /**
+     * Writes byte b of value i of src to dst[dstOff + b*count + i]. The values are handled a block at a time so the
+     * eight places being written to stay in cache.
+     */
+    static void shuffle(byte[] src, int srcOff, int count, byte[] dst, int dstOff) {
+        for (int block = 0; block < count; block += SHUFFLE_BLOCK) {
+            int end = Math.min(count, block + SHUFFLE_BLOCK);
+            for (int b = 0; b < Double.BYTES; b++) {
+                int to = dstOff + b * count;
+                for (int i = block, from = srcOff + block * Double.BYTES + b; i < end; i++, from += Double.BYTES) {
+                    dst[to + i] = src[from];
+                }
+            }
+        }
+    }
+
+    /**
+     * Undoes shuffle.
+     */
+    static void unshuffle(byte[] src, int srcOff, int count, byte[] dst, int dstOff) {
+        for (int block = 0; block < count; block += SHUFFLE_BLOCK) {
+            int end = Math.min(count, block + SHUFFLE_BLOCK);
+            for (int b = 0; b < Double.BYTES; b++) {
+                int from = srcOff + b * count;
+                for (int i = block, to = dstOff + block * Double.BYTES + b; i < end; i++, to += Double.BYTES) {
+                    dst[to] = src[from + i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.scott;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * MatrixReader reads the MatrixCodec frames a MatrixWriter wrote to a stream, one matrix at a time. A batch of
+ * vectors comes back as a matrix with a row per vector.
+ * <pre>
+ * try (MatrixReader in = new MatrixReader(socket.getInputStream())) {
+ *     Matrix m;
+ *     while ((m = in.read()) != null) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public class MatrixReader implements Closeable {
+    private final InputStream in;
+    private byte[] frame = new byte[1 << 12];
+    private long framesRead;
+
+    /**
+     * Constructor for a reader. The stream is closed when the reader is closed.
+     * @param in stream to read from
+     */
+    public MatrixReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next matrix.
+     * @return the matrix, or null at the end of the stream
+     * @throws IOException if the stream can't be read or ends in the middle of a frame
+     */
+    public Matrix read() throws IOException {
+        int first = readFully(0, MatrixCodec.HEADER_SIZE);
+        if (first == 0) {
+            return null;
+        }
+        if (first < MatrixCodec.HEADER_SIZE) {
+            throw new EOFException("The stream ended in the middle of a frame.");
+        }
+        int payloadLength;
+        try {
+            payloadLength = MatrixCodec.payloadLength(frame);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        // The buffer grows as the payload arrives, so a header can't make it larger than what the stream holds.
+        int length = MatrixCodec.HEADER_SIZE + payloadLength;
+        int read = MatrixCodec.HEADER_SIZE;
+        while (read < length) {
+            if (read == frame.length) {
+                byte[] larger = new byte[(int) Math.min(length, 2L * frame.length)];
+                System.arraycopy(frame, 0, larger, 0, read);
+                frame = larger;
+            }
+            int wanted = Math.min(length, frame.length) - read;
+            int n = readFully(read, wanted);
+            read += n;
+            if (n < wanted) {
+                throw new EOFException("The stream ended in the middle of a frame.");
+            }
+        }
+        Matrix m;
+        try {
+            m = MatrixCodec.decode(ByteBuffer.wrap(frame, 0, length));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        framesRead++;
+        return m;
+    }
+
+    /**
+     * Reads up to length bytes into frame from offset, stopping early only at the end of the stream.
+     */
+    private int readFully(int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(frame, offset + total, length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     *
+     * @return Number of frames read so far.
+     */
+    public long getFramesRead() {
+        return framesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
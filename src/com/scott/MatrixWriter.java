@@ -0,0 +1,85 @@
+package com.scott;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * MatrixWriter writes matrices and batches of vectors to a stream as MatrixCodec frames, one after another, for a
+ * MatrixReader to read back.
+ * <pre>
+ * try (MatrixWriter out = new MatrixWriter(socket.getOutputStream(), MatrixCodec.SHUFFLE | MatrixCodec.COMPRESS)) {
+ *     out.write(m);
+ *     out.writeVectors(embeddings, 768);
+ * }
+ * </pre>
+ */
+public class MatrixWriter implements Closeable, Flushable {
+    private final OutputStream out;
+    private final int flags;
+    private long framesWritten;
+    private long bytesWritten;
+
+    /**
+     * Constructor for a writer. The stream is buffered and closed when the writer is closed.
+     * @param out stream to write to
+     * @param flags MatrixCodec flags used for every frame
+     */
+    public MatrixWriter(OutputStream out, int flags) {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.flags = flags;
+    }
+
+    /**
+     * Writes one matrix.
+     * @param m matrix to write
+     * @throws IOException if the stream can't be written
+     */
+    public void write(Matrix m) throws IOException {
+        writeFrame(MatrixCodec.encode(m, flags));
+    }
+
+    /**
+     * Writes a batch of vectors as a matrix with a row per vector.
+     * @param vectors the vectors one after another
+     * @param dimension number of elements in each vector
+     * @throws IOException if the stream can't be written
+     */
+    public void writeVectors(double[] vectors, int dimension) throws IOException {
+        writeFrame(MatrixCodec.encodeVectors(vectors, dimension, flags));
+    }
+
+    private void writeFrame(byte[] frame) throws IOException {
+        out.write(frame);
+        framesWritten++;
+        bytesWritten += frame.length;
+    }
+
+    /**
+     *
+     * @return Number of frames written so far.
+     */
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    /**
+     *
+     * @return Number of bytes written so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
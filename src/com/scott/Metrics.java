@@ -0,0 +1,172 @@
+package com.scott;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Metrics records how often each AdvancedMath operation is called, how large its inputs are, how long it takes and
+ * how much it allocates. It is off unless the JVM is started with -Dcom.scott.metrics=true. ENABLED is a static final
+ * constant, so when metrics are off every instrumented call site reduces to a constant false check that the JIT
+ * removes. When metrics are on the statistics are registered with the platform MBean server as
+ * com.scott:type=AdvancedMathMetrics and listeners are told about every call.
+ */
+public final class Metrics implements MetricsMXBean {
+    /**
+     * True if the JVM was started with -Dcom.scott.metrics=true.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("com.scott.metrics");
+
+    /**
+     * The operations that are instrumented.
+     */
+    public enum Operation {
+        DOT_PRODUCT, NORMALIZE, SCALAR_MULTIPLY, MATRIX_MULTIPLY, ADD, SUBTRACT, SUB_MATRIX, DET, TRANSFORM, ADJ, INV,
+        BATCH_DET, BATCH_INV, BATCH_MULTIPLY, MATRIX_POWER, MATRIX_EXP, TENSOR_MULTIPLY, GRAM,
+        MATRIX_CHAIN, CONVOLUTION, ELEMENT_MULTIPLY, DIVIDE
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final OperationStats[] STATS = new OperationStats[OPERATIONS.length];
+    private static final CopyOnWriteArrayList<MetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Metrics INSTANCE = new Metrics();
+
+    static {
+        for (int i = 0; i < STATS.length; i++) {
+            STATS[i] = new OperationStats();
+        }
+        if (ENABLED) {
+            registerMBean();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Records one call. Callers should guard this with if (Metrics.ENABLED).
+     * @param operation operation that ran
+     * @param rows number of rows in the input, or its length for vectors
+     * @param columns number of columns in the input, 1 for vectors
+     * @param startNanos System.nanoTime() when the call started
+     * @param bytes bytes allocated for the result
+     */
+    static void record(Operation operation, int rows, int columns, long startNanos, long bytes) {
+        long nanos = System.nanoTime() - startNanos;
+        STATS[operation.ordinal()].record(rows, columns, nanos, bytes);
+        for (MetricsListener listener : LISTENERS) {
+            listener.operationCompleted(operation, rows, columns, nanos, bytes);
+        }
+    }
+
+    /**
+     *
+     * @param operation operation to look up
+     * @return the live statistics for the operation.
+     */
+    public static OperationStats getStats(Operation operation) {
+        return STATS[operation.ordinal()];
+    }
+
+    /**
+     * Adds a listener that is called after every instrumented operation while metrics are enabled.
+     * @param listener listener to add
+     */
+    public static void addListener(MetricsListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addListener.
+     * @param listener listener to remove
+     */
+    public static void removeListener(MetricsListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server. This happens automatically when metrics are enabled;
+     * calling it again does nothing.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(INSTANCE, new ObjectName("com.scott:type=AdvancedMathMetrics"));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered.
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register the metrics MBean.", e);
+        }
+    }
+
+    /**
+     * Clears every operation's statistics.
+     */
+    public static void resetAll() {
+        for (OperationStats stats : STATS) {
+            stats.reset();
+        }
+    }
+
+    private static <T> Map<String, T> collect(Function<OperationStats, T> value) {
+        Map<String, T> result = new TreeMap<>();
+        for (Operation operation : OPERATIONS) {
+            OperationStats stats = STATS[operation.ordinal()];
+            if (stats.getCallCount() > 0) {
+                result.put(operation.name(), value.apply(stats));
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Long> collectLong(ToLongFunction<OperationStats> value) {
+        return collect(stats -> value.applyAsLong(stats));
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        return collectLong(OperationStats::getCallCount);
+    }
+
+    @Override
+    public Map<String, Long> getTotalNanos() {
+        return collectLong(OperationStats::getTotalNanos);
+    }
+
+    @Override
+    public Map<String, Long> getMedianNanos() {
+        return collectLong(stats -> stats.getLatencyPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getP99Nanos() {
+        return collectLong(stats -> stats.getLatencyPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getAllocatedBytes() {
+        return collectLong(OperationStats::getAllocatedBytes);
+    }
+
+    @Override
+    public Map<String, Integer> getLargestDimensions() {
+        return collect(OperationStats::getLargestDimension);
+    }
+
+    @Override
+    public long getWorkspaceAllocatedBytes() {
+        return Workspace.getAllocatedBytes();
+    }
+
+    @Override
+    public void reset() {
+        resetAll();
+    }
+}
@@ -0,0 +1,18 @@
+package com.scott;
+
+/**
+ * MetricsListener is told about every instrumented AdvancedMath call while metrics are enabled.
+ * Listeners run on the thread that made the call, so they should return quickly.
+ * For batch operations rows is the number of matrices in the batch and columns the number of elements in each.
+ */
+public interface MetricsListener {
+    /**
+     * Called after an instrumented operation finishes.
+     * @param operation the operation that ran
+     * @param rows number of rows in the input, or its length for vectors
+     * @param columns number of columns in the input, 1 for vectors
+     * @param nanos time the call took
+     * @param bytes bytes allocated for the result
+     */
+    void operationCompleted(Metrics.Operation operation, int rows, int columns, long nanos, long bytes);
+}
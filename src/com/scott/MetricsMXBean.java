@@ -0,0 +1,56 @@
+package com.scott;
+
+import java.util.Map;
+
+/**
+ * JMX view of the AdvancedMath metrics. Maps are keyed by operation name and only contain operations that have been
+ * called at least once.
+ */
+public interface MetricsMXBean {
+    /**
+     *
+     * @return Number of calls per operation.
+     */
+    Map<String, Long> getCallCounts();
+
+    /**
+     *
+     * @return Total time in nanoseconds spent per operation.
+     */
+    Map<String, Long> getTotalNanos();
+
+    /**
+     *
+     * @return Median latency in nanoseconds per operation.
+     */
+    Map<String, Long> getMedianNanos();
+
+    /**
+     *
+     * @return 99th percentile latency in nanoseconds per operation.
+     */
+    Map<String, Long> getP99Nanos();
+
+    /**
+     *
+     * @return Bytes allocated for results per operation.
+     */
+    Map<String, Long> getAllocatedBytes();
+
+    /**
+     *
+     * @return Largest row or column count passed to each operation.
+     */
+    Map<String, Integer> getLargestDimensions();
+
+    /**
+     *
+     * @return Bytes allocated by Workspace pools because no pooled array was free.
+     */
+    long getWorkspaceAllocatedBytes();
+
+    /**
+     * Clears every operation's statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,142 @@
+package com.scott;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OperationStats collects call counts, input sizes, latencies and allocated bytes for one kind of operation.
+ * Sizes and latencies go into histograms with one bucket per power of 2, so recording never allocates and
+ * percentiles are accurate to within a factor of 2. All methods are safe to call from any thread.
+ */
+public class OperationStats {
+    private static final int BUCKETS = 64;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final AtomicInteger largestDimension = new AtomicInteger();
+    private final AtomicLongArray sizeHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one call.
+     * @param rows number of rows in the input, or its length for vectors
+     * @param columns number of columns in the input, 1 for vectors
+     * @param nanos time the call took
+     * @param bytes bytes allocated by the call
+     */
+    public void record(int rows, int columns, long nanos, long bytes) {
+        calls.increment();
+        totalNanos.add(nanos);
+        allocatedBytes.add(bytes);
+        sizeHistogram.incrementAndGet(bucket((long) rows * columns));
+        latencyHistogram.incrementAndGet(bucket(nanos));
+        int dimension = Math.max(rows, columns);
+        int largest = largestDimension.get();
+        while (dimension > largest && !largestDimension.compareAndSet(largest, dimension)) {
+            largest = largestDimension.get();
+        }
+    }
+
+    private static int bucket(long value) {
+        return value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     *
+     * @return Number of recorded calls.
+     */
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    /**
+     *
+     * @return Total time spent in recorded calls.
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     *
+     * @return Total bytes allocated by recorded calls.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     *
+     * @return Largest row or column count passed in.
+     */
+    public int getLargestDimension() {
+        return largestDimension.get();
+    }
+
+    /**
+     * Element i counts the calls whose input had between 2^(i-1) and 2^i - 1 elements, element 0 counts empty inputs.
+     * @return copy of the size histogram.
+     */
+    public long[] getSizeHistogram() {
+        return toArray(sizeHistogram);
+    }
+
+    /**
+     * Element i counts the calls that took between 2^(i-1) and 2^i - 1 nanoseconds.
+     * @return copy of the latency histogram.
+     */
+    public long[] getLatencyHistogram() {
+        return toArray(latencyHistogram);
+    }
+
+    /**
+     * Estimates a latency percentile from the histogram.
+     * @param percentile value between 0 and 100
+     * @return upper bound in nanoseconds of the bucket holding the percentile, or 0 if nothing was recorded.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public void reset() {
+        calls.reset();
+        totalNanos.reset();
+        allocatedBytes.reset();
+        largestDimension.set(0);
+        for (int i = 0; i < BUCKETS; i++) {
+            sizeHistogram.set(i, 0);
+            latencyHistogram.set(i, 0);
+        }
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+}
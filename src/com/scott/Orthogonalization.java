@@ -0,0 +1,295 @@
+package com.scott;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Kernels for AdvancedMath.orthonormalize and householderOrthonormalize. Both work on the vectors stored one after
+ * another in a column major copy of the matrix, so every vector is contiguous, and both handle the vectors a block
+ * at a time so most of the work is done by updates that read each finished vector once for a group of vectors, like
+ * a matrix-matrix multiply, instead of once per vector.
+ */
+final class Orthogonalization {
+    /**
+     * Number of vectors in a block.
+     */
+    static final int BLOCK = 32;
+    /**
+     * Number of vectors updated together, each finished vector is read once per group.
+     */
+    private static final int GROUP = 4;
+    /**
+     * A vector that shrinks below this fraction of its length when projected against the others depends on them.
+     */
+    private static final double DEPENDENT = 1e-10;
+    /**
+     * Smallest number of flops in an update worth splitting over threads.
+     */
+    private static final long PARALLEL_WORK = 1 << 18;
+
+    private Orthogonalization() {
+    }
+
+    /**
+     * Runs body for every group of GROUP indices in [from, to), in parallel when there is enough work.
+     */
+    private static void forEachGroup(int from, int to, long work, BatchKernels.Range body) {
+        int groups = (to - from + GROUP - 1) / GROUP;
+        if (work < PARALLEL_WORK || groups < 2) {
+            body.run(from, to);
+            return;
+        }
+        IntStream.range(0, groups).parallel().forEach(g -> body.run(from + g * GROUP,
+                Math.min(to, from + (g + 1) * GROUP)));
+    }
+
+    private static double dot(double[] w, int a, int b, int from, int to) {
+        double s0 = 0, s1 = 0;
+        int i = from;
+        for (; i + 1 < to; i += 2) {
+            s0 += w[a + i] * w[b + i];
+            s1 += w[a + i + 1] * w[b + i + 1];
+        }
+        if (i < to) {
+            s0 += w[a + i] * w[b + i];
+        }
+        return s0 + s1;
+    }
+
+    private static double norm(double[] w, int a, int length) {
+        return AdvancedMath.norm(w, a, a + length);
+    }
+
+    /**
+     * Block Gram-Schmidt with reorthogonalization (BCGS2) on the n vectors of length m in w. Each block is projected
+     * against the finished vectors and then orthonormalized within itself by modified Gram-Schmidt, and all of that
+     * is done twice, which brings the loss of orthogonality down to rounding error. Vectors that depend on earlier
+     * ones are set to 0.
+     * @return number of vectors that are not 0
+     */
+    static int gramSchmidt(double[] w, int m, int n) {
+        double[] scale = new double[BLOCK];
+        double[] c = new double[BLOCK * n];
+        int rank = 0;
+        for (int j0 = 0; j0 < n; j0 += BLOCK) {
+            int j1 = Math.min(n, j0 + BLOCK);
+            for (int j = j0; j < j1; j++) {
+                scale[j - j0] = norm(w, j * m, m);
+            }
+            for (int pass = 0; pass < 2; pass++) {
+                if (j0 > 0) {
+                    projectOut(w, m, j0, j1, c);
+                }
+                for (int j = j0; j < j1; j++) {
+                    int at = j * m;
+                    for (int k = j0; k < j; k++) {
+                        double r = dot(w, k * m, at, 0, m);
+                        if (r != 0) {
+                            axpy(-r, w, k * m, at, m);
+                        }
+                    }
+                    double length = norm(w, at, m);
+                    if (length == 0 || length <= DEPENDENT * scale[j - j0]) {
+                        Arrays.fill(w, at, at + m, 0);
+                        scale[j - j0] = 0;
+                    } else {
+                        double reciprocal = 1 / length;
+                        for (int i = 0; i < m; i++) {
+                            w[at + i] *= reciprocal;
+                        }
+                        // After the first pass the vector is a unit vector.
+                        scale[j - j0] = 1;
+                    }
+                }
+            }
+            for (int j = j0; j < j1; j++) {
+                if (scale[j - j0] != 0) {
+                    rank++;
+                }
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Removes the part of vectors [j0, j1) along vectors [0, j0): C = Q^T W, then W -= Q C.
+     */
+    private static void projectOut(double[] w, int m, int j0, int j1, double[] c) {
+        forEachGroup(j0, j1, 4L * m * j0 * (j1 - j0), (from, to) -> {
+            int count = to - from;
+            int cFrom = (from - j0) * j0;
+            // C for this group, one row per vector of the group.
+            for (int k = 0; k < j0; k++) {
+                int q = k * m;
+                for (int g = 0; g < count; g++) {
+                    c[cFrom + g * j0 + k] = dot(w, q, (from + g) * m, 0, m);
+                }
+            }
+            for (int k = 0; k < j0; k++) {
+                int q = k * m;
+                for (int g = 0; g < count; g++) {
+                    double r = c[cFrom + g * j0 + k];
+                    if (r != 0) {
+                        axpy(-r, w, q, (from + g) * m, m);
+                    }
+                }
+            }
+        });
+    }
+
+    private static void axpy(double a, double[] w, int x, int y, int length) {
+        for (int i = 0; i < length; i++) {
+            w[y + i] += a * w[x + i];
+        }
+    }
+
+    /**
+     * Replaces the n vectors of length m &gt;= n in w with the first n columns of Q from a Householder QR of them, with
+     * the signs chosen so R has a non-negative diagonal. Each block of reflectors is combined into I - V T V^T, as
+     * in LAPACK, and applied to the rest of the matrix in one update.
+     */
+    static void householder(double[] w, int m, int n) {
+        double[] tau = new double[n];
+        double[] t = new double[BLOCK * BLOCK];
+        double[] factors = w.clone();
+        for (int k0 = 0; k0 < n; k0 += BLOCK) {
+            int k1 = Math.min(n, k0 + BLOCK);
+            for (int k = k0; k < k1; k++) {
+                tau[k] = reflector(factors, m, k);
+                for (int j = k + 1; j < k1; j++) {
+                    applyReflector(factors, m, k, tau[k], j * m);
+                }
+            }
+            if (k1 < n) {
+                buildT(factors, m, k0, k1, tau, t);
+                applyBlock(factors, m, k0, k1, t, true, factors, k1, n);
+            }
+        }
+        // Q = H(0) H(1) ... [I; 0], built from the last block backwards so each block only touches the columns and
+        // rows at or after its first reflector.
+        Arrays.fill(w, 0);
+        for (int j = 0; j < n; j++) {
+            w[j * m + j] = 1;
+        }
+        int lastBlock = (n - 1) / BLOCK * BLOCK;
+        for (int k0 = lastBlock; k0 >= 0; k0 -= BLOCK) {
+            int k1 = Math.min(n, k0 + BLOCK);
+            buildT(factors, m, k0, k1, tau, t);
+            applyBlock(factors, m, k0, k1, t, false, w, k0, n);
+        }
+        for (int j = 0; j < n; j++) {
+            if (factors[j * m + j] < 0) {
+                for (int i = 0; i < m; i++) {
+                    w[j * m + i] = -w[j * m + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the reflector I - tau*v*v^T that zeroes vector k below row k. v has an implicit 1 at row k and is stored
+     * below it, and the new value at row k, beta, is stored at row k.
+     */
+    private static double reflector(double[] f, int m, int k) {
+        int at = k * m;
+        double x0 = f[at + k];
+        double tail = norm(f, at + k + 1, m - k - 1);
+        if (tail == 0) {
+            return 0;
+        }
+        double length = Math.hypot(x0, tail);
+        double beta = x0 <= 0 ? length : -length;
+        double scale = 1 / (x0 - beta);
+        for (int i = k + 1; i < m; i++) {
+            f[at + i] *= scale;
+        }
+        f[at + k] = beta;
+        return (beta - x0) / beta;
+    }
+
+    /**
+     * Applies reflector k to the vector at y: y -= tau * v * (v^T y).
+     */
+    private static void applyReflector(double[] f, int m, int k, double tau, int y) {
+        if (tau == 0) {
+            return;
+        }
+        int v = k * m;
+        double s = f[y + k] + dot(f, v, y, k + 1, m);
+        s *= tau;
+        f[y + k] -= s;
+        for (int i = k + 1; i < m; i++) {
+            f[y + i] -= s * f[v + i];
+        }
+    }
+
+    /**
+     * Builds the upper triangular T with H(k0) ... H(k1-1) = I - V T V^T, stored row major with BLOCK columns.
+     */
+    private static void buildT(double[] f, int m, int k0, int k1, double[] tau, double[] t) {
+        int size = k1 - k0;
+        double[] z = new double[size];
+        for (int p = 0; p < size; p++) {
+            int kp = k0 + p;
+            for (int q = 0; q < p; q++) {
+                int kq = k0 + q;
+                // V_q^T v_p, where v_p is 0 above row kp and 1 at it.
+                z[q] = -tau[kp] * (f[kq * m + kp] + dot(f, kq * m, kp * m, kp + 1, m));
+            }
+            for (int r = 0; r < p; r++) {
+                double sum = 0;
+                for (int s = r; s < p; s++) {
+                    sum += t[r * BLOCK + s] * z[s];
+                }
+                t[r * BLOCK + p] = sum;
+            }
+            t[p * BLOCK + p] = tau[kp];
+        }
+    }
+
+    /**
+     * Applies I - V T^T V^T (transposed) or I - V T V^T to vectors [from, to) of target: y = V^T x, y = T y, x -= V y.
+     */
+    private static void applyBlock(double[] f, int m, int k0, int k1, double[] t, boolean transposed,
+                                   double[] target, int from, int to) {
+        int size = k1 - k0;
+        forEachGroup(from, to, 4L * (m - k0) * size * (to - from), (first, last) -> {
+            double[] y = new double[size];
+            double[] ty = new double[size];
+            for (int j = first; j < last; j++) {
+                int x = j * m;
+                for (int p = 0; p < size; p++) {
+                    int kp = k0 + p;
+                    y[p] = target[x + kp];
+                    for (int i = kp + 1; i < m; i++) {
+                        y[p] += f[kp * m + i] * target[x + i];
+                    }
+                }
+                for (int r = 0; r < size; r++) {
+                    double sum = 0;
+                    if (transposed) {
+                        for (int s = 0; s <= r; s++) {
+                            sum += t[s * BLOCK + r] * y[s];
+                        }
+                    } else {
+                        for (int s = r; s < size; s++) {
+                            sum += t[r * BLOCK + s] * y[s];
+                        }
+                    }
+                    ty[r] = sum;
+                }
+                for (int p = 0; p < size; p++) {
+                    int kp = k0 + p;
+                    double s = ty[p];
+                    if (s == 0) {
+                        continue;
+                    }
+                    target[x + kp] -= s;
+                    for (int i = kp + 1; i < m; i++) {
+                        target[x + i] -= s * f[kp * m + i];
+                    }
+                }
+            }
+        });
+    }
+}
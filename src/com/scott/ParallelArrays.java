@@ -0,0 +1,371 @@
+package com.scott;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * ParallelArrays has element-wise and reduction operations over large arrays of doubles that run on the common
+ * ForkJoinPool. An array is split in half over and over until the pieces are no longer than the threshold, and every
+ * split is made on a multiple of 8 elements, the number of doubles in a 64 byte cache line. The array data doesn't
+ * have to start on a line, so that doesn't keep two threads off every line, but it limits false sharing to at most
+ * one line per split. Arrays no longer than the threshold are handled on the calling thread, where splitting would
+ * cost more than it saves.
+ * Element-wise operations write into an output array that may be one of the inputs.
+ */
+public final class ParallelArrays {
+    /**
+     * Largest number of elements handled by a single task.
+     */
+    static int threshold = Tuning.Parameter.PARALLEL_THRESHOLD.initialValue();
+
+    private static final int CACHE_LINE_DOUBLES = 8;
+
+    private ParallelArrays() {
+    }
+
+    /**
+     * Writes f(in[i]) to out[i] for every element.
+     * @param in input array
+     * @param f function applied to each element
+     * @param out array the same size as in
+     */
+    public static void map(double[] in, DoubleUnaryOperator f, double[] out) {
+        checkSize(in, out);
+        forEach(in.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = f.applyAsDouble(in[i]);
+            }
+        });
+    }
+
+    /**
+     * Writes f(a[i], b[i]) to out[i] for every element.
+     * @param a first input array
+     * @param b second input array
+     * @param f function applied to each pair of elements
+     * @param out array the same size as a and b
+     */
+    public static void zip(double[] a, double[] b, DoubleBinaryOperator f, double[] out) {
+        checkSize(a, b);
+        checkSize(a, out);
+        forEach(a.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = f.applyAsDouble(a[i], b[i]);
+            }
+        });
+    }
+
+    /**
+     * Writes a[i] + b[i] to out[i] for every element.
+     * @param a first input array
+     * @param b second input array
+     * @param out array the same size as a and b
+     */
+    public static void add(double[] a, double[] b, double[] out) {
+        checkSize(a, b);
+        checkSize(a, out);
+        forEach(a.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = a[i] + b[i];
+            }
+        });
+    }
+
+    /**
+     * Writes a[i] - b[i] to out[i] for every element.
+     * @param a first input array
+     * @param b second input array
+     * @param out array the same size as a and b
+     */
+    public static void subtract(double[] a, double[] b, double[] out) {
+        checkSize(a, b);
+        checkSize(a, out);
+        forEach(a.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = a[i] - b[i];
+            }
+        });
+    }
+
+    /**
+     * Writes scale * in[i] to out[i] for every element.
+     * @param scale scalar number
+     * @param in input array
+     * @param out array the same size as in
+     */
+    public static void scale(double scale, double[] in, double[] out) {
+        checkSize(in, out);
+        forEach(in.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                out[i] = scale * in[i];
+            }
+        });
+    }
+
+    /**
+     * Adds up every element. Each task adds its piece with four accumulators and the pieces are added pairwise, so
+     * the result is usually more accurate than a simple loop.
+     * @param a input array
+     * @return sum of the elements
+     */
+    public static double sum(double[] a) {
+        return reduce(a.length, new Reduction() {
+            public double leaf(int from, int to) {
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                int i = from;
+                for (; i + 3 < to; i += 4) {
+                    s0 += a[i];
+                    s1 += a[i + 1];
+                    s2 += a[i + 2];
+                    s3 += a[i + 3];
+                }
+                for (; i < to; i++) {
+                    s0 += a[i];
+                }
+                return (s0 + s1) + (s2 + s3);
+            }
+
+            public double combine(double left, double right) {
+                return left + right;
+            }
+        });
+    }
+
+    /**
+     * Finds the smallest element. NaN if any element is NaN.
+     * @param a input array, not empty
+     * @return smallest element
+     */
+    public static double min(double[] a) {
+        checkNotEmpty(a);
+        return reduce(a.length, new Reduction() {
+            public double leaf(int from, int to) {
+                double min = a[from];
+                for (int i = from + 1; i < to; i++) {
+                    min = Math.min(min, a[i]);
+                }
+                return min;
+            }
+
+            public double combine(double left, double right) {
+                return Math.min(left, right);
+            }
+        });
+    }
+
+    /**
+     * Finds the largest element. NaN if any element is NaN.
+     * @param a input array, not empty
+     * @return largest element
+     */
+    public static double max(double[] a) {
+        checkNotEmpty(a);
+        return reduce(a.length, new Reduction() {
+            public double leaf(int from, int to) {
+                double max = a[from];
+                for (int i = from + 1; i < to; i++) {
+                    max = Math.max(max, a[i]);
+                }
+                return max;
+            }
+
+            public double combine(double left, double right) {
+                return Math.max(left, right);
+            }
+        });
+    }
+
+    /**
+     * Finds the index of the largest element. NaN elements are skipped and ties go to the lowest index.
+     * @param a input array, not empty
+     * @return index of the largest element, or -1 if every element is NaN
+     */
+    public static int argmax(double[] a) {
+        checkNotEmpty(a);
+        // Indices are passed around as doubles, which hold every int exactly.
+        return (int) reduce(a.length, new Reduction() {
+            public double leaf(int from, int to) {
+                int best = -1;
+                double bestValue = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    double x = a[i];
+                    if (x > bestValue || best < 0 && !Double.isNaN(x)) {
+                        best = i;
+                        bestValue = x;
+                    }
+                }
+                return best;
+            }
+
+            public double combine(double left, double right) {
+                if (left < 0) {
+                    return right;
+                }
+                if (right < 0) {
+                    return left;
+                }
+                return a[(int) right] > a[(int) left] ? right : left;
+            }
+        });
+    }
+
+    /**
+     * Adds up the absolute value of every element.
+     * @param a input array
+     * @return L1 norm of the array
+     */
+    public static double norm1(double[] a) {
+        return reduce(a.length, new Reduction() {
+            public double leaf(int from, int to) {
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += Math.abs(a[i]);
+                }
+                return sum;
+            }
+
+            public double combine(double left, double right) {
+                return left + right;
+            }
+        });
+    }
+
+    /**
+     * Euclidean norm, the same as AdvancedMath.parallelMagnitude.
+     * @param a input array
+     * @return L2 norm of the array
+     */
+    public static double norm2(double[] a) {
+        return AdvancedMath.parallelMagnitude(a);
+    }
+
+    /**
+     * Finds the largest absolute value. NaN if any element is NaN.
+     * @param a input array
+     * @return infinity norm of the array, 0 if it is empty
+     */
+    public static double normInf(double[] a) {
+        return reduce(a.length, new Reduction() {
+            public double leaf(int from, int to) {
+                double max = 0;
+                for (int i = from; i < to; i++) {
+                    max = Math.max(max, Math.abs(a[i]));
+                }
+                return max;
+            }
+
+            public double combine(double left, double right) {
+                return Math.max(left, right);
+            }
+        });
+    }
+
+    /**
+     * Runs body over [0, length), split into tasks on the common pool when length is above the threshold.
+     */
+    static void forEach(int length, BatchKernels.Range body) {
+        if (length <= threshold) {
+            body.run(0, length);
+            return;
+        }
+        new RangeAction(body, 0, length).invoke();
+    }
+
+    interface Reduction {
+        /**
+         * Reduces the elements in [from, to), which is never empty.
+         */
+        double leaf(int from, int to);
+
+        double combine(double left, double right);
+    }
+
+    /**
+     * Reduces [0, length), split into tasks on the common pool when length is above the threshold.
+     * An empty range reduces to 0.
+     */
+    static double reduce(int length, Reduction reduction) {
+        if (length == 0) {
+            return 0;
+        }
+        if (length <= threshold) {
+            return reduction.leaf(0, length);
+        }
+        return new ReduceTask(reduction, 0, length).invoke();
+    }
+
+    /**
+     * Middle of [from, to) rounded down to a multiple of CACHE_LINE_DOUBLES elements.
+     */
+    private static int split(int from, int to) {
+        int middle = from + ((to - from) >>> 1);
+        int aligned = middle & -CACHE_LINE_DOUBLES;
+        return aligned > from ? aligned : middle;
+    }
+
+    private static boolean small(int from, int to) {
+        return to - from <= Math.max(CACHE_LINE_DOUBLES, threshold);
+    }
+
+    private static final class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BatchKernels.Range body;
+        private final int from, to;
+
+        private RangeAction(BatchKernels.Range body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (small(from, to)) {
+                body.run(from, to);
+                return;
+            }
+            int middle = split(from, to);
+            invokeAll(new RangeAction(body, from, middle), new RangeAction(body, middle, to));
+        }
+    }
+
+    private static final class ReduceTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final Reduction reduction;
+        private final int from, to;
+
+        private ReduceTask(Reduction reduction, int from, int to) {
+            this.reduction = reduction;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (small(from, to)) {
+                return reduction.leaf(from, to);
+            }
+            int middle = split(from, to);
+            ReduceTask right = new ReduceTask(reduction, middle, to);
+            right.fork();
+            double left = new ReduceTask(reduction, from, middle).compute();
+            return reduction.combine(left, right.join());
+        }
+    }
+
+    private static void checkSize(double[] a, double[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Arrays must be the same size.");
+        }
+    }
+
+    private static void checkNotEmpty(double[] a) {
+        if (a.length == 0) {
+            throw new IllegalArgumentException("The array must not be empty.");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.scott;
+
+/**
+ * QRDecomposition factors an m x n matrix with m &gt;= n into A = Q*R, where Q is an m x m orthogonal matrix and R is
+ * m x n upper triangular. The factors are built with Householder reflections.
+ * The factorization can be updated in place so it factors A + u*v^T in O(m*(m+n)) using Givens rotations. A downdate
+ * is the same update with -u. Because of this it is not safe to share between threads while it is being updated.
+ */
+public class QRDecomposition {
+    private final int m, n;
+    private final double[] q;
+    private final double[] r;
+
+    /**
+     * Factors the matrix a. The matrix itself is not modified.
+     * @param a matrix with at least as many rows as columns
+     */
+    public QRDecomposition(Matrix a) {
+        if (a.getRows() < a.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have at least as many rows as columns to calculate " +
+                    "QR decomposition.");
+        }
+        m = a.getRows();
+        n = a.getColumns();
+        r = a.copyData();
+        q = AdvancedMath.identityMatrix(m).data();
+        double[] v = new double[m];
+        for (int k = 0; k < Math.min(n, m - 1); k++) {
+            double norm = 0;
+            for (int i = k; i < m; i++) {
+                norm = Math.hypot(norm, r[i * n + k]);
+            }
+            if (norm == 0) {
+                continue;
+            }
+            double alpha = r[k * n + k] > 0 ? -norm : norm;
+            double vNorm = 0;
+            for (int i = k; i < m; i++) {
+                v[i] = r[i * n + k];
+            }
+            v[k] -= alpha;
+            for (int i = k; i < m; i++) {
+                vNorm += v[i] * v[i];
+            }
+            if (vNorm == 0) {
+                continue;
+            }
+            // R = (I - 2vv^T/v^Tv) R
+            for (int j = k; j < n; j++) {
+                double dot = 0;
+                for (int i = k; i < m; i++) {
+                    dot += v[i] * r[i * n + j];
+                }
+                double f = 2 * dot / vNorm;
+                for (int i = k; i < m; i++) {
+                    r[i * n + j] -= f * v[i];
+                }
+            }
+            // Q = Q (I - 2vv^T/v^Tv)
+            for (int i = 0; i < m; i++) {
+                double dot = 0;
+                for (int j = k; j < m; j++) {
+                    dot += q[i * m + j] * v[j];
+                }
+                double f = 2 * dot / vNorm;
+                for (int j = k; j < m; j++) {
+                    q[i * m + j] -= f * v[j];
+                }
+            }
+            for (int i = k + 1; i < m; i++) {
+                r[i * n + k] = 0;
+            }
+        }
+    }
+
+    /**
+     * Updates the factorization in place so it factors A + u*v^T.
+     * @param u vector with one element per row
+     * @param v vector with one element per column
+     */
+    public void update(double[] u, double[] v) {
+        if (u.length != m || v.length != n) {
+            throw new IllegalArgumentException("Vector u must have one element per row and vector v one element " +
+                    "per column.");
+        }
+        // w = Q^Tu
+        double[] w = new double[m];
+        for (int j = 0; j < m; j++) {
+            double ui = u[j];
+            if (ui != 0) {
+                for (int i = 0; i < m; i++) {
+                    w[i] += q[j * m + i] * ui;
+                }
+            }
+        }
+        // Rotate w onto its first element, which turns R into an upper Hessenberg matrix.
+        for (int k = m - 1; k > 0; k--) {
+            double a = w[k - 1], b = w[k];
+            if (b == 0) {
+                continue;
+            }
+            double h = Math.hypot(a, b);
+            double c = a / h, s = b / h;
+            w[k - 1] = h;
+            w[k] = 0;
+            rotateRows(k - 1, k, c, s, k - 1);
+            rotateColumns(k - 1, k, c, s);
+        }
+        for (int j = 0; j < n; j++) {
+            r[j] += w[0] * v[j];
+        }
+        // Rotate the subdiagonal of the Hessenberg matrix away.
+        for (int k = 0; k < Math.min(n, m - 1); k++) {
+            double a = r[k * n + k], b = r[(k + 1) * n + k];
+            if (b == 0) {
+                continue;
+            }
+            double h = Math.hypot(a, b);
+            double c = a / h, s = b / h;
+            rotateRows(k, k + 1, c, s, k);
+            rotateColumns(k, k + 1, c, s);
+            r[(k + 1) * n + k] = 0;
+        }
+    }
+
+    /**
+     * Applies the Givens rotation [c s; -s c] to rows i and j of R, starting at column from.
+     */
+    private void rotateRows(int i, int j, double c, double s, int from) {
+        for (int col = Math.max(0, from); col < n; col++) {
+            double x = r[i * n + col], y = r[j * n + col];
+            r[i * n + col] = c * x + s * y;
+            r[j * n + col] = -s * x + c * y;
+        }
+    }
+
+    /**
+     * Applies the transpose of the Givens rotation [c s; -s c] to columns i and j of Q so Q*R is unchanged.
+     */
+    private void rotateColumns(int i, int j, double c, double s) {
+        for (int row = 0; row < m; row++) {
+            double x = q[row * m + i], y = q[row * m + j];
+            q[row * m + i] = c * x + s * y;
+            q[row * m + j] = -s * x + c * y;
+        }
+    }
+
+    /**
+     * Finds the least squares solution of A*x = b.
+     * @param b vector with one element per row of A
+     * @return x minimizing the magnitude of A*x - b
+     */
+    public double[] solve(double[] b) {
+        if (b.length != m) {
+            throw new IllegalArgumentException("The number of elements in vector b must match the number of " +
+                    "rows in the matrix.");
+        }
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int j = 0; j < m; j++) {
+                sum += q[j * m + i] * b[j];
+            }
+            x[i] = sum;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double diag = r[i * n + i];
+            if (diag == 0) {
+                throw new IllegalArgumentException("Matrix must have full column rank to solve.");
+            }
+            double sum = x[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= r[i * n + k] * x[k];
+            }
+            x[i] = sum / diag;
+        }
+        return x;
+    }
+
+    /**
+     *
+     * @return Orthogonal factor Q.
+     */
+    public Matrix getQ() {
+        return new Matrix(m, m, q.clone());
+    }
+
+    /**
+     *
+     * @return Upper triangular factor R.
+     */
+    public Matrix getR() {
+        return new Matrix(m, n, r.clone());
+    }
+}
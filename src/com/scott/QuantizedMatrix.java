@@ -0,0 +1,376 @@
+package com.scott;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * QuantizedMatrix stores a matrix as 8 or 16 bit integers with a scale and zero point, either one pair for the whole
+ * matrix or one per row, so a cell is scale * (q - zeroPoint). At 8 bits it takes an eighth of the memory of a
+ * Matrix, which is what matters for inference, where the weights are read once per multiply and the double version
+ * is limited by memory bandwidth.
+ * AdvancedMath.matrixMultiply with a quantized matrix on the left uses integer kernels: the vector or the columns of
+ * the other matrix are quantized to the same precision, the products are summed in an int or a long, and each
+ * result is turned back into a double once, with the zero points taken out through precomputed row and column sums.
+ * With a quantized matrix on the right the multiply runs on the dequantized values. Every other operation works on
+ * a dense dequantized copy, and a quantized matrix can't be modified.
+ */
+public class QuantizedMatrix extends StructuredMatrix {
+    /**
+     * Number of bits in each stored value.
+     */
+    public enum Precision {
+        INT8(-128, 127), INT16(-32768, 32767);
+
+        private final int min, max;
+
+        Precision(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    /**
+     * Number of 8 bit products that can be added up in an int without any chance of overflow.
+     */
+    private static final int INT8_BLOCK = 1 << 16;
+    /**
+     * Smallest number of multiply-adds worth splitting over threads.
+     */
+    private static final long PARALLEL_WORK = 1 << 18;
+
+    private final Precision precision;
+    private final boolean perRow;
+    private final byte[] bytes;
+    private final short[] shorts;
+    private final double[] scales;
+    private final int[] zeroPoints;
+    /**
+     * Sum of the stored values of each row, for taking out the zero point of the other operand.
+     */
+    private final long[] rowSums;
+
+    /**
+     * Constructor that quantizes a matrix. Each row, or the whole matrix, is mapped linearly from the range between
+     * its smallest and largest values, widened to include 0 so that 0 is stored exactly, onto the full integer range.
+     * Every cell is then within half a scale step of its value.
+     * @param m matrix to quantize
+     * @param precision number of bits per value
+     * @param perRow true for a scale and zero point per row, false for one for the whole matrix
+     */
+    public QuantizedMatrix(Matrix m, Precision precision, boolean perRow) {
+        this(m.getRows(), m.getColumns(), precision, perRow, m.data(), m.getColumns());
+    }
+
+    /**
+     * Quantizes the rows x columns values of a row major array whose rows are stride apart.
+     */
+    private QuantizedMatrix(int rows, int columns, Precision precision, boolean perRow, double[] values, int stride) {
+        super(rows, columns);
+        this.precision = precision;
+        this.perRow = perRow;
+        int groups = perRow ? rows : 1;
+        scales = new double[groups];
+        zeroPoints = new int[groups];
+        bytes = precision == Precision.INT8 ? new byte[rows * columns] : null;
+        shorts = precision == Precision.INT16 ? new short[rows * columns] : null;
+        rowSums = new long[rows];
+        for (int g = 0; g < groups; g++) {
+            int first = perRow ? g : 0, last = perRow ? g + 1 : rows;
+            double min = 0, max = 0;
+            for (int i = first; i < last; i++) {
+                for (int j = 0; j < columns; j++) {
+                    double value = values[i * stride + j];
+                    if (!(Math.abs(value) <= Double.MAX_VALUE)) {
+                        throw new IllegalArgumentException("Only finite values can be quantized.");
+                    }
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            double scale = max > min ? (max - min) / ((double) precision.max - precision.min) : 1;
+            int zeroPoint = (int) Math.max(precision.min, Math.min(precision.max,
+                    Math.round(precision.min - min / scale)));
+            scales[g] = scale;
+            zeroPoints[g] = zeroPoint;
+            double reciprocal = 1 / scale;
+            for (int i = first; i < last; i++) {
+                long sum = 0;
+                for (int j = 0; j < columns; j++) {
+                    long q = Math.round(values[i * stride + j] * reciprocal) + zeroPoint;
+                    int stored = (int) Math.max(precision.min, Math.min(precision.max, q));
+                    if (bytes != null) {
+                        bytes[i * columns + j] = (byte) stored;
+                    } else {
+                        shorts[i * columns + j] = (short) stored;
+                    }
+                    sum += stored;
+                }
+                rowSums[i] = sum;
+            }
+        }
+    }
+
+    /**
+     * Constructor for a copy of q with different scales, or the values of q transposed.
+     */
+    private QuantizedMatrix(QuantizedMatrix q, double[] scales, boolean transposed) {
+        super(transposed ? q.getColumns() : q.getRows(), transposed ? q.getRows() : q.getColumns());
+        precision = q.precision;
+        perRow = q.perRow;
+        this.scales = scales;
+        zeroPoints = q.zeroPoints;
+        if (!transposed) {
+            bytes = q.bytes;
+            shorts = q.shorts;
+            rowSums = q.rowSums;
+            return;
+        }
+        int rows = getRows(), cols = getColumns();
+        bytes = q.bytes == null ? null : new byte[q.bytes.length];
+        shorts = q.shorts == null ? null : new short[q.shorts.length];
+        rowSums = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int value = q.value(j * rows + i);
+                if (bytes != null) {
+                    bytes[i * cols + j] = (byte) value;
+                } else {
+                    shorts[i * cols + j] = (short) value;
+                }
+                rowSums[i] += value;
+            }
+        }
+    }
+
+    private int value(int index) {
+        return bytes != null ? bytes[index] : shorts[index];
+    }
+
+    /**
+     *
+     * @return Number of bits in each stored value.
+     */
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     *
+     * @return True if each row has its own scale and zero point.
+     */
+    public boolean isPerRow() {
+        return perRow;
+    }
+
+    /**
+     * Returns the scale of a row, the value of one step of the stored integers.
+     * @param row row number
+     * @return scale of the row
+     */
+    public double getScale(int row) {
+        checkRow(row);
+        return scales[perRow ? row : 0];
+    }
+
+    /**
+     * Returns the zero point of a row, the stored integer that stands for 0.
+     * @param row row number
+     * @return zero point of the row
+     */
+    public int getZeroPoint(int row) {
+        checkRow(row);
+        return zeroPoints[perRow ? row : 0];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row > getRows() - 1) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+    }
+
+    /**
+     * Returns the stored integer of a cell.
+     * @param row row number
+     * @param col column number
+     * @return quantized value of the cell
+     */
+    public int getQuantized(int row, int col) {
+        if (row < 0 || row > getRows() - 1 || col < 0 || col > getColumns() - 1) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+        return value(row * getColumns() + col);
+    }
+
+    /**
+     *
+     * @return Number of bytes used by the values, scales and zero points.
+     */
+    public long getBytes() {
+        long valueBytes = precision == Precision.INT8 ? 1 : 2;
+        return valueBytes * getRows() * getColumns() + 12L * scales.length + 8L * rowSums.length;
+    }
+
+    /**
+     *
+     * @return Dense matrix of the values the quantized cells stand for.
+     */
+    public Matrix dequantize() {
+        return new Matrix(getRows(), getColumns(), data());
+    }
+
+    @Override
+    double get(int row, int col) {
+        int g = perRow ? row : 0;
+        return scales[g] * (value(row * getColumns() + col) - zeroPoints[g]);
+    }
+
+    @Override
+    void set(int row, int col, double value) {
+        throw new UnsupportedOperationException("A quantized matrix can't be modified.");
+    }
+
+    @Override
+    int rowStart(int row) {
+        return 0;
+    }
+
+    @Override
+    int rowEnd(int row) {
+        return getColumns();
+    }
+
+    /**
+     *
+     * @return Number of doubles that would take the same memory as the quantized matrix, rounded up.
+     */
+    @Override
+    public int getStorageSize() {
+        return (int) ((getBytes() + 7) / 8);
+    }
+
+    @Override
+    double[] data() {
+        int cols = getColumns();
+        double[] dense = new double[getRows() * cols];
+        for (int i = 0; i < getRows(); i++) {
+            int g = perRow ? i : 0;
+            double scale = scales[g];
+            int zeroPoint = zeroPoints[g];
+            for (int j = 0; j < cols; j++) {
+                dense[i * cols + j] = scale * (value(i * cols + j) - zeroPoint);
+            }
+        }
+        return dense;
+    }
+
+    /**
+     * A matrix quantized for the whole matrix is transposed exactly. One quantized per row is dequantized,
+     * transposed and quantized again per row, because its scales belong to rows.
+     * @return Transposed matrix with the same precision.
+     */
+    @Override
+    public QuantizedMatrix transpose() {
+        if (!perRow) {
+            return new QuantizedMatrix(this, scales, true);
+        }
+        return new QuantizedMatrix(AdvancedMath.transform(dequantize()), precision, true);
+    }
+
+    @Override
+    QuantizedMatrix scaled(double scale) {
+        double[] newScales = scales.clone();
+        for (int g = 0; g < newScales.length; g++) {
+            newScales[g] *= scale;
+        }
+        return new QuantizedMatrix(this, newScales, false);
+    }
+
+    /**
+     * Integer GEMM: the columns of b are quantized per column like a transposed matrix quantized per row, so both
+     * sides of every dot product are contiguous, and then
+     * C[i][j] = sa[i] * sb[j] * (sum qa*qb - zb[j]*rowSumA[i] - za[i]*rowSumB[j] + k*za[i]*zb[j]).
+     */
+    @Override
+    double[] multiplyRight(double[] b, int bColumns) {
+        int inner = getColumns();
+        QuantizedMatrix bt = new QuantizedMatrix(AdvancedMath.transform(new Matrix(inner, bColumns, b)),
+                precision, true);
+        int rows = getRows();
+        double[] result = new double[rows * bColumns];
+        forEachRow(rows, (long) rows * bColumns * inner, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < bColumns; j++) {
+                    result[i * bColumns + j] = dequantize(i, dot(i, bt, j), bt, j);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Integer GEMV: x is quantized as a whole and every row is an integer dot product with it.
+     */
+    @Override
+    double[] multiplyVector(double[] x) {
+        QuantizedMatrix qx = new QuantizedMatrix(1, x.length, precision, false, x, x.length);
+        int rows = getRows();
+        double[] result = new double[rows];
+        forEachRow(rows, (long) rows * x.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = dequantize(i, dot(i, qx, 0), qx, 0);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs body over [0, rows) in chunks of rows, in parallel when there are at least PARALLEL_WORK multiply-adds.
+     */
+    private static void forEachRow(int rows, long work, BatchKernels.Range body) {
+        if (work < PARALLEL_WORK || rows < 2) {
+            body.run(0, rows);
+            return;
+        }
+        int chunks = Math.min(rows, 4 * ForkJoinPool.getCommonPoolParallelism());
+        int chunk = (rows + chunks - 1) / chunks;
+        IntStream.range(0, (rows + chunk - 1) / chunk).parallel().forEach(c -> body.run(c * chunk,
+                Math.min(rows, (c + 1) * chunk)));
+    }
+
+    /**
+     * Turns the integer dot product of row i with row j of other, which has the same precision and row length, into
+     * the dot product of the values they stand for.
+     */
+    private double dequantize(int i, long dot, QuantizedMatrix other, int j) {
+        int g = perRow ? i : 0, h = other.perRow ? j : 0;
+        long za = zeroPoints[g], zb = other.zeroPoints[h];
+        long sum = dot - zb * rowSums[i] - za * other.rowSums[j] + getColumns() * za * zb;
+        return scales[g] * other.scales[h] * sum;
+    }
+
+    /**
+     * Sum of the products of the stored values of row i and row j of other.
+     */
+    private long dot(int i, QuantizedMatrix other, int j) {
+        int n = getColumns();
+        int a = i * n, b = j * n;
+        long total = 0;
+        if (bytes != null) {
+            byte[] x = bytes, y = other.bytes;
+            for (int from = 0; from < n; from += INT8_BLOCK) {
+                int to = Math.min(n, from + INT8_BLOCK);
+                int sum = 0;
+                for (int k = from; k < to; k++) {
+                    sum += x[a + k] * y[b + k];
+                }
+                total += sum;
+            }
+        } else {
+            short[] x = shorts, y = other.shorts;
+            for (int k = 0; k < n; k++) {
+                total += x[a + k] * y[b + k];
+            }
+        }
+        return total;
+    }
+}
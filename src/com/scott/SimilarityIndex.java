@@ -0,0 +1,587 @@
+package com.scott;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * SimilarityIndex finds the stored vectors with the highest cosine similarity to a query. Vectors are normalized once
+ * when they are added and kept row by row in large contiguous blocks, on the heap or off it in direct buffers, so a
+ * search is just dot products with the normalized query and never calls normalize per vector.
+ * Queries are answered in batches: a tile of queries is multiplied with a tile of stored rows at a time, like a
+ * blocked matrix multiply of the queries by the transposed index, so each row is read from memory once per tile of
+ * queries instead of once per query. The rows are split into tasks on the common ForkJoinPool and every task keeps
+ * its own bounded heap of the best k matches for each query, which are merged at the end.
+ * For faster, approximate answers the index can be partitioned, IVF style: k-means groups the vectors around a
+ * number of centroids, and a search only scans the partitions whose centroids are closest to the query. Scanning
+ * more partitions trades speed back for recall.
+ * Vectors must not be added while a search is running.
+ */
+public class SimilarityIndex {
+    /**
+     * Largest number of vectors in each storage block.
+     */
+    private static final int BLOCK_ROWS = 1 << 14;
+    /**
+     * Number of rows in each task of a search.
+     */
+    private static final int TASK_ROWS = 4096;
+    private static final int QUERY_TILE = 8;
+    private static final int ROW_TILE = 64;
+
+    private final int dimension;
+    private final boolean offHeap;
+    /**
+     * Number of vectors in each storage block, fewer than BLOCK_ROWS for vectors too large to fit that many in a
+     * buffer.
+     */
+    private final int blockRows;
+    private final List<DoubleBuffer> blocks = new ArrayList<>();
+    private int size;
+
+    private double[] centroids;
+    private int[][] partitions;
+    private int[] partitionSizes;
+
+    /**
+     * A stored vector and its similarity to a query.
+     */
+    public static final class Match {
+        private final int id;
+        private final double score;
+
+        Match(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        /**
+         *
+         * @return Id of the stored vector, the order it was added in starting at 0.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         *
+         * @return Cosine similarity to the query, from -1 to 1.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return id + ": " + score;
+        }
+    }
+
+    /**
+     * Constructor for an empty index.
+     * @param dimension number of elements in each vector
+     * @param offHeap true to keep the vectors in direct buffers outside the Java heap
+     */
+    public SimilarityIndex(int dimension, boolean offHeap) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("The dimension must be at least 1.");
+        }
+        this.dimension = dimension;
+        this.offHeap = offHeap;
+        this.blockRows = Math.max(1, Math.min(BLOCK_ROWS, Integer.MAX_VALUE / Double.BYTES / dimension));
+    }
+
+    /**
+     *
+     * @return Number of elements in each vector.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     *
+     * @return Number of vectors in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * @return true if the index has been partitioned for approximate search.
+     */
+    public boolean isPartitioned() {
+        return partitions != null;
+    }
+
+    /**
+     * Adds a vector. It is normalized first, a vector of zeros is stored as is and matches everything with score 0.
+     * @param vector vector with one element per dimension, not changed
+     * @return id of the vector
+     */
+    public int add(double[] vector) {
+        checkVector(vector.length);
+        int block = size / blockRows;
+        if (block == blocks.size()) {
+            blocks.add(offHeap
+                    ? ByteBuffer.allocateDirect(blockRows * dimension * Double.BYTES).order(ByteOrder.nativeOrder())
+                    .asDoubleBuffer()
+                    : DoubleBuffer.wrap(new double[blockRows * dimension]));
+        }
+        double[] normalized = unit(vector);
+        DoubleBuffer storage = blocks.get(block).duplicate();
+        storage.position((size % blockRows) * dimension);
+        storage.put(normalized);
+        if (partitions != null) {
+            assign(size, nearestCentroids(normalized, 0, 1)[0]);
+        }
+        return size++;
+    }
+
+    /**
+     * Adds vectors stored one after another.
+     * @param vectors the vectors, a whole number of them
+     * @return id of the first one, the rest follow in order
+     */
+    public int addAll(double[] vectors) {
+        if (vectors.length % dimension != 0) {
+            throw new IllegalArgumentException("The vectors must be a whole number of vectors of the dimension.");
+        }
+        int first = size;
+        double[] vector = new double[dimension];
+        for (int offset = 0; offset < vectors.length; offset += dimension) {
+            System.arraycopy(vectors, offset, vector, 0, dimension);
+            add(vector);
+        }
+        return first;
+    }
+
+    /**
+     * Copies out a stored vector.
+     * @param id id of the vector
+     * @return the vector, normalized
+     */
+    public double[] get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Id is out of bounds.");
+        }
+        double[] vector = new double[dimension];
+        DoubleBuffer storage = blocks.get(id / blockRows).duplicate();
+        storage.position((id % blockRows) * dimension);
+        storage.get(vector);
+        return vector;
+    }
+
+    private double[] unit(double[] vector) {
+        double[] normalized = new double[dimension];
+        if (AdvancedMath.magnitude(vector) == 0) {
+            return normalized;
+        }
+        AdvancedMath.normalize(vector, normalized);
+        return normalized;
+    }
+
+    private void checkVector(int length) {
+        if (length != dimension) {
+            throw new IllegalArgumentException("The vector must have one element per dimension.");
+        }
+    }
+
+    /**
+     * Finds the k stored vectors most similar to a query, by scanning all of them.
+     * @param query query vector
+     * @param k number of matches
+     * @return up to k matches, best first
+     */
+    public Match[] search(double[] query, int k) {
+        checkVector(query.length);
+        return searchBatch(query, k)[0];
+    }
+
+    /**
+     * Finds the k stored vectors most similar to each of a batch of queries, by scanning all of them.
+     * @param queries query vectors one after another
+     * @param k number of matches for each query
+     * @return up to k matches for each query, best first
+     */
+    public Match[][] searchBatch(double[] queries, int k) {
+        double[] q = prepare(queries, k);
+        int count = q.length / dimension;
+        // There are never more than size matches, however large k is.
+        int limit = Math.min(k, size);
+        TopK[] best = size == 0 ? heaps(count, limit) : new SearchTask(q, count, limit, 0, size).invoke();
+        return results(best);
+    }
+
+    /**
+     * Groups the stored vectors into partitions with spherical k-means, for searchApproximate. Vectors added later
+     * go to the partition with the closest centroid. Calling this again rebuilds the partitions.
+     * @param count number of partitions, at most the number of vectors
+     * @param iterations number of k-means iterations
+     * @param seed seed for picking the starting centroids
+     */
+    public void partition(int count, int iterations, long seed) {
+        if (count < 1 || count > size) {
+            throw new IllegalArgumentException("The number of partitions must be from 1 to the number of vectors.");
+        }
+        Random random = new Random(seed);
+        double[] c = new double[count * dimension];
+        // Start from distinct random vectors.
+        int[] picks = new int[size];
+        for (int i = 0; i < size; i++) {
+            picks[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(size - i);
+            int swap = picks[i];
+            picks[i] = picks[j];
+            picks[j] = swap;
+            System.arraycopy(get(picks[i]), 0, c, i * dimension, dimension);
+        }
+        centroids = c;
+        int[] assignment = new int[size];
+        for (int iteration = 0; iteration <= iterations; iteration++) {
+            double[] c0 = centroids;
+            ParallelArrays.forEach(size, (from, to) -> {
+                for (int id = from; id < to; id++) {
+                    assignment[id] = nearestCentroids(get(id), 0, 1)[0];
+                }
+            });
+            if (iteration == iterations) {
+                break;
+            }
+            double[] sums = new double[count * dimension];
+            for (int id = 0; id < size; id++) {
+                double[] v = get(id);
+                int at = assignment[id] * dimension;
+                for (int d = 0; d < dimension; d++) {
+                    sums[at + d] += v[d];
+                }
+            }
+            for (int p = 0; p < count; p++) {
+                double[] mean = Arrays.copyOfRange(sums, p * dimension, (p + 1) * dimension);
+                if (AdvancedMath.magnitude(mean) == 0) {
+                    // An empty partition keeps its centroid.
+                    System.arraycopy(c0, p * dimension, mean, 0, dimension);
+                } else {
+                    AdvancedMath.normalize(mean, mean);
+                }
+                System.arraycopy(mean, 0, c0, p * dimension, dimension);
+            }
+        }
+        partitions = new int[count][];
+        partitionSizes = new int[count];
+        for (int p = 0; p < count; p++) {
+            partitions[p] = new int[16];
+        }
+        for (int id = 0; id < size; id++) {
+            assign(id, assignment[id]);
+        }
+    }
+
+    private void assign(int id, int partition) {
+        int[] members = partitions[partition];
+        if (partitionSizes[partition] == members.length) {
+            members = partitions[partition] = Arrays.copyOf(members, members.length * 2);
+        }
+        members[partitionSizes[partition]++] = id;
+    }
+
+    /**
+     * Indices of the probes centroids most similar to the vector at v[offset].
+     */
+    private int[] nearestCentroids(double[] v, int offset, int probes) {
+        int count = centroids.length / dimension;
+        TopK best = new TopK(Math.min(probes, count));
+        for (int p = 0; p < count; p++) {
+            double dot = 0;
+            for (int d = 0; d < dimension; d++) {
+                dot += v[offset + d] * centroids[p * dimension + d];
+            }
+            best.offer(dot, p);
+        }
+        Match[] matches = best.sorted();
+        int[] nearest = new int[matches.length];
+        for (int i = 0; i < nearest.length; i++) {
+            nearest[i] = matches[i].id;
+        }
+        return nearest;
+    }
+
+    /**
+     * Finds about the k stored vectors most similar to a query by only scanning the partitions with the closest
+     * centroids.
+     * @param query query vector
+     * @param k number of matches
+     * @param probes number of partitions to scan, more is slower but finds more of the true matches
+     * @return up to k matches, best first
+     */
+    public Match[] searchApproximate(double[] query, int k, int probes) {
+        checkVector(query.length);
+        return searchApproximateBatch(query, k, probes)[0];
+    }
+
+    /**
+     * Finds about the k stored vectors most similar to each of a batch of queries by only scanning the partitions
+     * with the closest centroids to each one.
+     * @param queries query vectors one after another
+     * @param k number of matches for each query
+     * @param probes number of partitions to scan for each query
+     * @return up to k matches for each query, best first
+     */
+    public Match[][] searchApproximateBatch(double[] queries, int k, int probes) {
+        if (partitions == null) {
+            throw new IllegalStateException("The index must be partitioned first.");
+        }
+        if (probes < 1) {
+            throw new IllegalArgumentException("The number of probes must be at least 1.");
+        }
+        double[] q = prepare(queries, k);
+        int count = q.length / dimension;
+        Match[][] results = new Match[count][];
+        ParallelArrays.forEach(count, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double[] query = Arrays.copyOfRange(q, i * dimension, (i + 1) * dimension);
+                int[] nearest = nearestCentroids(query, 0, probes);
+                int candidates = 0;
+                for (int p : nearest) {
+                    candidates += partitionSizes[p];
+                }
+                TopK best = new TopK(Math.min(k, candidates));
+                for (int p : nearest) {
+                    int[] members = partitions[p];
+                    for (int m = 0; m < partitionSizes[p]; m++) {
+                        int id = members[m];
+                        best.offer(dot(query, id), id);
+                    }
+                }
+                results[i] = best.sorted();
+            }
+        });
+        return results;
+    }
+
+    private double dot(double[] query, int id) {
+        DoubleBuffer block = blocks.get(id / blockRows);
+        int at = (id % blockRows) * dimension;
+        double sum = 0;
+        if (block.hasArray()) {
+            double[] rows = block.array();
+            for (int d = 0; d < dimension; d++) {
+                sum += query[d] * rows[at + d];
+            }
+        } else {
+            for (int d = 0; d < dimension; d++) {
+                sum += query[d] * block.get(at + d);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Checks the arguments of a search and returns the normalized queries.
+     */
+    private double[] prepare(double[] queries, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1.");
+        }
+        if (queries.length == 0 || queries.length % dimension != 0) {
+            throw new IllegalArgumentException("The queries must be a whole number of vectors of the dimension.");
+        }
+        double[] q = new double[queries.length];
+        double[] query = new double[dimension];
+        for (int offset = 0; offset < queries.length; offset += dimension) {
+            System.arraycopy(queries, offset, query, 0, dimension);
+            System.arraycopy(unit(query), 0, q, offset, dimension);
+        }
+        return q;
+    }
+
+    private static TopK[] heaps(int count, int k) {
+        TopK[] heaps = new TopK[count];
+        for (int i = 0; i < count; i++) {
+            heaps[i] = new TopK(k);
+        }
+        return heaps;
+    }
+
+    private static Match[][] results(TopK[] heaps) {
+        Match[][] results = new Match[heaps.length][];
+        for (int i = 0; i < heaps.length; i++) {
+            results[i] = heaps[i].sorted();
+        }
+        return results;
+    }
+
+    /**
+     * Scores rows [from, to) against every query, splitting in half until there are at most TASK_ROWS rows.
+     */
+    private final class SearchTask extends RecursiveTask<TopK[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] queries;
+        private final int count, k, from, to;
+
+        private SearchTask(double[] queries, int count, int k, int from, int to) {
+            this.queries = queries;
+            this.count = count;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK[] compute() {
+            if (to - from > TASK_ROWS) {
+                int middle = from + (to - from) / 2;
+                SearchTask right = new SearchTask(queries, count, k, middle, to);
+                right.fork();
+                TopK[] left = new SearchTask(queries, count, k, from, middle).compute();
+                TopK[] other = right.join();
+                for (int i = 0; i < count; i++) {
+                    left[i].merge(other[i]);
+                }
+                return left;
+            }
+            TopK[] best = heaps(count, k);
+            double[] tile = new double[ROW_TILE * dimension];
+            for (int row = from; row < to; ) {
+                // A tile never crosses a storage block.
+                int blockEnd = (row / blockRows + 1) * blockRows;
+                int rows = Math.min(ROW_TILE, Math.min(to, blockEnd) - row);
+                double[] values;
+                int base;
+                DoubleBuffer block = blocks.get(row / blockRows);
+                if (block.hasArray()) {
+                    values = block.array();
+                    base = (row % blockRows) * dimension;
+                } else {
+                    DoubleBuffer copy = block.duplicate();
+                    copy.position((row % blockRows) * dimension);
+                    copy.get(tile, 0, rows * dimension);
+                    values = tile;
+                    base = 0;
+                }
+                scoreTile(values, base, rows, row, best);
+                row += rows;
+            }
+            return best;
+        }
+
+        /**
+         * Scores rows values[base...] against the queries a tile of queries at a time, so each row is reused for
+         * every query in the tile while it is in cache.
+         */
+        private void scoreTile(double[] values, int base, int rows, int firstId, TopK[] best) {
+            for (int qq = 0; qq < count; qq += QUERY_TILE) {
+                int qEnd = Math.min(count, qq + QUERY_TILE);
+                for (int r = 0; r < rows; r++) {
+                    int rowStart = base + r * dimension;
+                    for (int q = qq; q < qEnd; q++) {
+                        int queryStart = q * dimension;
+                        double s0 = 0, s1 = 0;
+                        int d = 0;
+                        for (; d + 1 < dimension; d += 2) {
+                            s0 += queries[queryStart + d] * values[rowStart + d];
+                            s1 += queries[queryStart + d + 1] * values[rowStart + d + 1];
+                        }
+                        if (d < dimension) {
+                            s0 += queries[queryStart + d] * values[rowStart + d];
+                        }
+                        best[q].offer(s0 + s1, firstId + r);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounded min-heap of the k best scores seen so far. Ties go to the lower id. The arrays grow as scores are
+     * offered, so a heap for a search task that only sees a few rows stays small even when k is large.
+     */
+    private static final class TopK {
+        private final int k;
+        private double[] scores;
+        private int[] ids;
+        private int count;
+
+        private TopK(int k) {
+            this.k = k;
+            this.scores = new double[Math.min(k, 16)];
+            this.ids = new int[scores.length];
+        }
+
+        /**
+         * true if a is worse than b.
+         */
+        private static boolean worse(double scoreA, int idA, double scoreB, int idB) {
+            return scoreA < scoreB || scoreA == scoreB && idA > idB;
+        }
+
+        private void offer(double score, int id) {
+            if (count < k) {
+                if (count == scores.length) {
+                    int length = (int) Math.min(k, 2L * count);
+                    scores = Arrays.copyOf(scores, length);
+                    ids = Arrays.copyOf(ids, length);
+                }
+                int i = count++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(score, id, scores[parent], ids[parent])) {
+                        break;
+                    }
+                    scores[i] = scores[parent];
+                    ids[i] = ids[parent];
+                    i = parent;
+                }
+                scores[i] = score;
+                ids[i] = id;
+                return;
+            }
+            if (!worse(scores[0], ids[0], score, id)) {
+                return;
+            }
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && worse(scores[child + 1], ids[child + 1], scores[child], ids[child])) {
+                    child++;
+                }
+                if (!worse(scores[child], ids[child], score, id)) {
+                    break;
+                }
+                scores[i] = scores[child];
+                ids[i] = ids[child];
+                i = child;
+            }
+            scores[i] = score;
+            ids[i] = id;
+        }
+
+        private void merge(TopK other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.scores[i], other.ids[i]);
+            }
+        }
+
+        private Match[] sorted() {
+            Match[] matches = new Match[count];
+            for (int i = 0; i < count; i++) {
+                matches[i] = new Match(ids[i], scores[i]);
+            }
+            Arrays.sort(matches, (a, b) -> a.score != b.score ? Double.compare(b.score, a.score)
+                    : Integer.compare(a.id, b.id));
+            return matches;
+        }
+    }
+}
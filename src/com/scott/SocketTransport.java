@@ -0,0 +1,115 @@
+package com.scott;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * SocketTransport sends tiles over TCP to a TileServer, usually running in another JVM. The connection is opened on
+ * first use and kept open; if a request fails the connection is dropped and opened again by the next request.
+ */
+public class SocketTransport implements TileTransport {
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+
+    /**
+     * Constructor for a transport with a 30 second timeout.
+     * @param host host name of the worker
+     * @param port port its TileServer listens on
+     */
+    public SocketTransport(String host, int port) {
+        this(host, port, 30000);
+    }
+
+    /**
+     * Constructor for a transport.
+     * @param host host name of the worker
+     * @param port port its TileServer listens on
+     * @param timeoutMillis longest time to wait to connect or for a reply before the request fails
+     */
+    public SocketTransport(String host, int port, int timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("The timeout must not be negative.");
+        }
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public synchronized Matrix multiplyTiles(Matrix[] aRow, Matrix[] bColumn) throws IOException {
+        if (aRow.length != bColumn.length) {
+            throw new IllegalArgumentException("There must be the same number of tiles from A and B.");
+        }
+        try {
+            if (socket == null) {
+                connect();
+            }
+            out.writeInt(aRow.length);
+            for (Matrix tile : aRow) {
+                TileServer.writeTile(out, tile);
+            }
+            for (Matrix tile : bColumn) {
+                TileServer.writeTile(out, tile);
+            }
+            out.flush();
+            if (in.readByte() != 0) {
+                throw new IOException("Worker " + getName() + " failed: " + in.readUTF());
+            }
+            return TileServer.readTile(in);
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    private void connect() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), timeoutMillis);
+            s.setSoTimeout(timeoutMillis);
+            s.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        socket = s;
+    }
+
+    private void disconnect() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already broken, nothing more to do.
+            }
+        }
+        socket = null;
+        in = null;
+        out = null;
+    }
+
+    /**
+     *
+     * @return host:port of the worker.
+     */
+    @Override
+    public String getName() {
+        return host + ":" + port;
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+}
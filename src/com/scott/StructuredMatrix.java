@@ -0,0 +1,188 @@
+package com.scott;
+
+/**
+ * StructuredMatrix is the base of the matrix types that only store the cells that can be non-zero, like
+ * DiagonalMatrix, TriangularMatrix, BandedMatrix and SymmetricMatrix. AdvancedMath checks for these types and only
+ * visits the stored cells, so for example multiplying a dense matrix by a diagonal one is O(n^2) instead of O(n^3).
+ * Every other operation still works, on a dense copy of the matrix. BufferMatrix uses the same base for a dense
+ * matrix that keeps its values in a buffer instead of an array.
+ * Setting a cell outside the structure to anything but 0 throws, and getMatrixArray returns a dense copy rather
+ * than a backing array.
+ */
+public abstract class StructuredMatrix extends Matrix {
+    StructuredMatrix(int rows, int columns) {
+        super(rows, columns, false);
+    }
+
+    /**
+     * Value at row and col, which are already known to be in bounds.
+     */
+    abstract double get(int row, int col);
+
+    /**
+     * Sets the value at row and col, which are already known to be in bounds.
+     */
+    abstract void set(int row, int col, double value);
+
+    /**
+     * First column that can be non-zero in row.
+     */
+    abstract int rowStart(int row);
+
+    /**
+     * One past the last column that can be non-zero in row.
+     */
+    abstract int rowEnd(int row);
+
+    /**
+     *
+     * @return Number of doubles used to store the matrix.
+     */
+    public abstract int getStorageSize();
+
+    /**
+     *
+     * @return Matrix with swapped rows and columns, with the same kind of structure.
+     */
+    public abstract StructuredMatrix transpose();
+
+    /**
+     * This matrix with every cell multiplied by scale, with the same structure.
+     */
+    abstract StructuredMatrix scaled(double scale);
+
+    @Override
+    public double getCell(int row, int col) {
+        checkBounds(row, col);
+        return get(row, col);
+    }
+
+    @Override
+    public void setCell(int row, int col, double value) {
+        checkBounds(row, col);
+        set(row, col, value);
+    }
+
+    private void checkBounds(int row, int col) {
+        if (row < 0 || row > getRows() - 1 || col < 0 || col > getColumns() - 1) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+    }
+
+    /**
+     * Throws unless value is 0, for setting a cell that is outside the structure.
+     */
+    static void checkZero(double value) {
+        if (value != 0) {
+            throw new IllegalArgumentException("Only cells inside the matrix's structure can be non-zero.");
+        }
+    }
+
+    /**
+     *
+     * @return Returns a dense copy of the matrix as a 1D array of doubles. Changes to it don't change the matrix.
+     */
+    @Override
+    public double[] getMatrixArray() {
+        return data();
+    }
+
+    /**
+     * data() already builds a new array, so it is handed out as is.
+     */
+    @Override
+    double[] copyData() {
+        return data();
+    }
+
+    /**
+     * Builds a new dense array on every call, see Matrix.data().
+     */
+    @Override
+    double[] data() {
+        int cols = getColumns();
+        double[] dense = new double[getRows() * cols];
+        for (int i = 0; i < getRows(); i++) {
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                dense[i * cols + j] = get(i, j);
+            }
+        }
+        return dense;
+    }
+
+    @Override
+    long contentHash() {
+        return finishHash(hashSum(data()), getRows(), getColumns());
+    }
+
+    /**
+     * Determinant, if the structure makes it cheap to calculate. Null otherwise.
+     */
+    Double fastDet() {
+        return null;
+    }
+
+    /**
+     * Inverse, if the structure makes it cheap to calculate. Null otherwise.
+     */
+    Matrix fastInverse() {
+        return null;
+    }
+
+    /**
+     * Calculates this*B for a dense B with getColumns() rows, visiting only the stored cells of this.
+     */
+    double[] multiplyRight(double[] b, int bColumns) {
+        double[] result = new double[getRows() * bColumns];
+        for (int i = 0; i < getRows(); i++) {
+            int rowStart = i * bColumns;
+            for (int k = rowStart(i); k < rowEnd(i); k++) {
+                double aik = get(i, k);
+                if (aik == 0) {
+                    continue;
+                }
+                int bRow = k * bColumns;
+                for (int j = 0; j < bColumns; j++) {
+                    result[rowStart + j] += aik * b[bRow + j];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates A*this for a dense A with getRows() columns, visiting only the stored cells of this.
+     */
+    double[] multiplyLeft(double[] a, int aRows) {
+        int inner = getRows(), cols = getColumns();
+        double[] result = new double[aRows * cols];
+        for (int r = 0; r < aRows; r++) {
+            int rowStart = r * cols;
+            for (int k = 0; k < inner; k++) {
+                double ark = a[r * inner + k];
+                if (ark == 0) {
+                    continue;
+                }
+                for (int j = rowStart(k); j < rowEnd(k); j++) {
+                    result[rowStart + j] += ark * get(k, j);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates this*x, visiting only the stored cells of this.
+     */
+    double[] multiplyVector(double[] x) {
+        double[] result = new double[getRows()];
+        for (int i = 0; i < result.length; i++) {
+            double sum = 0;
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                sum += get(i, j) * x[j];
+            }
+            result[i] = sum;
+        }
+        return result;
+    }
+}
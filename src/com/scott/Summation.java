@@ -0,0 +1,101 @@
+package com.scott;
+
+/**
+ * The ways AdvancedMath can add up the products in a dot product or magnitude. They trade speed for accuracy:
+ * <ul>
+ * <li>SEQUENTIAL adds each product to one running total. Its error grows with the length of the vector.</li>
+ * <li>UNROLLED keeps four running totals so the additions don't have to wait on each other. It is the fastest and
+ * usually a little more accurate than SEQUENTIAL.</li>
+ * <li>PAIRWISE adds the two halves of the vector separately and then adds the results, so the error only grows with
+ * the log of the length. It is nearly as fast as UNROLLED.</li>
+ * <li>COMPENSATED keeps track of the rounding error of every addition (Neumaier's version of Kahan summation) and
+ * adds it back at the end. The sum is accurate no matter how many elements there are, but each product is still
+ * rounded before it is added.</li>
+ * <li>COMPENSATED_FMA also keeps the rounding error of every product, found exactly with Math.fma. The result is as
+ * accurate as if it was calculated with twice the precision of a double and then rounded.</li>
+ * </ul>
+ */
+public enum Summation {
+    SEQUENTIAL {
+        @Override
+        double dot(double[] a, double[] b, int from, int to) {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+    },
+    UNROLLED {
+        @Override
+        double dot(double[] a, double[] b, int from, int to) {
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = from;
+            for (; i + 3 < to; i += 4) {
+                s0 += a[i] * b[i];
+                s1 += a[i + 1] * b[i + 1];
+                s2 += a[i + 2] * b[i + 2];
+                s3 += a[i + 3] * b[i + 3];
+            }
+            for (; i < to; i++) {
+                s0 += a[i] * b[i];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+    },
+    PAIRWISE {
+        /**
+         * Blocks this small are added with UNROLLED, splitting them further only adds overhead.
+         */
+        private static final int BLOCK = 128;
+
+        @Override
+        double dot(double[] a, double[] b, int from, int to) {
+            if (to - from <= BLOCK) {
+                return UNROLLED.dot(a, b, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            return dot(a, b, from, middle) + dot(a, b, middle, to);
+        }
+    },
+    COMPENSATED {
+        @Override
+        double dot(double[] a, double[] b, int from, int to) {
+            double sum = 0, error = 0;
+            for (int i = from; i < to; i++) {
+                double p = a[i] * b[i];
+                double t = sum + p;
+                // Whichever of sum and p is larger holds the bits that were lost from the smaller one.
+                if (Math.abs(sum) >= Math.abs(p)) {
+                    error += (sum - t) + p;
+                } else {
+                    error += (p - t) + sum;
+                }
+                sum = t;
+            }
+            return sum + error;
+        }
+    },
+    COMPENSATED_FMA {
+        @Override
+        double dot(double[] a, double[] b, int from, int to) {
+            // Ogita, Rump and Oishi's Dot2: TwoProduct with fma, then TwoSum, with the errors summed separately.
+            double sum = 0, error = 0;
+            for (int i = from; i < to; i++) {
+                double p = a[i] * b[i];
+                double productError = Math.fma(a[i], b[i], -p);
+                double t = sum + p;
+                double z = t - sum;
+                double sumError = (sum - (t - z)) + (p - z);
+                error += productError + sumError;
+                sum = t;
+            }
+            return sum + error;
+        }
+    };
+
+    /**
+     * Calculates the sum of a[i]*b[i] for i in [from, to).
+     */
+    abstract double dot(double[] a, double[] b, int from, int to);
+}
@@ -0,0 +1,147 @@
+package com.scott;
+
+/**
+ * SymmetricMatrix is a square matrix equal to its own transpose. Only the lower triangle is stored, packed row by row
+ * into n(n+1)/2 doubles, so multiplying by it reads half as much memory as a dense matrix. Setting a cell sets its
+ * mirror image too.
+ */
+public class SymmetricMatrix extends StructuredMatrix {
+    private final int n;
+    private final double[] packed;
+
+    /**
+     * Constructor for an empty symmetric matrix.
+     * @param dim number of rows and columns
+     */
+    public SymmetricMatrix(int dim) {
+        super(dim, dim);
+        this.n = dim;
+        this.packed = new double[dim * (dim + 1) / 2];
+    }
+
+    /**
+     * Constructor for a symmetric matrix copied from the lower triangle of a square matrix.
+     * The upper triangle is ignored.
+     * @param m square matrix
+     */
+    public SymmetricMatrix(Matrix m) {
+        this(checkSquare(m));
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                packed[index(i, j)] = m.getCell(i, j);
+            }
+        }
+    }
+
+    private static int checkSquare(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to make a symmetric matrix.");
+        }
+        return m.getRows();
+    }
+
+    private static int index(int row, int col) {
+        return row >= col ? row * (row + 1) / 2 + col : col * (col + 1) / 2 + row;
+    }
+
+    @Override
+    double get(int row, int col) {
+        return packed[index(row, col)];
+    }
+
+    @Override
+    void set(int row, int col, double value) {
+        packed[index(row, col)] = value;
+    }
+
+    @Override
+    int rowStart(int row) {
+        return 0;
+    }
+
+    @Override
+    int rowEnd(int row) {
+        return n;
+    }
+
+    /**
+     * The array the stored values are kept in.
+     */
+    double[] storage() {
+        return packed;
+    }
+
+    @Override
+    public int getStorageSize() {
+        return packed.length;
+    }
+
+    /**
+     *
+     * @return A copy of this matrix, a symmetric matrix is its own transpose.
+     */
+    @Override
+    public SymmetricMatrix transpose() {
+        SymmetricMatrix result = new SymmetricMatrix(n);
+        System.arraycopy(packed, 0, result.packed, 0, packed.length);
+        return result;
+    }
+
+    @Override
+    SymmetricMatrix scaled(double scale) {
+        SymmetricMatrix result = new SymmetricMatrix(n);
+        for (int i = 0; i < packed.length; i++) {
+            result.packed[i] = scale * packed[i];
+        }
+        return result;
+    }
+
+    /**
+     * Walks the packed lower triangle once, using each stored value for both of the cells it stands for.
+     */
+    @Override
+    double[] multiplyVector(double[] x) {
+        double[] result = new double[n];
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            double xi = x[i];
+            for (int j = 0; j < i; j++) {
+                double aij = packed[p++];
+                sum += aij * x[j];
+                result[j] += aij * xi;
+            }
+            result[i] += sum + packed[p++] * xi;
+        }
+        return result;
+    }
+
+    /**
+     * Walks the packed lower triangle once, adding each stored value's contribution to both rows it stands for.
+     */
+    @Override
+    double[] multiplyRight(double[] b, int bColumns) {
+        double[] result = new double[n * bColumns];
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            int iRow = i * bColumns;
+            for (int j = 0; j <= i; j++) {
+                double aij = packed[p++];
+                if (aij == 0) {
+                    continue;
+                }
+                int jRow = j * bColumns;
+                for (int c = 0; c < bColumns; c++) {
+                    result[iRow + c] += aij * b[jRow + c];
+                }
+                if (j != i) {
+                    for (int c = 0; c < bColumns; c++) {
+                        result[jRow + c] += aij * b[iRow + c];
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
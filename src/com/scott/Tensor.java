@@ -0,0 +1,374 @@
+package com.scott;
+
+import java.util.Arrays;
+
+/**
+ * Tensor is an array of doubles with any number of dimensions, laid over a flat array with a shape and strides like a
+ * NumPy array. Element (i0, i1, ..., ik) is at data[offset + i0 * strides[0] + ... + ik * strides[k]].
+ * A tensor made from a shape or an array is row major and contiguous. reshape, permute, transpose, slice, select and
+ * broadcastTo return views that share the same array and only change the shape, strides and offset, so they don't
+ * copy anything, and writing through a view changes the tensor it came from.
+ * A 2 dimensional tensor can be made from a Matrix and turned back into one without copying. The element-wise
+ * operations, matrixMultiply and the reductions are in AdvancedMath, next to the ones for Matrix and MatrixBatch.
+ */
+public final class Tensor {
+    private final double[] data;
+    private final int offset;
+    private final int[] shape, strides;
+    private final int size;
+
+    /**
+     * Constructor for a tensor of zeros.
+     * @param shape size of each dimension
+     */
+    public Tensor(int... shape) {
+        this(new double[checkShape(shape)], shape);
+    }
+
+    /**
+     * Constructor for a row major tensor backed by an existing array. The array is used directly, not copied.
+     * @param data array of doubles, must be of the size of the shape's product
+     * @param shape size of each dimension
+     */
+    public Tensor(double[] data, int... shape) {
+        size = checkShape(shape);
+        if (data.length != size) {
+            throw new IllegalArgumentException("Dimensions do not match provided tensor size.");
+        }
+        this.data = data;
+        offset = 0;
+        this.shape = shape.clone();
+        strides = rowMajor(shape);
+    }
+
+    /**
+     * Constructor for a 2 dimensional tensor that shares the backing array of a Matrix, so changes to one show in the
+     * other. Immutable and structured matrices hand out copies of their values, so the tensor gets a copy.
+     * @param m matrix
+     */
+    public Tensor(Matrix m) {
+        this(m.getMatrixArray(), m.getRows(), m.getColumns());
+    }
+
+    /**
+     * Constructor for a view, the arguments are not checked or copied.
+     */
+    Tensor(double[] data, int offset, int[] shape, int[] strides) {
+        this.data = data;
+        this.offset = offset;
+        this.shape = shape;
+        this.strides = strides;
+        int product = 1;
+        for (int dim : shape) {
+            product *= dim;
+        }
+        size = product;
+    }
+
+    private static int checkShape(int[] shape) {
+        if (shape.length < 1) {
+            throw new IllegalArgumentException("A tensor needs at least 1 dimension.");
+        }
+        long product = 1;
+        for (int dim : shape) {
+            if (dim < 1) {
+                throw new IllegalArgumentException("The minimum size of every dimension is 1.");
+            }
+            product *= dim;
+            if (product > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The tensor has too many elements.");
+            }
+        }
+        return (int) product;
+    }
+
+    static int[] rowMajor(int[] shape) {
+        int[] strides = new int[shape.length];
+        int stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+        return strides;
+    }
+
+    /**
+     *
+     * @return copy of the size of each dimension
+     */
+    public int[] getShape() {
+        return shape.clone();
+    }
+
+    /**
+     *
+     * @return copy of the number of array elements between neighbours along each dimension, 0 for broadcast ones
+     */
+    public int[] getStrides() {
+        return strides.clone();
+    }
+
+    /**
+     *
+     * @return number of dimensions
+     */
+    public int getRank() {
+        return shape.length;
+    }
+
+    /**
+     *
+     * @return number of elements
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * A tensor is contiguous when its elements sit next to each other in row major order, like a tensor made from a
+     * shape. Dimensions of size 1 don't matter.
+     * @return true if the tensor is contiguous
+     */
+    public boolean isContiguous() {
+        int stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            if (shape[d] != 1 && strides[d] != stride) {
+                return false;
+            }
+            stride *= shape[d];
+        }
+        return true;
+    }
+
+    double[] data() {
+        return data;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int shape(int axis) {
+        return shape[axis];
+    }
+
+    int stride(int axis) {
+        return strides[axis];
+    }
+
+    private int index(int[] index) {
+        if (index.length != shape.length) {
+            throw new IllegalArgumentException("There must be one index for every dimension.");
+        }
+        int at = offset;
+        for (int d = 0; d < shape.length; d++) {
+            if (index[d] < 0 || index[d] >= shape[d]) {
+                throw new IllegalArgumentException("Indices are out of bounds.");
+            }
+            at += index[d] * strides[d];
+        }
+        return at;
+    }
+
+    /**
+     * Returns the value at the specified position.
+     * @param index one index per dimension
+     * @return value at the position
+     */
+    public double get(int... index) {
+        return data[index(index)];
+    }
+
+    /**
+     * Sets the value at the specified position. Every position of a broadcast dimension is the same element.
+     * @param value value to set
+     * @param index one index per dimension
+     */
+    public void set(double value, int... index) {
+        data[index(index)] = value;
+    }
+
+    private void checkAxis(int axis) {
+        if (axis < 0 || axis >= shape.length) {
+            throw new IllegalArgumentException("The axis is out of bounds.");
+        }
+    }
+
+    /**
+     * Returns the same elements in row major order with a new shape. One dimension may be -1, in which case it is
+     * worked out from the others. A contiguous tensor is reshaped without copying, any other tensor is copied first.
+     * @param newShape size of each dimension
+     * @return tensor with the new shape
+     */
+    public Tensor reshape(int... newShape) {
+        newShape = newShape.clone();
+        int unknown = -1;
+        long known = 1;
+        for (int d = 0; d < newShape.length; d++) {
+            if (newShape[d] == -1) {
+                if (unknown >= 0) {
+                    throw new IllegalArgumentException("Only one dimension can be -1.");
+                }
+                unknown = d;
+            } else {
+                known *= newShape[d];
+            }
+        }
+        if (unknown >= 0) {
+            if (known < 1 || size % known != 0) {
+                throw new IllegalArgumentException("The new shape must have the same number of elements.");
+            }
+            newShape[unknown] = (int) (size / known);
+        }
+        if (checkShape(newShape) != size) {
+            throw new IllegalArgumentException("The new shape must have the same number of elements.");
+        }
+        if (!isContiguous()) {
+            return copy().reshape(newShape);
+        }
+        return new Tensor(data, offset, newShape, rowMajor(newShape));
+    }
+
+    /**
+     * Returns a view with the dimensions reordered, dimension d of the result is dimension axes[d] of this tensor.
+     * @param axes a permutation of 0 to rank - 1
+     * @return view with the dimensions reordered
+     */
+    public Tensor permute(int... axes) {
+        if (axes.length != shape.length) {
+            throw new IllegalArgumentException("The axes must be a permutation of the dimensions.");
+        }
+        boolean[] seen = new boolean[shape.length];
+        int[] newShape = new int[shape.length];
+        int[] newStrides = new int[shape.length];
+        for (int d = 0; d < axes.length; d++) {
+            if (axes[d] < 0 || axes[d] >= shape.length || seen[axes[d]]) {
+                throw new IllegalArgumentException("The axes must be a permutation of the dimensions.");
+            }
+            seen[axes[d]] = true;
+            newShape[d] = shape[axes[d]];
+            newStrides[d] = strides[axes[d]];
+        }
+        return new Tensor(data, offset, newShape, newStrides);
+    }
+
+    /**
+     * Returns a view with the last 2 dimensions swapped, so every matrix in a batch of them is transposed.
+     * @return transposed view
+     */
+    public Tensor transpose() {
+        if (shape.length < 2) {
+            throw new IllegalArgumentException("A tensor needs at least 2 dimensions to transpose.");
+        }
+        int[] axes = new int[shape.length];
+        for (int d = 0; d < axes.length; d++) {
+            axes[d] = d;
+        }
+        axes[axes.length - 2] = axes.length - 1;
+        axes[axes.length - 1] = axes.length - 2;
+        return permute(axes);
+    }
+
+    /**
+     * Returns a view of the positions from up to but not including to along one dimension.
+     * @param axis dimension to slice
+     * @param from first position to keep
+     * @param to position after the last one to keep
+     * @return view of the slice
+     */
+    public Tensor slice(int axis, int from, int to) {
+        checkAxis(axis);
+        if (from < 0 || to > shape[axis] || from >= to) {
+            throw new IllegalArgumentException("The slice is out of bounds.");
+        }
+        int[] newShape = shape.clone();
+        newShape[axis] = to - from;
+        return new Tensor(data, offset + from * strides[axis], newShape, strides.clone());
+    }
+
+    /**
+     * Returns a view of one position along a dimension, with that dimension removed, so select(0, i) is matrix i of
+     * a batch.
+     * @param axis dimension to remove
+     * @param index position along it
+     * @return view with one dimension fewer
+     */
+    public Tensor select(int axis, int index) {
+        checkAxis(axis);
+        if (shape.length < 2) {
+            throw new IllegalArgumentException("A tensor needs at least 2 dimensions to select from.");
+        }
+        if (index < 0 || index >= shape[axis]) {
+            throw new IllegalArgumentException("Indices are out of bounds.");
+        }
+        int[] newShape = new int[shape.length - 1];
+        int[] newStrides = new int[shape.length - 1];
+        for (int d = 0, e = 0; d < shape.length; d++) {
+            if (d != axis) {
+                newShape[e] = shape[d];
+                newStrides[e++] = strides[d];
+            }
+        }
+        return new Tensor(data, offset + index * strides[axis], newShape, newStrides);
+    }
+
+    /**
+     * Returns a view with a larger shape by the NumPy broadcasting rules. The shapes are lined up from the last
+     * dimension, every dimension must match or be 1 in this tensor, and missing leading dimensions count as 1. A
+     * dimension of size 1 is repeated by giving it a stride of 0, so nothing is copied.
+     * @param newShape size of each dimension of the result
+     * @return broadcast view
+     */
+    public Tensor broadcastTo(int... newShape) {
+        checkShape(newShape);
+        int extra = newShape.length - shape.length;
+        if (extra < 0) {
+            throw new IllegalArgumentException("The tensor can't be broadcast to the shape.");
+        }
+        int[] newStrides = new int[newShape.length];
+        for (int d = 0; d < shape.length; d++) {
+            if (shape[d] == newShape[extra + d]) {
+                newStrides[extra + d] = strides[d];
+            } else if (shape[d] != 1) {
+                throw new IllegalArgumentException("The tensor can't be broadcast to the shape.");
+            }
+        }
+        return new Tensor(data, offset, newShape.clone(), newStrides);
+    }
+
+    /**
+     * Returns a contiguous copy that doesn't share anything with this tensor.
+     * @return copy
+     */
+    public Tensor copy() {
+        return new Tensor(toArray(), shape);
+    }
+
+    /**
+     * Returns a copy of the elements in row major order.
+     * @return new array of getSize() elements
+     */
+    public double[] toArray() {
+        if (isContiguous()) {
+            return Arrays.copyOfRange(data, offset, offset + size);
+        }
+        double[] result = new double[size];
+        TensorKernels.copy(this, new Tensor(result, 0, shape, rowMajor(shape)));
+        return result;
+    }
+
+    /**
+     * Turns a 2 dimensional tensor into a Matrix. A contiguous tensor that covers its whole array, like one made from
+     * a Matrix, shares the array with the matrix, anything else is copied.
+     * @return matrix with the tensor's rows and columns
+     */
+    public Matrix toMatrix() {
+        if (shape.length != 2) {
+            throw new IllegalArgumentException("Only a tensor with 2 dimensions can be turned into a matrix.");
+        }
+        if (offset == 0 && data.length == size && isContiguous()) {
+            return new Matrix(shape[0], shape[1], data);
+        }
+        return new Matrix(shape[0], shape[1], toArray());
+    }
+}
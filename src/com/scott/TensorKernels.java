@@ -0,0 +1,381 @@
+package com.scott;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Strided loops behind the Tensor operations in AdvancedMath. Every loop walks its tensors one row at a time, where a
+ * row is a run along the last dimension, after dimensions of size 1 are dropped and neighbouring dimensions that
+ * every tensor steps through as one are merged. A contiguous tensor is then a single long row however many
+ * dimensions it has, and the inner loops only deal with a start and a stride per tensor.
+ */
+final class TensorKernels {
+    /**
+     * Smallest number of flops in a batched multiply worth splitting over threads.
+     */
+    private static final long PARALLEL_WORK = 1 << 18;
+
+    private TensorKernels() {
+    }
+
+    enum Op {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, MIN, MAX
+    }
+
+    interface Row {
+        /**
+         * @param at array index of the first element of the run in each tensor
+         * @param length number of elements in the run
+         */
+        void run(int[] at, int length);
+    }
+
+    /**
+     * Shape and strides of some tensors of the same shape with the dimensions collapsed as far as they can be.
+     */
+    private static final class Layout {
+        final int[] shape;
+        final int[][] strides;
+        final int[] offsets;
+        final int rows, length;
+
+        Layout(Tensor... tensors) {
+            int rank = tensors[0].getRank();
+            int count = tensors.length;
+            int[] collapsed = new int[rank];
+            int[][] steps = new int[count][rank];
+            int dims = 0;
+            for (int d = 0; d < rank; d++) {
+                int size = tensors[0].shape(d);
+                if (size == 1) {
+                    continue;
+                }
+                boolean merge = dims > 0;
+                for (int t = 0; t < count && merge; t++) {
+                    merge = steps[t][dims - 1] == tensors[t].stride(d) * size;
+                }
+                if (merge) {
+                    collapsed[dims - 1] *= size;
+                } else {
+                    collapsed[dims++] = size;
+                }
+                for (int t = 0; t < count; t++) {
+                    steps[t][dims - 1] = tensors[t].stride(d);
+                }
+            }
+            if (dims == 0) {
+                collapsed[dims++] = 1;
+            }
+            shape = new int[dims];
+            System.arraycopy(collapsed, 0, shape, 0, dims);
+            strides = new int[count][dims];
+            offsets = new int[count];
+            for (int t = 0; t < count; t++) {
+                System.arraycopy(steps[t], 0, strides[t], 0, dims);
+                offsets[t] = tensors[t].offset();
+            }
+            length = shape[dims - 1];
+            rows = tensors[0].getSize() / length;
+        }
+
+        int step(int tensor) {
+            return strides[tensor][shape.length - 1];
+        }
+    }
+
+    /**
+     * Runs body over every row, in parallel when there are more elements than ParallelArrays' threshold. Rows are
+     * handed out in chunks, and a row longer than the threshold is also split into pieces if divisible is true.
+     */
+    private static void forEachRow(Layout layout, boolean divisible, Row body) {
+        int threshold = Math.max(1, ParallelArrays.threshold);
+        int rows = layout.rows, length = layout.length;
+        if ((long) rows * length <= threshold) {
+            walk(layout, 0, rows, 0, length, body);
+        } else if (divisible && length >= threshold) {
+            int segments = (length + threshold - 1) / threshold;
+            int segment = (length + segments - 1) / segments;
+            IntStream.range(0, rows * segments).parallel().forEach(u -> {
+                int row = u / segments;
+                int from = u % segments * segment;
+                walk(layout, row, row + 1, from, Math.min(length, from + segment), body);
+            });
+        } else {
+            int chunk = Math.max(1, threshold / length);
+            int chunks = (rows + chunk - 1) / chunk;
+            IntStream.range(0, chunks).parallel().forEach(c -> walk(layout, c * chunk,
+                    Math.min(rows, (c + 1) * chunk), 0, length, body));
+        }
+    }
+
+    /**
+     * Runs body over elements [start, end) of rows [from, to), stepping through the outer dimensions like an odometer.
+     */
+    private static void walk(Layout layout, int from, int to, int start, int end, Row body) {
+        int[] shape = layout.shape;
+        int[][] strides = layout.strides;
+        int outer = shape.length - 1;
+        int count = strides.length;
+        int[] index = new int[outer];
+        int[] base = layout.offsets.clone();
+        int[] at = new int[count];
+        int row = from;
+        for (int d = outer - 1; d >= 0; d--) {
+            index[d] = row % shape[d];
+            row /= shape[d];
+            for (int t = 0; t < count; t++) {
+                base[t] += index[d] * strides[t][d];
+            }
+        }
+        for (row = from; row < to; row++) {
+            for (int t = 0; t < count; t++) {
+                at[t] = base[t] + start * strides[t][outer];
+            }
+            body.run(at, end - start);
+            for (int d = outer - 1; d >= 0; d--) {
+                for (int t = 0; t < count; t++) {
+                    base[t] += strides[t][d];
+                }
+                if (++index[d] < shape[d]) {
+                    break;
+                }
+                for (int t = 0; t < count; t++) {
+                    base[t] -= strides[t][d] * shape[d];
+                }
+                index[d] = 0;
+            }
+        }
+    }
+
+    /**
+     * Shape that tensors of shapes a and b broadcast to by the NumPy rules, or null if there is none.
+     */
+    static int[] broadcastShape(int[] a, int[] b) {
+        int rank = Math.max(a.length, b.length);
+        int[] shape = new int[rank];
+        for (int d = 0; d < rank; d++) {
+            int x = d < rank - a.length ? 1 : a[d - rank + a.length];
+            int y = d < rank - b.length ? 1 : b[d - rank + b.length];
+            if (x != y && x != 1 && y != 1) {
+                return null;
+            }
+            shape[d] = Math.max(x, y);
+        }
+        return shape;
+    }
+
+    /**
+     * Copies in to out, which have the same shape.
+     */
+    static void copy(Tensor in, Tensor out) {
+        Layout layout = new Layout(in, out);
+        double[] x = in.data(), z = out.data();
+        int sx = layout.step(0), sz = layout.step(1);
+        forEachRow(layout, true, (at, n) -> {
+            if (sx == 1 && sz == 1) {
+                System.arraycopy(x, at[0], z, at[1], n);
+                return;
+            }
+            for (int i = 0, xi = at[0], zi = at[1]; i < n; i++, xi += sx, zi += sz) {
+                z[zi] = x[xi];
+            }
+        });
+    }
+
+    /**
+     * Writes op(a, b) to out element by element, where a, b and out have the same shape. out may be a or b.
+     */
+    static void zip(Op op, Tensor a, Tensor b, Tensor out) {
+        Layout layout = new Layout(a, b, out);
+        double[] x = a.data(), y = b.data(), z = out.data();
+        int sx = layout.step(0), sy = layout.step(1), sz = layout.step(2);
+        forEachRow(layout, true, (at, n) -> {
+            if (sx == 1 && sy == 1 && sz == 1) {
+                zipContiguous(op, x, at[0], y, at[1], z, at[2], n);
+            } else {
+                zipStrided(op, x, at[0], sx, y, at[1], sy, z, at[2], sz, n);
+            }
+        });
+    }
+
+    private static void zipContiguous(Op op, double[] x, int xi, double[] y, int yi, double[] z, int zi, int n) {
+        switch (op) {
+            case ADD:
+                for (int i = 0; i < n; i++) {
+                    z[zi + i] = x[xi + i] + y[yi + i];
+                }
+                break;
+            case SUBTRACT:
+                for (int i = 0; i < n; i++) {
+                    z[zi + i] = x[xi + i] - y[yi + i];
+                }
+                break;
+            case MULTIPLY:
+                for (int i = 0; i < n; i++) {
+                    z[zi + i] = x[xi + i] * y[yi + i];
+                }
+                break;
+            case DIVIDE:
+                for (int i = 0; i < n; i++) {
+                    z[zi + i] = x[xi + i] / y[yi + i];
+                }
+                break;
+            default:
+                zipStrided(op, x, xi, 1, y, yi, 1, z, zi, 1, n);
+        }
+    }
+
+    private static void zipStrided(Op op, double[] x, int xi, int sx, double[] y, int yi, int sy, double[] z, int zi,
+                                   int sz, int n) {
+        for (int i = 0; i < n; i++, xi += sx, yi += sy, zi += sz) {
+            z[zi] = apply(op, x[xi], y[yi]);
+        }
+    }
+
+    private static double apply(Op op, double x, double y) {
+        switch (op) {
+            case ADD:
+                return x + y;
+            case SUBTRACT:
+                return x - y;
+            case MULTIPLY:
+                return x * y;
+            case DIVIDE:
+                return x / y;
+            case MIN:
+                return Math.min(x, y);
+            default:
+                return Math.max(x, y);
+        }
+    }
+
+    /**
+     * Reduces in along an axis with op, which must be ADD, MIN or MAX, into out, a contiguous tensor with in's shape
+     * without the axis. Along the last axis every row folds to one value. Along any other axis the slices at each
+     * position of the axis are combined into out one after another, so the loops still run along the last dimension.
+     * A last axis of size 1 in a tensor of 2 or more dimensions takes the second path, since Layout drops it and the
+     * rows would run along another one.
+     */
+    static void reduce(Op op, Tensor in, int axis, Tensor out) {
+        int last = in.getRank() - 1;
+        if (axis == last && (last == 0 || in.shape(axis) > 1)) {
+            int[] shape = in.getShape();
+            int[] strides = Tensor.rowMajor(shape);
+            for (int d = last; d >= 0; d--) {
+                strides[d] = d == last ? 0 : strides[d] / shape[last];
+            }
+            Tensor target = new Tensor(out.data(), out.offset(), shape, strides);
+            Layout layout = new Layout(in, target);
+            double[] x = in.data(), z = out.data();
+            int sx = layout.step(0);
+            forEachRow(layout, false, (at, n) -> z[at[1]] = fold(op, x, at[0], sx, n));
+            return;
+        }
+        copy(in.select(axis, 0), out);
+        for (int k = 1; k < in.shape(axis); k++) {
+            zip(op, out, in.select(axis, k), out);
+        }
+    }
+
+    private static double fold(Op op, double[] x, int at, int step, int n) {
+        if (op != Op.ADD) {
+            double result = x[at];
+            for (int i = 1; i < n; i++) {
+                result = apply(op, result, x[at + i * step]);
+            }
+            return result;
+        }
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4, at += 4 * step) {
+            s0 += x[at];
+            s1 += x[at + step];
+            s2 += x[at + 2 * step];
+            s3 += x[at + 3 * step];
+        }
+        for (; i < n; i++, at += step) {
+            s0 += x[at];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * True if every matrix in the last 2 dimensions of t is row major, as the multiply kernel needs.
+     */
+    private static boolean rowMajorMatrices(Tensor t) {
+        int r = t.getRank();
+        return (t.shape(r - 1) == 1 || t.stride(r - 1) == 1)
+                && (t.shape(r - 2) == 1 || t.stride(r - 2) == t.shape(r - 1));
+    }
+
+    /**
+     * Multiplies the matrices in the last 2 dimensions of a and b, with the dimensions before them broadcast to
+     * batch. Matrices that aren't row major are copied first, which costs little next to the multiply. When b is the
+     * same matrix for the whole batch and the matrices of a follow each other, the batch is folded into the rows of
+     * one multiply. Each multiply runs on AdvancedMath's blocked kernel, split by batch and by rows over threads.
+     */
+    static Tensor matrixMultiply(Tensor a, Tensor b, int[] batch) {
+        if (!rowMajorMatrices(a)) {
+            a = a.copy();
+        }
+        if (!rowMajorMatrices(b)) {
+            b = b.copy();
+        }
+        int m = a.shape(a.getRank() - 2), k = a.shape(a.getRank() - 1), n = b.shape(b.getRank() - 1);
+        int rank = batch.length + 2;
+        int[] shape = new int[rank];
+        System.arraycopy(batch, 0, shape, 0, batch.length);
+        shape[rank - 2] = m;
+        shape[rank - 1] = k;
+        Tensor left = a.broadcastTo(shape);
+        shape[rank - 2] = k;
+        shape[rank - 1] = n;
+        Tensor right = b.broadcastTo(shape);
+        shape[rank - 2] = m;
+        Tensor result = new Tensor(shape);
+        int batches = result.getSize() / (m * n);
+        boolean shared = true;
+        for (int d = 0; d < batch.length; d++) {
+            shared &= right.stride(d) == 0 || batch[d] == 1;
+        }
+        int rows = m;
+        if (batches > 1 && shared && left.isContiguous()) {
+            rows = batches * m;
+            batches = 1;
+        }
+        double[] x = left.data(), y = right.data(), z = result.data();
+        long flops = 2L * batches * rows * k * n;
+        int parts = 1;
+        if (flops >= PARALLEL_WORK) {
+            int tasks = 4 * ForkJoinPool.getCommonPoolParallelism();
+            parts = Math.max(1, Math.min(rows, (tasks + batches - 1) / batches));
+        }
+        int slice = (rows + parts - 1) / parts;
+        int slices = (rows + slice - 1) / slice;
+        int count = batches, height = rows;
+        IntStream tasks = IntStream.range(0, count * slices);
+        if (count * slices > 1) {
+            tasks = tasks.parallel();
+        }
+        tasks.forEach(u -> {
+            int matrix = u / slices;
+            int from = u % slices * slice;
+            int to = Math.min(height, from + slice);
+            AdvancedMath.multiply(x, batchOffset(left, matrix, batch) + from * k, y, batchOffset(right, matrix, batch),
+                    z, (matrix * height + from) * n, to - from, k, n);
+        });
+        return result;
+    }
+
+    /**
+     * Array index of the first element of matrix number index, counting row major over the batch dimensions.
+     */
+    private static int batchOffset(Tensor t, int index, int[] batch) {
+        int at = t.offset();
+        for (int d = batch.length - 1; d >= 0; d--) {
+            at += index % batch[d] * t.stride(d);
+            index /= batch[d];
+        }
+        return at;
+    }
+}
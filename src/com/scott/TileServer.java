@@ -0,0 +1,200 @@
+package com.scott;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * TileServer is the worker side of a SocketTransport. It listens on a port and multiplies the tiles every connected
+ * client sends, one connection per thread. Run it in its own JVM on each worker machine with
+ * <pre>
+ * java -cp advanced-maths.jar com.scott.TileServer 7171 0.0.0.0
+ * </pre>
+ * or start it in the current JVM, which is how several workers can be tested on one machine. Anyone who can connect
+ * can use the server, so it only listens on the loopback address unless it is given another one.
+ * <p>
+ * Each request is an int tile count followed by that many tiles of A and then that many tiles of B. A tile is its
+ * int row and column counts followed by its values as doubles, row by row. The reply is a 0 byte followed by the
+ * result tile, or a 1 byte followed by an error message. Counts and sizes are checked before anything is allocated
+ * for them; after a request that can't be read the error is sent and the connection is closed.
+ */
+public class TileServer implements AutoCloseable {
+    /**
+     * Port used by main when none is given.
+     */
+    public static final int DEFAULT_PORT = 7171;
+
+    /**
+     * Most tiles of A, and of B, in one request.
+     */
+    static final int MAX_TILE_COUNT = 1 << 16;
+
+    /**
+     * Most values in one tile, 128 MB of doubles.
+     */
+    static final int MAX_TILE_ELEMENTS = 1 << 24;
+
+    private final ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    /**
+     * Constructor for a server listening on a port of the loopback address. Nothing is accepted until start is
+     * called.
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port can't be opened
+     */
+    public TileServer(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Constructor for a server listening on a port of one address. Nothing is accepted until start is called.
+     * @param bindAddress address to listen on, the wildcard address for every interface
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port can't be opened
+     */
+    public TileServer(InetAddress bindAddress, int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, bindAddress);
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     * @return this server
+     */
+    public TileServer start() {
+        Thread acceptor = new Thread(this::acceptLoop, "tile-server-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     *
+     * @return Port the server is listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread handler = new Thread(() -> serve(socket), "tile-server-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            while (!closed) {
+                int count;
+                try {
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                Matrix[] aRow, bColumn;
+                try {
+                    if (count < 1 || count > MAX_TILE_COUNT) {
+                        throw new IOException("Request has " + count + " tiles.");
+                    }
+                    aRow = new Matrix[count];
+                    bColumn = new Matrix[count];
+                    for (int t = 0; t < count; t++) {
+                        aRow[t] = readTile(in);
+                    }
+                    for (int t = 0; t < count; t++) {
+                        bColumn[t] = readTile(in);
+                    }
+                } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                    // Where the next request starts can't be known any more, so the connection ends here.
+                    out.writeByte(1);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                    out.flush();
+                    return;
+                }
+                Matrix result;
+                try {
+                    result = DistributedMultiply.multiplyTiles(aRow, bColumn);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    out.writeByte(1);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                    out.flush();
+                    continue;
+                }
+                out.writeByte(0);
+                writeTile(out, result);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away, it will reconnect if it needs to.
+        }
+    }
+
+    static void writeTile(DataOutputStream out, Matrix tile) throws IOException {
+        out.writeInt(tile.getRows());
+        out.writeInt(tile.getColumns());
+        for (double value : tile.data()) {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Reads a tile, checking its size before allocating it, so a corrupt or hostile stream can't ask for more
+     * than MAX_TILE_ELEMENTS values.
+     */
+    static Matrix readTile(DataInputStream in) throws IOException {
+        int rows = in.readInt(), cols = in.readInt();
+        if (rows < 1 || cols < 1) {
+            throw new IOException("Tile has " + rows + " rows and " + cols + " columns.");
+        }
+        if ((long) rows * cols > MAX_TILE_ELEMENTS) {
+            throw new IOException("Tile is larger than " + MAX_TILE_ELEMENTS + " values.");
+        }
+        double[] values = new double[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return new Matrix(rows, cols, values);
+    }
+
+    /**
+     * Stops accepting connections. Connections that are already open end after their current request.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+    }
+
+    /**
+     * Runs a server until the JVM is stopped.
+     * @param args the port to listen on, DEFAULT_PORT if not given, and the address to listen on, the loopback
+     *             address if not given
+     * @throws IOException if the port can't be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        InetAddress bindAddress = args.length > 1 ? InetAddress.getByName(args[1])
+                : InetAddress.getLoopbackAddress();
+        TileServer server = new TileServer(bindAddress, port);
+        System.out.println("Tile server listening on " + bindAddress.getHostAddress() + " port "
+                + server.getPort());
+        server.acceptLoop();
+    }
+}
@@ -0,0 +1,30 @@
+package com.scott;
+
+import java.io.IOException;
+
+/**
+ * TileTransport sends tiles of a distributed multiply to one worker and brings back the result. DistributedMultiply
+ * calls a transport from one thread at a time, so implementations don't need to be thread safe.
+ */
+public interface TileTransport extends AutoCloseable {
+    /**
+     * Calculates aRow[0]*bColumn[0] + aRow[1]*bColumn[1] + ... on the worker.
+     * @param aRow tiles from one row of tiles of A
+     * @param bColumn tiles from the matching column of tiles of B
+     * @return sum of the tile products
+     * @throws IOException if the worker could not be reached or failed, the tiles will be tried again
+     */
+    Matrix multiplyTiles(Matrix[] aRow, Matrix[] bColumn) throws IOException;
+
+    /**
+     *
+     * @return Name of the worker, used in its statistics.
+     */
+    String getName();
+
+    /**
+     * Releases any connection to the worker.
+     */
+    @Override
+    void close() throws IOException;
+}
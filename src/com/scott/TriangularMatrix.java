@@ -0,0 +1,180 @@
+package com.scott;
+
+/**
+ * TriangularMatrix is a square matrix that can only be non-zero on and below its diagonal (lower) or on and above it
+ * (upper). Only that triangle is stored, packed row by row into n(n+1)/2 doubles. Its determinant is the product of
+ * the diagonal and solving with it is O(n^2) forward or back substitution.
+ */
+public class TriangularMatrix extends StructuredMatrix {
+    private final int n;
+    private final boolean lower;
+    private final double[] packed;
+
+    /**
+     * Constructor for an empty triangular matrix.
+     * @param dim number of rows and columns
+     * @param lower true for a lower triangular matrix, false for upper
+     */
+    public TriangularMatrix(int dim, boolean lower) {
+        super(dim, dim);
+        this.n = dim;
+        this.lower = lower;
+        this.packed = new double[dim * (dim + 1) / 2];
+    }
+
+    /**
+     * Constructor for a copy of one triangle of a square matrix. The cells outside the triangle are ignored.
+     * @param m square matrix
+     * @param lower true to copy the lower triangle, false for the upper one
+     */
+    public TriangularMatrix(Matrix m, boolean lower) {
+        this(checkSquare(m), lower);
+        for (int i = 0; i < n; i++) {
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                packed[index(i, j)] = m.getCell(i, j);
+            }
+        }
+    }
+
+    private static int checkSquare(Matrix m) {
+        if (m.getRows() != m.getColumns()) {
+            throw new IllegalArgumentException("Matrix must have same number of " +
+                    "rows and columns to make a triangular matrix.");
+        }
+        return m.getRows();
+    }
+
+    /**
+     *
+     * @return true if the matrix is lower triangular, false if it is upper triangular.
+     */
+    public boolean isLower() {
+        return lower;
+    }
+
+    private int index(int row, int col) {
+        if (lower) {
+            return row * (row + 1) / 2 + col;
+        }
+        // Rows before this one hold n, n-1, ... n-row+1 values.
+        return row * n - row * (row - 1) / 2 + (col - row);
+    }
+
+    private boolean inside(int row, int col) {
+        return lower ? col <= row : col >= row;
+    }
+
+    @Override
+    double get(int row, int col) {
+        return inside(row, col) ? packed[index(row, col)] : 0;
+    }
+
+    @Override
+    void set(int row, int col, double value) {
+        if (inside(row, col)) {
+            packed[index(row, col)] = value;
+        } else {
+            checkZero(value);
+        }
+    }
+
+    @Override
+    int rowStart(int row) {
+        return lower ? 0 : row;
+    }
+
+    @Override
+    int rowEnd(int row) {
+        return lower ? row + 1 : n;
+    }
+
+    /**
+     * The array the stored values are kept in.
+     */
+    double[] storage() {
+        return packed;
+    }
+
+    @Override
+    public int getStorageSize() {
+        return packed.length;
+    }
+
+    /**
+     *
+     * @return Matrix with swapped rows and columns, upper triangular if this is lower and the other way around.
+     */
+    @Override
+    public TriangularMatrix transpose() {
+        TriangularMatrix result = new TriangularMatrix(n, !lower);
+        for (int i = 0; i < n; i++) {
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                result.packed[result.index(j, i)] = packed[index(i, j)];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    TriangularMatrix scaled(double scale) {
+        TriangularMatrix result = new TriangularMatrix(n, lower);
+        for (int i = 0; i < packed.length; i++) {
+            result.packed[i] = scale * packed[i];
+        }
+        return result;
+    }
+
+    @Override
+    Double fastDet() {
+        double product = 1;
+        for (int i = 0; i < n; i++) {
+            product *= packed[index(i, i)];
+        }
+        return product;
+    }
+
+    @Override
+    TriangularMatrix fastInverse() {
+        TriangularMatrix result = new TriangularMatrix(n, lower);
+        double[] unit = new double[n];
+        for (int col = 0; col < n; col++) {
+            unit[col] = 1;
+            double[] x = solve(unit);
+            unit[col] = 0;
+            for (int row = 0; row < n; row++) {
+                if (result.inside(row, col)) {
+                    result.packed[result.index(row, col)] = x[row];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Solves T*x = b by forward substitution for a lower triangular matrix or back substitution for an upper one.
+     * @param b vector with one element per row
+     * @return x
+     */
+    public double[] solve(double[] b) {
+        if (b.length != n) {
+            throw new IllegalArgumentException("The number of elements in vector b must match the number of " +
+                    "rows in the matrix.");
+        }
+        double[] x = new double[n];
+        for (int step = 0; step < n; step++) {
+            int i = lower ? step : n - 1 - step;
+            double diag = packed[index(i, i)];
+            if (diag == 0) {
+                throw new IllegalArgumentException("A matrix with a zero determinant has no inverse.");
+            }
+            double sum = b[i];
+            for (int j = rowStart(i); j < rowEnd(i); j++) {
+                if (j != i) {
+                    sum -= packed[index(i, j)] * x[j];
+                }
+            }
+            x[i] = sum / diag;
+        }
+        return x;
+    }
+}
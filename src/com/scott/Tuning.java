@@ -0,0 +1,329 @@
+package com.scott;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Tuning picks the block sizes and serial/parallel cutoffs of the AdvancedMath kernels for the machine it runs on.
+ * Each parameter is tried with a few candidate values on a small benchmark and the fastest is kept. The chosen values
+ * are saved to a profile file, by default ~/.advancedmath/tuning.properties or the path in the
+ * com.scott.tuning.profile system property, and every kernel starts out with the value from the profile, so the
+ * tuning only has to run once per machine. A profile saved on a machine with a different processor count or
+ * architecture is ignored.
+ * Tuning runs in the background the first time AdvancedMath is used if there is no profile and the JVM is started
+ * with -Dcom.scott.tuning.auto=true, or from the command line with
+ * <pre>
+ * java -cp advanced-maths.jar com.scott.Tuning
+ * </pre>
+ * Without a profile the built in defaults are used.
+ */
+public final class Tuning {
+    /**
+     * System property naming the profile file.
+     */
+    public static final String PROFILE_PROPERTY = "com.scott.tuning.profile";
+
+    /**
+     * System property that turns on tuning at first use when there is no profile.
+     */
+    public static final String AUTO_PROPERTY = "com.scott.tuning.auto";
+
+    private static final String PROCESSORS_KEY = "availableProcessors";
+    private static final String ARCH_KEY = "os.arch";
+
+    /**
+     * The parameters that can be tuned, with their defaults and the values tried for each.
+     */
+    public enum Parameter {
+        MULTIPLY_BLOCK_SIZE("multiplyBlockSize", 64, () -> AdvancedMath.multiplyBlockSize,
+                v -> AdvancedMath.multiplyBlockSize = v, 32, 64, 128, 256),
+        TRANSPOSE_BLOCK_SIZE("transposeBlockSize", 32, () -> AdvancedMath.transposeBlockSize,
+                v -> AdvancedMath.transposeBlockSize = v, 8, 16, 32, 64, 128),
+        PARALLEL_THRESHOLD("parallelThreshold", 1 << 15, () -> ParallelArrays.threshold,
+                v -> ParallelArrays.threshold = v, 1 << 13, 1 << 14, 1 << 15, 1 << 16, 1 << 17, 1 << 18),
+        BATCH_CHUNK_SIZE("batchChunkSize", 1024, () -> BatchKernels.chunkSize,
+                v -> BatchKernels.chunkSize = v, 256, 512, 1024, 2048, 4096);
+
+        private final String key;
+        private final int defaultValue;
+        private final IntSupplier getter;
+        private final IntConsumer setter;
+        private final int[] candidates;
+
+        Parameter(String key, int defaultValue, IntSupplier getter, IntConsumer setter, int... candidates) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.getter = getter;
+            this.setter = setter;
+            this.candidates = candidates;
+        }
+
+        /**
+         *
+         * @return Name of the parameter in the profile file.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         *
+         * @return Value currently in use.
+         */
+        public int get() {
+            return getter.getAsInt();
+        }
+
+        /**
+         * Sets the value in use, without saving it.
+         * @param value new value, at least 1
+         */
+        public void set(int value) {
+            if (value < 1) {
+                throw new IllegalArgumentException("Tuning parameters must be at least 1.");
+            }
+            setter.accept(value);
+        }
+
+        /**
+         * Value a kernel starts out with: the one in the startup profile, or the default.
+         */
+        int initialValue() {
+            Integer value = parse(STARTUP_PROFILE, this);
+            return value == null ? defaultValue : value;
+        }
+    }
+
+    /**
+     * The profile read when the class was loaded, null if there was no usable one. It is only read here, not applied,
+     * so loading Tuning never has to wait on loading the kernel classes.
+     */
+    private static final Properties STARTUP_PROFILE = readQuietly(getProfilePath());
+
+    private Tuning() {
+    }
+
+    /**
+     * Starts tuning on a background thread if there was no profile at startup and auto tuning is on. Called once,
+     * while AdvancedMath is being loaded. The benchmarks run kernels on other threads, which would wait forever for
+     * AdvancedMath to finish loading, so they can't run here; until they are done the defaults are used.
+     */
+    static void autoTune() {
+        if (STARTUP_PROFILE != null || !Boolean.getBoolean(AUTO_PROPERTY)) {
+            return;
+        }
+        Thread tuner = new Thread(() -> {
+            tune();
+            try {
+                save(getProfilePath());
+            } catch (IOException e) {
+                // The values are in use for this JVM, the next one will just have to tune again.
+            }
+        }, "advanced-math-tuning");
+        tuner.setDaemon(true);
+        tuner.start();
+    }
+
+    private static Properties readQuietly(Path profile) {
+        try {
+            return read(profile);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a profile, null if it doesn't exist or was saved on a different machine.
+     */
+    private static Properties read(Path profile) throws IOException {
+        if (!Files.isRegularFile(profile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(profile)) {
+            properties.load(in);
+        }
+        if (!String.valueOf(Runtime.getRuntime().availableProcessors()).equals(properties.getProperty(PROCESSORS_KEY))
+                || !System.getProperty("os.arch").equals(properties.getProperty(ARCH_KEY))) {
+            return null;
+        }
+        return properties;
+    }
+
+    private static Integer parse(Properties properties, Parameter parameter) {
+        String value = properties == null ? null : properties.getProperty(parameter.key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     *
+     * @return Path of the profile file.
+     */
+    public static Path getProfilePath() {
+        String path = System.getProperty(PROFILE_PROPERTY);
+        if (path != null) {
+            return Paths.get(path);
+        }
+        return Paths.get(System.getProperty("user.home"), ".advancedmath", "tuning.properties");
+    }
+
+    /**
+     *
+     * @return Every parameter with the value currently in use.
+     */
+    public static Map<Parameter, Integer> getParameters() {
+        Map<Parameter, Integer> values = new LinkedHashMap<>();
+        for (Parameter parameter : Parameter.values()) {
+            values.put(parameter, parameter.get());
+        }
+        return values;
+    }
+
+    /**
+     * Benchmarks the candidate values of every parameter and puts the fastest ones in use. This takes a few seconds.
+     * @return the chosen values
+     */
+    public static Map<Parameter, Integer> tune() {
+        for (Parameter parameter : Parameter.values()) {
+            Runnable benchmark = benchmark(parameter);
+            int best = parameter.get();
+            long bestNanos = Long.MAX_VALUE;
+            for (int candidate : parameter.candidates) {
+                parameter.set(candidate);
+                benchmark.run();
+                long nanos = Long.MAX_VALUE;
+                for (int run = 0; run < 3; run++) {
+                    long start = System.nanoTime();
+                    benchmark.run();
+                    nanos = Math.min(nanos, System.nanoTime() - start);
+                }
+                if (nanos < bestNanos) {
+                    bestNanos = nanos;
+                    best = candidate;
+                }
+            }
+            parameter.set(best);
+        }
+        return getParameters();
+    }
+
+    private static Runnable benchmark(Parameter parameter) {
+        Random random = new Random(1);
+        switch (parameter) {
+            case MULTIPLY_BLOCK_SIZE: {
+                Matrix a = randomMatrix(random, 256), b = randomMatrix(random, 256);
+                return () -> AdvancedMath.matrixMultiply(a, b);
+            }
+            case TRANSPOSE_BLOCK_SIZE: {
+                Matrix a = randomMatrix(random, 1024);
+                return () -> AdvancedMath.transform(a);
+            }
+            case PARALLEL_THRESHOLD: {
+                double[][] arrays = new double[4][];
+                for (int i = 0; i < arrays.length; i++) {
+                    arrays[i] = new double[1 << (14 + 2 * i)];
+                    for (int j = 0; j < arrays[i].length; j++) {
+                        arrays[i][j] = random.nextDouble();
+                    }
+                }
+                return () -> {
+                    for (double[] array : arrays) {
+                        for (int run = 0; run < 8; run++) {
+                            ParallelArrays.scale(1.5, array, array);
+                            ParallelArrays.sum(array);
+                        }
+                    }
+                };
+            }
+            default: {
+                MatrixBatch batch = new MatrixBatch(1 << 16, 3);
+                double[] values = batch.getBatchArray();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextDouble();
+                }
+                return () -> AdvancedMath.det(batch);
+            }
+        }
+    }
+
+    private static Matrix randomMatrix(Random random, int size) {
+        double[] values = new double[size * size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+        }
+        return new Matrix(size, size, values);
+    }
+
+    /**
+     * Puts the values in a profile file in use.
+     * @param profile path of the profile
+     * @return true if the profile was loaded, false if it doesn't exist or was made for a different machine
+     * @throws IOException if the profile can't be read
+     */
+    public static boolean load(Path profile) throws IOException {
+        Properties properties = read(profile);
+        if (properties == null) {
+            return false;
+        }
+        for (Parameter parameter : Parameter.values()) {
+            Integer value = parse(properties, parameter);
+            if (value != null) {
+                parameter.set(value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saves the values currently in use to a profile file, creating its directory if needed.
+     * @param profile path of the profile
+     * @throws IOException if the profile can't be written
+     */
+    public static void save(Path profile) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PROCESSORS_KEY, String.valueOf(Runtime.getRuntime().availableProcessors()));
+        properties.setProperty(ARCH_KEY, System.getProperty("os.arch"));
+        for (Parameter parameter : Parameter.values()) {
+            properties.setProperty(parameter.key, String.valueOf(parameter.get()));
+        }
+        Path parent = profile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(profile)) {
+            properties.store(out, "AdvancedMath tuning profile");
+        }
+    }
+
+    /**
+     * Tunes every parameter and saves the profile.
+     * @param args optional path of the profile, getProfilePath() if not given
+     * @throws IOException if the profile can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path profile = args.length > 0 ? Paths.get(args[0]) : getProfilePath();
+        for (Map.Entry<Parameter, Integer> entry : tune().entrySet()) {
+            System.out.println(entry.getKey().getKey() + " = " + entry.getValue());
+        }
+        save(profile);
+        System.out.println("Saved to " + profile);
+    }
+}
@@ -0,0 +1,115 @@
+package com.scott;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * VectorPipelineStage is a java.util.concurrent.Flow processor that applies a VectorTransform to a stream of chunks,
+ * where each chunk is an array of vectors back to back. Stages can be chained to split a long transform over several
+ * threads: each stage transforms chunks on the thread that delivers them and hands the results to its subscribers on
+ * its own executor.
+ * Backpressure follows the demand of the subscribers. A stage asks its upstream for nothing until its first subscriber
+ * arrives, then for bufferCapacity chunks, and for one more each time it has passed one on. Results wait in a buffer
+ * of bufferCapacity chunks for each subscriber, which only empties as fast as that subscriber requests them; when a
+ * buffer is full the stage blocks the thread delivering its input until there is room, so it stops asking upstream
+ * for more and every buffer in the pipeline stays bounded. Once every subscriber has cancelled, the stage cancels its
+ * upstream.
+ */
+public class VectorPipelineStage implements Flow.Processor<double[], double[]> {
+    private final VectorTransform transform;
+    private final int bufferCapacity;
+    private final SubmissionPublisher<double[]> publisher;
+    private Flow.Subscription upstream;
+    private boolean subscribed;
+    private boolean started;
+
+    /**
+     * Constructor for a stage.
+     * @param transform transform applied to every chunk
+     * @param executor executor used to deliver results to subscribers
+     * @param bufferCapacity largest number of chunks buffered for each subscriber
+     */
+    public VectorPipelineStage(VectorTransform transform, Executor executor, int bufferCapacity) {
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("The buffer capacity must be at least 1.");
+        }
+        this.transform = transform;
+        this.bufferCapacity = bufferCapacity;
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super double[]> subscriber) {
+        publisher.subscribe(subscriber);
+        synchronized (this) {
+            subscribed = true;
+        }
+        start();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        start();
+    }
+
+    /**
+     * Asks upstream for the first chunks once the stage has both an upstream and a subscriber, since the publisher
+     * drops chunks submitted while nobody is subscribed.
+     */
+    private void start() {
+        Flow.Subscription subscription;
+        synchronized (this) {
+            if (started || upstream == null || !subscribed) {
+                return;
+            }
+            started = true;
+            subscription = upstream;
+        }
+        subscription.request(bufferCapacity);
+    }
+
+    @Override
+    public void onNext(double[] chunk) {
+        if (!publisher.hasSubscribers()) {
+            upstream.cancel();
+            publisher.close();
+            return;
+        }
+        double[] result;
+        try {
+            result = transform.apply(chunk);
+        } catch (RuntimeException e) {
+            upstream.cancel();
+            publisher.closeExceptionally(e);
+            return;
+        }
+        publisher.submit(result);
+        upstream.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        publisher.closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        publisher.close();
+    }
+
+    /**
+     *
+     * @return The transform applied by this stage.
+     */
+    public VectorTransform getTransform() {
+        return transform;
+    }
+}
@@ -0,0 +1,228 @@
+package com.scott;
+
+import java.util.Arrays;
+
+/**
+ * VectorTransform is a fixed chain of vector operations, like multiplying by a matrix, normalizing and clamping, that
+ * is built once and then applied to many vectors. Vectors are passed in chunks: one array holding several vectors of
+ * the input dimension back to back. Each vector runs through the whole chain while it is still in cache, using
+ * scratch space sized once when the chain is built.
+ * Transforms are immutable; every method that adds an operation returns a new transform, so a transform can be used
+ * by many threads at once.
+ * <pre>
+ * VectorTransform t = new VectorTransform(3).multiply(rotation).normalize().clamp(-0.5, 0.5);
+ * double[] out = t.apply(chunk);
+ * </pre>
+ */
+public class VectorTransform {
+    private final int inputDimension;
+    private final int outputDimension;
+    private final int maxDimension;
+    private final Step[] steps;
+    /**
+     * Element k is the size of the vectors going into step k, the last element is the output dimension.
+     */
+    private final int[] dimensions;
+
+    /**
+     * Constructor for the identity transform.
+     * @param dimension number of elements in each input vector
+     */
+    public VectorTransform(int dimension) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("The dimension of the vectors must be at least 1.");
+        }
+        this.inputDimension = dimension;
+        this.outputDimension = dimension;
+        this.maxDimension = dimension;
+        this.steps = new Step[0];
+        this.dimensions = new int[]{dimension};
+    }
+
+    private VectorTransform(VectorTransform previous, Step step) {
+        int count = previous.steps.length;
+        this.inputDimension = previous.inputDimension;
+        this.outputDimension = step.outputDimension(previous.outputDimension);
+        this.maxDimension = Math.max(previous.maxDimension, outputDimension);
+        this.steps = Arrays.copyOf(previous.steps, count + 1);
+        this.steps[count] = step;
+        this.dimensions = Arrays.copyOf(previous.dimensions, count + 2);
+        this.dimensions[count + 1] = outputDimension;
+    }
+
+    private interface Step {
+        int outputDimension(int inputDimension);
+
+        /**
+         * Reads a vector of size n from in and writes the result to out. Only InPlaceSteps are given the same array
+         * for both.
+         */
+        void apply(double[] in, int n, double[] out);
+    }
+
+    /**
+     * Adds a multiplication by a matrix, treating each vector as a column vector.
+     * The matrix is copied so later changes to it don't affect the transform.
+     * @param m matrix with as many columns as the current output dimension
+     * @return new transform
+     */
+    public VectorTransform multiply(Matrix m) {
+        if (m.getColumns() != outputDimension) {
+            throw new IllegalArgumentException("The number of columns in the matrix must match the number of " +
+                    "elements in each vector.");
+        }
+        double[] a = m.copyData();
+        int rows = m.getRows(), cols = m.getColumns();
+        return new VectorTransform(this, new Step() {
+            public int outputDimension(int inputDimension) {
+                return rows;
+            }
+
+            public void apply(double[] in, int n, double[] out) {
+                for (int i = 0; i < rows; i++) {
+                    double sum = 0;
+                    int rowStart = i * cols;
+                    for (int j = 0; j < cols; j++) {
+                        sum += a[rowStart + j] * in[j];
+                    }
+                    out[i] = sum;
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a normalization, the same as AdvancedMath.normalize so it doesn't overflow for large elements. Zero vectors
+     * are left as zero.
+     * @return new transform
+     */
+    public VectorTransform normalize() {
+        return new VectorTransform(this, new InPlaceStep() {
+            public void apply(double[] in, int n, double[] out) {
+                double mag = AdvancedMath.norm(in, 0, n);
+                if (mag == 0) {
+                    Arrays.fill(out, 0, n, 0);
+                } else {
+                    AdvancedMath.scale(in, mag, out, 0, n);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a clamp of every element to a range.
+     * @param minimumValue Smallest value in range.
+     * @param maximumValue Largest value in range.
+     * @return new transform
+     */
+    public VectorTransform clamp(double minimumValue, double maximumValue) {
+        return new VectorTransform(this, new InPlaceStep() {
+            public void apply(double[] in, int n, double[] out) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = Math.min(Math.max(in[i], minimumValue), maximumValue);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a multiplication of every element by a scalar.
+     * @param scale scalar number
+     * @return new transform
+     */
+    public VectorTransform scale(double scale) {
+        return new VectorTransform(this, new InPlaceStep() {
+            public void apply(double[] in, int n, double[] out) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = in[i] * scale;
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a vector to every vector.
+     * @param offset vector with one element per element of the current output
+     * @return new transform
+     */
+    public VectorTransform add(double[] offset) {
+        if (offset.length != outputDimension) {
+            throw new IllegalArgumentException("Vectors A and B must be the same size to add.");
+        }
+        double[] b = offset.clone();
+        return new VectorTransform(this, new InPlaceStep() {
+            public void apply(double[] in, int n, double[] out) {
+                for (int i = 0; i < n; i++) {
+                    out[i] = in[i] + b[i];
+                }
+            }
+        });
+    }
+
+    private abstract static class InPlaceStep implements Step {
+        public int outputDimension(int inputDimension) {
+            return inputDimension;
+        }
+    }
+
+    /**
+     * Applies the transform to every vector in a chunk.
+     * @param chunk vectors of the input dimension back to back
+     * @return the transformed vectors back to back
+     */
+    public double[] apply(double[] chunk) {
+        if (chunk.length % inputDimension != 0) {
+            throw new IllegalArgumentException("The chunk size must be a multiple of the vector dimension.");
+        }
+        double[] result = new double[chunk.length / inputDimension * outputDimension];
+        apply(chunk, result);
+        return result;
+    }
+
+    /**
+     * Applies the transform to every vector in a chunk and writes the results into output.
+     * @param chunk vectors of the input dimension back to back
+     * @param output array with room for the same number of vectors of the output dimension
+     */
+    public void apply(double[] chunk, double[] output) {
+        int count = chunk.length / inputDimension;
+        if (chunk.length % inputDimension != 0) {
+            throw new IllegalArgumentException("The chunk size must be a multiple of the vector dimension.");
+        }
+        if (output.length != count * outputDimension) {
+            throw new IllegalArgumentException("The output must hold the same number of vectors as the chunk.");
+        }
+        double[] front = new double[maxDimension];
+        double[] back = new double[maxDimension];
+        for (int v = 0; v < count; v++) {
+            System.arraycopy(chunk, v * inputDimension, front, 0, inputDimension);
+            for (int k = 0; k < steps.length; k++) {
+                if (steps[k] instanceof InPlaceStep) {
+                    steps[k].apply(front, dimensions[k], front);
+                } else {
+                    steps[k].apply(front, dimensions[k], back);
+                    double[] tmp = front;
+                    front = back;
+                    back = tmp;
+                }
+            }
+            System.arraycopy(front, 0, output, v * outputDimension, outputDimension);
+        }
+    }
+
+    /**
+     *
+     * @return Number of elements in each input vector.
+     */
+    public int getInputDimension() {
+        return inputDimension;
+    }
+
+    /**
+     *
+     * @return Number of elements in each output vector.
+     */
+    public int getOutputDimension() {
+        return outputDimension;
+    }
+}
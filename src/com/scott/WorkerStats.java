@@ -0,0 +1,79 @@
+package com.scott;
+
+/**
+ * WorkerStats counts the work one worker of a DistributedMultiply has done, added up over every multiply it took
+ * part in. It is updated while a multiply runs, so it can be read from any thread to watch progress.
+ */
+public final class WorkerStats {
+    private final String name;
+    private long tiles, failures, flops, busyNanos;
+
+    WorkerStats(String name) {
+        this.name = name;
+    }
+
+    synchronized void recordTile(long tileFlops, long nanos) {
+        tiles++;
+        flops += tileFlops;
+        busyNanos += nanos;
+    }
+
+    synchronized void recordFailure(long nanos) {
+        failures++;
+        busyNanos += nanos;
+    }
+
+    /**
+     *
+     * @return Name of the worker's transport.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     *
+     * @return Number of output tiles the worker calculated.
+     */
+    public synchronized long getTiles() {
+        return tiles;
+    }
+
+    /**
+     *
+     * @return Number of times the worker failed to calculate a tile.
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     *
+     * @return Number of floating point operations in the tiles the worker calculated.
+     */
+    public synchronized long getFlops() {
+        return flops;
+    }
+
+    /**
+     *
+     * @return Total time in nanoseconds the worker spent on tiles, including sending them and failed attempts.
+     */
+    public synchronized long getBusyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     *
+     * @return Floating point operations per second while the worker was busy, 0 before it has done anything.
+     */
+    public synchronized double getThroughput() {
+        return busyNanos == 0 ? 0 : flops * 1e9 / busyNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + tiles + " tiles, " + failures + " failures, " + String.format("%.3g", getThroughput())
+                + " flop/s";
+    }
+}
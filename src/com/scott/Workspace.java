@@ -0,0 +1,173 @@
+package com.scott;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Workspace hands out scratch arrays from a pool owned by the current thread and takes them all back when it is
+ * closed. Arrays are grouped into buckets by size, rounded up to a power of 2, so a borrowed array may be longer than
+ * requested and its contents are whatever the last user left in it.
+ * Workspaces are meant to be used with try-with-resources and only on the thread that opened them:
+ * <pre>
+ * try (Workspace ws = Workspace.open()) {
+ *     double[] tmp = ws.borrow(n);
+ *     ...
+ * }
+ * </pre>
+ * Arrays must not be used after the workspace that handed them out is closed. Workspaces can be nested; each one
+ * only returns the arrays it handed out itself.
+ * A thread's pool keeps at most MAX_POOLED_BYTES of arrays; anything returned beyond that is left to the garbage
+ * collector, so one large calculation doesn't pin its temporaries for the life of the thread.
+ */
+public final class Workspace implements AutoCloseable {
+    /**
+     * Largest number of arrays each bucket keeps around once they are returned.
+     */
+    private static final int MAX_POOLED_PER_BUCKET = 8;
+    /**
+     * Largest total size in bytes of the arrays each thread's pool keeps, enough for two 1024 x 1024 matrices.
+     */
+    private static final long MAX_POOLED_BYTES = 16L << 20;
+    /**
+     * Largest bucket, arrays of 2^30 elements. Larger requests can't be rounded up to a power of 2 that fits in an
+     * int, so they get an array of exactly their size that is not pooled.
+     */
+    private static final int MAX_BUCKET = 30;
+    private static final ThreadLocal<Pool> POOL = ThreadLocal.withInitial(Pool::new);
+    private static final LongAdder BORROWS = new LongAdder();
+    private static final LongAdder ALLOCATIONS = new LongAdder();
+    private static final LongAdder ALLOCATED_BYTES = new LongAdder();
+
+    private final Pool pool;
+    private final Thread owner;
+    private double[][] borrowed = new double[4][];
+    private int borrowedCount;
+    private boolean closed;
+
+    private Workspace(Pool pool) {
+        this.pool = pool;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * Opens a workspace backed by the current thread's pool.
+     * @return a new workspace, close it when done.
+     */
+    public static Workspace open() {
+        return new Workspace(POOL.get());
+    }
+
+    /**
+     * Borrows an array with at least size elements. Its contents are not cleared.
+     * @param size minimum number of elements
+     * @return scratch array owned by this workspace until it is closed.
+     */
+    public double[] borrow(int size) {
+        if (closed) {
+            throw new IllegalStateException("The workspace has already been closed.");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative.");
+        }
+        checkOwner();
+        int bucket = bucket(size);
+        double[] result = bucket > MAX_BUCKET ? null : pool.buckets[bucket].pollLast();
+        if (result != null) {
+            pool.bytes -= 8L * result.length;
+        } else {
+            result = new double[bucket > MAX_BUCKET ? size : 1 << bucket];
+            ALLOCATIONS.increment();
+            ALLOCATED_BYTES.add(8L * result.length);
+        }
+        BORROWS.increment();
+        if (borrowedCount == borrowed.length) {
+            double[][] grown = new double[borrowedCount * 2][];
+            System.arraycopy(borrowed, 0, grown, 0, borrowedCount);
+            borrowed = grown;
+        }
+        borrowed[borrowedCount++] = result;
+        return result;
+    }
+
+    /**
+     * Returns every array borrowed from this workspace to the pool.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        checkOwner();
+        closed = true;
+        for (int i = borrowedCount - 1; i >= 0; i--) {
+            int length = borrowed[i].length;
+            if (length <= 1 << MAX_BUCKET) {
+                ArrayDeque<double[]> bucket = pool.buckets[Integer.numberOfTrailingZeros(length)];
+                if (bucket.size() < MAX_POOLED_PER_BUCKET && pool.bytes + 8L * length <= MAX_POOLED_BYTES) {
+                    bucket.addLast(borrowed[i]);
+                    pool.bytes += 8L * length;
+                }
+            }
+            borrowed[i] = null;
+        }
+        borrowedCount = 0;
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("A workspace can only be used by the thread that opened it.");
+        }
+    }
+
+    private static int bucket(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     *
+     * @return Number of arrays handed out by all workspaces since the last reset.
+     */
+    public static long getBorrowCount() {
+        return BORROWS.sum();
+    }
+
+    /**
+     *
+     * @return Number of borrows that could not be served from a pool and had to allocate a new array.
+     */
+    public static long getAllocationCount() {
+        return ALLOCATIONS.sum();
+    }
+
+    /**
+     *
+     * @return Total size in bytes of the arrays allocated by workspaces since the last reset.
+     */
+    public static long getAllocatedBytes() {
+        return ALLOCATED_BYTES.sum();
+    }
+
+    /**
+     * Resets the borrow and allocation counters to 0.
+     */
+    public static void resetCounts() {
+        BORROWS.reset();
+        ALLOCATIONS.reset();
+        ALLOCATED_BYTES.reset();
+    }
+
+    private static final class Pool {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final ArrayDeque<double[]>[] buckets = new ArrayDeque[MAX_BUCKET + 1];
+        /**
+         * Total size in bytes of the arrays in the buckets.
+         */
+        private long bytes;
+
+        private Pool() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+        }
+    }
+}
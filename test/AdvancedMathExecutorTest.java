@@ -0,0 +1,161 @@
+import com.scott.AdvancedMath;
+import com.scott.AdvancedMathExecutor;
+import com.scott.LUDecomposition;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class AdvancedMathExecutorTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void construction() {
+        try {
+            new AdvancedMathExecutor(0, 1, TimeUnit.MILLISECONDS, 10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The max batch size and queue capacity must be at least 1.", e.getMessage());
+        }
+        try {
+            new AdvancedMathExecutor(1, -1, TimeUnit.MILLISECONDS, 10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The max batch delay must not be negative.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void batchedOperations() throws Exception {
+        Random random = new Random(1);
+        try (AdvancedMathExecutor executor = new AdvancedMathExecutor(16, 1, TimeUnit.MILLISECONDS, 1000)) {
+            List<Matrix> inputs = new ArrayList<>();
+            List<CompletableFuture<Matrix>> inverses = new ArrayList<>();
+            List<CompletableFuture<Double>> dets = new ArrayList<>();
+            List<CompletableFuture<Matrix>> products = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Matrix m = TestMatrices.random(2 + i % 3, 2 + i % 3, random);
+                inputs.add(m);
+                inverses.add(executor.inv(m));
+                dets.add(executor.det(m));
+                products.add(executor.matrixMultiply(m, m));
+            }
+            for (int i = 0; i < inputs.size(); i++) {
+                Matrix m = inputs.get(i);
+                assertArrayEquals(AdvancedMath.inv(m).getMatrixArray(),
+                        inverses.get(i).get(5, TimeUnit.SECONDS).getMatrixArray(), DELTA);
+                assertEquals(AdvancedMath.det(m), dets.get(i).get(5, TimeUnit.SECONDS), DELTA);
+                assertArrayEquals(AdvancedMath.matrixMultiply(m, m).getMatrixArray(),
+                        products.get(i).get(5, TimeUnit.SECONDS).getMatrixArray(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void singularMatrixOnlyFailsItself() throws Exception {
+        try (AdvancedMathExecutor executor = new AdvancedMathExecutor(4, 10, TimeUnit.MILLISECONDS, 100)) {
+            CompletableFuture<Matrix> good = executor.inv(AdvancedMath.identityMatrix(3));
+            CompletableFuture<Matrix> bad = executor.inv(new Matrix(3, 3, new double[]{1, 2, 3, 4, 5, 6, 7, 8, 9}));
+            assertArrayEquals(AdvancedMath.identityMatrix(3).getMatrixArray(),
+                    good.get(5, TimeUnit.SECONDS).getMatrixArray(), DELTA);
+            try {
+                bad.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals("A matrix with a zero determinant has no inverse.", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void unbatchedOperations() throws Exception {
+        try (AdvancedMathExecutor executor = new AdvancedMathExecutor()) {
+            Matrix m = new Matrix(3, 3, new double[]{2, 1, -1, -3, -1, 2, -2, 1, 2});
+            assertArrayEquals(new double[]{2, 3, -1},
+                    executor.solve(m, new double[]{8, -11, -3}).get(5, TimeUnit.SECONDS), DELTA);
+            assertArrayEquals(new double[]{0, 1, 0},
+                    executor.normalize(new double[]{0, 5, 0}).get(5, TimeUnit.SECONDS), DELTA);
+            Matrix big = AdvancedMath.identityMatrix(6);
+            assertArrayEquals(big.getMatrixArray(), executor.inv(big).get(5, TimeUnit.SECONDS).getMatrixArray(),
+                    DELTA);
+            assertEquals(42, (int) executor.submit(() -> 42).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void unbatchedOperationsCopyTheirArguments() throws Exception {
+        try (AdvancedMathExecutor executor = new AdvancedMathExecutor()) {
+            Matrix a = TestMatrices.random(120, 120, 3);
+            Matrix b = TestMatrices.random(120, 120, 4);
+            double[] rhs = new double[120];
+            rhs[0] = 1;
+            Matrix product = AdvancedMath.matrixMultiply(a, b);
+            // det expands by cofactors, so it gets a matrix of its own that is small but not batched.
+            Matrix small = TestMatrices.random(6, 6, 5);
+            double det = AdvancedMath.det(small);
+            double[] x = new LUDecomposition(a).solve(rhs);
+            CompletableFuture<Matrix> productFuture = executor.matrixMultiply(a, b);
+            CompletableFuture<Double> detFuture = executor.det(small);
+            CompletableFuture<double[]> solveFuture = executor.solve(a, rhs);
+            // Changes made after submitting must not reach the operations.
+            for (int i = 0; i < 120; i++) {
+                for (int j = 0; j < 120; j++) {
+                    a.setCell(i, j, i == j ? 1 : 0);
+                    b.setCell(i, j, 0);
+                }
+            }
+            small.setCell(0, 0, small.getCell(0, 0) + 1);
+            assertArrayEquals(product.getMatrixArray(),
+                    productFuture.get(5, TimeUnit.SECONDS).getMatrixArray(), 1e-9);
+            assertEquals(det, detFuture.get(5, TimeUnit.SECONDS), Math.abs(det) * 1e-9);
+            assertArrayEquals(x, solveFuture.get(5, TimeUnit.SECONDS), 1e-9);
+        }
+    }
+
+    @Test
+    public void backpressure() throws Exception {
+        try (AdvancedMathExecutor executor = new AdvancedMathExecutor(4, 1, TimeUnit.MILLISECONDS, 1)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Integer> blocker = executor.submit(() -> {
+                release.await();
+                return 1;
+            });
+            AtomicBoolean submitted = new AtomicBoolean();
+            Thread caller = new Thread(() -> {
+                executor.submit(() -> 2);
+                submitted.set(true);
+            });
+            caller.start();
+            caller.join(200);
+            assertFalse(submitted.get());
+            release.countDown();
+            caller.join(5000);
+            assertTrue(submitted.get());
+            assertEquals(1, (int) blocker.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void close() {
+        AdvancedMathExecutor executor = new AdvancedMathExecutor();
+        CompletableFuture<Double> pending = executor.det(AdvancedMath.identityMatrix(2));
+        executor.close();
+        assertEquals(1, pending.join(), DELTA);
+        try {
+            executor.det(AdvancedMath.identityMatrix(2));
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals("The executor has been closed.", e.getMessage());
+        }
+    }
+}
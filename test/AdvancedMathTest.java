@@ -1,4 +1,5 @@
 import com.scott.AdvancedMath;
+import com.scott.DiagonalMatrix;
 import com.scott.Matrix;
 import org.junit.Test;
 
@@ -476,4 +477,215 @@ public class AdvancedMathTest {
         assertEquals(res,AdvancedMath.reflect(A,B));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shermanMorrison() {
+        Matrix m = new Matrix(3, 3, new double[]{2, 2, 3,
+                4, 5, 6,
+                7, 8, 9});
+        double[] u = {0, 1, 0};
+        double[] v = {1, -2, 0.5};
+        Matrix updated = AdvancedMath.add(m, new Matrix(3, 3, new double[]{0, 0, 0, 1, -2, 0.5, 0, 0, 0}));
+        assertArrayEquals(AdvancedMath.inv(updated).getMatrixArray(),
+                AdvancedMath.shermanMorrison(AdvancedMath.inv(m), u, v).getMatrixArray(), DELTA);
+        try {
+            AdvancedMath.shermanMorrison(AdvancedMath.identityMatrix(2), new double[]{-1, 0}, new double[]{1, 0});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A matrix with a zero determinant has no inverse.", e.getMessage());
+        }
+        try {
+            AdvancedMath.shermanMorrison(AdvancedMath.identityMatrix(2), new double[]{1}, new double[]{1, 0});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Vectors u and v must have one element per row of the matrix.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void woodbury() {
+        Matrix m = new Matrix(4, 4, new double[]{1, 2, 2, 3,
+                2, 3, 3, 4,
+                4, 52, 1, 3,
+                1, 6, 4, 2});
+        Matrix U = new Matrix(4, 2, new double[]{1, 0, 0, 1, 2, 0, 0, -1});
+        Matrix V = new Matrix(4, 2, new double[]{0.5, 1, 0, 2, 1, 0, 3, 1});
+        Matrix updated = AdvancedMath.add(m, AdvancedMath.matrixMultiply(U, AdvancedMath.transform(V)));
+        assertArrayEquals(AdvancedMath.inv(updated).getMatrixArray(),
+                AdvancedMath.woodbury(AdvancedMath.inv(m), U, V).getMatrixArray(), DELTA);
+        try {
+            AdvancedMath.woodbury(m, U, new Matrix(4, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrices U and V must both have one row per row of the matrix and " +
+                    "the same number of columns.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void magnitudeExtremes() {
+        assertEquals(5e200, AdvancedMath.magnitude(new double[]{3e200, 4e200}), 1e196);
+        assertEquals(5e-200, AdvancedMath.magnitude(new double[]{3e-200, 4e-200}), 1e-204);
+        assertEquals(1e300, AdvancedMath.magnitude(new double[]{1e300, 1e-300, 1}), 1e296);
+        assertEquals(Double.POSITIVE_INFINITY, AdvancedMath.magnitude(new double[]{1, Double.POSITIVE_INFINITY}), 0);
+        assertTrue(Double.isNaN(AdvancedMath.magnitude(new double[]{1e300, Double.NaN})));
+        assertEquals(0, AdvancedMath.magnitude(new double[3]), 0);
+        assertArrayEquals(new double[]{0.6, 0.8}, AdvancedMath.normalize(new double[]{3e-320, 4e-320}), DELTA);
+        assertArrayEquals(new double[]{0.6, 0.8}, AdvancedMath.normalize(new double[]{3e300, 4e300}), DELTA);
+    }
+
+    @Test
+    public void normalizeInto() {
+        double[] v = {3, 0, 4};
+        AdvancedMath.normalize(v, v);
+        assertArrayEquals(new double[]{0.6, 0, 0.8}, v, DELTA);
+        try {
+            AdvancedMath.normalize(v, new double[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The output must be the same size as the input.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void parallelNormalize() {
+        double[] v = new double[200000];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = (i % 7 - 3) * 1e200;
+        }
+        double expected = AdvancedMath.magnitude(v);
+        assertEquals(expected, AdvancedMath.parallelMagnitude(v), expected * 1e-12);
+        double[] normalized = AdvancedMath.normalize(v);
+        AdvancedMath.parallelNormalize(v, v);
+        assertArrayEquals(normalized, v, 1e-12);
+        assertEquals(1, AdvancedMath.magnitude(v), 1e-12);
+    }
+
+    @Test
+    public void matrixPower() {
+        Matrix m = new Matrix(3, 3, new double[]{1, 2, 0, -1, 1, 3, 2, 0, 1});
+        Matrix expected = AdvancedMath.identityMatrix(3);
+        for (int k = 0; k <= 11; k++) {
+            assertArrayEquals(expected.getMatrixArray(), AdvancedMath.matrixPower(m, k).getMatrixArray(), 1e-6);
+            expected = AdvancedMath.matrixMultiply(expected, m);
+        }
+        // A Markov chain's rows keep adding up to 1 and converge to the stationary distribution.
+        Matrix chain = new Matrix(2, 2, new double[]{0.9, 0.1, 0.5, 0.5});
+        Matrix limit = AdvancedMath.matrixPower(chain, 1000000);
+        assertArrayEquals(new double[]{5.0 / 6, 1.0 / 6, 5.0 / 6, 1.0 / 6}, limit.getMatrixArray(), 1e-9);
+        try {
+            AdvancedMath.matrixPower(m, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The exponent must not be negative.", e.getMessage());
+        }
+        try {
+            AdvancedMath.matrixPower(new Matrix(2, 3), 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have same number of rows and columns to calculate a power.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void matrixExp() {
+        assertArrayEquals(AdvancedMath.identityMatrix(3).getMatrixArray(),
+                AdvancedMath.matrixExp(new Matrix(3, 3)).getMatrixArray(), 1e-12);
+        // Nilpotent, so the series stops after the linear term.
+        assertArrayEquals(new double[]{1, 1, 0, 1},
+                AdvancedMath.matrixExp(new Matrix(2, 2, new double[]{0, 1, 0, 0})).getMatrixArray(), 1e-12);
+        // A large rotation generator needs scaling and squaring.
+        for (double t : new double[]{0.001, 0.2, 0.9, 2, 5, 30}) {
+            Matrix rotation = AdvancedMath.matrixExp(new Matrix(2, 2, new double[]{0, -t, t, 0}));
+            assertArrayEquals(new double[]{Math.cos(t), -Math.sin(t), Math.sin(t), Math.cos(t)},
+                    rotation.getMatrixArray(), 1e-10);
+        }
+        Matrix m = new Matrix(4, 4, new double[]{1, 2, 0, -1, 0.5, -3, 1, 0, 2, 0, 1, 1, -1, 1, 0.25, 2});
+        Matrix product = AdvancedMath.matrixMultiply(AdvancedMath.matrixExp(m),
+                AdvancedMath.matrixExp(AdvancedMath.scalarMultiply(-1, m)));
+        assertArrayEquals(AdvancedMath.identityMatrix(4).getMatrixArray(), product.getMatrixArray(), 1e-9);
+        try {
+            AdvancedMath.matrixExp(new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have same number of rows and columns to calculate an exponential.",
+                    e.getMessage());
+        }
+    }
+
+    private void assertOrthonormal(Matrix q, double tolerance) {
+        Matrix qtq = AdvancedMath.matrixMultiply(AdvancedMath.transform(q), q);
+        assertArrayEquals(AdvancedMath.identityMatrix(q.getColumns()).getMatrixArray(), qtq.getMatrixArray(),
+                tolerance);
+    }
+
+    @Test
+    public void orthonormalize() {
+        Matrix a = TestMatrices.random(500, 70, 1);
+        Matrix q = new Matrix(500, 70, a.getMatrixArray().clone());
+        assertEquals(70, AdvancedMath.orthonormalize(q));
+        assertOrthonormal(q, 1e-12);
+        // Same span: projecting A onto the columns of Q gives A back.
+        Matrix projected = AdvancedMath.matrixMultiply(q, AdvancedMath.matrixMultiply(AdvancedMath.transform(q), a));
+        assertArrayEquals(a.getMatrixArray(), projected.getMatrixArray(), 1e-9);
+
+        Matrix h = new Matrix(500, 70, a.getMatrixArray().clone());
+        AdvancedMath.householderOrthonormalize(h);
+        assertOrthonormal(h, 1e-12);
+        assertArrayEquals(q.getMatrixArray(), h.getMatrixArray(), 1e-9);
+
+        // Small case by hand, and it matches proj and subtract.
+        Matrix small = new Matrix(2, 2, new double[]{3, 1, 4, 2});
+        assertEquals(2, AdvancedMath.orthonormalize(small));
+        assertArrayEquals(new double[]{0.6, -0.8, 0.8, 0.6}, small.getMatrixArray(), 1e-12);
+    }
+
+    @Test
+    public void orthonormalizeDependent() {
+        // Nearly parallel columns lose orthogonality with classical Gram-Schmidt, but not here.
+        Matrix a = TestMatrices.random(200, 40, 2);
+        for (int i = 0; i < 200; i++) {
+            for (int j = 1; j < 40; j++) {
+                a.setCell(i, j, a.getCell(i, 0) + 1e-7 * a.getCell(i, j));
+            }
+        }
+        Matrix h = new Matrix(200, 40, a.getMatrixArray().clone());
+        assertEquals(40, AdvancedMath.orthonormalize(a));
+        assertOrthonormal(a, 1e-12);
+        AdvancedMath.householderOrthonormalize(h);
+        assertOrthonormal(h, 1e-12);
+
+        // Column 2 is the sum of columns 0 and 1.
+        Matrix dependent = new Matrix(3, 3, new double[]{1, 0, 1, 0, 1, 1, 0, 0, 0});
+        assertEquals(2, AdvancedMath.orthonormalize(dependent));
+        assertArrayEquals(new double[]{0, 0, 0}, dependent.getColumn(2), 1e-12);
+        try {
+            AdvancedMath.householderOrthonormalize(new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have at least as many rows as columns to orthonormalize its columns.",
+                    e.getMessage());
+        }
+        try {
+            AdvancedMath.orthonormalize(new com.scott.DiagonalMatrix(new double[]{1, 2}));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only a dense matrix can be changed in place.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void gram() {
+        Matrix x = TestMatrices.random(37, 5, 20);
+        Matrix expected = AdvancedMath.matrixMultiply(AdvancedMath.transform(x), x);
+        Matrix g = AdvancedMath.gram(x);
+        assertArrayEquals(expected.getMatrixArray(), g.getMatrixArray(), 1e-10);
+        assertEquals(g.getCell(1, 3), g.getCell(3, 1), 0);
+        // More columns than a tile and enough work to run in parallel.
+        Matrix wide = TestMatrices.random(300, 150, 21);
+        assertArrayEquals(AdvancedMath.matrixMultiply(AdvancedMath.transform(wide), wide).getMatrixArray(),
+                AdvancedMath.gram(wide).getMatrixArray(), 1e-9);
+        Matrix diagonal = new DiagonalMatrix(new double[]{1, -2, 3});
+        assertArrayEquals(new double[]{1, 0, 0, 0, 4, 0, 0, 0, 9}, AdvancedMath.gram(diagonal).getMatrixArray(), 0);
+    }
+}
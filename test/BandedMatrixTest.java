@@ -0,0 +1,67 @@
+import com.scott.AdvancedMath;
+import com.scott.BandedMatrix;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BandedMatrixTest {
+    private final double DELTA = 0.0001;
+
+    private Matrix sequence(int rows, int cols) {
+        double[] values = new double[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        return new Matrix(rows, cols, values);
+    }
+
+    @Test
+    public void tridiagonal() {
+        BandedMatrix b = new BandedMatrix(sequence(4, 4), 1, 1);
+        assertEquals(12, b.getStorageSize());
+        assertArrayEquals(new double[]{
+                1, 2, 0, 0,
+                5, 6, 7, 0,
+                0, 10, 11, 12,
+                0, 0, 15, 16}, b.getMatrixArray(), DELTA);
+        Matrix dense = new Matrix(4, 4, b.getMatrixArray());
+        Matrix m = sequence(4, 3);
+        assertArrayEquals(AdvancedMath.matrixMultiply(dense, m).getMatrixArray(),
+                AdvancedMath.matrixMultiply(b, m).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.matrixMultiply(sequence(2, 4), dense).getMatrixArray(),
+                AdvancedMath.matrixMultiply(sequence(2, 4), b).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.matrixMultiply(dense, new double[]{1, -1, 2, 0.5}),
+                AdvancedMath.matrixMultiply(b, new double[]{1, -1, 2, 0.5}), DELTA);
+        assertEquals(AdvancedMath.det(dense), AdvancedMath.det(b), DELTA);
+        try {
+            b.setCell(0, 3, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only cells inside the matrix's structure can be non-zero.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void rectangular() {
+        BandedMatrix b = new BandedMatrix(sequence(3, 5), 0, 2);
+        BandedMatrix t = b.transpose();
+        assertEquals(5, t.getRows());
+        assertEquals(2, t.getLowerBandwidth());
+        assertEquals(0, t.getUpperBandwidth());
+        assertArrayEquals(AdvancedMath.transform(new Matrix(3, 5, b.getMatrixArray())).getMatrixArray(),
+                t.getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.scalarMultiply(2, new Matrix(3, 5, b.getMatrixArray())).getMatrixArray(),
+                AdvancedMath.scalarMultiply(2, b).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new BandedMatrix(3, 3, -1, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The bandwidths must not be negative.", e.getMessage());
+        }
+    }
+}
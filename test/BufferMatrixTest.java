@@ -0,0 +1,47 @@
+import com.scott.AdvancedMath;
+import com.scott.BufferMatrix;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import static org.junit.Assert.*;
+
+public class BufferMatrixTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void cells() {
+        DoubleBuffer buffer = ByteBuffer.allocateDirect(6 * 8).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        buffer.put(new double[]{1, 2, 3, 4, 5, 6}).flip();
+        BufferMatrix m = new BufferMatrix(2, 3, buffer);
+        assertEquals(6, m.getCell(1, 2), DELTA);
+        m.setCell(0, 1, 9);
+        assertEquals(9, buffer.get(1), DELTA);
+        assertArrayEquals(new double[]{1, 9, 3, 4, 5, 6}, m.getMatrixArray(), DELTA);
+        assertEquals(6, m.getStorageSize());
+        try {
+            new BufferMatrix(2, 2, buffer);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of elements in the buffer must be rows * columns.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void operations() {
+        double[] values = {2, 1, 0, 1, 3, 1, 0, 1, 4};
+        BufferMatrix m = new BufferMatrix(3, 3, DoubleBuffer.wrap(values.clone()));
+        Matrix dense = new Matrix(3, 3, values);
+        assertEquals(AdvancedMath.det(dense), AdvancedMath.det(m), DELTA);
+        assertArrayEquals(AdvancedMath.inv(dense).getMatrixArray(), AdvancedMath.inv(m).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.matrixMultiply(dense, dense).getMatrixArray(),
+                AdvancedMath.matrixMultiply(m, m).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.transform(dense).getMatrixArray(),
+                AdvancedMath.transform(m).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.scalarMultiply(2, dense).getMatrixArray(),
+                AdvancedMath.scalarMultiply(2, m).getMatrixArray(), DELTA);
+    }
+}
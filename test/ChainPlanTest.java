@@ -0,0 +1,110 @@
+import com.scott.AdvancedMath;
+import com.scott.ChainPlan;
+import com.scott.DiagonalMatrix;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChainPlanTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void plan() {
+        // The textbook example: 15125 multiply-adds in the order ((M0 (M1 M2)) ((M3 M4) M5)).
+        ChainPlan plan = new ChainPlan(30, 35, 15, 5, 10, 20, 25);
+        assertEquals(6, plan.getMatrixCount());
+        assertEquals(2 * 15125, plan.getFlops(), 0);
+        assertEquals("((M0 (M1 M2)) ((M3 M4) M5))", plan.toString());
+        assertEquals(2.0 * (30 * 35 * 15 + 30 * 15 * 5 + 30 * 5 * 10 + 30 * 10 * 20 + 30 * 20 * 25),
+                plan.getLeftToRightFlops(), 0);
+
+        ChainPlan wide = new ChainPlan(10, 1000, 10, 1000);
+        assertEquals("((M0 M1) M2)", wide.toString());
+        assertEquals(4e5, wide.getFlops(), 0);
+        assertEquals("M0", new ChainPlan(3, 4).toString());
+        assertEquals(0, new ChainPlan(3, 4).getFlops(), 0);
+    }
+
+    @Test
+    public void multiplyChain() {
+        Random random = new Random(1);
+        int[] dims = {30, 35, 15, 5, 10, 20, 25};
+        Matrix[] chain = new Matrix[dims.length - 1];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = TestMatrices.random(dims[i], dims[i + 1], random);
+        }
+        Matrix expected = chain[0];
+        for (int i = 1; i < chain.length; i++) {
+            expected = AdvancedMath.matrixMultiply(expected, chain[i]);
+        }
+        Matrix product = AdvancedMath.multiplyChain(chain);
+        assertEquals(30, product.getRows());
+        assertEquals(25, product.getColumns());
+        assertArrayEquals(expected.getMatrixArray(), product.getMatrixArray(), 1e-9);
+        assertEquals(new ChainPlan(dims).toString(), AdvancedMath.planChain(chain).toString());
+
+        // One matrix gives a copy.
+        Matrix single = AdvancedMath.multiplyChain(chain[0]);
+        assertNotSame(chain[0], single);
+        assertArrayEquals(chain[0].getMatrixArray(), single.getMatrixArray(), 0);
+
+        Matrix diagonal = new DiagonalMatrix(new double[]{2, 3});
+        Matrix m = new Matrix(2, 2, new double[]{1, 2, 3, 4});
+        assertArrayEquals(new double[]{4, 12, 18, 36},
+                AdvancedMath.multiplyChain(diagonal, m, diagonal).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void trailingVector() {
+        Random random = new Random(2);
+        Matrix[] chain = {TestMatrices.random(8, 40, random), TestMatrices.random(40, 40, random),
+                TestMatrices.random(40, 40, random)};
+        double[] x = new double[40];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+        }
+        double[] expected = AdvancedMath.matrixMultiply(AdvancedMath.multiplyChain(chain), x);
+        assertArrayEquals(expected, AdvancedMath.multiplyChain(chain, x), 1e-9);
+        assertArrayEquals(AdvancedMath.matrixMultiply(chain[0], x),
+                AdvancedMath.multiplyChain(new Matrix[]{chain[0]}, x), 1e-12);
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new ChainPlan(3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A chain needs at least 1 matrix.", e.getMessage());
+        }
+        try {
+            new ChainPlan(3, 0, 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The minimum dimension for rows and columns is 1.", e.getMessage());
+        }
+        try {
+            AdvancedMath.multiplyChain();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A chain needs at least 1 matrix.", e.getMessage());
+        }
+        try {
+            AdvancedMath.multiplyChain(new Matrix(2, 3), new Matrix(3, 4), new Matrix(3, 4));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of columns in each matrix must match the number of rows in the next one.",
+                    e.getMessage());
+        }
+        try {
+            AdvancedMath.multiplyChain(new Matrix[]{new Matrix(2, 3)}, new double[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of columns in the last matrix must match the number of elements in the vector.",
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import com.scott.AdvancedMath;
+import com.scott.CholeskyDecomposition;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CholeskyDecompositionTest {
+    private final double DELTA = 0.0001;
+
+    private final Matrix spd = new Matrix(3, 3, new double[]{4, 12, -16,
+            12, 37, -43,
+            -16, -43, 98});
+
+    private Matrix outer(double[] x, double sign) {
+        double[] values = new double[x.length * x.length];
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < x.length; j++) {
+                values[i * x.length + j] = sign * x[i] * x[j];
+            }
+        }
+        return new Matrix(x.length, x.length, values);
+    }
+
+    private void assertFactors(Matrix expected, CholeskyDecomposition chol) {
+        Matrix l = chol.getL();
+        assertArrayEquals(expected.getMatrixArray(),
+                AdvancedMath.matrixMultiply(l, AdvancedMath.transform(l)).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void construction() {
+        assertArrayEquals(new double[]{2, 0, 0, 6, 1, 0, -8, 5, 3},
+                new CholeskyDecomposition(spd).getL().getMatrixArray(), DELTA);
+        try {
+            new CholeskyDecomposition(new Matrix(2, 2, new double[]{1, 2, 2, 1}));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must be symmetric positive definite to calculate " +
+                    "Cholesky decomposition.", e.getMessage());
+        }
+        try {
+            new CholeskyDecomposition(new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have same number of " +
+                    "rows and columns to calculate Cholesky decomposition.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void solveAndDet() {
+        CholeskyDecomposition chol = new CholeskyDecomposition(spd);
+        assertEquals(AdvancedMath.det(spd), chol.det(), DELTA);
+        double[] x = chol.solve(new double[]{1, 2, 3});
+        assertArrayEquals(new double[]{1, 2, 3}, AdvancedMath.matrixMultiply(spd, x), DELTA);
+    }
+
+    @Test
+    public void update() {
+        double[] x = {1, -2, 0.5};
+        CholeskyDecomposition chol = new CholeskyDecomposition(spd);
+        chol.update(x);
+        assertFactors(AdvancedMath.add(spd, outer(x, 1)), chol);
+        chol.downdate(x);
+        assertFactors(spd, chol);
+    }
+
+    @Test
+    public void downdate() {
+        CholeskyDecomposition chol = new CholeskyDecomposition(spd);
+        try {
+            chol.downdate(new double[]{2, 0, 0});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The downdated matrix would not be positive definite.", e.getMessage());
+        }
+        assertFactors(spd, chol);
+        double[] x = {0.1, 0.2, 0.3};
+        chol.downdate(x);
+        assertFactors(AdvancedMath.add(spd, outer(x, -1)), chol);
+        try {
+            chol.update(new double[]{1});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of elements in the vector must match the number of " +
+                    "rows in the matrix.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import com.scott.AdvancedMath;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares sliding dot products over every window of a signal with AdvancedMath.correlate. Not a test, run it with
+ * <pre>
+ * java -cp ... ConvolutionBenchmark
+ * </pre>
+ */
+public class ConvolutionBenchmark {
+    private static volatile double sink;
+
+    interface Kernel {
+        double[] run();
+    }
+
+    private static double time(Kernel kernel, int runs) {
+        // The first runs warm up the JIT.
+        for (int run = 0; run < runs; run++) {
+            sink += kernel.run()[0];
+        }
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            sink += kernel.run()[0];
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+
+    private static double[] windows(double[] signal, double[] kernel) {
+        double[] result = new double[signal.length - kernel.length + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = AdvancedMath.dotProduct(Arrays.copyOfRange(signal, i, i + kernel.length), kernel);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        int n = 1 << 16;
+        double[] signal = new double[n];
+        for (int i = 0; i < n; i++) {
+            signal[i] = random.nextGaussian();
+        }
+        System.out.printf("%d samples%n", n);
+        for (int m : new int[]{8, 32, 128, 512, 2048}) {
+            double[] kernel = new double[m];
+            for (int i = 0; i < m; i++) {
+                kernel[i] = random.nextGaussian();
+            }
+            double slow = time(() -> windows(signal, kernel), 3);
+            double fast = time(() -> AdvancedMath.correlate(signal, kernel), 30);
+            System.out.printf("kernel %5d: windows %9.3f ms, correlate %8.3f ms, %7.2fx%n", m, slow, fast,
+                    slow / fast);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import com.scott.AdvancedMath;
+import com.scott.Convolver;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConvolverTest {
+    private final double DELTA = 0.0001;
+
+    private double[] randomArray(int length, Random random) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return values;
+    }
+
+    private double[] directConvolution(double[] signal, double[] kernel) {
+        double[] result = new double[signal.length + kernel.length - 1];
+        for (int i = 0; i < signal.length; i++) {
+            for (int j = 0; j < kernel.length; j++) {
+                result[i + j] += signal[i] * kernel[j];
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void convolve() {
+        Random random = new Random(1);
+        assertArrayEquals(new double[]{1, 3, 5, 3}, AdvancedMath.convolve(new double[]{1, 2, 3},
+                new double[]{1, 1}), DELTA);
+        // Short kernels are convolved directly, long ones through the FFT.
+        for (int m : new int[]{1, 5, 16, 17, 300}) {
+            for (int n : new int[]{1, 100, 5000}) {
+                double[] signal = randomArray(n, random);
+                double[] kernel = randomArray(m, random);
+                double[] expected = directConvolution(signal, kernel);
+                assertArrayEquals(expected, AdvancedMath.convolve(signal, kernel), 1e-9);
+                assertArrayEquals(expected, AdvancedMath.convolve(kernel, signal), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void correlateMatchesDotProducts() {
+        Random random = new Random(2);
+        for (int m : new int[]{1, 7, 200}) {
+            double[] signal = randomArray(3000, random);
+            double[] kernel = randomArray(m, random);
+            double[] result = AdvancedMath.correlate(signal, kernel);
+            assertEquals(3000 - m + 1, result.length);
+            for (int i = 0; i < result.length; i++) {
+                assertEquals(AdvancedMath.dotProduct(Arrays.copyOfRange(signal, i, i + m), kernel), result[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void streamedChunks() {
+        Random random = new Random(3);
+        for (int m : new int[]{9, 129}) {
+            double[] signal = randomArray(4000, random);
+            double[] kernel = randomArray(m, random);
+            double[] expected = directConvolution(signal, kernel);
+            Convolver convolver = new Convolver(kernel, 100);
+            assertEquals(m, convolver.getKernelLength());
+            assertEquals(100, convolver.getBlockSize());
+            for (int pass = 0; pass < 2; pass++) {
+                double[] streamed = new double[expected.length];
+                int at = 0;
+                while (at < signal.length) {
+                    int chunk = Math.min(signal.length - at, 1 + random.nextInt(250));
+                    double[] buffer = Arrays.copyOfRange(signal, at, at + chunk);
+                    // In place, into the input buffer.
+                    convolver.process(buffer, buffer);
+                    System.arraycopy(buffer, 0, streamed, at, chunk);
+                    at += chunk;
+                }
+                double[] end = convolver.flush();
+                System.arraycopy(end, 0, streamed, signal.length, m - 1);
+                assertArrayEquals(expected, streamed, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new Convolver(new double[0]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The kernel needs at least 1 element.", e.getMessage());
+        }
+        try {
+            new Convolver(new double[3], 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The block size must be at least 1.", e.getMessage());
+        }
+        try {
+            new Convolver(new double[3]).process(new double[5], new double[4]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The output must be at least as long as the input.", e.getMessage());
+        }
+        try {
+            AdvancedMath.convolve(new double[0], new double[3]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The signal and the kernel need at least 1 element.", e.getMessage());
+        }
+        try {
+            AdvancedMath.correlate(new double[2], new double[3]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The kernel can't be longer than the signal.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import com.scott.AdvancedMath;
+import com.scott.Curve;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CurveTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void linear() {
+        Curve c = Curve.linear(new double[]{0, 1, 3}, new double[]{0, 10, 2, 20, 6, 0}, 2);
+        assertEquals(2, c.getChannels());
+        assertFalse(c.isUniform());
+        assertEquals(1, c.evaluate(0.5, 0), DELTA);
+        assertEquals(15, c.evaluate(0.5, 1), DELTA);
+        assertEquals(4, c.evaluate(2, 0), DELTA);
+        double[] out = new double[2];
+        c.evaluate(2, out);
+        assertArrayEquals(new double[]{4, 10}, out, DELTA);
+        // Clamped outside the knots.
+        assertEquals(0, c.evaluate(-5, 0), DELTA);
+        assertEquals(6, c.evaluate(99, 0), DELTA);
+        assertEquals(AdvancedMath.lerp(2, 6, 0.25), c.evaluate(1.5, 0), DELTA);
+    }
+
+    @Test
+    public void hermite() {
+        // With zero tangents a single segment is herp.
+        Curve c = Curve.hermite(new double[]{0, 1}, new double[]{3, 7}, new double[]{0, 0}, 1);
+        for (double t = 0; t <= 1; t += 0.125) {
+            assertEquals(AdvancedMath.herp(3, 7, t), c.evaluate(t, 0), DELTA);
+        }
+        try {
+            Curve.hermite(new double[]{0, 1}, new double[]{3, 7}, new double[]{0}, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("There must be one tangent for every value.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void catmullRom() {
+        double[] knots = {0, 1, 2, 3, 4};
+        double[] values = new double[knots.length];
+        for (int i = 0; i < knots.length; i++) {
+            values[i] = knots[i] * knots[i];
+        }
+        Curve c = Curve.catmullRom(knots, values, 1);
+        assertTrue(c.isUniform());
+        for (int i = 0; i < knots.length; i++) {
+            assertEquals(values[i], c.evaluate(knots[i], 0), DELTA);
+        }
+        // The interior slopes of x^2 are exact, so the middle segments are too.
+        assertEquals(2.25, c.evaluate(1.5, 0), DELTA);
+        assertEquals(6.25, c.evaluate(2.5, 0), DELTA);
+    }
+
+    @Test
+    public void naturalCubic() {
+        double[] knots = new double[21];
+        double[] values = new double[21];
+        for (int i = 0; i < knots.length; i++) {
+            knots[i] = i * Math.PI / 20 + (i % 2) * 0.01;
+            values[i] = Math.sin(knots[i]);
+        }
+        Curve c = Curve.naturalCubic(knots, values, 1);
+        for (double t = 0; t < Math.PI; t += 0.05) {
+            assertEquals(Math.sin(t), c.evaluate(t, 0), 1e-4);
+        }
+        // Two knots make a straight line.
+        Curve line = Curve.naturalCubic(new double[]{0, 2}, new double[]{1, 5}, 1);
+        assertEquals(3, line.evaluate(1, 0), DELTA);
+    }
+
+    @Test
+    public void bulkAndCursor() {
+        int channels = 3, knotCount = 50;
+        double[] knots = new double[knotCount];
+        double[] values = new double[knotCount * channels];
+        for (int k = 0; k < knotCount; k++) {
+            knots[k] = k * 0.1;
+            for (int ch = 0; ch < channels; ch++) {
+                values[k * channels + ch] = Math.cos(k * 0.3 + ch);
+            }
+        }
+        Curve c = Curve.catmullRom(knots, values, channels);
+        double[] times = new double[100000];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = i * 5.0 / times.length - 0.05;
+        }
+        double[] out = new double[times.length * channels];
+        c.evaluate(times, out);
+        Curve.Cursor cursor = c.cursor();
+        double[] single = new double[channels];
+        for (int i = 0; i < times.length; i += 997) {
+            cursor.evaluate(times[i], single);
+            for (int ch = 0; ch < channels; ch++) {
+                assertEquals(c.evaluate(times[i], ch), out[i * channels + ch], 1e-12);
+                assertEquals(c.evaluate(times[i], ch), single[ch], 1e-12);
+            }
+        }
+        // Going backwards still works.
+        assertEquals(c.evaluate(0.25, 1), cursor.evaluate(0.25, 1), 1e-12);
+        try {
+            c.evaluate(times, new double[times.length]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The output must have one element per channel for every time.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void invalid() {
+        try {
+            Curve.linear(new double[]{0}, new double[]{0}, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A curve needs at least 2 knots.", e.getMessage());
+        }
+        try {
+            Curve.linear(new double[]{0, 1, 1}, new double[]{0, 1, 2}, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The knots must be strictly increasing.", e.getMessage());
+        }
+        try {
+            Curve.linear(new double[]{0, 1}, new double[]{0, 1, 2}, 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("There must be one value for every channel of every knot.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import com.scott.AdvancedMath;
+import com.scott.DiagonalMatrix;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DiagonalMatrixTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void cells() {
+        DiagonalMatrix d = new DiagonalMatrix(new double[]{1, 2, 3});
+        assertEquals(3, d.getRows());
+        assertEquals(3, d.getStorageSize());
+        assertEquals(2, d.getCell(1, 1), DELTA);
+        assertEquals(0, d.getCell(0, 1), DELTA);
+        d.setCell(2, 2, 5);
+        d.setCell(2, 0, 0);
+        assertArrayEquals(new double[]{1, 0, 0, 0, 2, 0, 0, 0, 5}, d.getMatrixArray(), DELTA);
+        try {
+            d.setCell(0, 1, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only cells inside the matrix's structure can be non-zero.", e.getMessage());
+        }
+        assertArrayEquals(AdvancedMath.identityMatrix(4).getMatrixArray(),
+                DiagonalMatrix.identity(4).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void operations() {
+        DiagonalMatrix d = new DiagonalMatrix(new double[]{2, -1, 4});
+        Matrix dense = new Matrix(3, 3, d.getMatrixArray());
+        Matrix m = new Matrix(3, 2, new double[]{1, 2, 3, 4, 5, 6});
+        assertArrayEquals(AdvancedMath.matrixMultiply(dense, m).getMatrixArray(),
+                AdvancedMath.matrixMultiply(d, m).getMatrixArray(), DELTA);
+        Matrix n = new Matrix(2, 3, new double[]{1, 2, 3, 4, 5, 6});
+        assertArrayEquals(AdvancedMath.matrixMultiply(n, dense).getMatrixArray(),
+                AdvancedMath.matrixMultiply(n, d).getMatrixArray(), DELTA);
+        assertArrayEquals(new double[]{2, -1, 4}, AdvancedMath.matrixMultiply(d, new double[]{1, 1, 1}), DELTA);
+        assertEquals(-8, AdvancedMath.det(d), DELTA);
+        Matrix inverse = AdvancedMath.inv(d);
+        assertTrue(inverse instanceof DiagonalMatrix);
+        assertArrayEquals(AdvancedMath.inv(dense).getMatrixArray(), inverse.getMatrixArray(), DELTA);
+        assertArrayEquals(new double[]{1, -2, 0.5}, d.solve(new double[]{2, 2, 2}), DELTA);
+        assertTrue(AdvancedMath.scalarMultiply(2, d) instanceof DiagonalMatrix);
+        assertArrayEquals(new double[]{4, -2, 8}, ((DiagonalMatrix) AdvancedMath.scalarMultiply(2, d)).getDiagonal(),
+                DELTA);
+        assertArrayEquals(d.getMatrixArray(), AdvancedMath.transform(d).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.add(dense, dense).getMatrixArray(),
+                AdvancedMath.add(d, d).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void singular() {
+        try {
+            AdvancedMath.inv(new DiagonalMatrix(new double[]{1, 0}));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A matrix with a zero determinant has no inverse.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void powerAndExp() {
+        DiagonalMatrix d = new DiagonalMatrix(new double[]{2, -1, 0.5});
+        Matrix power = AdvancedMath.matrixPower(d, 5);
+        assertTrue(power instanceof DiagonalMatrix);
+        assertArrayEquals(new double[]{32, -1, 0.03125}, ((DiagonalMatrix) power).getDiagonal(), DELTA);
+        Matrix exp = AdvancedMath.matrixExp(d);
+        assertTrue(exp instanceof DiagonalMatrix);
+        assertArrayEquals(AdvancedMath.matrixExp(new Matrix(3, 3, d.getMatrixArray())).getMatrixArray(),
+                exp.getMatrixArray(), 1e-9);
+    }
+}
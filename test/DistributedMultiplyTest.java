@@ -0,0 +1,225 @@
+import com.scott.AdvancedMath;
+import com.scott.DistributedMultiply;
+import com.scott.LoopbackTransport;
+import com.scott.Matrix;
+import com.scott.SocketTransport;
+import com.scott.TileServer;
+import com.scott.TileTransport;
+import com.scott.WorkerStats;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DistributedMultiplyTest {
+    private final double DELTA = 0.0001;
+
+    /**
+     * Fails the first failures calls, then multiplies locally.
+     */
+    private static class FlakyTransport implements TileTransport {
+        private int failures;
+
+        private FlakyTransport(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public Matrix multiplyTiles(Matrix[] aRow, Matrix[] bColumn) throws IOException {
+            if (failures > 0) {
+                failures--;
+                throw new IOException("Worker down.");
+            }
+            return new LoopbackTransport("flaky").multiplyTiles(aRow, bColumn);
+        }
+
+        @Override
+        public String getName() {
+            return "flaky";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Throws an Error on the first errors calls, then multiplies locally.
+     */
+    private static class BrokenTransport implements TileTransport {
+        private int errors;
+
+        private BrokenTransport(int errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public Matrix multiplyTiles(Matrix[] aRow, Matrix[] bColumn) throws IOException {
+            if (errors > 0) {
+                errors--;
+                throw new AssertionError("Broken.");
+            }
+            return new LoopbackTransport("broken").multiplyTiles(aRow, bColumn);
+        }
+
+        @Override
+        public String getName() {
+            return "broken";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void loopback() throws IOException {
+        Matrix a = TestMatrices.random(7, 5, 1);
+        Matrix b = TestMatrices.random(5, 4, 2);
+        try (DistributedMultiply d = new DistributedMultiply(Arrays.asList(new LoopbackTransport("one"),
+                new LoopbackTransport("two"), new LoopbackTransport("three")), 3, 1)) {
+            Matrix c = d.multiply(a, b);
+            assertEquals(7, c.getRows());
+            assertEquals(4, c.getColumns());
+            assertArrayEquals(AdvancedMath.matrixMultiply(a, b).getMatrixArray(), c.getMatrixArray(), DELTA);
+            long tiles = 0, flops = 0;
+            for (WorkerStats stats : d.getWorkerStats()) {
+                tiles += stats.getTiles();
+                flops += stats.getFlops();
+            }
+            assertEquals(6, tiles);
+            assertEquals(2L * 7 * 4 * 5, flops);
+        }
+    }
+
+    @Test
+    public void sockets() throws IOException {
+        Matrix a = TestMatrices.random(10, 10, 3);
+        Matrix b = TestMatrices.random(10, 6, 4);
+        try (TileServer first = new TileServer(0).start(); TileServer second = new TileServer(0).start();
+             DistributedMultiply d = new DistributedMultiply(Arrays.asList(
+                     new SocketTransport("localhost", first.getPort()),
+                     new SocketTransport("localhost", second.getPort())), 4, 1)) {
+            assertArrayEquals(AdvancedMath.matrixMultiply(a, b).getMatrixArray(), d.multiply(a, b).getMatrixArray(),
+                    DELTA);
+            assertArrayEquals(AdvancedMath.matrixMultiply(a, b).getMatrixArray(), d.multiply(a, b).getMatrixArray(),
+                    DELTA);
+            for (WorkerStats stats : d.getWorkerStats()) {
+                assertEquals(0, stats.getFailures());
+            }
+        }
+    }
+
+    @Test
+    public void retry() throws IOException {
+        Matrix a = TestMatrices.random(6, 6, 5);
+        Matrix b = TestMatrices.random(6, 6, 6);
+        try (DistributedMultiply d = new DistributedMultiply(Arrays.asList(new FlakyTransport(1),
+                new SocketTransport("localhost", 1, 100)), 2, 3)) {
+            assertArrayEquals(AdvancedMath.matrixMultiply(a, b).getMatrixArray(), d.multiply(a, b).getMatrixArray(),
+                    DELTA);
+            List<WorkerStats> stats = d.getWorkerStats();
+            assertEquals(9, stats.get(0).getTiles());
+            assertEquals(1, stats.get(0).getFailures());
+            assertEquals(0, stats.get(1).getTiles());
+            assertTrue(stats.get(1).getFailures() > 0);
+        }
+    }
+
+    @Test
+    public void failure() throws IOException {
+        try (DistributedMultiply d = new DistributedMultiply(Collections.singletonList(new FlakyTransport(100)),
+                2, 2)) {
+            d.multiply(TestMatrices.random(2, 2, 7), TestMatrices.random(2, 2, 8));
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("Tile (0, 0) failed after 2 attempts.", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void errorsInTransport() throws IOException {
+        Matrix a = TestMatrices.random(6, 6, 9);
+        Matrix b = TestMatrices.random(6, 6, 10);
+        try (DistributedMultiply d = new DistributedMultiply(Arrays.asList(new BrokenTransport(2),
+                new LoopbackTransport("one")), 2, 3)) {
+            assertArrayEquals(AdvancedMath.matrixMultiply(a, b).getMatrixArray(), d.multiply(a, b).getMatrixArray(),
+                    DELTA);
+        }
+        try (DistributedMultiply d = new DistributedMultiply(Collections.singletonList(new BrokenTransport(100)),
+                2, 2)) {
+            d.multiply(a, b);
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("Broken.", e.getCause().getCause().getMessage());
+        }
+    }
+
+    private String requestError(int port, int... ints) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            for (int value : ints) {
+                out.writeInt(value);
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals(1, in.readByte());
+            String message = in.readUTF();
+            // The connection is closed after a request that can't be read.
+            assertEquals(-1, in.read());
+            return message;
+        }
+    }
+
+    @Test
+    public void badRequests() throws IOException {
+        try (TileServer server = new TileServer(0).start()) {
+            assertEquals("Request has -1 tiles.", requestError(server.getPort(), -1));
+            assertEquals("Request has 2147483647 tiles.", requestError(server.getPort(), Integer.MAX_VALUE));
+            assertEquals("Tile has 0 rows and 3 columns.", requestError(server.getPort(), 1, 0, 3));
+            assertEquals("Tile is larger than 16777216 values.",
+                    requestError(server.getPort(), 1, 65536, 65536));
+            // The server keeps working for other clients.
+            try (SocketTransport transport = new SocketTransport("localhost", server.getPort())) {
+                Matrix a = TestMatrices.random(3, 3, 11);
+                assertArrayEquals(AdvancedMath.matrixMultiply(a, a).getMatrixArray(),
+                        transport.multiplyTiles(new Matrix[]{a}, new Matrix[]{a}).getMatrixArray(), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void errors() throws IOException {
+        try {
+            new DistributedMultiply(Collections.<TileTransport>emptyList(), 2, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("At least 1 worker is needed.", e.getMessage());
+        }
+        // 4096 x 4096 is the largest tile a request can carry.
+        new DistributedMultiply(Collections.singletonList(new LoopbackTransport("one")), 4096, 1).close();
+        try {
+            new DistributedMultiply(Collections.singletonList(new LoopbackTransport("one")), 4097, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Tiles can have at most 16777216 values.", e.getMessage());
+        }
+        try {
+            new DistributedMultiply(Collections.singletonList(new LoopbackTransport("one")), 2, 1)
+                    .multiply(new Matrix(2, 3), new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of columns in matrix A must match the number of rows in matrix B.",
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import com.scott.FFT;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FFTTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void forwardMatchesDft() {
+        Random random = new Random(1);
+        for (int size : new int[]{2, 4, 8, 64, 1024}) {
+            double[] signal = new double[size];
+            for (int i = 0; i < size; i++) {
+                signal[i] = random.nextGaussian();
+            }
+            FFT fft = new FFT(size);
+            assertEquals(size, fft.getSize());
+            double[] real = new double[size / 2 + 1];
+            double[] imaginary = new double[size / 2 + 1];
+            fft.forward(signal, real, imaginary);
+            for (int k = 0; k <= size / 2; k++) {
+                double re = 0, im = 0;
+                for (int t = 0; t < size; t++) {
+                    double angle = 2 * Math.PI * ((long) k * t % size) / size;
+                    re += signal[t] * Math.cos(angle);
+                    im -= signal[t] * Math.sin(angle);
+                }
+                assertEquals(re, real[k], 1e-9);
+                assertEquals(im, imaginary[k], 1e-9);
+            }
+            double[] back = new double[size];
+            fft.inverse(real, imaginary, back);
+            assertArrayEquals(signal, back, 1e-12);
+        }
+    }
+
+    @Test
+    public void impulseAndConstant() {
+        FFT fft = new FFT(8);
+        double[] real = new double[5];
+        double[] imaginary = new double[5];
+        fft.forward(new double[]{1, 0, 0, 0, 0, 0, 0, 0}, real, imaginary);
+        assertArrayEquals(new double[]{1, 1, 1, 1, 1}, real, DELTA);
+        assertArrayEquals(new double[5], imaginary, DELTA);
+        fft.forward(new double[]{2, 2, 2, 2, 2, 2, 2, 2}, real, imaginary);
+        assertArrayEquals(new double[]{16, 0, 0, 0, 0}, real, DELTA);
+    }
+
+    @Test
+    public void errors() {
+        for (int size : new int[]{0, 1, 12}) {
+            try {
+                new FFT(size);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("The size must be a power of 2 and at least 2.", e.getMessage());
+            }
+        }
+        FFT fft = new FFT(8);
+        try {
+            fft.forward(new double[4], new double[5], new double[5]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The signal must have the FFT's number of samples.", e.getMessage());
+        }
+        try {
+            fft.inverse(new double[4], new double[5], new double[8]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The spectrum must have size/2 + 1 bins.", e.getMessage());
+        }
+    }
+}
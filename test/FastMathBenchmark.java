@@ -0,0 +1,86 @@
+import com.scott.AdvancedMath;
+import com.scott.FastMath;
+
+import java.util.Random;
+
+/**
+ * Compares FastMath with the exact functions. Not a test, run it with
+ * <pre>
+ * java -cp ... FastMathBenchmark
+ * </pre>
+ */
+public class FastMathBenchmark {
+    private static volatile double sink;
+
+    interface Kernel {
+        double run(double[] data);
+    }
+
+    private static double time(String name, double[] data, Kernel kernel) {
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < 40; run++) {
+            long start = System.nanoTime();
+            sink += kernel.run(data);
+            best = Math.min(best, (System.nanoTime() - start) / (double) data.length);
+        }
+        System.out.printf("%-32s %8.3f ns/element%n", name, best);
+        return best;
+    }
+
+    private static void compare(String name, double[] data, Kernel exact, Kernel fast) {
+        double exactTime = time(name + " exact", data, exact);
+        double fastTime = time(name + " fast", data, fast);
+        System.out.printf("%-32s %8.2fx%n%n", name + " speedup", exactTime / fastTime);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        double[] data = new double[1 << 20];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextDouble() * 100 + 1e-3;
+        }
+        compare("1/sqrt", data, d -> {
+            double sum = 0;
+            for (double x : d) {
+                sum += 1 / Math.sqrt(x);
+            }
+            return sum;
+        }, d -> {
+            double sum = 0;
+            for (double x : d) {
+                sum += FastMath.rsqrt(x);
+            }
+            return sum;
+        });
+        compare("1/sqrt refined", data, d -> {
+            double sum = 0;
+            for (double x : d) {
+                sum += 1 / Math.sqrt(x);
+            }
+            return sum;
+        }, d -> {
+            double sum = 0;
+            for (double x : d) {
+                sum += FastMath.rsqrtRefined(x);
+            }
+            return sum;
+        });
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextDouble() * 1.2 - 0.1;
+        }
+        compare("smootherstep", data, d -> {
+            double sum = 0;
+            for (double t : d) {
+                t = AdvancedMath.clamp(t, 0, 1);
+                sum += t * t * t * (t * (6 * t - 15) + 10);
+            }
+            return sum;
+        }, d -> {
+            double sum = 0;
+            for (double t : d) {
+                sum += FastMath.smootherstep(0, 1, t);
+            }
+            return sum;
+        });
+    }
+}
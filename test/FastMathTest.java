@@ -0,0 +1,65 @@
+import com.scott.FastMath;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FastMathTest {
+    private final double DELTA = 0.0001;
+
+    /**
+     * The error of rsqrt only depends on the exponent's parity and the mantissa, so this covers every top 20 bits of
+     * the mantissa in both parities, with random low bits, plus random inputs across the whole range.
+     */
+    @Test
+    public void rsqrt() {
+        Random random = new Random(1);
+        double worst = 0, worstRefined = 0;
+        for (long top = 0; top < 1 << 20; top++) {
+            for (int parity = 0; parity < 2; parity++) {
+                long bits = (1023L + parity) << 52 | top << 32 | (random.nextLong() & 0xFFFFFFFFL);
+                double x = Double.longBitsToDouble(bits);
+                double exact = 1 / Math.sqrt(x);
+                worst = Math.max(worst, Math.abs(FastMath.rsqrt(x) - exact) / exact);
+                worstRefined = Math.max(worstRefined, Math.abs(FastMath.rsqrtRefined(x) - exact) / exact);
+            }
+        }
+        for (int i = 0; i < 1000000; i++) {
+            double x = Double.longBitsToDouble(random.nextLong() & Long.MAX_VALUE);
+            if (Double.isNaN(x) || Double.isInfinite(x) || x == 0) {
+                continue;
+            }
+            double exact = 1 / Math.sqrt(x);
+            worst = Math.max(worst, Math.abs(FastMath.rsqrt(x) - exact) / exact);
+            worstRefined = Math.max(worstRefined, Math.abs(FastMath.rsqrtRefined(x) - exact) / exact);
+        }
+        assertTrue("rsqrt error " + worst, worst <= 1.76e-3);
+        assertTrue("rsqrtRefined error " + worstRefined, worstRefined <= 4.6e-6);
+        assertEquals(Double.POSITIVE_INFINITY, FastMath.rsqrt(0), DELTA);
+        assertEquals(0, FastMath.rsqrt(Double.POSITIVE_INFINITY), DELTA);
+        assertTrue(Double.isNaN(FastMath.rsqrtRefined(-1)));
+    }
+
+    @Test
+    public void smoothstep() {
+        double worst = 0, worstSmoother = 0;
+        int steps = 1 << 20;
+        for (int i = 0; i <= steps; i++) {
+            double x = 2 + 3.0 * i / steps;
+            double t = (x - 2) / 3;
+            double cubic = 3 * t * t - 2 * t * t * t;
+            double quintic = 6 * Math.pow(t, 5) - 15 * Math.pow(t, 4) + 10 * Math.pow(t, 3);
+            worst = Math.max(worst, Math.abs(FastMath.smoothstep(2, 5, x) - cubic));
+            worstSmoother = Math.max(worstSmoother, Math.abs(FastMath.smootherstep(2, 5, x) - quintic));
+        }
+        assertTrue("smoothstep error " + worst, worst <= 1e-14);
+        assertTrue("smootherstep error " + worstSmoother, worstSmoother <= 1e-14);
+        assertEquals(0, FastMath.smoothstep(2, 4, 1), DELTA);
+        assertEquals(1, FastMath.smoothstep(2, 4, 5), DELTA);
+        assertEquals(0.5, FastMath.smoothstep(2, 4, 3), DELTA);
+        assertEquals(0, FastMath.smootherstep(2, 4, -10), DELTA);
+        assertEquals(1, FastMath.smootherstep(2, 4, 10), DELTA);
+        assertTrue(Double.isNaN(FastMath.smootherstep(0, 1, Double.NaN)));
+    }
+}
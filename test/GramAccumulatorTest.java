@@ -0,0 +1,77 @@
+import com.scott.AdvancedMath;
+import com.scott.GramAccumulator;
+import com.scott.Matrix;
+import com.scott.MatrixReader;
+import com.scott.MatrixWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class GramAccumulatorTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void chunksAddUpToTheWholeMatrix() {
+        Matrix x = TestMatrices.random(100, 70, 1);
+        GramAccumulator accumulator = new GramAccumulator(70);
+        double[] values = x.getMatrixArray();
+        int at = 0;
+        for (int chunk : new int[]{1, 17, 40, 42}) {
+            accumulator.add(new Matrix(chunk, 70, Arrays.copyOfRange(values, at * 70, (at + chunk) * 70)));
+            at += chunk;
+        }
+        assertEquals(100, accumulator.getRowCount());
+        assertEquals(70, accumulator.getColumns());
+        assertArrayEquals(AdvancedMath.gram(x).getMatrixArray(), accumulator.getGram().getMatrixArray(), 1e-9);
+        accumulator.reset();
+        assertEquals(0, accumulator.getRowCount());
+        accumulator.addRow(new double[70]);
+        assertArrayEquals(new double[70 * 70], accumulator.getGram().getMatrixArray(), 0);
+    }
+
+    @Test
+    public void streamedFrames() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Matrix whole = TestMatrices.random(60, 4, 2);
+        try (MatrixWriter writer = new MatrixWriter(bytes, 0)) {
+            for (int r = 0; r < 60; r += 20) {
+                writer.write(new Matrix(20, 4, Arrays.copyOfRange(whole.getMatrixArray(), r * 4, (r + 20) * 4)));
+            }
+        }
+        GramAccumulator accumulator = new GramAccumulator(4);
+        try (MatrixReader reader = new MatrixReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (Matrix frame = reader.read(); frame != null; frame = reader.read()) {
+                accumulator.add(frame);
+            }
+        }
+        assertArrayEquals(AdvancedMath.gram(whole).getMatrixArray(), accumulator.getGram().getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new GramAccumulator(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The minimum dimension for rows and columns is 1.", e.getMessage());
+        }
+        GramAccumulator accumulator = new GramAccumulator(3);
+        try {
+            accumulator.add(new Matrix(2, 4));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The matrix must have the accumulator's number of columns.", e.getMessage());
+        }
+        try {
+            accumulator.addRow(new double[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The row must have one element per column.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import com.scott.AdvancedMath;
+import com.scott.ImmutableMatrix;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ImmutableMatrixTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void construction() {
+        double[] values = {1, 2, 3, 4};
+        ImmutableMatrix m = new ImmutableMatrix(2, 2, values);
+        values[0] = 100;
+        assertEquals(1, m.getCell(0, 0), DELTA);
+        try {
+            new ImmutableMatrix(1, 1, new double[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Dimensions do not match provided matrix size.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void freeze() {
+        Matrix m = new Matrix(2, 2, new double[]{1, 2, 3, 4});
+        ImmutableMatrix frozen = m.freeze();
+        m.setCell(0, 0, 100);
+        assertEquals(1, frozen.getCell(0, 0), DELTA);
+        assertSame(frozen, frozen.freeze());
+    }
+
+    @Test
+    public void readOnly() {
+        ImmutableMatrix m = new ImmutableMatrix(2, 2, new double[]{1, 2, 3, 4});
+        try {
+            m.setCell(0, 0, 5);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals("An immutable matrix can't be modified.", e.getMessage());
+        }
+        m.getMatrixArray()[0] = 5;
+        m.getRow(0)[0] = 5;
+        assertEquals(1, m.getCell(0, 0), DELTA);
+    }
+
+    @Test
+    public void worksWithAdvancedMath() {
+        ImmutableMatrix m = new ImmutableMatrix(3, 3, new double[]{2, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertArrayEquals(AdvancedMath.identityMatrix(3).getMatrixArray(),
+                AdvancedMath.matrixMultiply(m, AdvancedMath.inv(m)).getMatrixArray(), DELTA);
+        assertArrayEquals(new double[]{4, 4, 6, 8, 10, 12, 14, 16, 18},
+                AdvancedMath.add(m, m).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void derivedValues() {
+        ImmutableMatrix m = new ImmutableMatrix(3, 3, new double[]{2, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertEquals(AdvancedMath.det(m), m.det(), DELTA);
+        assertEquals(Math.sqrt(4 + 4 + 9 + 16 + 25 + 36 + 49 + 64 + 81), m.norm(), DELTA);
+        assertArrayEquals(AdvancedMath.transform(m).getMatrixArray(), m.transpose().getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.inv(m).getMatrixArray(), m.inverse().getMatrixArray(), DELTA);
+        assertSame(m.transpose(), m.transpose());
+        assertSame(m, m.transpose().transpose());
+        assertSame(m.lu(), m.lu());
+        assertSame(m.inverse(), m.inverse());
+    }
+
+    @Test
+    public void concurrentReads() throws Exception {
+        ImmutableMatrix m = new ImmutableMatrix(4, 4, new double[]{1, 2, 2, 3,
+                2, 3, 3, 4,
+                4, 52, 1, 3,
+                1, 6, 4, 2});
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Double>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(pool.submit(() -> m.det() + m.inverse().getCell(0, 0)));
+            }
+            double expected = AdvancedMath.det(m) + AdvancedMath.inv(m).getCell(0, 0);
+            for (Future<Double> result : results) {
+                assertEquals(expected, result.get(), DELTA);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import com.scott.AdvancedMath;
+import com.scott.LUDecomposition;
+import com.scott.Matrix;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LUDecompositionTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void construction() {
+        try {
+            new LUDecomposition(new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have same number of " +
+                    "rows and columns to calculate LU decomposition.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void factors() {
+        Matrix m = new Matrix(3, 3, new double[]{1, 2, 3,
+                4, 5, 6,
+                7, 8, 10});
+        LUDecomposition lu = new LUDecomposition(m);
+        Matrix product = AdvancedMath.matrixMultiply(lu.getL(), lu.getU());
+        int[] pivot = lu.getPivot();
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(m.getRow(pivot[i]), product.getRow(i), DELTA);
+        }
+    }
+
+    @Test
+    public void det() {
+        assertEquals(-376, new LUDecomposition(new Matrix(4, 4,
+                new double[]{1, 3, 5, 9, 1, 3, 1, 7, 4, 3, 9, 7, 5, 2, 0, 9})).det(), DELTA);
+        assertEquals(-195064, new LUDecomposition(new Matrix(5, 5,
+                new double[]{5, 1, 3, 0, 1, 9, 4, 1, 3, 8, 5, 0, 8, 1, 3, 1, 8, 3, 99, 10, 43, 9, 84, 90, 1})).det(),
+                DELTA);
+        assertTrue(new LUDecomposition(new Matrix(2, 2, new double[]{1, 2, 2, 4})).isSingular());
+    }
+
+    @Test
+    public void solve() {
+        Matrix m = new Matrix(3, 3, new double[]{2, 1, -1,
+                -3, -1, 2,
+                -2, 1, 2});
+        LUDecomposition lu = new LUDecomposition(m);
+        assertArrayEquals(new double[]{2, 3, -1}, lu.solve(new double[]{8, -11, -3}), DELTA);
+        assertArrayEquals(AdvancedMath.inv(m).getMatrixArray(), lu.inverse().getMatrixArray(), DELTA);
+        try {
+            lu.solve(new double[]{1, 2});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of elements in vector b must match the number of " +
+                    "rows in the matrix.", e.getMessage());
+        }
+        try {
+            new LUDecomposition(new Matrix(2, 2, new double[]{1, 2, 2, 4})).solve(new double[]{1, 2});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A matrix with a zero determinant has no inverse.", e.getMessage());
+        }
+    }
+}
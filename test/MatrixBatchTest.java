@@ -0,0 +1,129 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.MatrixBatch;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MatrixBatchTest {
+    private final double DELTA = 0.0001;
+
+    private MatrixBatch randomBatch(int count, int dim, long seed) {
+        Random random = new Random(seed);
+        double[] values = new double[count * dim * dim];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 10 - 5;
+        }
+        return new MatrixBatch(count, dim, values);
+    }
+
+    @Test
+    public void construction() {
+        try {
+            new MatrixBatch(0, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A batch must contain at least 1 matrix.", e.getMessage());
+        }
+        try {
+            new MatrixBatch(2, 5);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Batched matrices must have a dimension of 2, 3 or 4.", e.getMessage());
+        }
+        try {
+            new MatrixBatch(2, 2, new double[7]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Dimensions do not match provided batch size.", e.getMessage());
+        }
+        // 16 * (2^28 + 1) wraps around to 16 in an int.
+        for (double[] array : new double[][]{new double[16], null}) {
+            try {
+                if (array == null) {
+                    new MatrixBatch((1 << 28) + 1, 4);
+                } else {
+                    new MatrixBatch((1 << 28) + 1, 4, array);
+                }
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("A batch can hold at most 2147483647 elements.", e.getMessage());
+            }
+        }
+        assertEquals(18, new MatrixBatch(2, 3).getBatchArray().length);
+    }
+
+    @Test
+    public void getAndSetMatrix() {
+        MatrixBatch batch = new MatrixBatch(3, 2);
+        batch.setMatrix(1, new Matrix(2, 2, new double[]{1, 2, 3, 4}));
+        assertArrayEquals(new double[]{0, 0, 0, 0, 1, 2, 3, 4, 0, 0, 0, 0}, batch.getBatchArray(), DELTA);
+        assertArrayEquals(new double[]{1, 2, 3, 4}, batch.getMatrix(1).getMatrixArray(), DELTA);
+        assertEquals(3, batch.getCell(1, 1, 0), DELTA);
+        batch.setCell(2, 0, 1, 7);
+        assertEquals(7, batch.getMatrix(2).getCell(0, 1), DELTA);
+        try {
+            batch.getMatrix(3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Indices are out of bounds.", e.getMessage());
+        }
+        try {
+            batch.setMatrix(0, AdvancedMath.identityMatrix(3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix dimensions do not match the batch.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void det() {
+        for (int dim = 2; dim <= 4; dim++) {
+            MatrixBatch batch = randomBatch(3000, dim, dim);
+            double[] dets = AdvancedMath.det(batch);
+            for (int i = 0; i < batch.getCount(); i += 97) {
+                assertEquals(AdvancedMath.det(batch.getMatrix(i)), dets[i], DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void inv() {
+        for (int dim = 2; dim <= 4; dim++) {
+            MatrixBatch batch = randomBatch(3000, dim, dim * 31);
+            MatrixBatch inverse = AdvancedMath.inv(batch);
+            for (int i = 0; i < batch.getCount(); i += 97) {
+                assertArrayEquals(AdvancedMath.inv(batch.getMatrix(i)).getMatrixArray(),
+                        inverse.getMatrix(i).getMatrixArray(), DELTA);
+            }
+        }
+        try {
+            AdvancedMath.inv(new MatrixBatch(2, 3, new double[]{1, 0, 0, 0, 1, 0, 0, 0, 1,
+                    1, 2, 3, 4, 5, 6, 7, 8, 9}));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A matrix with a zero determinant has no inverse.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void matrixMultiply() {
+        for (int dim = 2; dim <= 4; dim++) {
+            MatrixBatch A = randomBatch(3000, dim, dim * 7);
+            MatrixBatch B = randomBatch(3000, dim, dim * 13);
+            MatrixBatch result = AdvancedMath.matrixMultiply(A, B);
+            for (int i = 0; i < A.getCount(); i += 97) {
+                assertArrayEquals(AdvancedMath.matrixMultiply(A.getMatrix(i), B.getMatrix(i)).getMatrixArray(),
+                        result.getMatrix(i).getMatrixArray(), DELTA);
+            }
+        }
+        try {
+            AdvancedMath.matrixMultiply(new MatrixBatch(2, 3), new MatrixBatch(3, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Batches A and B must have the same count and dimension to multiply.", e.getMessage());
+        }
+    }
+}
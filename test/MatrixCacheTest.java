@@ -0,0 +1,101 @@
+import com.scott.AdvancedMath;
+import com.scott.ImmutableMatrix;
+import com.scott.Matrix;
+import com.scott.MatrixCache;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MatrixCacheTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void hitsAndMisses() {
+        MatrixCache cache = new MatrixCache(4);
+        Matrix m = new Matrix(2, 2, new double[]{4, 7, 2, 6});
+        assertEquals(10, cache.det(m), DELTA);
+        assertEquals(10, cache.det(m), DELTA);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        ImmutableMatrix inverse = cache.inv(m);
+        assertArrayEquals(AdvancedMath.inv(m).getMatrixArray(), inverse.getMatrixArray(), DELTA);
+        assertSame(inverse, cache.inv(new Matrix(2, 2, new double[]{4, 7, 2, 6})));
+        assertArrayEquals(AdvancedMath.adj(m).getMatrixArray(), cache.adj(m).getMatrixArray(), DELTA);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void setCellInvalidates() {
+        MatrixCache cache = new MatrixCache(4);
+        Matrix m = new Matrix(2, 2, new double[]{4, 7, 2, 6});
+        assertEquals(10, cache.det(m), DELTA);
+        m.setCell(0, 0, 5);
+        assertEquals(16, cache.det(m), DELTA);
+        m.setCell(0, 0, 4);
+        assertEquals(10, cache.det(m), DELTA);
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void backingArrayWritesInvalidate() {
+        MatrixCache cache = new MatrixCache(4);
+        Matrix m = new Matrix(2, 2, new double[]{4, 7, 2, 6});
+        double[] backing = m.getMatrixArray();
+        assertEquals(10, cache.det(m), DELTA);
+        backing[0] = 5;
+        assertEquals(16, cache.det(m), DELTA);
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void eviction() {
+        MatrixCache cache = new MatrixCache(2);
+        Matrix a = new Matrix(1, 1, new double[]{1});
+        Matrix b = new Matrix(1, 1, new double[]{2});
+        Matrix c = new Matrix(1, 1, new double[]{3});
+        cache.det(a);
+        cache.det(b);
+        cache.det(a);
+        cache.det(c);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.det(a);
+        assertEquals(2, cache.getHitCount());
+        cache.det(b);
+        assertEquals(4, cache.getMissCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void immutableMatrices() {
+        MatrixCache cache = new MatrixCache(4);
+        ImmutableMatrix m = new ImmutableMatrix(2, 2, new double[]{4, 7, 2, 6});
+        assertEquals(10, cache.det(m), DELTA);
+        assertEquals(10, cache.det(m), DELTA);
+        assertEquals(10, cache.det(new Matrix(2, 2, new double[]{4, 7, 2, 6})), DELTA);
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new MatrixCache(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The cache must be able to hold at least 1 entry.", e.getMessage());
+        }
+        MatrixCache cache = new MatrixCache(4);
+        Matrix singular = new Matrix(2, 2, new double[]{1, 2, 2, 4});
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.inv(singular);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("A matrix with a zero determinant has no inverse.", e.getMessage());
+            }
+        }
+        assertEquals(0, cache.size());
+    }
+}
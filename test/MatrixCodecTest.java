@@ -0,0 +1,175 @@
+import com.scott.BandedMatrix;
+import com.scott.BufferMatrix;
+import com.scott.DiagonalMatrix;
+import com.scott.Matrix;
+import com.scott.MatrixCodec;
+import com.scott.SymmetricMatrix;
+import com.scott.TriangularMatrix;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class MatrixCodecTest {
+    private final double DELTA = 0.0001;
+    private final int[] FLAGS = {0, MatrixCodec.SHUFFLE, MatrixCodec.COMPRESS, MatrixCodec.COLUMNAR,
+            MatrixCodec.SHUFFLE | MatrixCodec.COMPRESS,
+            MatrixCodec.SHUFFLE | MatrixCodec.COMPRESS | MatrixCodec.COLUMNAR};
+
+    @Test
+    public void denseRoundTrip() {
+        Matrix m = TestMatrices.random(37, 23, 1);
+        for (int flags : FLAGS) {
+            byte[] frame = MatrixCodec.encode(m, flags);
+            Matrix decoded = MatrixCodec.decode(frame);
+            assertEquals(37, decoded.getRows());
+            assertEquals(23, decoded.getColumns());
+            // Bit for bit, not just close.
+            assertArrayEquals(m.getMatrixArray(), decoded.getMatrixArray(), 0);
+        }
+        assertEquals(MatrixCodec.HEADER_SIZE + 37 * 23 * 8, MatrixCodec.encode(m).length);
+    }
+
+    @Test
+    public void structuredRoundTrip() {
+        Matrix dense = TestMatrices.random(6, 6, 2);
+        Matrix[] matrices = {new DiagonalMatrix(new double[]{1, 2, 3}), new TriangularMatrix(dense, true),
+                new TriangularMatrix(dense, false), new BandedMatrix(dense, 1, 2), new SymmetricMatrix(dense)};
+        for (Matrix m : matrices) {
+            for (int flags : FLAGS) {
+                Matrix decoded = MatrixCodec.decode(MatrixCodec.encode(m, flags));
+                assertEquals(m.getClass(), decoded.getClass());
+                assertArrayEquals(m.getMatrixArray(), decoded.getMatrixArray(), 0);
+            }
+        }
+        BandedMatrix tridiagonal = new BandedMatrix(1000, 1000, 1, 1);
+        assertEquals(MatrixCodec.HEADER_SIZE + 3000 * 8, MatrixCodec.encode(tridiagonal).length);
+    }
+
+    @Test
+    public void compression() {
+        // Values with few distinct bits compress well, especially shuffled.
+        double[] values = new double[1 << 16];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 1000) * 0.25;
+        }
+        Matrix m = new Matrix(256, 256, values);
+        int raw = MatrixCodec.encode(m).length;
+        int compressed = MatrixCodec.encode(m, MatrixCodec.COMPRESS).length;
+        int shuffled = MatrixCodec.encode(m, MatrixCodec.SHUFFLE | MatrixCodec.COMPRESS).length;
+        assertTrue(compressed < raw / 2);
+        assertTrue(shuffled < raw / 4);
+        assertArrayEquals(values, MatrixCodec.decode(MatrixCodec.encode(m, MatrixCodec.SHUFFLE |
+                MatrixCodec.COMPRESS)).getMatrixArray(), 0);
+
+        // Random values don't compress, so the frame is stored as is.
+        Matrix noise = TestMatrices.random(64, 64, 3);
+        assertEquals(MatrixCodec.encode(noise).length, MatrixCodec.encode(noise, MatrixCodec.COMPRESS).length);
+    }
+
+    @Test
+    public void vectors() {
+        double[] vectors = TestMatrices.random(100, 8, 4).getMatrixArray();
+        Matrix decoded = MatrixCodec.decode(MatrixCodec.encodeVectors(vectors, 8, MatrixCodec.COLUMNAR));
+        assertEquals(100, decoded.getRows());
+        assertEquals(8, decoded.getColumns());
+        assertArrayEquals(vectors, decoded.getMatrixArray(), 0);
+        try {
+            MatrixCodec.encodeVectors(vectors, 7, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The vectors must be a whole number of vectors of the dimension.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void wrap() {
+        Matrix m = TestMatrices.random(5, 4, 5);
+        Matrix n = TestMatrices.random(3, 3, 6);
+        byte[] first = MatrixCodec.encode(m);
+        byte[] second = MatrixCodec.encode(n, MatrixCodec.COMPRESS | MatrixCodec.SHUFFLE);
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length);
+        buffer.put(first).put(second).flip();
+
+        Matrix view = MatrixCodec.wrap(buffer);
+        assertTrue(view instanceof BufferMatrix);
+        assertEquals(first.length, buffer.position());
+        assertArrayEquals(m.getMatrixArray(), view.getMatrixArray(), 0);
+        // The view shares the buffer's memory.
+        view.setCell(1, 2, 42);
+        assertEquals(42, MatrixCodec.decode(ByteBuffer.wrap(buffer.array(), 0, first.length)).getCell(1, 2), DELTA);
+
+        Matrix decoded = MatrixCodec.wrap(buffer);
+        assertFalse(decoded instanceof BufferMatrix);
+        assertArrayEquals(n.getMatrixArray(), decoded.getMatrixArray(), 0);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private byte[] header(int kind, int flags, int rows, int cols, int count, int payloadLength, int extra) {
+        ByteBuffer frame = ByteBuffer.allocate(MatrixCodec.HEADER_SIZE + extra).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put(new byte[]{'A', 'M', 'X', '1'}).put((byte) kind).put((byte) flags).putShort((short) 0)
+                .putInt(rows).putInt(cols).putInt(0).putInt(0).putInt(count).putInt(payloadLength);
+        return frame.array();
+    }
+
+    private void assertInvalid(byte[] frame, String message) {
+        try {
+            MatrixCodec.decode(frame);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /**
+     * Headers that ask for far more values than the frame holds are rejected before anything is allocated.
+     */
+    @Test
+    public void hostileHeaders() {
+        assertInvalid(header(0, 0, 3, 3, Integer.MAX_VALUE / 8, 0, 0), "The frame's header is invalid.");
+        assertInvalid(header(0, 0, 16384, 16384, 1 << 28, 0, 0), "The frame's header is invalid.");
+        assertInvalid(header(0, 0, 8192, 8192, 1 << 26, 0, 0), "The frame's payload is the wrong size.");
+        assertInvalid(header(0, MatrixCodec.COMPRESS, 8192, 8192, 1 << 26, 8, 8),
+                "The frame's payload is the wrong size.");
+        assertInvalid(header(1, 0, 3, 4, 3, 24, 24), "The frame's header is invalid.");
+        assertInvalid(header(2, 0, 3, 3, 9, 72, 72), "The frame's header is invalid.");
+        assertInvalid(header(0, 0, 2, 2, 4, Integer.MAX_VALUE, 0), "The frame's header is invalid.");
+        // A frame with no flags whose payload is shorter than its values.
+        assertInvalid(header(0, 0, 2, 2, 4, 24, 24), "The frame's payload is the wrong size.");
+    }
+
+    @Test
+    public void invalidFrames() {
+        byte[] frame = MatrixCodec.encode(TestMatrices.random(4, 4, 7), MatrixCodec.COMPRESS);
+        try {
+            MatrixCodec.decode(new byte[]{1, 2, 3});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The buffer is too short to hold a frame.", e.getMessage());
+        }
+        byte[] badMagic = frame.clone();
+        badMagic[0] = 'B';
+        try {
+            MatrixCodec.decode(badMagic);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The buffer does not hold a matrix frame.", e.getMessage());
+        }
+        byte[] truncated = new byte[frame.length - 1];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        try {
+            MatrixCodec.decode(truncated);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The buffer is too short to hold a frame.", e.getMessage());
+        }
+        try {
+            MatrixCodec.encode(TestMatrices.random(2, 2, 8), 8);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown flags: 8.", e.getMessage());
+        }
+    }
+}
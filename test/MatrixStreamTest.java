@@ -0,0 +1,86 @@
+import com.scott.BandedMatrix;
+import com.scott.Matrix;
+import com.scott.MatrixCodec;
+import com.scott.MatrixReader;
+import com.scott.MatrixWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class MatrixStreamTest {
+    @Test
+    public void writeAndRead() throws IOException {
+        Matrix small = new Matrix(2, 2, new double[]{1, 2, 3, 4});
+        double[] large = new double[300 * 64];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = Math.sin(i);
+        }
+        BandedMatrix banded = new BandedMatrix(5, 5, 1, 0);
+        banded.setCell(3, 2, 7);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MatrixWriter out = new MatrixWriter(bytes, MatrixCodec.SHUFFLE | MatrixCodec.COMPRESS)) {
+            out.write(small);
+            out.writeVectors(large, 64);
+            out.write(banded);
+            assertEquals(3, out.getFramesWritten());
+            out.flush();
+            assertEquals(bytes.size(), out.getBytesWritten());
+        }
+
+        try (MatrixReader in = new MatrixReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertArrayEquals(small.getMatrixArray(), in.read().getMatrixArray(), 0);
+            Matrix vectors = in.read();
+            assertEquals(300, vectors.getRows());
+            assertArrayEquals(large, vectors.getMatrixArray(), 0);
+            Matrix m = in.read();
+            assertTrue(m instanceof BandedMatrix);
+            assertEquals(7, m.getCell(3, 2), 0);
+            assertNull(in.read());
+            assertEquals(3, in.getFramesRead());
+        }
+    }
+
+    @Test
+    public void truncatedStream() throws IOException {
+        byte[] frame = MatrixCodec.encode(new Matrix(3, 3));
+        byte[] truncated = new byte[frame.length - 8];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        try (MatrixReader in = new MatrixReader(new ByteArrayInputStream(truncated))) {
+            in.read();
+            fail();
+        } catch (EOFException e) {
+            assertEquals("The stream ended in the middle of a frame.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void hostileHeader() throws IOException {
+        // A valid header for a 8192 x 8192 matrix followed by only a few bytes of it.
+        byte[] frame = MatrixCodec.encode(new Matrix(2, 2));
+        byte[] header = new byte[MatrixCodec.HEADER_SIZE + 16];
+        System.arraycopy(frame, 0, header, 0, MatrixCodec.HEADER_SIZE);
+        ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).putInt(8, 8192).putInt(12, 8192).putInt(24, 1 << 26)
+                .putInt(28, 1 << 29);
+        try (MatrixReader in = new MatrixReader(new ByteArrayInputStream(header))) {
+            in.read();
+            fail();
+        } catch (EOFException e) {
+            assertEquals("The stream ended in the middle of a frame.", e.getMessage());
+        }
+        ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).putInt(28, Integer.MAX_VALUE);
+        try (MatrixReader in = new MatrixReader(new ByteArrayInputStream(header))) {
+            in.read();
+            fail();
+        } catch (IOException e) {
+            assertEquals("The frame's header is invalid.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.Metrics;
+import com.scott.MetricsListener;
+import com.scott.OperationStats;
+import com.scott.Tensor;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class MetricsTest {
+    @Test
+    public void disabledByDefault() {
+        // Skipped when the suite itself runs with metrics on; enabledInAForkedJvm covers that case.
+        assumeFalse(Metrics.ENABLED);
+        AtomicInteger calls = new AtomicInteger();
+        MetricsListener listener = (operation, rows, columns, nanos, bytes) -> calls.incrementAndGet();
+        Metrics.addListener(listener);
+        try {
+            AdvancedMath.det(AdvancedMath.identityMatrix(3));
+            assertEquals(0, calls.get());
+            assertEquals(0, Metrics.getStats(Metrics.Operation.DET).getCallCount());
+        } finally {
+            Metrics.removeListener(listener);
+        }
+    }
+
+    /**
+     * ENABLED is fixed when Metrics is loaded, so the enabled path is checked in a JVM started with
+     * -Dcom.scott.metrics=true that runs Enabled.main.
+     */
+    @Test
+    public void enabledInAForkedJvm() throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-Dcom.scott.metrics=true", "-cp",
+                System.getProperty("java.class.path"), Enabled.class.getName())
+                .redirectErrorStream(true).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                output.write(buffer, 0, n);
+            }
+        }
+        assertTrue("The forked JVM didn't finish.", process.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(output.toString(), 0, process.exitValue());
+        assertTrue(output.toString(), output.toString().contains("OK"));
+    }
+
+    /**
+     * The checks run with metrics on. A failed assert ends the JVM with a stack trace and a non zero exit code.
+     */
+    public static class Enabled {
+        public static void main(String[] args) throws Exception {
+            assertTrue(Metrics.ENABLED);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.scott:type=AdvancedMathMetrics");
+            assertTrue(server.isRegistered(name));
+
+            List<String> calls = new ArrayList<>();
+            MetricsListener listener = (operation, rows, columns, nanos, bytes) ->
+                    calls.add(operation + " " + rows + " " + columns + " " + bytes + " " + (nanos >= 0));
+            Metrics.addListener(listener);
+            Matrix a = AdvancedMath.identityMatrix(10);
+            try {
+                for (int i = 0; i < 100; i++) {
+                    AdvancedMath.matrixMultiply(a, a);
+                }
+            } finally {
+                Metrics.removeListener(listener);
+            }
+            AdvancedMath.matrixMultiply(a, a);
+            assertEquals(100, calls.size());
+            assertEquals("MATRIX_MULTIPLY 10 10 800 true", calls.get(0));
+
+            OperationStats stats = Metrics.getStats(Metrics.Operation.MATRIX_MULTIPLY);
+            assertEquals(101, stats.getCallCount());
+            assertEquals(101 * 800, stats.getAllocatedBytes());
+            assertEquals(10, stats.getLargestDimension());
+            // 10 x 10 = 100 cells, which has 7 bits.
+            assertEquals(101, stats.getSizeHistogram()[7]);
+            assertTrue(stats.getTotalNanos() > 0);
+            assertTrue(stats.getLatencyPercentile(50) > 0);
+            assertTrue(stats.getLatencyPercentile(50) <= stats.getLatencyPercentile(100));
+
+            TabularData counts = (TabularData) server.getAttribute(name, "CallCounts");
+            assertEquals(101L, counts.get(new Object[]{"MATRIX_MULTIPLY"}).get("value"));
+            // Every element-wise tensor operation is recorded.
+            Tensor t = new Tensor(new double[]{1, 2, 3, 4}, 2, 2);
+            AdvancedMath.add(t, t);
+            AdvancedMath.subtract(t, t);
+            AdvancedMath.multiply(t, t);
+            AdvancedMath.divide(t, t);
+            AdvancedMath.scalarMultiply(2, t);
+            for (Metrics.Operation operation : new Metrics.Operation[]{Metrics.Operation.ADD,
+                    Metrics.Operation.SUBTRACT, Metrics.Operation.ELEMENT_MULTIPLY, Metrics.Operation.DIVIDE,
+                    Metrics.Operation.SCALAR_MULTIPLY}) {
+                assertEquals(operation.name(), 1, Metrics.getStats(operation).getCallCount());
+                assertEquals(operation.name(), 32, Metrics.getStats(operation).getAllocatedBytes());
+            }
+            Metrics.resetAll();
+            assertEquals(0, stats.getCallCount());
+            System.out.println("OK");
+        }
+    }
+
+    @Test
+    public void record() {
+        OperationStats stats = new OperationStats();
+        stats.record(10, 10, 100, 800);
+        stats.record(3, 3, 1000, 72);
+        stats.record(4, 1, 5000, 32);
+        assertEquals(3, stats.getCallCount());
+        assertEquals(6100, stats.getTotalNanos());
+        assertEquals(904, stats.getAllocatedBytes());
+        assertEquals(10, stats.getLargestDimension());
+        long[] sizes = stats.getSizeHistogram();
+        assertEquals(1, sizes[7]);
+        assertEquals(1, sizes[4]);
+        assertEquals(1, sizes[3]);
+        stats.reset();
+        assertEquals(0, stats.getCallCount());
+        assertEquals(0, stats.getLargestDimension());
+        assertEquals(0, stats.getLatencyPercentile(50));
+    }
+
+    @Test
+    public void latencyPercentile() {
+        OperationStats stats = new OperationStats();
+        for (int i = 0; i < 99; i++) {
+            stats.record(1, 1, 100, 0);
+        }
+        stats.record(1, 1, 1_000_000, 0);
+        assertEquals(127, stats.getLatencyPercentile(50));
+        assertEquals(127, stats.getLatencyPercentile(99));
+        assertEquals((1 << 20) - 1, stats.getLatencyPercentile(100));
+        try {
+            stats.getLatencyPercentile(101);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Percentile must be between 0 and 100.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void registerMBean() throws Exception {
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.scott:type=AdvancedMathMetrics");
+        assertTrue(server.isRegistered(name));
+        assertNotNull(server.getAttribute(name, "CallCounts"));
+        assertNotNull(server.getAttribute(name, "WorkspaceAllocatedBytes"));
+    }
+}
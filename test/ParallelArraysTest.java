@@ -0,0 +1,101 @@
+import com.scott.ParallelArrays;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ParallelArraysTest {
+    private final double DELTA = 0.0001;
+    private final int SIZE = 100003;
+
+    private double[] random(long seed) {
+        Random random = new Random(seed);
+        double[] a = new double[SIZE];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = random.nextDouble() * 2 - 1;
+        }
+        return a;
+    }
+
+    @Test
+    public void elementWise() {
+        double[] a = random(1);
+        double[] b = random(2);
+        double[] out = new double[SIZE];
+        ParallelArrays.add(a, b, out);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(a[i] + b[i], out[i], 0);
+        }
+        ParallelArrays.subtract(a, b, out);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(a[i] - b[i], out[i], 0);
+        }
+        ParallelArrays.scale(3, a, out);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(3 * a[i], out[i], 0);
+        }
+        ParallelArrays.zip(a, b, Math::max, out);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(Math.max(a[i], b[i]), out[i], 0);
+        }
+        double[] copy = a.clone();
+        ParallelArrays.map(a, x -> x * x, a);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(copy[i] * copy[i], a[i], 0);
+        }
+    }
+
+    @Test
+    public void reductions() {
+        double[] a = random(3);
+        double sum = 0, norm1 = 0, norm2 = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        int argmax = 0;
+        for (int i = 0; i < SIZE; i++) {
+            sum += a[i];
+            norm1 += Math.abs(a[i]);
+            norm2 += a[i] * a[i];
+            min = Math.min(min, a[i]);
+            if (a[i] > max) {
+                max = a[i];
+                argmax = i;
+            }
+        }
+        assertEquals(sum, ParallelArrays.sum(a), DELTA);
+        assertEquals(norm1, ParallelArrays.norm1(a), DELTA);
+        assertEquals(Math.sqrt(norm2), ParallelArrays.norm2(a), DELTA);
+        assertEquals(Math.max(max, -min), ParallelArrays.normInf(a), 0);
+        assertEquals(min, ParallelArrays.min(a), 0);
+        assertEquals(max, ParallelArrays.max(a), 0);
+        assertEquals(argmax, ParallelArrays.argmax(a));
+        assertEquals(0, ParallelArrays.sum(new double[0]), 0);
+    }
+
+    @Test
+    public void argmaxSkipsNaN() {
+        double[] a = new double[SIZE];
+        a[SIZE - 1] = Double.NaN;
+        a[70000] = 5;
+        a[90000] = 5;
+        assertEquals(70000, ParallelArrays.argmax(a));
+        assertTrue(Double.isNaN(ParallelArrays.max(a)));
+        assertEquals(-1, ParallelArrays.argmax(new double[]{Double.NaN}));
+        assertEquals(0, ParallelArrays.argmax(new double[]{Double.NEGATIVE_INFINITY}));
+    }
+
+    @Test
+    public void errors() {
+        try {
+            ParallelArrays.add(new double[2], new double[2], new double[3]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Arrays must be the same size.", e.getMessage());
+        }
+        try {
+            ParallelArrays.max(new double[0]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The array must not be empty.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.QRDecomposition;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QRDecompositionTest {
+    private final double DELTA = 0.0001;
+
+    private void assertFactors(Matrix expected, QRDecomposition qr) {
+        Matrix q = qr.getQ();
+        Matrix r = qr.getR();
+        assertArrayEquals(expected.getMatrixArray(), AdvancedMath.matrixMultiply(q, r).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.identityMatrix(q.getRows()).getMatrixArray(),
+                AdvancedMath.matrixMultiply(AdvancedMath.transform(q), q).getMatrixArray(), DELTA);
+        for (int i = 0; i < r.getRows(); i++) {
+            for (int j = 0; j < Math.min(i, r.getColumns()); j++) {
+                assertEquals(0, r.getCell(i, j), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void construction() {
+        Random random = new Random(3);
+        Matrix square = TestMatrices.random(5, 5, random);
+        assertFactors(square, new QRDecomposition(square));
+        Matrix tall = TestMatrices.random(6, 3, random);
+        assertFactors(tall, new QRDecomposition(tall));
+        try {
+            new QRDecomposition(new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have at least as many rows as columns to calculate " +
+                    "QR decomposition.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void update() {
+        Random random = new Random(5);
+        for (int[] shape : new int[][]{{5, 5}, {7, 4}}) {
+            Matrix a = TestMatrices.random(shape[0], shape[1], random);
+            QRDecomposition qr = new QRDecomposition(a);
+            double[] u = TestMatrices.random(shape[0], 1, random).getMatrixArray();
+            double[] v = TestMatrices.random(1, shape[1], random).getMatrixArray();
+            qr.update(u, v);
+            Matrix updated = AdvancedMath.add(a, AdvancedMath.matrixMultiply(new Matrix(shape[0], 1, u),
+                    new Matrix(1, shape[1], v)));
+            assertFactors(updated, qr);
+            qr.update(AdvancedMath.scalarMultiply(-1, u), v);
+            assertFactors(a, qr);
+        }
+        try {
+            new QRDecomposition(AdvancedMath.identityMatrix(2)).update(new double[]{1}, new double[]{1, 2});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Vector u must have one element per row and vector v one element " +
+                    "per column.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void solve() {
+        Matrix a = new Matrix(3, 2, new double[]{1, 1,
+                1, 2,
+                1, 3});
+        // Least squares line through (1,6), (2,0), (3,0).
+        assertArrayEquals(new double[]{8, -3}, new QRDecomposition(a).solve(new double[]{6, 0, 0}), DELTA);
+    }
+}
@@ -0,0 +1,90 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.QuantizedMatrix;
+import com.scott.QuantizedMatrix.Precision;
+
+import java.util.Random;
+
+/**
+ * Compares the speed and accuracy of quantized multiplies with the double ones. Not a test, run it with
+ * <pre>
+ * java -cp ... QuantizedMatrixBenchmark
+ * </pre>
+ */
+public class QuantizedMatrixBenchmark {
+    private static volatile double sink;
+
+    interface Kernel {
+        double[] run();
+    }
+
+    private static double time(Kernel kernel, int runs) {
+        // The first runs warm up the JIT.
+        for (int run = 0; run < runs; run++) {
+            sink += kernel.run()[0];
+        }
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            sink += kernel.run()[0];
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        return best;
+    }
+
+    /**
+     * Largest error relative to the largest exact value.
+     */
+    private static double error(double[] exact, double[] approximate) {
+        double worst = 0, largest = 0;
+        for (int i = 0; i < exact.length; i++) {
+            worst = Math.max(worst, Math.abs(exact[i] - approximate[i]));
+            largest = Math.max(largest, Math.abs(exact[i]));
+        }
+        return worst / largest;
+    }
+
+    private static void report(String name, double exactTime, double time, double error, long bytes) {
+        System.out.printf("%-24s %9.3f ms %7.2fx %10.2e error %10d bytes%n", name, time, exactTime / time, error,
+                bytes);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        int n = 2048, batch = 64;
+        double[] values = new double[n * n];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        Matrix weights = new Matrix(n, n, values);
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextGaussian();
+        }
+        double[] activations = new double[n * batch];
+        for (int i = 0; i < activations.length; i++) {
+            activations[i] = random.nextGaussian();
+        }
+        Matrix b = new Matrix(n, batch, activations);
+
+        double[] exactVector = AdvancedMath.matrixMultiply(weights, x);
+        double gemv = time(() -> AdvancedMath.matrixMultiply(weights, x), 50);
+        double[] exactMatrix = AdvancedMath.matrixMultiply(weights, b).getMatrixArray();
+        double gemm = time(() -> AdvancedMath.matrixMultiply(weights, b).getMatrixArray(), 5);
+        System.out.printf("%d x %d weights, a vector and %d columns%n", n, n, batch);
+        report("GEMV double", gemv, gemv, 0, 8L * n * n);
+        for (Precision precision : Precision.values()) {
+            QuantizedMatrix q = new QuantizedMatrix(weights, precision, true);
+            double time = time(() -> AdvancedMath.matrixMultiply(q, x), 50);
+            report("GEMV " + precision, gemv, time, error(exactVector, AdvancedMath.matrixMultiply(q, x)),
+                    q.getBytes());
+        }
+        report("GEMM double", gemm, gemm, 0, 8L * n * n);
+        for (Precision precision : Precision.values()) {
+            QuantizedMatrix q = new QuantizedMatrix(weights, precision, true);
+            double time = time(() -> AdvancedMath.matrixMultiply(q, b).getMatrixArray(), 5);
+            report("GEMM " + precision, gemm, time,
+                    error(exactMatrix, AdvancedMath.matrixMultiply(q, b).getMatrixArray()), q.getBytes());
+        }
+    }
+}
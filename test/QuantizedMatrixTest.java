@@ -0,0 +1,181 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.QuantizedMatrix;
+import com.scott.QuantizedMatrix.Precision;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantizedMatrixTest {
+    private final double DELTA = 0.0001;
+
+    /**
+     * Random matrix with rows of very different sizes, where a scale per row matters.
+     */
+    private Matrix randomMatrix(int rows, int cols, long seed) {
+        double[] values = TestMatrices.random(rows, cols, seed).getMatrixArray();
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= 1 + i / cols % 7;
+        }
+        return new Matrix(rows, cols, values);
+    }
+
+    @Test
+    public void quantizeAndDequantize() {
+        Matrix m = randomMatrix(20, 30, 1);
+        m.setCell(3, 4, 0);
+        for (Precision precision : Precision.values()) {
+            for (boolean perRow : new boolean[]{true, false}) {
+                QuantizedMatrix q = new QuantizedMatrix(m, precision, perRow);
+                assertEquals(precision, q.getPrecision());
+                assertEquals(perRow, q.isPerRow());
+                Matrix back = q.dequantize();
+                for (int i = 0; i < 20; i++) {
+                    double step = q.getScale(i);
+                    for (int j = 0; j < 30; j++) {
+                        assertEquals(m.getCell(i, j), back.getCell(i, j), step * 0.5 * (1 + 1e-9));
+                        assertEquals(back.getCell(i, j), q.getCell(i, j), 0);
+                    }
+                }
+                assertEquals(0, q.getCell(3, 4), 0);
+                assertEquals(q.getScale(0) == q.getScale(19), !perRow);
+            }
+        }
+        QuantizedMatrix q = new QuantizedMatrix(m, Precision.INT8, true);
+        assertTrue(q.getQuantized(0, 0) >= -128 && q.getQuantized(0, 0) <= 127);
+        assertEquals(q.getScale(2) * (q.getQuantized(2, 5) - q.getZeroPoint(2)), q.getCell(2, 5), 1e-12);
+        assertTrue(q.getBytes() < 20 * 30 * 8 / 4);
+        // A row of zeros stays zeros.
+        QuantizedMatrix zeros = new QuantizedMatrix(new Matrix(2, 3), Precision.INT8, true);
+        assertArrayEquals(new double[6], zeros.getMatrixArray(), 0);
+        try {
+            q.setCell(0, 0, 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals("A quantized matrix can't be modified.", e.getMessage());
+        }
+        try {
+            new QuantizedMatrix(new Matrix(1, 2, new double[]{1, Double.NaN}), Precision.INT8, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only finite values can be quantized.", e.getMessage());
+        }
+        try {
+            q.getScale(20);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Indices are out of bounds.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void transposeAndScale() {
+        Matrix m = randomMatrix(5, 7, 2);
+        QuantizedMatrix whole = new QuantizedMatrix(m, Precision.INT8, false);
+        QuantizedMatrix t = whole.transpose();
+        assertEquals(7, t.getRows());
+        assertArrayEquals(AdvancedMath.transform(whole.dequantize()).getMatrixArray(), t.getMatrixArray(), 0);
+        QuantizedMatrix rows = new QuantizedMatrix(m, Precision.INT16, true);
+        assertArrayEquals(AdvancedMath.transform(m).getMatrixArray(), rows.transpose().getMatrixArray(), 1e-3);
+        Matrix scaled = AdvancedMath.scalarMultiply(-2, rows);
+        assertTrue(scaled instanceof QuantizedMatrix);
+        assertArrayEquals(AdvancedMath.scalarMultiply(-2, rows.dequantize()).getMatrixArray(),
+                scaled.getMatrixArray(), 1e-12);
+    }
+
+    /**
+     * The integer kernels give the product of the values the quantized operands stand for, so comparing with a
+     * double multiply of the dequantized operands checks the zero point algebra to rounding error.
+     */
+    @Test
+    public void integerKernelsMatchDequantizedProducts() {
+        Matrix m = randomMatrix(40, 50, 3);
+        Random random = new Random(4);
+        double[] x = new double[50];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian() + 0.5;
+        }
+        Matrix b = randomMatrix(50, 9, 5);
+        for (Precision precision : Precision.values()) {
+            for (boolean perRow : new boolean[]{true, false}) {
+                QuantizedMatrix q = new QuantizedMatrix(m, precision, perRow);
+                Matrix a = q.dequantize();
+                double[] qx = new QuantizedMatrix(new Matrix(1, 50, x), precision, false).getMatrixArray();
+                assertArrayEquals(AdvancedMath.matrixMultiply(a, qx), AdvancedMath.matrixMultiply(q, x), 1e-9);
+
+                Matrix qb = AdvancedMath.transform(new QuantizedMatrix(AdvancedMath.transform(b), precision, true)
+                        .dequantize());
+                assertArrayEquals(AdvancedMath.matrixMultiply(a, qb).getMatrixArray(),
+                        AdvancedMath.matrixMultiply(q, b).getMatrixArray(), 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Quantizing the other operand costs at most half its scale step per element, which bounds the error against
+     * the product with the exact other operand.
+     */
+    @Test
+    public void errorBounds() {
+        Matrix m = randomMatrix(200, 300, 6);
+        Matrix b = randomMatrix(300, 40, 7);
+        Random random = new Random(8);
+        double[] x = new double[300];
+        double xMin = 0, xMax = 0;
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextDouble() * 4 - 1;
+            xMin = Math.min(xMin, x[i]);
+            xMax = Math.max(xMax, x[i]);
+        }
+        for (Precision precision : Precision.values()) {
+            double levels = precision == Precision.INT8 ? 255 : 65535;
+            QuantizedMatrix q = new QuantizedMatrix(m, precision, true);
+            Matrix a = q.dequantize();
+            double[] exact = AdvancedMath.matrixMultiply(a, x);
+            double[] fast = AdvancedMath.matrixMultiply(q, x);
+            Matrix exactProduct = AdvancedMath.matrixMultiply(a, b);
+            Matrix fastProduct = AdvancedMath.matrixMultiply(q, b);
+            for (int i = 0; i < 200; i++) {
+                double absRow = 0;
+                for (int k = 0; k < 300; k++) {
+                    absRow += Math.abs(a.getCell(i, k));
+                }
+                assertEquals(exact[i], fast[i], absRow * 0.5 * (xMax - xMin) / levels + 1e-9);
+                for (int j = 0; j < 40; j++) {
+                    double[] column = b.getColumn(j);
+                    double lo = 0, hi = 0;
+                    for (double value : column) {
+                        lo = Math.min(lo, value);
+                        hi = Math.max(hi, value);
+                    }
+                    assertEquals(exactProduct.getCell(i, j), fastProduct.getCell(i, j),
+                            absRow * 0.5 * (hi - lo) / levels + 1e-9);
+                }
+            }
+        }
+        // With the quantized matrix on the right the product is of the dequantized values.
+        QuantizedMatrix q = new QuantizedMatrix(b, Precision.INT8, true);
+        assertArrayEquals(AdvancedMath.matrixMultiply(m, q.dequantize()).getMatrixArray(),
+                AdvancedMath.matrixMultiply(m, q).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void longRows() {
+        // Rows longer than the block summed in an int, with the largest products there are.
+        int n = 70000;
+        double[] row = new double[n];
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            row[i] = -1;
+            x[i] = -1;
+        }
+        row[0] = 0;
+        x[0] = 0;
+        QuantizedMatrix q = new QuantizedMatrix(new Matrix(1, n, row), Precision.INT8, false);
+        assertEquals(n - 1, AdvancedMath.matrixMultiply(q, x)[0], 1e-6);
+        QuantizedMatrix wide = new QuantizedMatrix(new Matrix(1, n, row), Precision.INT16, false);
+        assertEquals(n - 1, AdvancedMath.matrixMultiply(wide, x)[0], 1e-6);
+    }
+}
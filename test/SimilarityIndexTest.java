@@ -0,0 +1,184 @@
+import com.scott.AdvancedMath;
+import com.scott.SimilarityIndex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SimilarityIndexTest {
+    private final double DELTA = 0.0001;
+
+    private double[] randomVectors(Random random, int count, int dimension) {
+        double[] v = new double[count * dimension];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = random.nextGaussian();
+        }
+        return v;
+    }
+
+    /**
+     * Ids of the k best matches by brute force.
+     */
+    private int[] bruteForce(double[] stored, double[] query, int dimension, int k) {
+        int count = stored.length / dimension;
+        Integer[] ids = new Integer[count];
+        double[] scores = new double[count];
+        double[] q = AdvancedMath.normalize(query);
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+            double[] v = AdvancedMath.normalize(Arrays.copyOfRange(stored, i * dimension, (i + 1) * dimension));
+            scores[i] = AdvancedMath.dotProduct(v, q);
+        }
+        Arrays.sort(ids, (a, b) -> Double.compare(scores[b], scores[a]));
+        int[] best = new int[k];
+        for (int i = 0; i < k; i++) {
+            best[i] = ids[i];
+        }
+        return best;
+    }
+
+    @Test
+    public void exactSearch() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            Random random = new Random(1);
+            int dimension = 17;
+            double[] stored = randomVectors(random, 20000, dimension);
+            SimilarityIndex index = new SimilarityIndex(dimension, offHeap);
+            assertEquals(0, index.addAll(stored));
+            assertEquals(20000, index.size());
+            assertEquals(1, AdvancedMath.magnitude(index.get(123)), 1e-12);
+
+            double[] queries = randomVectors(random, 11, dimension);
+            SimilarityIndex.Match[][] results = index.searchBatch(queries, 5);
+            assertEquals(11, results.length);
+            for (int q = 0; q < 11; q++) {
+                double[] query = Arrays.copyOfRange(queries, q * dimension, (q + 1) * dimension);
+                int[] expected = bruteForce(stored, query, dimension, 5);
+                assertEquals(5, results[q].length);
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(expected[i], results[q][i].getId());
+                }
+                assertEquals(AdvancedMath.dotProduct(AdvancedMath.normalize(query), index.get(expected[0])),
+                        results[q][0].getScore(), 1e-12);
+            }
+            SimilarityIndex.Match[] single = index.search(Arrays.copyOf(queries, dimension), 5);
+            assertEquals(results[0][0].getId(), single[0].getId());
+        }
+    }
+
+    @Test
+    public void fewerThanK() {
+        SimilarityIndex index = new SimilarityIndex(2, false);
+        assertEquals(0, index.search(new double[]{1, 0}, 3).length);
+        index.add(new double[]{0, 2});
+        index.add(new double[]{3, 0});
+        SimilarityIndex.Match[] matches = index.search(new double[]{1, 1}, 3);
+        assertEquals(2, matches.length);
+        // Equal scores go to the lower id.
+        assertEquals(0, matches[0].getId());
+        assertEquals(Math.sqrt(0.5), matches[0].getScore(), DELTA);
+        assertEquals(1, index.search(new double[]{5, 0}, 1)[0].getId());
+    }
+
+    @Test
+    public void kLargerThanTheIndex() {
+        Random random = new Random(5);
+        int dimension = 4, n = 10000;
+        SimilarityIndex index = new SimilarityIndex(dimension, false);
+        index.addAll(randomVectors(random, n, dimension));
+        double[] queries = randomVectors(random, 3, dimension);
+        SimilarityIndex.Match[][] all = index.searchBatch(queries, Integer.MAX_VALUE);
+        for (SimilarityIndex.Match[] matches : all) {
+            assertEquals(n, matches.length);
+            for (int i = 1; i < n; i++) {
+                assertTrue(matches[i - 1].getScore() >= matches[i].getScore());
+            }
+        }
+        index.partition(4, 2, 1);
+        SimilarityIndex.Match[] everything = index.searchApproximate(Arrays.copyOf(queries, dimension),
+                Integer.MAX_VALUE, 4);
+        assertEquals(n, everything.length);
+        assertEquals(all[0][0].getId(), everything[0].getId());
+    }
+
+    @Test
+    public void approximateSearch() {
+        Random random = new Random(2);
+        int dimension = 8, clusters = 20;
+        double[] centers = randomVectors(random, clusters, dimension);
+        double[] stored = new double[5000 * dimension];
+        for (int i = 0; i < 5000; i++) {
+            int c = i % clusters;
+            for (int d = 0; d < dimension; d++) {
+                stored[i * dimension + d] = centers[c * dimension + d] + 0.1 * random.nextGaussian();
+            }
+        }
+        SimilarityIndex index = new SimilarityIndex(dimension, false);
+        index.addAll(stored);
+        try {
+            index.searchApproximate(new double[dimension], 1, 1);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The index must be partitioned first.", e.getMessage());
+        }
+        index.partition(clusters, 10, 3);
+        assertTrue(index.isPartitioned());
+        // Added after partitioning, still found.
+        int late = index.add(Arrays.copyOf(centers, dimension));
+
+        double[] queries = randomVectors(random, 50, dimension);
+        int hits = 0;
+        for (int q = 0; q < 50; q++) {
+            double[] query = Arrays.copyOfRange(queries, q * dimension, (q + 1) * dimension);
+            Set<Integer> exact = new HashSet<>();
+            for (SimilarityIndex.Match m : index.search(query, 10)) {
+                exact.add(m.getId());
+            }
+            for (SimilarityIndex.Match m : index.searchApproximate(query, 10, 3)) {
+                if (exact.contains(m.getId())) {
+                    hits++;
+                }
+            }
+            // Scanning every partition is exact.
+            SimilarityIndex.Match[] all = index.searchApproximate(query, 10, clusters);
+            for (SimilarityIndex.Match m : all) {
+                assertTrue(exact.contains(m.getId()));
+            }
+        }
+        assertTrue("recall " + hits / 500.0, hits >= 450);
+        assertEquals(late, index.searchApproximate(Arrays.copyOf(centers, dimension), 1, 1)[0].getId());
+    }
+
+    @Test
+    public void invalid() {
+        try {
+            new SimilarityIndex(0, false);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The dimension must be at least 1.", e.getMessage());
+        }
+        SimilarityIndex index = new SimilarityIndex(3, false);
+        try {
+            index.add(new double[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The vector must have one element per dimension.", e.getMessage());
+        }
+        try {
+            index.search(new double[3], 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("k must be at least 1.", e.getMessage());
+        }
+        try {
+            index.partition(1, 1, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of partitions must be from 1 to the number of vectors.", e.getMessage());
+        }
+    }
+}
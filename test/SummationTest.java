@@ -0,0 +1,73 @@
+import com.scott.AdvancedMath;
+import com.scott.Summation;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SummationTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void modesAgree() {
+        Random random = new Random(7);
+        double[] a = new double[1001];
+        double[] b = new double[1001];
+        double expected = 0;
+        for (int i = 0; i < a.length; i++) {
+            a[i] = random.nextDouble() - 0.5;
+            b[i] = random.nextDouble() - 0.5;
+            expected += a[i] * b[i];
+        }
+        for (Summation mode : Summation.values()) {
+            assertEquals(mode.name(), expected, AdvancedMath.dotProduct(a, b, mode), DELTA);
+            assertEquals(mode.name(), AdvancedMath.magnitude(a), AdvancedMath.magnitude(a, mode), DELTA);
+        }
+        // magnitude(a) adds up the squares with the unrolled kernel, so it matches that mode exactly and not the
+        // sequential one.
+        assertEquals(AdvancedMath.magnitude(a, Summation.UNROLLED), AdvancedMath.magnitude(a), 0);
+        assertEquals(0, AdvancedMath.dotProduct(new double[0], new double[0], Summation.PAIRWISE), 0);
+    }
+
+    @Test
+    public void compensatedKeepsSmallTerms() {
+        double[] a = {1e16, 1, -1e16};
+        double[] b = {1, 1, 1};
+        assertEquals(0, AdvancedMath.dotProduct(a, b, Summation.SEQUENTIAL), 0);
+        assertEquals(1, AdvancedMath.dotProduct(a, b, Summation.COMPENSATED), 0);
+        assertEquals(1, AdvancedMath.dotProduct(a, b, Summation.COMPENSATED_FMA), 0);
+    }
+
+    @Test
+    public void fmaKeepsProductErrors() {
+        double x = 1 + Math.scalb(1.0, -30);
+        double[] a = {x, 1};
+        double[] b = {x, -(1 + Math.scalb(1.0, -29))};
+        assertEquals(0, AdvancedMath.dotProduct(a, b, Summation.COMPENSATED), 0);
+        assertEquals(Math.scalb(1.0, -60), AdvancedMath.dotProduct(a, b, Summation.COMPENSATED_FMA), 0);
+    }
+
+    @Test
+    public void pairwiseBeatsSequential() {
+        double[] a = new double[1 << 20];
+        double[] b = new double[a.length];
+        Arrays.fill(a, 0.1);
+        Arrays.fill(b, 1);
+        double exact = AdvancedMath.dotProduct(a, b, Summation.COMPENSATED_FMA);
+        double sequentialError = Math.abs(AdvancedMath.dotProduct(a, b, Summation.SEQUENTIAL) - exact);
+        double pairwiseError = Math.abs(AdvancedMath.dotProduct(a, b, Summation.PAIRWISE) - exact);
+        assertTrue(pairwiseError < sequentialError);
+    }
+
+    @Test
+    public void sizeMismatch() {
+        try {
+            AdvancedMath.dotProduct(new double[2], new double[3], Summation.UNROLLED);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Inputs A and B must be the same size to compute dot product.", e.getMessage());
+        }
+    }
+}
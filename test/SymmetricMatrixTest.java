@@ -0,0 +1,51 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.SymmetricMatrix;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SymmetricMatrixTest {
+    private final double DELTA = 0.0001;
+    private final Matrix full = new Matrix(3, 3, new double[]{
+            4, 1, 2,
+            1, 5, 3,
+            2, 3, 6});
+
+    @Test
+    public void cells() {
+        SymmetricMatrix s = new SymmetricMatrix(full);
+        assertEquals(6, s.getStorageSize());
+        assertArrayEquals(full.getMatrixArray(), s.getMatrixArray(), DELTA);
+        s.setCell(0, 2, 7);
+        assertEquals(7, s.getCell(2, 0), DELTA);
+        assertArrayEquals(s.getMatrixArray(), AdvancedMath.transform(s).getMatrixArray(), DELTA);
+    }
+
+    @Test
+    public void operations() {
+        SymmetricMatrix s = new SymmetricMatrix(full);
+        Matrix m = new Matrix(3, 2, new double[]{1, 2, 3, 4, 5, 6});
+        assertArrayEquals(AdvancedMath.matrixMultiply(full, m).getMatrixArray(),
+                AdvancedMath.matrixMultiply(s, m).getMatrixArray(), DELTA);
+        Matrix n = new Matrix(2, 3, new double[]{1, 2, 3, 4, 5, 6});
+        assertArrayEquals(AdvancedMath.matrixMultiply(n, full).getMatrixArray(),
+                AdvancedMath.matrixMultiply(n, s).getMatrixArray(), DELTA);
+        assertArrayEquals(AdvancedMath.matrixMultiply(full, new double[]{1, -2, 3}),
+                AdvancedMath.matrixMultiply(s, new double[]{1, -2, 3}), DELTA);
+        assertEquals(AdvancedMath.det(full), AdvancedMath.det(s), DELTA);
+        assertArrayEquals(AdvancedMath.inv(full).getMatrixArray(), AdvancedMath.inv(s).getMatrixArray(), DELTA);
+        assertTrue(AdvancedMath.scalarMultiply(3, s) instanceof SymmetricMatrix);
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new SymmetricMatrix(new Matrix(2, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have same number of rows and columns to make a symmetric matrix.",
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,365 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.Tensor;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TensorTest {
+    private final double DELTA = 0.0001;
+
+    private Tensor randomTensor(long seed, int... shape) {
+        Tensor t = new Tensor(shape);
+        Random random = new Random(seed);
+        double[] values = new double[t.getSize()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 10 - 5;
+        }
+        return new Tensor(values, shape);
+    }
+
+    private Matrix matrix(Tensor t, int... batch) {
+        for (int index : batch) {
+            t = t.select(0, index);
+        }
+        return t.toMatrix();
+    }
+
+    @Test
+    public void construction() {
+        try {
+            new Tensor();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A tensor needs at least 1 dimension.", e.getMessage());
+        }
+        try {
+            new Tensor(2, 0, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The minimum size of every dimension is 1.", e.getMessage());
+        }
+        try {
+            new Tensor(new double[5], 2, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Dimensions do not match provided tensor size.", e.getMessage());
+        }
+        Tensor t = new Tensor(2, 3, 4);
+        assertArrayEquals(new int[]{2, 3, 4}, t.getShape());
+        assertArrayEquals(new int[]{12, 4, 1}, t.getStrides());
+        assertEquals(3, t.getRank());
+        assertEquals(24, t.getSize());
+        assertTrue(t.isContiguous());
+        t.set(7, 1, 2, 3);
+        assertEquals(7, t.get(1, 2, 3), DELTA);
+        assertEquals(7, t.toArray()[23], DELTA);
+        try {
+            t.get(1, 3, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Indices are out of bounds.", e.getMessage());
+        }
+        try {
+            t.get(1, 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("There must be one index for every dimension.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void matrixInterop() {
+        Matrix m = new Matrix(2, 3, new double[]{1, 2, 3, 4, 5, 6});
+        Tensor t = new Tensor(m);
+        assertEquals(6, t.get(1, 2), DELTA);
+        t.set(9, 0, 1);
+        assertEquals(9, m.getCell(0, 1), DELTA);
+        Matrix back = t.toMatrix();
+        assertSame(m.getMatrixArray(), back.getMatrixArray());
+        // A view that isn't the whole array is copied.
+        Matrix column = t.slice(1, 2, 3).toMatrix();
+        assertArrayEquals(new double[]{3, 6}, column.getMatrixArray(), DELTA);
+        assertArrayEquals(new double[]{1, 4, 9, 5, 3, 6}, t.transpose().toMatrix().getMatrixArray(), DELTA);
+        try {
+            new Tensor(2, 2, 2).toMatrix();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only a tensor with 2 dimensions can be turned into a matrix.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void views() {
+        double[] values = new double[24];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        Tensor t = new Tensor(values, 2, 3, 4);
+
+        Tensor reshaped = t.reshape(4, -1);
+        assertArrayEquals(new int[]{4, 6}, reshaped.getShape());
+        reshaped.set(-1, 3, 5);
+        assertEquals(-1, t.get(1, 2, 3), DELTA);
+        values[23] = 23;
+
+        Tensor permuted = t.permute(2, 0, 1);
+        assertArrayEquals(new int[]{4, 2, 3}, permuted.getShape());
+        assertEquals(t.get(1, 2, 3), permuted.get(3, 1, 2), DELTA);
+        assertFalse(permuted.isContiguous());
+        // Reshaping a view that isn't contiguous copies it in row major order.
+        Tensor flat = permuted.reshape(24);
+        assertEquals(permuted.get(1, 0, 2), flat.get(1 * 6 + 2), DELTA);
+        flat.set(100, 0);
+        assertEquals(0, t.get(0, 0, 0), DELTA);
+
+        Tensor slice = t.slice(1, 1, 3);
+        assertArrayEquals(new int[]{2, 2, 4}, slice.getShape());
+        assertEquals(t.get(1, 2, 0), slice.get(1, 1, 0), DELTA);
+        Tensor row = t.select(0, 1).select(0, 2);
+        assertArrayEquals(new double[]{20, 21, 22, 23}, row.toArray(), DELTA);
+
+        Tensor broadcast = new Tensor(new double[]{1, 2, 3}, 3, 1).broadcastTo(2, 3, 4);
+        assertArrayEquals(new int[]{0, 1, 0}, broadcast.getStrides());
+        assertEquals(3, broadcast.get(1, 2, 3), DELTA);
+        assertArrayEquals(new double[]{1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3}, broadcast.select(0, 0).toArray(), DELTA);
+
+        try {
+            t.reshape(5, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The new shape must have the same number of elements.", e.getMessage());
+        }
+        try {
+            t.reshape(-1, -1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only one dimension can be -1.", e.getMessage());
+        }
+        try {
+            t.permute(0, 0, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The axes must be a permutation of the dimensions.", e.getMessage());
+        }
+        try {
+            t.slice(2, 3, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The slice is out of bounds.", e.getMessage());
+        }
+        try {
+            t.slice(3, 0, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The axis is out of bounds.", e.getMessage());
+        }
+        try {
+            t.broadcastTo(2, 2, 4);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The tensor can't be broadcast to the shape.", e.getMessage());
+        }
+        try {
+            new Tensor(3).select(0, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A tensor needs at least 2 dimensions to select from.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void elementWise() {
+        Tensor a = randomTensor(1, 2, 3, 4);
+        Tensor row = randomTensor(2, 4);
+        Tensor sum = AdvancedMath.add(a, row);
+        Tensor difference = AdvancedMath.subtract(row, a);
+        Tensor product = AdvancedMath.multiply(a, row);
+        Tensor quotient = AdvancedMath.divide(a, row);
+        Tensor scaled = AdvancedMath.scalarMultiply(3, a);
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                for (int k = 0; k < 4; k++) {
+                    assertEquals(a.get(i, j, k) + row.get(k), sum.get(i, j, k), DELTA);
+                    assertEquals(row.get(k) - a.get(i, j, k), difference.get(i, j, k), DELTA);
+                    assertEquals(a.get(i, j, k) * row.get(k), product.get(i, j, k), DELTA);
+                    assertEquals(a.get(i, j, k) / row.get(k), quotient.get(i, j, k), DELTA);
+                    assertEquals(a.get(i, j, k) * 3, scaled.get(i, j, k), DELTA);
+                }
+            }
+        }
+        // A column and a row broadcast to a grid, and views as inputs.
+        Tensor grid = AdvancedMath.add(new Tensor(new double[]{10, 20}, 2, 1), new Tensor(new double[]{1, 2, 3}, 3));
+        assertArrayEquals(new double[]{11, 12, 13, 21, 22, 23}, grid.toArray(), DELTA);
+        Tensor transposed = AdvancedMath.subtract(a.permute(2, 1, 0), a.permute(2, 1, 0).copy());
+        assertArrayEquals(new double[24], transposed.toArray(), DELTA);
+        try {
+            AdvancedMath.add(a, new Tensor(3, 3));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Tensors A and B can't be broadcast to the same shape.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void largeElementWise() {
+        // Large enough to run in parallel, both as one long row and as many short rows.
+        Tensor a = randomTensor(3, 300, 200, 3);
+        Tensor b = randomTensor(4, 200, 1);
+        Tensor sum = AdvancedMath.add(a, b);
+        Tensor flat = AdvancedMath.add(a, a);
+        for (int i = 0; i < 300; i += 37) {
+            for (int j = 0; j < 200; j += 11) {
+                for (int k = 0; k < 3; k++) {
+                    assertEquals(a.get(i, j, k) + b.get(j, 0), sum.get(i, j, k), DELTA);
+                    assertEquals(2 * a.get(i, j, k), flat.get(i, j, k), DELTA);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reductions() {
+        Tensor t = randomTensor(5, 3, 4, 5);
+        for (int axis = 0; axis < 3; axis++) {
+            Tensor sum = AdvancedMath.sum(t, axis);
+            Tensor mean = AdvancedMath.mean(t, axis);
+            Tensor min = AdvancedMath.min(t, axis);
+            Tensor max = AdvancedMath.max(t, axis);
+            int[] shape = t.getShape();
+            assertEquals(2, sum.getRank());
+            for (int i = 0; i < shape[0]; i++) {
+                for (int j = 0; j < shape[1]; j++) {
+                    for (int k = 0; k < shape[2]; k++) {
+                        int[] full = {i, j, k};
+                        if (full[axis] != 0) {
+                            continue;
+                        }
+                        int[] reduced = new int[2];
+                        for (int d = 0, e = 0; d < 3; d++) {
+                            if (d != axis) {
+                                reduced[e++] = full[d];
+                            }
+                        }
+                        double s = 0, lo = Double.MAX_VALUE, hi = -Double.MAX_VALUE;
+                        for (int x = 0; x < shape[axis]; x++) {
+                            full[axis] = x;
+                            double value = t.get(full);
+                            s += value;
+                            lo = Math.min(lo, value);
+                            hi = Math.max(hi, value);
+                        }
+                        assertEquals(s, sum.get(reduced), DELTA);
+                        assertEquals(s / shape[axis], mean.get(reduced), DELTA);
+                        assertEquals(lo, min.get(reduced), DELTA);
+                        assertEquals(hi, max.get(reduced), DELTA);
+                    }
+                }
+            }
+        }
+        Tensor vector = new Tensor(new double[]{1, 2, 3, 4}, 4);
+        assertArrayEquals(new double[]{10}, AdvancedMath.sum(vector, 0).toArray(), DELTA);
+        // A permuted view reduces the same as a copy of it.
+        assertArrayEquals(AdvancedMath.sum(t.permute(1, 2, 0).copy(), 1).toArray(),
+                AdvancedMath.sum(t.permute(1, 2, 0), 1).toArray(), DELTA);
+        Tensor big = randomTensor(6, 100, 500);
+        assertArrayEquals(AdvancedMath.sum(big.transpose().copy(), 1).toArray(),
+                AdvancedMath.sum(big, 0).toArray(), DELTA);
+        try {
+            AdvancedMath.sum(t, 3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The axis is out of bounds.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void sizeOneAxes() {
+        Tensor column = new Tensor(new double[]{1, 2, 3}, 3, 1);
+        assertArrayEquals(new double[]{1, 2, 3}, AdvancedMath.sum(column, 1).toArray(), DELTA);
+        assertArrayEquals(new double[]{1, 2, 3}, AdvancedMath.mean(column, 1).toArray(), DELTA);
+        assertArrayEquals(new double[]{1, 2, 3}, AdvancedMath.min(column, 1).toArray(), DELTA);
+        assertArrayEquals(new double[]{1, 2, 3}, AdvancedMath.max(column, 1).toArray(), DELTA);
+        assertArrayEquals(new double[]{6}, AdvancedMath.sum(column, 0).toArray(), DELTA);
+
+        Tensor t = randomTensor(7, 2, 3, 1);
+        assertArrayEquals(t.toArray(), AdvancedMath.sum(t, 2).toArray(), DELTA);
+        assertArrayEquals(t.toArray(), AdvancedMath.max(t, 2).toArray(), DELTA);
+        assertArrayEquals(new int[]{2, 3}, AdvancedMath.sum(t, 2).getShape());
+        Tensor middle = randomTensor(8, 2, 1, 3);
+        assertArrayEquals(middle.toArray(), AdvancedMath.sum(middle, 1).toArray(), DELTA);
+        // A size 1 axis of a view reduces the same as a copy of it.
+        Tensor view = randomTensor(9, 4, 1, 3).permute(2, 0, 1);
+        assertArrayEquals(view.copy().toArray(), AdvancedMath.min(view, 2).toArray(), DELTA);
+        assertArrayEquals(new double[]{5}, AdvancedMath.sum(new Tensor(new double[]{5}, 1), 0).toArray(), DELTA);
+    }
+
+    @Test
+    public void matrixMultiply() {
+        Tensor a = randomTensor(7, 4, 3, 5);
+        Tensor b = randomTensor(8, 4, 5, 2);
+        Tensor product = AdvancedMath.matrixMultiply(a, b);
+        assertArrayEquals(new int[]{4, 3, 2}, product.getShape());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(AdvancedMath.matrixMultiply(matrix(a, i), matrix(b, i)).getMatrixArray(),
+                    matrix(product, i).getMatrixArray(), DELTA);
+        }
+        // One matrix shared by the whole batch, and a transposed view.
+        Tensor shared = randomTensor(9, 2, 5);
+        Tensor right = AdvancedMath.matrixMultiply(a, shared.transpose());
+        Tensor left = AdvancedMath.matrixMultiply(shared, a.transpose());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(AdvancedMath.matrixMultiply(matrix(a, i), shared.transpose().toMatrix())
+                    .getMatrixArray(), matrix(right, i).getMatrixArray(), DELTA);
+            assertArrayEquals(AdvancedMath.matrixMultiply(shared.toMatrix(), matrix(a.transpose(), i))
+                    .getMatrixArray(), matrix(left, i).getMatrixArray(), DELTA);
+        }
+        // Batch dimensions broadcast against each other.
+        Tensor x = randomTensor(10, 2, 1, 3, 4);
+        Tensor y = randomTensor(11, 3, 4, 2);
+        Tensor xy = AdvancedMath.matrixMultiply(x, y);
+        assertArrayEquals(new int[]{2, 3, 3, 2}, xy.getShape());
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertArrayEquals(AdvancedMath.matrixMultiply(matrix(x, i, 0), matrix(y, j)).getMatrixArray(),
+                        matrix(xy, i, j).getMatrixArray(), DELTA);
+            }
+        }
+        try {
+            AdvancedMath.matrixMultiply(a, new Tensor(5));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Tensors A and B need at least 2 dimensions to multiply as matrices.", e.getMessage());
+        }
+        try {
+            AdvancedMath.matrixMultiply(a, a);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of columns in tensor A must match the number of rows in tensor B.",
+                    e.getMessage());
+        }
+        try {
+            AdvancedMath.matrixMultiply(a, new Tensor(3, 5, 2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The batch dimensions of tensors A and B can't be broadcast to the same shape.",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void largeMatrixMultiply() {
+        // Large enough to be split over threads by batch and by rows.
+        Tensor a = randomTensor(12, 3, 80, 60);
+        Tensor b = randomTensor(13, 3, 60, 70);
+        Tensor product = AdvancedMath.matrixMultiply(a, b);
+        Tensor single = AdvancedMath.matrixMultiply(a.select(0, 1), b.select(0, 1));
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(AdvancedMath.matrixMultiply(matrix(a, i), matrix(b, i)).getMatrixArray(),
+                    matrix(product, i).getMatrixArray(), DELTA);
+        }
+        assertArrayEquals(matrix(product, 1).getMatrixArray(), single.toArray(), DELTA);
+    }
+}
@@ -0,0 +1,37 @@
+import com.scott.Matrix;
+
+import java.util.Random;
+
+/**
+ * Random matrices for the tests, so every test builds them the same way.
+ */
+final class TestMatrices {
+    private TestMatrices() {
+    }
+
+    /**
+     * Matrix of standard normal values.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param random source of the values
+     * @return the matrix
+     */
+    static Matrix random(int rows, int cols, Random random) {
+        double[] values = new double[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        return new Matrix(rows, cols, values);
+    }
+
+    /**
+     * Matrix of standard normal values from a new Random with the seed.
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param seed seed of the values
+     * @return the matrix
+     */
+    static Matrix random(int rows, int cols, long seed) {
+        return random(rows, cols, new Random(seed));
+    }
+}
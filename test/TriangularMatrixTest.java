@@ -0,0 +1,67 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.TriangularMatrix;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TriangularMatrixTest {
+    private final double DELTA = 0.0001;
+    private final Matrix full = new Matrix(3, 3, new double[]{
+            2, 1, 3,
+            4, 5, 6,
+            7, 8, 9});
+
+    @Test
+    public void cells() {
+        TriangularMatrix lower = new TriangularMatrix(full, true);
+        TriangularMatrix upper = new TriangularMatrix(full, false);
+        assertEquals(6, lower.getStorageSize());
+        assertArrayEquals(new double[]{2, 0, 0, 4, 5, 0, 7, 8, 9}, lower.getMatrixArray(), DELTA);
+        assertArrayEquals(new double[]{2, 1, 3, 0, 5, 6, 0, 0, 9}, upper.getMatrixArray(), DELTA);
+        assertTrue(lower.isLower());
+        TriangularMatrix transposed = lower.transpose();
+        assertFalse(transposed.isLower());
+        assertArrayEquals(AdvancedMath.transform(new Matrix(3, 3, lower.getMatrixArray())).getMatrixArray(),
+                transposed.getMatrixArray(), DELTA);
+        try {
+            upper.setCell(2, 0, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only cells inside the matrix's structure can be non-zero.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void operations() {
+        for (boolean isLower : new boolean[]{true, false}) {
+            TriangularMatrix t = new TriangularMatrix(full, isLower);
+            Matrix dense = new Matrix(3, 3, t.getMatrixArray());
+            assertEquals(90, AdvancedMath.det(t), DELTA);
+            assertArrayEquals(AdvancedMath.inv(dense).getMatrixArray(), AdvancedMath.inv(t).getMatrixArray(), DELTA);
+            assertArrayEquals(AdvancedMath.matrixMultiply(dense, full).getMatrixArray(),
+                    AdvancedMath.matrixMultiply(t, full).getMatrixArray(), DELTA);
+            assertArrayEquals(AdvancedMath.matrixMultiply(full, dense).getMatrixArray(),
+                    AdvancedMath.matrixMultiply(full, t).getMatrixArray(), DELTA);
+            double[] b = {1, 2, 3};
+            assertArrayEquals(b, AdvancedMath.matrixMultiply(t, t.solve(b)), DELTA);
+        }
+    }
+
+    @Test
+    public void errors() {
+        try {
+            new TriangularMatrix(new Matrix(2, 3), true);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Matrix must have same number of rows and columns to make a triangular matrix.",
+                    e.getMessage());
+        }
+        try {
+            new TriangularMatrix(2, true).solve(new double[]{1, 1});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("A matrix with a zero determinant has no inverse.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.Tuning;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TuningTest {
+    private final double DELTA = 0.0001;
+    private Map<Tuning.Parameter, Integer> saved;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void saveParameters() {
+        saved = Tuning.getParameters();
+    }
+
+    @After
+    public void restoreParameters() {
+        for (Map.Entry<Tuning.Parameter, Integer> entry : saved.entrySet()) {
+            entry.getKey().set(entry.getValue());
+        }
+    }
+
+    @Test
+    public void blockSizesDontChangeResults() {
+        Matrix a = TestMatrices.random(37, 23, 1);
+        Matrix b = TestMatrices.random(23, 41, 2);
+        Tuning.Parameter.MULTIPLY_BLOCK_SIZE.set(1000);
+        Tuning.Parameter.TRANSPOSE_BLOCK_SIZE.set(1000);
+        double[] product = AdvancedMath.matrixMultiply(a, b).getMatrixArray();
+        double[] transposed = AdvancedMath.transform(a).getMatrixArray();
+        for (int block : new int[]{1, 5, 8, 64}) {
+            Tuning.Parameter.MULTIPLY_BLOCK_SIZE.set(block);
+            Tuning.Parameter.TRANSPOSE_BLOCK_SIZE.set(block);
+            assertArrayEquals(product, AdvancedMath.matrixMultiply(a, b).getMatrixArray(), DELTA);
+            assertArrayEquals(transposed, AdvancedMath.transform(a).getMatrixArray(), 0);
+        }
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        Path profile = folder.getRoot().toPath().resolve("profile.properties");
+        Tuning.Parameter.MULTIPLY_BLOCK_SIZE.set(48);
+        Tuning.Parameter.PARALLEL_THRESHOLD.set(12345);
+        Tuning.save(profile);
+        Tuning.Parameter.MULTIPLY_BLOCK_SIZE.set(16);
+        Tuning.Parameter.PARALLEL_THRESHOLD.set(16);
+        assertTrue(Tuning.load(profile));
+        assertEquals(48, Tuning.Parameter.MULTIPLY_BLOCK_SIZE.get());
+        assertEquals(12345, Tuning.Parameter.PARALLEL_THRESHOLD.get());
+
+        assertFalse(Tuning.load(profile.resolveSibling("missing.properties")));
+        Files.write(profile, Arrays.asList("availableProcessors=100000", "multiplyBlockSize=8"));
+        assertFalse(Tuning.load(profile));
+        assertEquals(48, Tuning.Parameter.MULTIPLY_BLOCK_SIZE.get());
+    }
+
+    @Test
+    public void tune() {
+        Map<Tuning.Parameter, Integer> tuned = Tuning.tune();
+        assertEquals(Tuning.Parameter.values().length, tuned.size());
+        for (Map.Entry<Tuning.Parameter, Integer> entry : tuned.entrySet()) {
+            assertEquals(entry.getKey().get(), (int) entry.getValue());
+            assertTrue(entry.getValue() > 0);
+        }
+    }
+
+    @Test
+    public void errors() {
+        try {
+            Tuning.Parameter.BATCH_CHUNK_SIZE.set(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Tuning parameters must be at least 1.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import com.scott.VectorPipelineStage;
+import com.scott.VectorTransform;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class VectorPipelineStageTest {
+    private final double DELTA = 0.0001;
+
+    private static class Collector implements Flow.Subscriber<double[]> {
+        private final List<double[]> items = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        public void onNext(double[] item) {
+            items.add(item);
+        }
+
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            done.countDown();
+        }
+
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void construction() {
+        try {
+            new VectorPipelineStage(new VectorTransform(2), Runnable::run, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The buffer capacity must be at least 1.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void multiStage() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            VectorPipelineStage scale = new VectorPipelineStage(new VectorTransform(2).scale(2), pool, 4);
+            VectorPipelineStage shift = new VectorPipelineStage(new VectorTransform(2).add(new double[]{1, 1}),
+                    pool, 4);
+            Collector collector = new Collector();
+            scale.subscribe(shift);
+            shift.subscribe(collector);
+            try (SubmissionPublisher<double[]> source = new SubmissionPublisher<>(pool, 4)) {
+                source.subscribe(scale);
+                for (int i = 0; i < 1000; i++) {
+                    source.submit(new double[]{i, -i, i, i});
+                }
+            }
+            assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+            assertNull(collector.error.get());
+            assertEquals(1000, collector.items.size());
+            for (int i = 0; i < 1000; i++) {
+                assertArrayEquals(new double[]{2 * i + 1, -2 * i + 1, 2 * i + 1, 2 * i + 1},
+                        collector.items.get(i), DELTA);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void badChunkFailsDownstream() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            VectorPipelineStage stage = new VectorPipelineStage(new VectorTransform(3), pool, 2);
+            Collector collector = new Collector();
+            stage.subscribe(collector);
+            try (SubmissionPublisher<double[]> source = new SubmissionPublisher<>(pool, 2)) {
+                source.subscribe(stage);
+                source.submit(new double[4]);
+            }
+            assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+            assertEquals("The chunk size must be a multiple of the vector dimension.",
+                    collector.error.get().getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void lateSubscriber() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            VectorPipelineStage stage = new VectorPipelineStage(new VectorTransform(2).scale(3), pool, 4);
+            Collector collector = new Collector();
+            try (SubmissionPublisher<double[]> source = new SubmissionPublisher<>(pool, 16)) {
+                source.subscribe(stage);
+                for (int i = 0; i < 10; i++) {
+                    source.submit(new double[]{i, 1});
+                }
+                // Nothing is requested before the stage has a subscriber, so the chunks wait in the source.
+                Thread.sleep(100);
+                stage.subscribe(collector);
+            }
+            assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+            assertNull(collector.error.get());
+            assertEquals(10, collector.items.size());
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(new double[]{3 * i, 3}, collector.items.get(i), DELTA);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void demand() {
+        AtomicLong requested = new AtomicLong();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flow.Subscription upstream = new Flow.Subscription() {
+            public void request(long n) {
+                requested.addAndGet(n);
+            }
+
+            public void cancel() {
+                cancelled.set(true);
+            }
+        };
+        VectorPipelineStage stage = new VectorPipelineStage(new VectorTransform(1), Runnable::run, 4);
+        stage.onSubscribe(upstream);
+        assertEquals(0, requested.get());
+        AtomicReference<Flow.Subscription> downstream = new AtomicReference<>();
+        stage.subscribe(new Collector() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                downstream.set(subscription);
+                subscription.request(1);
+            }
+        });
+        assertEquals(4, requested.get());
+        stage.onNext(new double[]{1});
+        assertEquals(5, requested.get());
+        // With every subscriber gone the stage cancels upstream instead of dropping chunks.
+        downstream.get().cancel();
+        stage.onNext(new double[]{2});
+        assertTrue(cancelled.get());
+        assertEquals(5, requested.get());
+    }
+}
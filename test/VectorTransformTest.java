@@ -0,0 +1,98 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.VectorTransform;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VectorTransformTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void construction() {
+        try {
+            new VectorTransform(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The dimension of the vectors must be at least 1.", e.getMessage());
+        }
+        try {
+            new VectorTransform(3).multiply(new Matrix(2, 2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The number of columns in the matrix must match the number of " +
+                    "elements in each vector.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void identity() {
+        assertArrayEquals(new double[]{1, 2, 3, 4}, new VectorTransform(2).apply(new double[]{1, 2, 3, 4}), DELTA);
+    }
+
+    @Test
+    public void chain() {
+        Matrix m = new Matrix(2, 3, new double[]{1, 0, 2,
+                0, 3, 1});
+        VectorTransform t = new VectorTransform(3).multiply(m).normalize().clamp(-0.7, 0.7);
+        assertEquals(3, t.getInputDimension());
+        assertEquals(2, t.getOutputDimension());
+        double[] chunk = {1, 2, 3, -4, 0.5, 2, 0, 0, 0};
+        double[] result = t.apply(chunk);
+        assertEquals(6, result.length);
+        for (int v = 0; v < 3; v++) {
+            double[] vec = {chunk[v * 3], chunk[v * 3 + 1], chunk[v * 3 + 2]};
+            double[] expected = AdvancedMath.matrixMultiply(m, vec);
+            double mag = AdvancedMath.magnitude(expected);
+            for (int i = 0; i < 2; i++) {
+                double value = mag == 0 ? 0 : AdvancedMath.clamp(expected[i] / mag, -0.7, 0.7);
+                assertEquals(value, result[v * 2 + i], DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void normalizeExtremes() {
+        VectorTransform t = new VectorTransform(2).normalize();
+        double[] chunk = {3e200, 4e200, 3e-200, -4e-200, 0, 0};
+        assertArrayEquals(new double[]{0.6, 0.8, 0.6, -0.8, 0, 0}, t.apply(chunk), DELTA);
+        double[] large = {3e200, 4e200};
+        assertArrayEquals(AdvancedMath.normalize(large), t.apply(large), 0);
+    }
+
+    @Test
+    public void scaleAndAdd() {
+        VectorTransform t = new VectorTransform(2).scale(2).add(new double[]{1, -1});
+        assertArrayEquals(new double[]{3, 3, 7, 7}, t.apply(new double[]{1, 2, 3, 4}), DELTA);
+        try {
+            t.add(new double[]{1});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Vectors A and B must be the same size to add.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void immutable() {
+        VectorTransform base = new VectorTransform(2);
+        VectorTransform scaled = base.scale(3);
+        assertArrayEquals(new double[]{1, 2}, base.apply(new double[]{1, 2}), DELTA);
+        assertArrayEquals(new double[]{3, 6}, scaled.apply(new double[]{1, 2}), DELTA);
+    }
+
+    @Test
+    public void chunkSize() {
+        try {
+            new VectorTransform(3).apply(new double[4]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The chunk size must be a multiple of the vector dimension.", e.getMessage());
+        }
+        try {
+            new VectorTransform(2).apply(new double[4], new double[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The output must hold the same number of vectors as the chunk.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import com.scott.AdvancedMath;
+import com.scott.Matrix;
+import com.scott.Workspace;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class WorkspaceTest {
+    private final double DELTA = 0.0001;
+
+    @Test
+    public void borrow() {
+        double[] first;
+        try (Workspace ws = Workspace.open()) {
+            first = ws.borrow(5);
+            assertEquals(8, first.length);
+            assertNotSame(first, ws.borrow(5));
+            assertEquals(1, ws.borrow(0).length);
+        }
+        try (Workspace ws = Workspace.open()) {
+            assertSame(first, ws.borrow(7));
+        }
+        try {
+            Workspace.open().borrow(-1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Size must not be negative.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void nested() {
+        try (Workspace outer = Workspace.open()) {
+            double[] a = outer.borrow(16);
+            double[] b;
+            try (Workspace inner = Workspace.open()) {
+                b = inner.borrow(16);
+                assertNotSame(a, b);
+            }
+            assertSame(b, outer.borrow(16));
+        }
+    }
+
+    @Test
+    public void closed() {
+        Workspace ws = Workspace.open();
+        ws.close();
+        ws.close();
+        try {
+            ws.borrow(4);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The workspace has already been closed.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void ownerThread() throws Exception {
+        Workspace ws = Workspace.open();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> result = pool.submit(() -> ws.borrow(4));
+            result.get();
+            fail();
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertEquals("A workspace can only be used by the thread that opened it.", e.getCause().getMessage());
+        } finally {
+            pool.shutdown();
+            ws.close();
+        }
+    }
+
+    @Test
+    public void retainedBytes() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // A new thread starts with an empty pool, which keeps at most 16 MiB.
+            pool.submit(() -> {
+                long before = Workspace.getAllocationCount();
+                for (int round = 0; round < 2; round++) {
+                    try (Workspace ws = Workspace.open()) {
+                        ws.borrow(1 << 22);
+                    }
+                }
+                assertEquals(2, Workspace.getAllocationCount() - before);
+
+                before = Workspace.getAllocationCount();
+                try (Workspace ws = Workspace.open()) {
+                    ws.borrow(1 << 20);
+                    ws.borrow(1 << 20);
+                    ws.borrow(1 << 20);
+                }
+                assertEquals(3, Workspace.getAllocationCount() - before);
+                // Two of the three 8 MiB arrays were kept.
+                for (int round = 0; round < 2; round++) {
+                    before = Workspace.getAllocationCount();
+                    try (Workspace ws = Workspace.open()) {
+                        ws.borrow(1 << 20);
+                        ws.borrow(1 << 20);
+                        ws.borrow(1 << 20);
+                    }
+                    assertEquals(1, Workspace.getAllocationCount() - before);
+                }
+                return null;
+            }).get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void counts() {
+        Matrix m = new Matrix(6, 6, new double[]{5, 1, 3, 0, 1, 2,
+                9, 4, 1, 3, 8, 1,
+                5, 0, 8, 1, 3, 7,
+                1, 8, 3, 99, 10, 4,
+                43, 9, 84, 90, 1, 6,
+                2, 7, 1, 8, 2, 8});
+        double expected = AdvancedMath.det(m);
+        AdvancedMath.inv(m);
+        Workspace.resetCounts();
+        assertEquals(expected, AdvancedMath.det(m), DELTA);
+        AdvancedMath.inv(m);
+        assertTrue(Workspace.getBorrowCount() > 0);
+        assertEquals(0, Workspace.getAllocationCount());
+        assertEquals(0, Workspace.getAllocatedBytes());
+    }
+}